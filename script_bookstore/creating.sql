@@ -10,7 +10,14 @@ CREATE TABLE library (
     lastDeliveredDate TIMESTAMP NOT NULL,
     lastSaleDate TIMESTAMP,
     status VARCHAR(20) NOT NULL,
-    PRIMARY KEY (book_id)
+    reserved INT NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (book_id),
+    INDEX idx_library_name (name),
+    INDEX idx_library_price (price),
+    INDEX idx_library_year (publicationDate),
+    INDEX idx_library_status_price (status, price),
+    INDEX idx_library_author_year (author, publicationDate)
 );
 
 CREATE TABLE orders (
@@ -20,7 +27,10 @@ CREATE TABLE orders (
     orderDate TIMESTAMP NOT NULL,
     completeDate TIMESTAMP,
     clientName VARCHAR(255) NOT NULL,
-    PRIMARY KEY (order_id)
+    version BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (order_id),
+    INDEX idx_orders_client_date (clientName, orderDate),
+    INDEX idx_orders_status_complete (status, completeDate)
 );
 
 CREATE TABLE requests (
@@ -28,7 +38,18 @@ CREATE TABLE requests (
     book_id BIGINT NOT NULL,
     amount INT NOT NULL,
     status VARCHAR(10) NOT NULL,
+    closedAt TIMESTAMP NULL,
     PRIMARY KEY(request_id),
+    INDEX idx_requests_status_closed (status, closedAt),
+    FOREIGN KEY (book_id) REFERENCES library(book_id)
+);
+
+CREATE TABLE book_demand (
+    book_id BIGINT NOT NULL,
+    openRequests BIGINT NOT NULL,
+    openAmount BIGINT NOT NULL,
+    PRIMARY KEY (book_id),
+    INDEX idx_book_demand_requests (openRequests, book_id),
     FOREIGN KEY (book_id) REFERENCES library(book_id)
 );
 
@@ -41,6 +62,76 @@ CREATE TABLE ordered_books (
     FOREIGN KEY (order_id) REFERENCES orders(order_id)
 );
 
+CREATE TABLE orders_archive (
+    order_id BIGINT NOT NULL,
+    status VARCHAR(10) NOT NULL,
+    price DECIMAL(10,2) NOT NULL,
+    orderDate TIMESTAMP NOT NULL,
+    completeDate TIMESTAMP NOT NULL,
+    clientName VARCHAR(255) NOT NULL,
+    version BIGINT NOT NULL,
+    archivedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (order_id),
+    INDEX idx_orders_archive_complete (completeDate)
+);
+
+CREATE TABLE ordered_books_archive (
+    order_id BIGINT NOT NULL,
+    book_id BIGINT NOT NULL,
+    amount INT NOT NULL,
+    PRIMARY KEY (order_id, book_id)
+);
+
+CREATE TABLE requests_archive (
+    request_id BIGINT NOT NULL,
+    book_id BIGINT NOT NULL,
+    amount INT NOT NULL,
+    status VARCHAR(10) NOT NULL,
+    closedAt TIMESTAMP NULL,
+    archivedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (request_id)
+);
+
+CREATE TABLE stock_reservations (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    order_id BIGINT NOT NULL,
+    book_id BIGINT NOT NULL,
+    amount INT NOT NULL,
+    status VARCHAR(10) NOT NULL,
+    createdAt TIMESTAMP NOT NULL,
+    UNIQUE (order_id, book_id),
+    INDEX idx_reservation_book_status (book_id, status),
+    FOREIGN KEY (book_id) REFERENCES library(book_id),
+    FOREIGN KEY (order_id) REFERENCES orders(order_id)
+);
+
+CREATE TABLE idempotency_keys (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    clientName VARCHAR(255) NOT NULL,
+    idempotencyKey VARCHAR(100) NOT NULL,
+    requestHash VARCHAR(64) NOT NULL,
+    response TEXT,
+    createdAt TIMESTAMP NOT NULL,
+    expiresAt TIMESTAMP NOT NULL,
+    lockedUntil TIMESTAMP NULL,
+    UNIQUE (clientName, idempotencyKey),
+    INDEX idx_idempotency_expires (expiresAt)
+);
+
+CREATE TABLE outbox_events (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    type VARCHAR(20) NOT NULL,
+    aggregateId BIGINT NOT NULL,
+    payload TEXT NOT NULL,
+    createdAt TIMESTAMP NOT NULL
+);
+
+CREATE TABLE outbox_checkpoints (
+    consumer VARCHAR(50) PRIMARY KEY,
+    lastEventId BIGINT NOT NULL,
+    updatedAt TIMESTAMP NOT NULL
+);
+
 CREATE TABLE users (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
     username VARCHAR(255) UNIQUE NOT NULL,
@@ -0,0 +1,74 @@
+package ru.bookstore.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import ru.bookstore.dto.OrderDTO;
+import ru.bookstore.model.BookStatus;
+import ru.bookstore.model.OrderStatus;
+import ru.bookstore.model.impl.Book;
+import ru.bookstore.model.impl.Order;
+
+final class BenchmarkData {
+  static final LocalDateTime BASE_DATE = LocalDateTime.of(2024, 3, 15, 12, 30, 45);
+
+  private BenchmarkData() {
+  }
+
+  static Book book(long id) {
+    return Book.builder()
+        .id(id)
+        .name("Book " + id)
+        .author("Author " + (id % 97))
+        .publicationDate(1950 + (int) (id % 75))
+        .amount((int) (id % 20))
+        .price(100.0 + id % 900)
+        .lastDeliveredDate(BASE_DATE.minusDays(id % 365))
+        .lastSaleDate(id % 3 == 0 ? null : BASE_DATE.minusDays(id % 30))
+        .status(id % 20 == 0 ? BookStatus.NOT_AVAILABLE : BookStatus.AVAILABLE)
+        .build();
+  }
+
+  static List<Book> books(int count) {
+    List<Book> books = new ArrayList<>(count);
+    for (long id = 1; id <= count; id++) {
+      books.add(book(id));
+    }
+    return books;
+  }
+
+  static Map<Long, Integer> orderedBooks(int booksPerOrder) {
+    Map<Long, Integer> books = new LinkedHashMap<>();
+    for (long bookId = 1; bookId <= booksPerOrder; bookId++) {
+      books.put(bookId, 1 + (int) (bookId % 3));
+    }
+    return books;
+  }
+
+  static Order order(long id, int booksPerOrder) {
+    return new Order(id, OrderStatus.NEW, 150.0 * booksPerOrder, BASE_DATE.minusHours(id % 48),
+        null, "client" + (id % 50) + "@bookstore.ru", orderedBooks(booksPerOrder));
+  }
+
+  static List<Order> orders(int count, int booksPerOrder) {
+    List<Order> orders = new ArrayList<>(count);
+    for (long id = 1; id <= count; id++) {
+      orders.add(order(id, booksPerOrder));
+    }
+    return orders;
+  }
+
+  static OrderDTO orderDTO(long id, int booksPerOrder) {
+    return OrderDTO.builder()
+        .id(id)
+        .status(OrderStatus.NEW)
+        .price(150.0 * booksPerOrder)
+        .orderDate(BASE_DATE)
+        .completeDate(null)
+        .clientName("client" + id + "@bookstore.ru")
+        .books(orderedBooks(booksPerOrder))
+        .build();
+  }
+}
@@ -0,0 +1,51 @@
+package ru.bookstore.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Точка входа benchmarks.jar. Принимает обычные аргументы JMH, но по умолчанию пишет результаты
+ * в JSON: jmh-results/bookstore-yyyyMMdd-HHmmss.json. Два таких файла можно сравнить, например,
+ * через jmh.morethan.io.
+ */
+public class BenchmarkRunner {
+  private static final Path RESULTS_DIR = Path.of("jmh-results");
+  private static final DateTimeFormatter RESULT_FILE_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+  public static void main(String[] args)
+      throws CommandLineOptionException, RunnerException, IOException {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    if (commandLineOptions.shouldHelp()) {
+      commandLineOptions.showHelp();
+      return;
+    }
+
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+    if (!commandLineOptions.getResultFormat().hasValue()) {
+      options.resultFormat(ResultFormatType.JSON);
+    }
+    if (!commandLineOptions.getResult().hasValue()) {
+      Files.createDirectories(RESULTS_DIR);
+      options.result(RESULTS_DIR.resolve("bookstore-"
+          + LocalDateTime.now().format(RESULT_FILE_FORMATTER) + ".json").toString());
+    }
+
+    Runner runner = new Runner(options.build());
+    if (commandLineOptions.shouldList()) {
+      runner.list();
+      return;
+    }
+    runner.run();
+  }
+}
@@ -0,0 +1,80 @@
+package ru.bookstore.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.bookstore.constants.FileConstants;
+import ru.bookstore.controllers.impl.importexport.ExportController;
+import ru.bookstore.model.impl.Book;
+
+/**
+ * Слияние одной книги с уже существующим файлом экспорта: файл читается и перезаписывается
+ * целиком, поэтому стоимость растёт вместе с числом строк в нём.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ExportMergeBenchmark {
+  @Param({"100", "1000", "10000"})
+  private int rows;
+
+  private Path exportFile;
+  private String exportPath;
+  private Book existingBook;
+  private Book newBook;
+
+  @Setup(Level.Trial)
+  public void createFile() throws IOException {
+    exportFile = Files.createTempFile("bookstore-export-", ".csv");
+    exportPath = exportFile.toString();
+    existingBook = BenchmarkData.book(rows / 2);
+    newBook = BenchmarkData.book(rows + 1);
+  }
+
+  @Setup(Level.Iteration)
+  public void fillFile() throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(exportFile, StandardCharsets.UTF_8)) {
+      writer.write(FileConstants.BOOK_HEADER);
+      writer.newLine();
+      for (Book book : BenchmarkData.books(rows)) {
+        writer.write(book.toString());
+        writer.newLine();
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteFile() throws IOException {
+    Files.deleteIfExists(exportFile);
+  }
+
+  @Benchmark
+  public void replaceExistingItem() {
+    ExportController.exportItemToFile(existingBook, exportPath, FileConstants.BOOK_HEADER);
+  }
+
+  @Benchmark
+  public void appendNewItem() {
+    // После первого вызова книга уже есть в файле, дальше размер файла не меняется
+    ExportController.exportItemToFile(newBook, exportPath, FileConstants.BOOK_HEADER);
+  }
+}
@@ -0,0 +1,54 @@
+package ru.bookstore.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.bookstore.controllers.impl.importexport.ImportController;
+import ru.bookstore.model.impl.Book;
+import ru.bookstore.model.impl.Order;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ImportParsersBenchmark {
+  @Param({"1", "10", "50"})
+  private int booksPerOrder;
+
+  private String bookLine;
+  private String bookLineWithNulls;
+  private String orderLine;
+
+  @Setup
+  public void setup() {
+    bookLine = BenchmarkData.book(1).toString();
+    bookLineWithNulls = BenchmarkData.book(3).toString();
+    orderLine = BenchmarkData.order(1, booksPerOrder).toString();
+  }
+
+  @Benchmark
+  public Book parseBook() {
+    return ImportController.bookParser(bookLine.split(","));
+  }
+
+  @Benchmark
+  public Book parseBookWithNullDates() {
+    return ImportController.bookParser(bookLineWithNulls.split(","));
+  }
+
+  @Benchmark
+  public Order parseOrder() {
+    return ImportController.orderParser(orderLine.split(","));
+  }
+}
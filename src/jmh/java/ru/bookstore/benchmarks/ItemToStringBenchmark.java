@@ -0,0 +1,46 @@
+package ru.bookstore.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.bookstore.model.impl.Book;
+import ru.bookstore.model.impl.Order;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ItemToStringBenchmark {
+  @Param({"1", "10", "50"})
+  private int booksPerOrder;
+
+  private Book book;
+  private Order order;
+
+  @Setup
+  public void setup() {
+    book = BenchmarkData.book(1);
+    order = BenchmarkData.order(1, booksPerOrder);
+  }
+
+  @Benchmark
+  public String bookToString() {
+    return book.toString();
+  }
+
+  @Benchmark
+  public String orderToString() {
+    return order.toString();
+  }
+}
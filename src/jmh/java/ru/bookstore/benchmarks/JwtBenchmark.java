@@ -0,0 +1,45 @@
+package ru.bookstore.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.bookstore.model.Role;
+import ru.bookstore.security.JwtUtils;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JwtBenchmark {
+  private String token;
+
+  @Setup
+  public void setup() {
+    token = JwtUtils.generateToken("ivanov@bookstore.ru", Role.USER.name());
+  }
+
+  @Benchmark
+  public String generate() {
+    return JwtUtils.generateToken("ivanov@bookstore.ru", Role.USER.name());
+  }
+
+  @Benchmark
+  public boolean validate() {
+    return JwtUtils.validateToken(token);
+  }
+
+  @Benchmark
+  public String extractUsername() {
+    return JwtUtils.getUsernameFromToken(token);
+  }
+}
@@ -0,0 +1,51 @@
+package ru.bookstore.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.bookstore.dto.BookDTO;
+import ru.bookstore.dto.OrderDTO;
+import ru.bookstore.dto.mappers.BookMapper;
+import ru.bookstore.dto.mappers.OrderMapper;
+import ru.bookstore.model.impl.Book;
+import ru.bookstore.model.impl.Order;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapperBenchmark {
+  @Param({"10", "1000"})
+  private int size;
+
+  private List<Book> books;
+  private List<Order> orders;
+
+  @Setup
+  public void setup() {
+    books = BenchmarkData.books(size);
+    orders = BenchmarkData.orders(size, 5);
+  }
+
+  @Benchmark
+  public List<BookDTO> booksToDTO() {
+    return BookMapper.INSTANCE.toListDTO(books);
+  }
+
+  @Benchmark
+  public List<OrderDTO> ordersToDTO() {
+    return OrderMapper.INSTANCE.toListDTO(orders);
+  }
+}
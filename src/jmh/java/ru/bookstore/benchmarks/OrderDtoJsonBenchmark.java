@@ -0,0 +1,53 @@
+package ru.bookstore.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.bookstore.dto.OrderDTO;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderDtoJsonBenchmark {
+  private static final ObjectMapper objectMapper = new ObjectMapper()
+      .registerModule(new JavaTimeModule())
+      .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+  @Param({"1", "10", "50"})
+  private int booksPerOrder;
+
+  private OrderDTO orderDTO;
+  private String orderJson;
+
+  @Setup
+  public void setup() throws JsonProcessingException {
+    orderDTO = BenchmarkData.orderDTO(1, booksPerOrder);
+    orderJson = objectMapper.writeValueAsString(orderDTO);
+  }
+
+  @Benchmark
+  public String serialize() throws JsonProcessingException {
+    return objectMapper.writeValueAsString(orderDTO);
+  }
+
+  @Benchmark
+  public OrderDTO deserialize() throws JsonProcessingException {
+    return objectMapper.readValue(orderJson, OrderDTO.class);
+  }
+}
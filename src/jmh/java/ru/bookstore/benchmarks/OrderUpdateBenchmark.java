@@ -0,0 +1,93 @@
+package ru.bookstore.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.bookstore.demand.DashboardCache;
+import ru.bookstore.facade.impl.OrderFacadeImpl;
+import ru.bookstore.model.ReservationStatus;
+import ru.bookstore.model.impl.Order;
+import ru.bookstore.model.impl.StockReservation;
+import ru.bookstore.service.BookService;
+import ru.bookstore.service.OrderService;
+import ru.bookstore.service.OutboxService;
+import ru.bookstore.service.StockReservationService;
+
+/**
+ * Логика {@link OrderFacadeImpl#updateOrder} над данными в памяти. Сервисы подменены заглушками,
+ * которые ничего не меняют, поэтому заказ остаётся NEW и каждый вызов проходит один и тот же путь.
+ * Готовность заказа читается из строк журнала резервов, строка недостающей книги — WAITING.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderUpdateBenchmark {
+  public enum Stock {
+    ENOUGH, SHORT_FIRST, SHORT_LAST
+  }
+
+  @Param({"1", "10", "50"})
+  private int booksPerOrder;
+
+  @Param({"ENOUGH", "SHORT_FIRST", "SHORT_LAST"})
+  private Stock stock;
+
+  private OrderFacadeImpl orderFacade;
+  private Order order;
+
+  @Setup
+  public void setup() {
+    order = BenchmarkData.order(1, booksPerOrder);
+    long shortBookId = switch (stock) {
+      case SHORT_FIRST -> 1L;
+      case SHORT_LAST -> booksPerOrder;
+      default -> 0L;
+    };
+    List<StockReservation> ledger = new ArrayList<>();
+    for (Map.Entry<Long, Integer> entry : order.getBooks().entrySet()) {
+      StockReservation line = new StockReservation(order.getId(), entry.getKey(),
+          entry.getValue(), BenchmarkData.BASE_DATE);
+      if (entry.getKey() != shortBookId) {
+        line.setStatus(ReservationStatus.RESERVED);
+      }
+      ledger.add(line);
+    }
+
+    orderFacade = new OrderFacadeImpl(stub(OrderService.class, null), stub(BookService.class, null),
+        null, stub(StockReservationService.class, ledger), stub(OutboxService.class, null),
+        new DashboardCache(new SimpleMeterRegistry(), 0));
+  }
+
+  @Benchmark
+  public Order updateOrder() {
+    orderFacade.updateOrder(order, BenchmarkData.BASE_DATE);
+    return order;
+  }
+
+  private static <T> T stub(Class<T> type, List<StockReservation> ledger) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+        (proxy, method, args) -> switch (method.getName()) {
+          case "isReserved" -> ledger.stream()
+              .allMatch(line -> line.getStatus() == ReservationStatus.RESERVED);
+          case "changeStatus" -> true;
+          default -> null;
+        }));
+  }
+}
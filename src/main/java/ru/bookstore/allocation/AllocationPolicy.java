@@ -0,0 +1,17 @@
+package ru.bookstore.allocation;
+
+import java.util.Comparator;
+
+/**
+ * Порядок, в котором ожидающие заказы получают поставленные книги. Встроенные политики —
+ * {@link StandardAllocationPolicy}; свою можно подключить, объявив бин этого типа.
+ */
+public interface AllocationPolicy {
+  String name();
+
+  /**
+   * Сравнивает заказы, ожидающие одну книгу: кто меньше, тот получает её раньше. Равные заказы
+   * обслуживаются в порядке id.
+   */
+  Comparator<WaitingOrder> priority();
+}
@@ -0,0 +1,128 @@
+package ru.bookstore.allocation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Очереди ожидающих заказов по книгам, упорядоченные политикой. Поставка книги просматривает
+ * только её очередь, а заказ, получивший книгу, переставляется в очередях своих остальных книг,
+ * так что распределение стоит O(затронутые заказы × log n). Класс не потокобезопасен.
+ */
+public class AllocationQueues {
+  /**
+   * Резервирует amount экземпляров книги для заказа. false — строку нужно пропустить.
+   */
+  @FunctionalInterface
+  public interface Reservation {
+    boolean reserve(long orderId, int amount);
+  }
+
+  private final Comparator<WaitingOrder> order;
+  private final Map<Long, WaitingOrder> orders = new HashMap<>();
+  private final Map<Long, NavigableSet<WaitingOrder>> queues = new HashMap<>();
+  private final Map<Long, TreeMap<Integer, Integer>> lineAmounts = new HashMap<>();
+
+  public AllocationQueues(AllocationPolicy policy) {
+    this.order = policy.priority().thenComparingLong(WaitingOrder::getOrderId);
+  }
+
+  /**
+   * Ставит заказ в очереди книг из waitingLines (id книги → количество). Заказ, уже стоящий
+   * в очередях, заменяется.
+   */
+  public void add(long orderId, double price, int totalCopies, Map<Long, Integer> waitingLines) {
+    remove(orderId);
+    if (waitingLines.isEmpty()) {
+      return;
+    }
+    WaitingOrder waiting = new WaitingOrder(orderId, price, totalCopies, waitingLines);
+    orders.put(orderId, waiting);
+    index(waiting);
+  }
+
+  public boolean remove(long orderId) {
+    WaitingOrder waiting = orders.remove(orderId);
+    if (waiting == null) {
+      return false;
+    }
+    unindex(waiting);
+    return true;
+  }
+
+  /**
+   * Раздаёт available экземпляров книги по её очереди: строка, которая помещается в остаток,
+   * резервируется, не поместившаяся пропускается (first-fit в порядке политики). Просмотр
+   * заканчивается, когда остаток меньше самой маленькой ожидающей строки.
+   *
+   * @return id заказов, у которых больше не осталось ожидающих строк
+   */
+  public List<Long> allocate(long bookId, int available, Reservation reservation) {
+    List<Long> ready = new ArrayList<>();
+    NavigableSet<WaitingOrder> queue = queues.get(bookId);
+    if (queue == null) {
+      return ready;
+    }
+    int smallest = lineAmounts.get(bookId).firstKey();
+    List<WaitingOrder> served = new ArrayList<>();
+    Iterator<WaitingOrder> iterator = queue.iterator();
+    while (available >= smallest && iterator.hasNext()) {
+      WaitingOrder waiting = iterator.next();
+      int amount = waiting.amount(bookId);
+      if (amount <= available && reservation.reserve(waiting.getOrderId(), amount)) {
+        available -= amount;
+        served.add(waiting);
+      }
+    }
+    for (WaitingOrder waiting : served) {
+      unindex(waiting);
+      waiting.reserved(bookId);
+      if (waiting.isReady()) {
+        orders.remove(waiting.getOrderId());
+        ready.add(waiting.getOrderId());
+      } else {
+        index(waiting);
+      }
+    }
+    return ready;
+  }
+
+  public int waitingOrders() {
+    return orders.size();
+  }
+
+  public int waitingLines(long bookId) {
+    NavigableSet<WaitingOrder> queue = queues.get(bookId);
+    return queue == null ? 0 : queue.size();
+  }
+
+  private void index(WaitingOrder waiting) {
+    waiting.getWaitingLines().forEach((bookId, amount) -> {
+      queues.computeIfAbsent(bookId, key -> new TreeSet<>(order)).add(waiting);
+      lineAmounts.computeIfAbsent(bookId, key -> new TreeMap<>()).merge(amount, 1, Integer::sum);
+    });
+  }
+
+  private void unindex(WaitingOrder waiting) {
+    waiting.getWaitingLines().forEach((bookId, amount) -> {
+      NavigableSet<WaitingOrder> queue = queues.get(bookId);
+      queue.remove(waiting);
+      if (queue.isEmpty()) {
+        queues.remove(bookId);
+      }
+      TreeMap<Integer, Integer> amounts = lineAmounts.get(bookId);
+      if (amounts.merge(amount, -1, Integer::sum) == 0) {
+        amounts.remove(amount);
+      }
+      if (amounts.isEmpty()) {
+        lineAmounts.remove(bookId);
+      }
+    });
+  }
+}
@@ -0,0 +1,10 @@
+package ru.bookstore.allocation;
+
+import ru.bookstore.model.ReservationStatus;
+
+/**
+ * Строка журнала резервов вместе с ценой заказа — всё, что нужно для сборки очередей.
+ */
+public record LedgerLine(Long orderId, Long bookId, Integer amount, ReservationStatus status,
+                         Double orderPrice) {
+}
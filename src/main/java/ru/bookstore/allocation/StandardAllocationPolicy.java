@@ -0,0 +1,34 @@
+package ru.bookstore.allocation;
+
+import java.util.Comparator;
+
+public enum StandardAllocationPolicy implements AllocationPolicy {
+  /**
+   * В порядке поступления заказов.
+   */
+  FIFO(Comparator.comparingLong(WaitingOrder::getOrderId)),
+  /**
+   * Сначала заказы с меньшим числом экземпляров.
+   */
+  SMALLEST_ORDER_FIRST(Comparator.comparingInt(WaitingOrder::getTotalCopies)),
+  /**
+   * Сначала самые дорогие заказы.
+   */
+  HIGHEST_VALUE_FIRST(Comparator.comparingDouble(WaitingOrder::getPrice).reversed()),
+  /**
+   * Сначала заказы, которым до выполнения осталось меньше всего экземпляров. Жадное
+   * приближение к максимуму выполненных заказов: поставка уходит туда, где скорее закроет заказ.
+   */
+  MAXIMIZE_COMPLETED(Comparator.comparingInt(WaitingOrder::getWaitingCopies));
+
+  private final Comparator<WaitingOrder> priority;
+
+  StandardAllocationPolicy(Comparator<WaitingOrder> priority) {
+    this.priority = priority;
+  }
+
+  @Override
+  public Comparator<WaitingOrder> priority() {
+    return priority;
+  }
+}
@@ -0,0 +1,129 @@
+package ru.bookstore.allocation;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bookstore.dao.StockReservationDao;
+import ru.bookstore.exceptions.DataAccessException;
+import ru.bookstore.model.ReservationStatus;
+
+/**
+ * Очереди ожидающих заказов в памяти поверх журнала stock_reservations. Строятся из базы при
+ * старте (или при первом обращении) и меняются вместе с журналом в той же транзакции. Если
+ * транзакция откатилась, очереди сбрасываются и при следующем обращении строятся заново.
+ * Политика — бин {@link AllocationPolicy}, а без него allocation.policy из
+ * {@link StandardAllocationPolicy}.
+ */
+@Component
+@Slf4j
+public class StockAllocationEngine {
+  public static final String WAITING_ORDERS = "bookstore.allocation.waiting.orders";
+
+  private final StockReservationDao stockReservationDao;
+  private final TransactionTemplate transactionTemplate;
+  private final AllocationPolicy policy;
+  private AllocationQueues queues;
+
+  public StockAllocationEngine(StockReservationDao stockReservationDao,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               ObjectProvider<AllocationPolicy> customPolicy,
+                               @Value("${allocation.policy:FIFO}")
+                               StandardAllocationPolicy standardPolicy) {
+    this.stockReservationDao = stockReservationDao;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.policy = customPolicy.getIfAvailable(() -> standardPolicy);
+    Gauge.builder(WAITING_ORDERS, this, StockAllocationEngine::waitingOrders)
+        .tag("policy", policy.name())
+        .register(meterRegistry);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    try {
+      transactionTemplate.executeWithoutResult(status -> rebuild());
+    } catch (DataAccessException e) {
+      log.warn("Не удалось построить очереди распределения при старте, построим при первом "
+          + "обращении: {}", e.getMessage());
+    }
+  }
+
+  public synchronized void rebuild() {
+    Map<Long, Map<Long, Integer>> waitingLines = new HashMap<>();
+    Map<Long, Integer> totalCopies = new HashMap<>();
+    Map<Long, Double> prices = new HashMap<>();
+    for (LedgerLine line : stockReservationDao.findPendingLines()) {
+      totalCopies.merge(line.orderId(), line.amount(), Integer::sum);
+      prices.put(line.orderId(), line.orderPrice());
+      Map<Long, Integer> lines = waitingLines.computeIfAbsent(line.orderId(),
+          key -> new HashMap<>());
+      if (line.status() == ReservationStatus.WAITING) {
+        lines.put(line.bookId(), line.amount());
+      }
+    }
+    AllocationQueues rebuilt = new AllocationQueues(policy);
+    waitingLines.forEach((orderId, lines) ->
+        rebuilt.add(orderId, prices.get(orderId), totalCopies.get(orderId), lines));
+    queues = rebuilt;
+    log.info("Очереди распределения ({}) построены: ожидают {} заказов", policy.name(),
+        rebuilt.waitingOrders());
+  }
+
+  public synchronized void register(long orderId, double price, int totalCopies,
+                                    Map<Long, Integer> waitingLines) {
+    resetOnRollback();
+    queues().add(orderId, price, totalCopies, waitingLines);
+  }
+
+  public synchronized List<Long> allocate(long bookId, int available,
+                                          AllocationQueues.Reservation reservation) {
+    resetOnRollback();
+    return queues().allocate(bookId, available, reservation);
+  }
+
+  public synchronized void remove(long orderId) {
+    resetOnRollback();
+    queues().remove(orderId);
+  }
+
+  private AllocationQueues queues() {
+    if (queues == null) {
+      rebuild();
+    }
+    return queues;
+  }
+
+  private synchronized void reset() {
+    queues = null;
+  }
+
+  private synchronized double waitingOrders() {
+    return queues == null ? Double.NaN : queues.waitingOrders();
+  }
+
+  private void resetOnRollback() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          if (status != STATUS_COMMITTED) {
+            log.debug("Транзакция не зафиксирована, очереди распределения будут построены заново");
+            reset();
+          }
+        }
+      });
+    }
+  }
+}
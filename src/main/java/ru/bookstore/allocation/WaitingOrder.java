@@ -0,0 +1,45 @@
+package ru.bookstore.allocation;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Заказ, у которого есть строки в ожидании поставки. Поля, по которым сравнивают политики,
+ * меняются только когда заказ вынут из всех очередей, иначе TreeSet потеряет порядок.
+ */
+@Getter
+public class WaitingOrder {
+  private final long orderId;
+  private final double price;
+  private final int totalCopies;
+  private int waitingCopies;
+  @Getter(AccessLevel.NONE)
+  private final Map<Long, Integer> waitingLines;
+
+  WaitingOrder(long orderId, double price, int totalCopies, Map<Long, Integer> waitingLines) {
+    this.orderId = orderId;
+    this.price = price;
+    this.totalCopies = totalCopies;
+    this.waitingLines = new HashMap<>(waitingLines);
+    this.waitingCopies = waitingLines.values().stream().mapToInt(Integer::intValue).sum();
+  }
+
+  public Map<Long, Integer> getWaitingLines() {
+    return Collections.unmodifiableMap(waitingLines);
+  }
+
+  int amount(long bookId) {
+    return waitingLines.get(bookId);
+  }
+
+  void reserved(long bookId) {
+    waitingCopies -= waitingLines.remove(bookId);
+  }
+
+  boolean isReady() {
+    return waitingLines.isEmpty();
+  }
+}
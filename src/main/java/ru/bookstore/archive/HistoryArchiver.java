@@ -0,0 +1,116 @@
+package ru.bookstore.archive;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bookstore.service.OrderService;
+import ru.bookstore.service.RequestService;
+
+/**
+ * Периодически переносит старые завершённые заказы и закрытые запросы в архивные таблицы, чтобы
+ * горячие таблицы не росли вместе с историей. Каждая пачка — отдельная короткая транзакция,
+ * поэтому перенос не держит блокировки дольше одной пачки и не мешает оформлению заказов.
+ */
+@Component
+@Slf4j
+public class HistoryArchiver implements DisposableBean {
+  public static final String ARCHIVED = "bookstore.archive.rows";
+
+  private final OrderService orderService;
+  private final RequestService requestService;
+  private final TransactionTemplate transactionTemplate;
+  private final Counter archivedOrders;
+  private final Counter archivedRequests;
+  private final long ordersAfterDays;
+  private final long requestsAfterDays;
+  private final int batchSize;
+  private final long intervalMinutes;
+  private ScheduledExecutorService executor;
+
+  public HistoryArchiver(OrderService orderService,
+                         RequestService requestService,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${archive.orders.after.days:365}") long ordersAfterDays,
+                         @Value("${archive.requests.after.days:30}") long requestsAfterDays,
+                         @Value("${archive.batch.size:500}") int batchSize,
+                         @Value("${archive.interval.minutes:60}") long intervalMinutes) {
+    this.orderService = orderService;
+    this.requestService = requestService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.archivedOrders = Counter.builder(ARCHIVED).tag("table", "orders")
+        .register(meterRegistry);
+    this.archivedRequests = Counter.builder(ARCHIVED).tag("table", "requests")
+        .register(meterRegistry);
+    this.ordersAfterDays = ordersAfterDays;
+    this.requestsAfterDays = requestsAfterDays;
+    this.batchSize = batchSize;
+    this.intervalMinutes = intervalMinutes;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void start() {
+    if (executor != null) {
+      return;
+    }
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "history-archiver");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this::archive, intervalMinutes, intervalMinutes,
+        TimeUnit.MINUTES);
+  }
+
+  /**
+   * Возвращает число перенесённых за этот запуск заказов и запросов.
+   */
+  public int archive() {
+    LocalDateTime now = LocalDateTime.now();
+    LocalDateTime ordersBefore = now.minusDays(ordersAfterDays);
+    LocalDateTime requestsBefore = now.minusDays(requestsAfterDays);
+    return moveInBatches("заказы", archivedOrders,
+        () -> orderService.archiveOrders(ordersBefore, batchSize))
+        + moveInBatches("запросы", archivedRequests,
+        () -> requestService.archiveRequests(requestsBefore, batchSize));
+  }
+
+  private int moveInBatches(String what, Counter counter, IntSupplier batch) {
+    int moved = 0;
+    try {
+      int last;
+      do {
+        last = transactionTemplate.execute(status -> batch.getAsInt());
+        moved += last;
+        counter.increment(last);
+      } while (last == batchSize && !Thread.currentThread().isInterrupted());
+    } catch (RuntimeException e) {
+      log.warn("Не удалось перенести в архив {}, повторим через {} мин: {}", what,
+          intervalMinutes, e.getMessage());
+    }
+    if (moved > 0) {
+      log.info("В архив перенесены {}: {}", what, moved);
+    }
+    return moved;
+  }
+
+  @Override
+  public synchronized void destroy() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package ru.bookstore.catalog;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bookstore.dao.BookDao;
+import ru.bookstore.dto.BookDTO;
+import ru.bookstore.dto.mappers.BookMapper;
+import ru.bookstore.exceptions.DataAccessException;
+import ru.bookstore.sorting.BookSort;
+
+/**
+ * Каталог книг в памяти для GET /books без фильтров. Читатели берут текущий {@link
+ * CatalogSnapshot} из volatile-поля и в базу не ходят. После коммита изменений книг
+ * ({@link BooksChanged}) из основной базы перечитываются только эти книги, и новый снимок
+ * подменяет старый одной записью ссылки. Пока снимка нет, его строит первый читатель.
+ *
+ * <p>Как и поисковый индекс, каталог живёт в одном процессе: изменения, сделанные другими
+ * экземплярами приложения, он не увидит.
+ */
+@Component
+@Slf4j
+public class BookCatalog {
+  public static final String CATALOG_BOOKS = "bookstore.catalog.books";
+  public static final String CATALOG_AGE = "bookstore.catalog.age.seconds";
+  public static final String CATALOG_REBUILD = "bookstore.catalog.rebuild";
+
+  private final BookDao bookDao;
+  private final TransactionTemplate buildTemplate;
+  private final TransactionTemplate refreshTemplate;
+  private final Timer fullRebuildTimer;
+  private final Timer incrementalRebuildTimer;
+  private volatile CatalogSnapshot snapshot;
+
+  public BookCatalog(BookDao bookDao, PlatformTransactionManager transactionManager,
+                     MeterRegistry meterRegistry) {
+    this.bookDao = bookDao;
+    this.buildTemplate = new TransactionTemplate(transactionManager);
+    this.buildTemplate.setReadOnly(true);
+    // Реплика может ещё не догнать только что закоммиченную запись, поэтому не readOnly.
+    this.refreshTemplate = new TransactionTemplate(transactionManager);
+    this.refreshTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.fullRebuildTimer = Timer.builder(CATALOG_REBUILD).tag("kind", "full")
+        .register(meterRegistry);
+    this.incrementalRebuildTimer = Timer.builder(CATALOG_REBUILD).tag("kind", "incremental")
+        .register(meterRegistry);
+    Gauge.builder(CATALOG_BOOKS, this, BookCatalog::catalogBooks).register(meterRegistry);
+    Gauge.builder(CATALOG_AGE, this, BookCatalog::catalogAge).register(meterRegistry);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    try {
+      ensureBuilt();
+    } catch (DataAccessException e) {
+      log.warn("Не удалось построить каталог при старте, построим при первом запросе: {}",
+          e.getMessage());
+    }
+  }
+
+  public List<BookDTO> books(BookSort sort) {
+    return ensureBuilt().view(sort);
+  }
+
+  public synchronized void rebuild() {
+    fullRebuildTimer.record(() -> {
+      List<BookDTO> books = new ArrayList<>();
+      buildTemplate.executeWithoutResult(status -> bookDao.forEachBook(book ->
+          books.add(BookMapper.INSTANCE.toDTO(book))));
+      snapshot = CatalogSnapshot.of(books);
+    });
+    log.info("Каталог построен: {} книг", snapshot.size());
+  }
+
+  @TransactionalEventListener
+  public void onBooksChanged(BooksChanged changed) {
+    refresh(changed.bookIds());
+  }
+
+  /**
+   * Перечитывает книги и публикует снимок с ними. Пока снимка нет, ничего не делает: при
+   * построении книги всё равно прочитаются из базы. Если перечитать не удалось, снимок
+   * сбрасывается, чтобы не отдавать устаревший каталог.
+   */
+  public synchronized void refresh(List<Long> bookIds) {
+    if (snapshot == null || bookIds.isEmpty()) {
+      return;
+    }
+    try {
+      incrementalRebuildTimer.record(() -> {
+        List<BookDTO> books = refreshTemplate.execute(status ->
+            BookMapper.INSTANCE.toListDTO(bookDao.getBooks(bookIds)));
+        snapshot = snapshot.withChanges(books);
+      });
+      log.debug("Каталог обновлён: {} книг", bookIds.size());
+    } catch (DataAccessException e) {
+      log.warn("Не удалось обновить каталог по книгам {}, снимок будет построен заново: {}",
+          bookIds, e.getMessage());
+      snapshot = null;
+    }
+  }
+
+  private CatalogSnapshot ensureBuilt() {
+    CatalogSnapshot current = snapshot;
+    if (current == null) {
+      synchronized (this) {
+        if (snapshot == null) {
+          rebuild();
+        }
+        current = snapshot;
+      }
+    }
+    return current;
+  }
+
+  private double catalogBooks() {
+    CatalogSnapshot current = snapshot;
+    return current == null ? Double.NaN : current.size();
+  }
+
+  private double catalogAge() {
+    CatalogSnapshot current = snapshot;
+    return current == null ? Double.NaN : current.ageSeconds();
+  }
+}
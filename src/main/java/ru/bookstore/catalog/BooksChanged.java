@@ -0,0 +1,9 @@
+package ru.bookstore.catalog;
+
+import java.util.List;
+
+/**
+ * Сигнал каталогу, что книги изменены. Доставляется после коммита транзакции.
+ */
+public record BooksChanged(List<Long> bookIds) {
+}
@@ -0,0 +1,188 @@
+package ru.bookstore.catalog;
+
+import java.text.Collator;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+import ru.bookstore.dto.BookDTO;
+import ru.bookstore.sorting.BookSort;
+
+/**
+ * Неизменяемый снимок каталога: книги в порядке id и для каждой сортировки перестановка их
+ * номеров. После создания снимок не меняется, поэтому читать его можно без блокировок, а
+ * изменение книг порождает новый снимок. DTO общие для всех читателей и не должны изменяться.
+ *
+ * <p>Названия сравниваются без учёта регистра и диакритики, как в MySQL по умолчанию. При
+ * равенстве ключа книги идут по id.
+ */
+final class CatalogSnapshot {
+  private static final Collator NAME_COLLATOR = nameCollator();
+  private static final Map<BookSort, Comparator<BookDTO>> ORDERS = orders();
+
+  private final BookDTO[] books;
+  private final Map<BookSort, int[]> permutations;
+  private final long createdAtNanos = System.nanoTime();
+
+  private CatalogSnapshot(BookDTO[] books, Map<BookSort, int[]> permutations) {
+    this.books = books;
+    this.permutations = permutations;
+  }
+
+  static CatalogSnapshot of(List<BookDTO> books) {
+    BookDTO[] byId = books.toArray(BookDTO[]::new);
+    Arrays.sort(byId, Comparator.comparing(BookDTO::getId));
+    Map<BookSort, int[]> permutations = new EnumMap<>(BookSort.class);
+    ORDERS.forEach((sort, order) -> permutations.put(sort, sorted(byId, order)));
+    return new CatalogSnapshot(byId, permutations);
+  }
+
+  /**
+   * Новый снимок с заменёнными книгами. Если все книги уже есть в каталоге, номера остальных
+   * не меняются: из каждой перестановки вынимаются изменённые номера и вливаются обратно на новые
+   * места, это линейно от размера каталога. Новые книги сдвигают номера, поэтому с ними снимок
+   * строится заново.
+   */
+  CatalogSnapshot withChanges(List<BookDTO> changed) {
+    BookDTO[] updated = books.clone();
+    boolean[] moved = new boolean[books.length];
+    for (BookDTO book : changed) {
+      int slot = slotOf(book.getId());
+      if (slot < 0) {
+        return rebuiltWith(changed);
+      }
+      updated[slot] = book;
+      moved[slot] = true;
+    }
+    Map<BookSort, int[]> reordered = new EnumMap<>(BookSort.class);
+    permutations.forEach((sort, permutation) ->
+        reordered.put(sort, merge(permutation, moved, updated, ORDERS.get(sort))));
+    return new CatalogSnapshot(updated, reordered);
+  }
+
+  /**
+   * Книги в порядке сортировки. Сортировки залежавшихся книг каталог не хранит, они, как и ID,
+   * отдаются в порядке id.
+   */
+  List<BookDTO> view(BookSort sort) {
+    int[] permutation = permutations.get(sort);
+    if (permutation == null) {
+      return Collections.unmodifiableList(Arrays.asList(books));
+    }
+    return new PermutedList(books, permutation);
+  }
+
+  int size() {
+    return books.length;
+  }
+
+  double ageSeconds() {
+    return (System.nanoTime() - createdAtNanos) / 1e9;
+  }
+
+  private int slotOf(long bookId) {
+    int low = 0;
+    int high = books.length - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      long id = books[middle].getId();
+      if (id < bookId) {
+        low = middle + 1;
+      } else if (id > bookId) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  private CatalogSnapshot rebuiltWith(List<BookDTO> changed) {
+    Map<Long, BookDTO> byId = new LinkedHashMap<>();
+    for (BookDTO book : books) {
+      byId.put(book.getId(), book);
+    }
+    changed.forEach(book -> byId.put(book.getId(), book));
+    return of(new ArrayList<>(byId.values()));
+  }
+
+  private static int[] sorted(BookDTO[] books, Comparator<BookDTO> order) {
+    Integer[] slots = new Integer[books.length];
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = i;
+    }
+    Arrays.sort(slots, (a, b) -> order.compare(books[a], books[b]));
+    return Arrays.stream(slots).mapToInt(Integer::intValue).toArray();
+  }
+
+  private static int[] merge(int[] permutation, boolean[] moved, BookDTO[] books,
+                             Comparator<BookDTO> order) {
+    List<Integer> changed = new ArrayList<>();
+    for (int slot = 0; slot < moved.length; slot++) {
+      if (moved[slot]) {
+        changed.add(slot);
+      }
+    }
+    changed.sort((a, b) -> order.compare(books[a], books[b]));
+    int[] merged = new int[permutation.length];
+    int next = 0;
+    int inserted = 0;
+    for (int slot : permutation) {
+      if (moved[slot]) {
+        continue;
+      }
+      while (inserted < changed.size()
+          && order.compare(books[changed.get(inserted)], books[slot]) < 0) {
+        merged[next++] = changed.get(inserted++);
+      }
+      merged[next++] = slot;
+    }
+    while (inserted < changed.size()) {
+      merged[next++] = changed.get(inserted++);
+    }
+    return merged;
+  }
+
+  private static Collator nameCollator() {
+    Collator collator = Collator.getInstance(Locale.forLanguageTag("ru"));
+    collator.setStrength(Collator.PRIMARY);
+    return collator;
+  }
+
+  private static Map<BookSort, Comparator<BookDTO>> orders() {
+    Map<BookSort, Comparator<BookDTO>> orders = new EnumMap<>(BookSort.class);
+    orders.put(BookSort.NAME, Comparator.comparing(BookDTO::getName, NAME_COLLATOR));
+    orders.put(BookSort.PUBLICATION_DATE, Comparator.comparing(BookDTO::getPublicationDate));
+    orders.put(BookSort.PRICE, Comparator.comparing(BookDTO::getPrice));
+    orders.put(BookSort.STATUS, Comparator.comparing(book -> book.getStatus().name()));
+    orders.replaceAll((sort, order) -> order.thenComparing(BookDTO::getId));
+    return orders;
+  }
+
+  private static final class PermutedList extends AbstractList<BookDTO> implements RandomAccess {
+    private final BookDTO[] books;
+    private final int[] permutation;
+
+    PermutedList(BookDTO[] books, int[] permutation) {
+      this.books = books;
+      this.permutation = permutation;
+    }
+
+    @Override
+    public BookDTO get(int index) {
+      return books[permutation[index]];
+    }
+
+    @Override
+    public int size() {
+      return permutation.length;
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package ru.bookstore.concurrency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.hibernate.StaleStateException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.bookstore.exceptions.OrderConflictException;
+
+/**
+ * Повторы для {@link RetryOnConflict} со случайной задержкой (full jitter): перед попыткой n
+ * ждём случайное время от 0 до min(maxDelay, baseDelay * 2^n). Аспект стоит снаружи
+ * транзакционного прокси, так что откат и новая транзакция происходят на каждой попытке.
+ * Внутри чужой транзакции повторять нельзя — конфликт пробрасывается наружу.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@RequiredArgsConstructor
+@Slf4j
+public class ConflictRetryAspect {
+  public static final String RETRIES = "bookstore.retry";
+
+  private final MeterRegistry meterRegistry;
+
+  @Value("${order.retry.max.attempts:3}")
+  @Setter
+  private int maxAttempts;
+  @Value("${order.retry.base.delay.ms:10}")
+  @Setter
+  private long baseDelayMs;
+  @Value("${order.retry.max.delay.ms:200}")
+  @Setter
+  private long maxDelayMs;
+
+  @Around("@annotation(ru.bookstore.concurrency.RetryOnConflict)")
+  public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      return joinPoint.proceed();
+    }
+    String method = joinPoint.getTarget().getClass().getSimpleName() + "."
+        + joinPoint.getSignature().getName();
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return joinPoint.proceed();
+      } catch (RuntimeException e) {
+        if (!isConflict(e)) {
+          throw e;
+        }
+        if (attempt >= maxAttempts) {
+          meterRegistry.counter(RETRIES, "method", method, "outcome", "exhausted").increment();
+          throw e;
+        }
+        meterRegistry.counter(RETRIES, "method", method, "outcome", "retried").increment();
+        long delay = backoff(attempt);
+        log.info("Конфликт версий в {}, попытка {} из {}, повтор через {} мс",
+            method, attempt, maxAttempts, delay);
+        Thread.sleep(delay);
+      }
+    }
+  }
+
+  long backoff(int attempt) {
+    long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt, 20));
+    return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+  }
+
+  static boolean isConflict(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof OrderConflictException
+          || cause instanceof OptimisticLockingFailureException
+          || cause instanceof OptimisticLockException
+          || cause instanceof StaleStateException) {
+        return true;
+      }
+      if (cause.getCause() == cause) {
+        break;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,16 @@
+package ru.bookstore.concurrency;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Повторяет метод фасада, если его транзакция проиграла гонку за версию заказа. Каждая попытка
+ * выполняется в новой транзакции, поэтому метод должен перечитывать заказ, а не получать его
+ * снаружи.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+}
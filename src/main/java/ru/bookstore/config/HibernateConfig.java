@@ -2,16 +2,24 @@ package ru.bookstore.config;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.Properties;
 import javax.sql.DataSource;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Environment;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.orm.hibernate5.HibernateTransactionManager;
 import org.springframework.orm.hibernate5.LocalSessionFactoryBean;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import ru.bookstore.datasource.ReadWriteDataSource;
+import ru.bookstore.datasource.ReplicaMonitor;
+import ru.bookstore.metrics.StatementCounter;
 
 @Configuration
 @EnableTransactionManagement
@@ -26,20 +34,89 @@ public class HibernateConfig {
   @Value("${db.password}")
   private String dbPassword;
 
+  @Value("${db.driver:com.mysql.cj.jdbc.Driver}")
+  private String dbDriver;
+
+  @Value("${db.dialect:org.hibernate.dialect.MySQL8Dialect}")
+  private String dbDialect;
+
+  @Value("${db.pool.size:5}")
+  private int dbPoolSize;
+
+  @Value("${db.show.sql:false}")
+  private boolean showSql;
+
+  @Value("${db.ddl.auto:update}")
+  private String ddlAuto;
+
+  @Value("${db.statistics:true}")
+  private boolean generateStatistics;
+
+  @Value("${db.replica.url:}")
+  private String replicaUrl;
+
+  @Value("${db.replica.user:}")
+  private String replicaUsername;
+
+  @Value("${db.replica.password:}")
+  private String replicaPassword;
+
+  @Value("${db.replica.pool.size:0}")
+  private int replicaPoolSize;
+
+  @Value("${db.replica.max.lag.seconds:5}")
+  private long replicaMaxLagSeconds;
+
+  @Value("${db.replica.lag.query:SHOW REPLICA STATUS}")
+  private String replicaLagQuery;
+
+  @Value("${db.replica.check.interval.ms:5000}")
+  private long replicaCheckIntervalMillis;
+
+  @Autowired
+  private ObjectProvider<MeterRegistry> meterRegistry;
+
   @Bean
   public DataSource dataSource() {
+    HikariDataSource primary = pool("bookstore", dbUrl, dbUsername, dbPassword, dbPoolSize);
+    if (replicaUrl.isBlank()) {
+      return primary;
+    }
+    HikariDataSource replica = pool("bookstore-replica", replicaUrl,
+        replicaUsername.isBlank() ? dbUsername : replicaUsername,
+        replicaUsername.isBlank() ? dbPassword : replicaPassword,
+        replicaPoolSize > 0 ? replicaPoolSize : dbPoolSize);
+    ReplicaMonitor monitor = new ReplicaMonitor(replica, replicaLagQuery);
+    monitor.start(replicaCheckIntervalMillis);
+    meterRegistry.ifAvailable(registry -> {
+      Gauge.builder("bookstore.replica.lag", monitor, ReplicaMonitor::getLagSeconds)
+          .baseUnit("seconds")
+          .register(registry);
+      Gauge.builder("bookstore.replica.healthy", monitor, m -> m.isHealthy() ? 1 : 0)
+          .register(registry);
+    });
+    return new ReadWriteDataSource(primary, replica, monitor, replicaMaxLagSeconds);
+  }
+
+  private HikariDataSource pool(String name, String url, String username, String password,
+                                int size) {
     HikariConfig config = new HikariConfig();
-    config.setJdbcUrl(dbUrl);
-    config.setUsername(dbUsername);
-    config.setPassword(dbPassword);
-    config.setDriverClassName("com.mysql.cj.jdbc.Driver");
-    config.setMaximumPoolSize(5);
+    config.setPoolName(name);
+    config.setJdbcUrl(url);
+    config.setUsername(username);
+    config.setPassword(password);
+    config.setDriverClassName(dbDriver);
+    config.setMaximumPoolSize(size);
     config.setConnectionTimeout(30000);
     config.setInitializationFailTimeout(30000);
     config.setLeakDetectionThreshold(5000);
     config.addDataSourceProperty("cachePrepStmts", "true");
     config.addDataSourceProperty("prepStmtCacheSize", "250");
     config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+    config.addDataSourceProperty("useCursorFetch", "true");
+    config.addDataSourceProperty("rewriteBatchedStatements", "true");
+    meterRegistry.ifAvailable(registry ->
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
     return new HikariDataSource(config);
   }
 
@@ -50,13 +127,14 @@ public class HibernateConfig {
     factory.setPackagesToScan("ru.bookstore.model");
 
     Properties props = new Properties();
-    props.put(Environment.DIALECT, "org.hibernate.dialect.MySQL8Dialect");
-    props.put(Environment.SHOW_SQL, "true");
-    props.put(Environment.FORMAT_SQL, "true");
-    props.put(Environment.HBM2DDL_AUTO, "update");
+    props.put(Environment.DIALECT, dbDialect);
+    props.put(Environment.SHOW_SQL, String.valueOf(showSql));
+    props.put(Environment.FORMAT_SQL, String.valueOf(showSql));
+    props.put(Environment.HBM2DDL_AUTO, ddlAuto);
     props.put(Environment.CURRENT_SESSION_CONTEXT_CLASS, "org.springframework.orm.hibernate5.SpringSessionContext");
-    props.put(Environment.ENABLE_LAZY_LOAD_NO_TRANS, "true");
     props.put(Environment.AUTOCOMMIT, "false");
+    props.put(Environment.GENERATE_STATISTICS, String.valueOf(generateStatistics));
+    props.put(Environment.STATEMENT_INSPECTOR, new StatementCounter());
 
     factory.setHibernateProperties(props);
     return factory;
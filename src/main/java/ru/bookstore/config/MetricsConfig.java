@@ -0,0 +1,22 @@
+package ru.bookstore.config;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.HibernateMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.bookstore.metrics.LoggingMetrics;
+
+@Configuration
+public class MetricsConfig {
+  @Bean
+  public MeterBinder hibernateMetrics(SessionFactory sessionFactory) {
+    return new HibernateMetrics(sessionFactory, "bookstore", Tags.empty());
+  }
+
+  @Bean
+  public MeterBinder loggingMetrics() {
+    return new LoggingMetrics();
+  }
+}
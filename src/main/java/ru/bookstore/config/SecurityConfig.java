@@ -1,5 +1,6 @@
 package ru.bookstore.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
@@ -37,8 +38,11 @@ public class SecurityConfig {
     http.csrf(AbstractHttpConfigurer::disable)
         .userDetailsService(userDetailsService)
         .authorizeHttpRequests(auth -> auth
+            .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
             .requestMatchers(SWAGGER_WHITELIST).permitAll()
             .requestMatchers("/auth/**").permitAll()
+            .requestMatchers("/actuator/health").permitAll()
+            .requestMatchers("/actuator/**").hasAuthority("ROLE_ADMIN")
             .requestMatchers("/requests/**").hasAuthority("ROLE_ADMIN")
             .anyRequest().authenticated())
         .sessionManagement(session -> session
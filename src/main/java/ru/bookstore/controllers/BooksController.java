@@ -1,6 +1,14 @@
 package ru.bookstore.controllers;
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.PositiveOrZero;
+import java.util.List;
 import org.springframework.http.ResponseEntity;
+import ru.bookstore.controllers.impl.importexport.ExportFormat;
+import ru.bookstore.dto.StockAdjustmentDTO;
+import ru.bookstore.model.BookStatus;
 import ru.bookstore.sorting.BookSort;
 
 public interface BooksController {
@@ -8,15 +16,23 @@ public interface BooksController {
 
   ResponseEntity<?> writeOff(Long id, Integer amount);
 
-  ResponseEntity<?> showBookDetails(Long id);
+  ResponseEntity<?> adjustStock(List<@Valid StockAdjustmentDTO> adjustments);
 
-  ResponseEntity<?> getBooks(BookSort bookSort);
+  ResponseEntity<?> showBookDetails(Long id, String ifNoneMatch);
+
+  ResponseEntity<?> getBooks(BookSort bookSort, @PositiveOrZero Double minPrice,
+                             @PositiveOrZero Double maxPrice, String author, Integer minYear,
+                             Integer maxYear, BookStatus status, String after,
+                             @Min(1) @Max(500) Integer limit, String ifNoneMatch);
+
+  ResponseEntity<?> searchBooks(String query, @Min(0) @Max(1000) int page,
+                                @Min(1) @Max(100) int size);
 
   ResponseEntity<?> getStaleBooks(BookSort bookSort);
 
   ResponseEntity<?> importAll();
 
-  ResponseEntity<?> exportAll();
+  ResponseEntity<?> exportAll(ExportFormat format);
 
   ResponseEntity<?> importBook(Long id);
 
@@ -1,22 +1,30 @@
 package ru.bookstore.controllers;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import org.springframework.http.ResponseEntity;
+import ru.bookstore.controllers.impl.importexport.ExportFormat;
 import ru.bookstore.dto.OrderDTO;
 import ru.bookstore.model.OrderStatus;
 import ru.bookstore.sorting.OrderSort;
 
 public interface OrdersController {
-  ResponseEntity<?> createOrder(OrderDTO orderDTO);
+  ResponseEntity<?> createOrder(OrderDTO orderDTO, String idempotencyKey);
+
+  ResponseEntity<?> createOrders(List<OrderDTO> orderDTOs);
 
   ResponseEntity<?> cancelOrder(Long id);
 
-  ResponseEntity<?> showOrderDetails(Long id);
+  ResponseEntity<?> showOrderDetails(Long id, String ifNoneMatch);
 
   ResponseEntity<?> setOrderStatus(Long id, OrderStatus newStatus);
 
   ResponseEntity<?> getOrders(OrderSort orderSort);
 
+  ResponseEntity<?> getMyOrders(OrderStatus status, String after, int limit);
+
+  ResponseEntity<?> getClientOrders(String clientName, OrderStatus status, String after,
+                                    int limit);
 
   ResponseEntity<?> getCompleted(OrderSort orderSort, LocalDateTime begin, LocalDateTime end);
 
@@ -24,9 +32,11 @@ public interface OrdersController {
 
   ResponseEntity<?> getEarnedSum(LocalDateTime begin, LocalDateTime end);
 
+  ResponseEntity<?> getBestsellers(int days, int limit);
+
   ResponseEntity<?> importAll();
 
-  ResponseEntity<?> exportAll();
+  ResponseEntity<?> exportAll(ExportFormat format);
 
   ResponseEntity<?> importOrder(Long id);
 
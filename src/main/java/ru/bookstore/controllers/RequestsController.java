@@ -1,6 +1,7 @@
 package ru.bookstore.controllers;
 
 import org.springframework.http.ResponseEntity;
+import ru.bookstore.controllers.impl.importexport.ExportFormat;
 import ru.bookstore.sorting.RequestSort;
 
 public interface RequestsController {
@@ -8,6 +9,8 @@ public interface RequestsController {
 
   ResponseEntity<?> getRequests(RequestSort requestSort);
 
+  ResponseEntity<?> getTopDemand(int limit);
+
   ResponseEntity<?> getAllRequests();
 
   ResponseEntity<?> exportRequest(Long id);
@@ -16,5 +19,5 @@ public interface RequestsController {
 
   ResponseEntity<?> importAll();
 
-  ResponseEntity<?> exportAll();
+  ResponseEntity<?> exportAll(ExportFormat format);
 }
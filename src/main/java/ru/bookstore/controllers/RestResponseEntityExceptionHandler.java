@@ -25,6 +25,7 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.context.request.WebRequest;
@@ -32,7 +33,9 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 import ru.bookstore.exceptions.DataAccessException;
 import ru.bookstore.exceptions.EntityNotFoundException;
 import ru.bookstore.exceptions.ExportException;
+import ru.bookstore.exceptions.IdempotencyKeyConflictException;
 import ru.bookstore.exceptions.ImportException;
+import ru.bookstore.exceptions.OrderConflictException;
 
 @ControllerAdvice
 @Slf4j
@@ -91,6 +94,48 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
     return new ResponseEntity<>(problemDetail, HttpStatus.CONFLICT);
   }
 
+  @ExceptionHandler(OrderConflictException.class)
+  @ResponseStatus(HttpStatus.CONFLICT)
+  @ApiResponse(
+      responseCode = "409",
+      description = "Заказ изменён параллельным запросом",
+      content = @Content(
+          mediaType = "application/json",
+          schema = @Schema(implementation = ProblemDetail.class)
+      )
+  )
+  protected ResponseEntity<ProblemDetail> handleOrderConflictException(
+      OrderConflictException ex, WebRequest request) {
+    log.warn("Конфликт изменения заказа: {}", ex.getMessage());
+
+    ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, ex.getMessage());
+    problemDetail.setTitle("Конфликт изменения заказа");
+    problemDetail.setProperty("timestamp", Instant.now());
+
+    return new ResponseEntity<>(problemDetail, HttpStatus.CONFLICT);
+  }
+
+  @ExceptionHandler(IdempotencyKeyConflictException.class)
+  @ResponseStatus(HttpStatus.CONFLICT)
+  @ApiResponse(
+      responseCode = "409",
+      description = "Конфликт ключа идемпотентности",
+      content = @Content(
+          mediaType = "application/json",
+          schema = @Schema(implementation = ProblemDetail.class)
+      )
+  )
+  protected ResponseEntity<ProblemDetail> handleIdempotencyKeyConflictException(
+      IdempotencyKeyConflictException ex, WebRequest request) {
+    log.warn("Конфликт ключа идемпотентности: {}", ex.getMessage());
+
+    ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, ex.getMessage());
+    problemDetail.setTitle("Конфликт ключа идемпотентности");
+    problemDetail.setProperty("timestamp", Instant.now());
+
+    return new ResponseEntity<>(problemDetail, HttpStatus.CONFLICT);
+  }
+
   @ExceptionHandler(IllegalArgumentException.class)
   @ResponseStatus(HttpStatus.BAD_REQUEST)
   @ApiResponse(
@@ -222,6 +267,7 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
 
   @ExceptionHandler(ConstraintViolationException.class)
   @ResponseStatus(HttpStatus.BAD_REQUEST)
+  @ResponseBody
   @ApiResponse(
       responseCode = "400",
       description = "Нарушение ограничений валидации",
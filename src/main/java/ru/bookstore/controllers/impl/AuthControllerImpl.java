@@ -20,6 +20,7 @@ import org.springframework.web.bind.annotation.RestController;
 import ru.bookstore.controllers.AuthController;
 import ru.bookstore.dto.AuthDTO;
 import ru.bookstore.dto.mappers.AuthMapper;
+import ru.bookstore.metrics.StatementBudget;
 import ru.bookstore.security.JwtUtils;
 import ru.bookstore.service.MyUserDetailsService;
 
@@ -81,6 +82,7 @@ public class AuthControllerImpl implements AuthController {
       }
   )
   @PostMapping("/login")
+  @StatementBudget(maxStatements = 3)
   @Override
   public ResponseEntity<?> login(@RequestBody @Valid AuthDTO request) {
     if (userDetailsService.isUserValid(request)) {
@@ -140,6 +142,7 @@ public class AuthControllerImpl implements AuthController {
       }
   )
   @PostMapping("/register")
+  @StatementBudget(maxStatements = 3)
   @Override
   public ResponseEntity<?> register(@RequestBody @Valid AuthDTO request) {
     return ResponseEntity.ok(AuthMapper.INSTANCE.toDTO(userDetailsService.create(request)));
@@ -10,8 +10,15 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -20,18 +27,33 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.bookstore.constants.FileConstants;
 import ru.bookstore.controllers.BooksController;
 import ru.bookstore.controllers.impl.importexport.ExportController;
+import ru.bookstore.controllers.impl.importexport.ExportFormat;
 import ru.bookstore.controllers.impl.importexport.ImportController;
 import ru.bookstore.dto.BookDTO;
+import ru.bookstore.dto.BookPageDTO;
+import ru.bookstore.dto.BookSearchPageDTO;
+import ru.bookstore.dto.StockAdjustmentDTO;
 import ru.bookstore.dto.mappers.BookMapper;
+import ru.bookstore.etag.ChangeCounters;
+import ru.bookstore.etag.ETags;
 import ru.bookstore.facade.BookFacade;
 import ru.bookstore.facade.OrderFacade;
+import ru.bookstore.metrics.StatementBudget;
+import ru.bookstore.model.BookCursor;
+import ru.bookstore.model.BookFilter;
+import ru.bookstore.model.BookPage;
+import ru.bookstore.model.BookStatus;
 import ru.bookstore.model.impl.Book;
+import ru.bookstore.search.SearchPage;
 import ru.bookstore.sorting.BookSort;
 
 @Slf4j
@@ -42,8 +64,12 @@ import ru.bookstore.sorting.BookSort;
 @Tag(name = "Контроллер книг", description = "API для управления книгами в магазине. " +
     "Позволяет просматривать, добавлять, списывать, импортировать и экспортировать книги.")
 public class BooksControllerImpl implements BooksController {
+  private static final int DEFAULT_LIMIT = 50;
   private final BookFacade bookFacade;
   private final OrderFacade orderFacade;
+  private final ChangeCounters changeCounters;
+  @Value("${books.adjust.max.size:1000}")
+  private int maxAdjustments;
 
   @Operation(
       summary = "Получить информацию о книге",
@@ -56,6 +82,9 @@ public class BooksControllerImpl implements BooksController {
                   mediaType = "application/json",
                   schema = @Schema(implementation = BookDTO.class)
               )),
+          @ApiResponse(
+              responseCode = "304",
+              description = "Книга не менялась с версии из If-None-Match"),
           @ApiResponse(
               responseCode = "404",
               description = "Книга не найдена",
@@ -66,11 +95,25 @@ public class BooksControllerImpl implements BooksController {
       }
   )
   @GetMapping("/{id}")
+  @StatementBudget(maxStatements = 2)
   @Override
   public ResponseEntity<BookDTO> showBookDetails(
       @Parameter(description = "Идентификатор книги", required = true, example = "1")
-      @PathVariable("id") Long id) {
-    return ResponseEntity.ok(BookMapper.INSTANCE.toDTO(bookFacade.get(id)));
+      @PathVariable("id") Long id,
+      @Parameter(description = "ETag из прошлого ответа")
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    if (ifNoneMatch != null) {
+      Optional<String> etag = bookFacade.getVersion(id).map(version -> bookTag(id, version));
+      if (etag.isPresent() && ETags.matches(ifNoneMatch, etag.get())) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get())
+            .varyBy(HttpHeaders.ACCEPT).build();
+      }
+    }
+    Book book = bookFacade.get(id);
+    return ResponseEntity.ok()
+        .eTag(bookTag(id, book.getVersion()))
+        .varyBy(HttpHeaders.ACCEPT)
+        .body(BookMapper.INSTANCE.toDTO(book));
   }
 
   @Operation(
@@ -108,7 +151,6 @@ public class BooksControllerImpl implements BooksController {
       @Parameter(description = "Количество добавляемых экземпляров", required = true, example = "5")
       @RequestParam("amount") Integer amount) {
     Book book = bookFacade.addBook(id, amount, LocalDateTime.now());
-    orderFacade.updateOrders();
     return ResponseEntity.ok(BookMapper.INSTANCE.toDTO(book));
   }
 
@@ -153,25 +195,149 @@ public class BooksControllerImpl implements BooksController {
   }
 
   @Operation(
-      summary = "Получить список всех книг",
-      description = "Возвращает список всех книг с возможностью сортировки",
+      summary = "Изменить остатки многих книг",
+      description = "Применяет поставки и списания по списку книг одной транзакцией: либо все "
+          + "изменения, либо ни одного. Изменения одной книги складываются. Требует роли ADMIN.",
+      security = @SecurityRequirement(name = "bearerAuth"),
       responses = {
           @ApiResponse(
               responseCode = "200",
-              description = "Список книг",
+              description = "Обновленная информация о книгах",
               content = @Content(
                   mediaType = "application/json",
                   array = @ArraySchema(schema = @Schema(implementation = BookDTO.class))
-              ))
+              )),
+          @ApiResponse(
+              responseCode = "400",
+              description = "Пакет пуст, слишком велик, или книги нет либо не хватает на списание",
+              ref = "#/components/responses/BadRequest"),
+          @ApiResponse(
+              responseCode = "403",
+              description = "Доступ запрещен",
+              ref = "#/components/responses/Forbidden")
+      }
+  )
+  @PatchMapping("/adjust")
+  @PreAuthorize("hasRole('ADMIN')")
+  @StatementBudget(maxStatements = 10)
+  @Override
+  public ResponseEntity<?> adjustStock(
+      @RequestBody List<StockAdjustmentDTO> adjustments) {
+    if (adjustments.isEmpty() || adjustments.size() > maxAdjustments) {
+      throw new IllegalArgumentException("В пакете должно быть от 1 до " + maxAdjustments
+          + " изменений");
+    }
+    Map<Long, Integer> deltas = adjustments.stream()
+        .collect(Collectors.toMap(StockAdjustmentDTO::getBookId, StockAdjustmentDTO::getDelta,
+            Integer::sum, TreeMap::new));
+    List<Book> books = bookFacade.adjustStock(deltas, LocalDateTime.now());
+    return ResponseEntity.ok(BookMapper.INSTANCE.toListDTO(books));
+  }
+
+  @Operation(
+      summary = "Получить список книг",
+      description = "Без фильтров и limit возвращает весь каталог в заданном порядке. Если задан "
+          + "хотя бы один фильтр, limit или after, возвращает страницу книг, подходящих под все "
+          + "фильтры, и курсор следующей страницы",
+      responses = {
+          @ApiResponse(
+              responseCode = "200",
+              description = "Список книг или страница каталога",
+              content = @Content(
+                  mediaType = "application/json",
+                  schema = @Schema(oneOf = {BookDTO[].class, BookPageDTO.class})
+              )),
+          @ApiResponse(
+              responseCode = "304",
+              description = "Каталог не менялся с версии из If-None-Match"),
+          @ApiResponse(
+              responseCode = "400",
+              description = "Некорректные параметры запроса",
+              ref = "#/components/responses/BadRequest")
       }
   )
   @GetMapping
+  @StatementBudget(maxStatements = 2)
   @Override
   public ResponseEntity<?> getBooks(
       @Parameter(description = "Параметр сортировки", required = true,
           schema = @Schema(implementation = BookSort.class), example = "ID")
-      @RequestParam("sort") BookSort bookSort) {
-    return ResponseEntity.ok(BookMapper.INSTANCE.toListDTO(bookFacade.getAll(bookSort)));
+      @RequestParam("sort") BookSort bookSort,
+      @Parameter(description = "Минимальная цена", example = "100")
+      @RequestParam(value = "minPrice", required = false) Double minPrice,
+      @Parameter(description = "Максимальная цена", example = "500")
+      @RequestParam(value = "maxPrice", required = false) Double maxPrice,
+      @Parameter(description = "Автор (точное совпадение)", example = "Лев Толстой")
+      @RequestParam(value = "author", required = false) String author,
+      @Parameter(description = "Год издания, не раньше", example = "1900")
+      @RequestParam(value = "minYear", required = false) Integer minYear,
+      @Parameter(description = "Год издания, не позже", example = "2000")
+      @RequestParam(value = "maxYear", required = false) Integer maxYear,
+      @Parameter(description = "Статус книги", schema = @Schema(implementation = BookStatus.class))
+      @RequestParam(value = "status", required = false) BookStatus status,
+      @Parameter(description = "Курсор из поля next предыдущей страницы")
+      @RequestParam(value = "after", required = false) String after,
+      @Parameter(description = "Размер страницы", example = "50")
+      @RequestParam(value = "limit", required = false) Integer limit,
+      @Parameter(description = "ETag из прошлого ответа")
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    String etag = changeCounters.tag(Book.class);
+    if (ETags.matches(ifNoneMatch, etag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+          .varyBy(HttpHeaders.ACCEPT).build();
+    }
+    // JSON и CBOR отдаются по одному URL, поэтому кэши должны различать их по Accept
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+    if (changeCounters.isSettled(Book.class)) {
+      response.eTag(etag);
+    }
+    BookFilter filter = new BookFilter(minPrice, maxPrice, author, minYear, maxYear, status);
+    if (filter.isEmpty() && after == null && limit == null) {
+      return response.body(bookFacade.getCatalog(bookSort));
+    }
+    BookPage page = bookFacade.find(filter, bookSort,
+        after == null ? null : BookCursor.decode(after), limit == null ? DEFAULT_LIMIT : limit);
+    return response.body(BookPageDTO.builder()
+        .books(BookMapper.INSTANCE.toListDTO(page.books()))
+        .next(page.next() == null ? null : page.next().encode())
+        .build());
+  }
+
+  @Operation(
+      summary = "Найти книги",
+      description = "Ищет книги по словам названия и автора. Каждое слово запроса должно совпасть "
+          + "с началом слова книги; регистр и разница между «е» и «ё» не учитываются",
+      responses = {
+          @ApiResponse(
+              responseCode = "200",
+              description = "Страница найденных книг в порядке релевантности",
+              content = @Content(
+                  mediaType = "application/json",
+                  schema = @Schema(implementation = BookSearchPageDTO.class)
+              )),
+          @ApiResponse(
+              responseCode = "400",
+              description = "Некорректные параметры запроса",
+              ref = "#/components/responses/BadRequest")
+      }
+  )
+  @GetMapping("/search")
+  @StatementBudget(maxStatements = 1)
+  @Override
+  public ResponseEntity<?> searchBooks(
+      @Parameter(description = "Поисковый запрос", required = true, example = "толстой анна")
+      @RequestParam("q") String query,
+      @Parameter(description = "Номер страницы, начиная с нуля", example = "0")
+      @RequestParam(value = "page", defaultValue = "0") int page,
+      @Parameter(description = "Размер страницы", example = "20")
+      @RequestParam(value = "size", defaultValue = "20") int size) {
+    SearchPage result = bookFacade.search(query, page, size);
+    return ResponseEntity.ok(BookSearchPageDTO.builder()
+        .total(result.total())
+        .page(page)
+        .size(size)
+        .hits(BookMapper.INSTANCE.toSearchHitDTOs(result.hits()))
+        .build());
   }
 
   @Operation(
@@ -194,6 +360,7 @@ public class BooksControllerImpl implements BooksController {
   )
   @GetMapping("/stale")
   @PreAuthorize("hasRole('ADMIN')")
+  @StatementBudget(maxStatements = 2)
   @Override
   public ResponseEntity<?> getStaleBooks(
       @Parameter(description = "Параметр сортировки", required = true,
@@ -237,17 +404,18 @@ public class BooksControllerImpl implements BooksController {
   }
 
   @Operation(
-      summary = "Экспортировать все книги в файл",
-      description = "Экспортирует все книги в системный файл. Требует роли ADMIN.",
+      summary = "Выгрузить все книги",
+      description = "Потоково выгружает все книги в выбранном формате (CSV или CSV в gzip) "
+          + "напрямую из базы данных в ответ, без промежуточного файла. Требует роли ADMIN.",
       security = @SecurityRequirement(name = "bearerAuth"),
       responses = {
           @ApiResponse(
               responseCode = "200",
-              description = "Список экспортированных книг",
-              content = @Content(
-                  mediaType = "application/json",
-                  array = @ArraySchema(schema = @Schema(implementation = BookDTO.class))
-              )),
+              description = "Файл с выгруженными книгами",
+              content = {
+                  @Content(mediaType = "text/csv"),
+                  @Content(mediaType = "application/gzip")
+              }),
           @ApiResponse(
               responseCode = "403",
               description = "Доступ запрещен",
@@ -258,14 +426,15 @@ public class BooksControllerImpl implements BooksController {
               ref = "#/components/responses/ExportError")
       }
   )
-  @PutMapping("/export")
+  @GetMapping("/export")
   @PreAuthorize("hasRole('ADMIN')")
   @Override
-  public ResponseEntity<?> exportAll() {
-    List<Book> exportBooks = bookFacade.getAll(BookSort.ID);
-    ExportController.exportAll(exportBooks,
-        FileConstants.EXPORT_BOOK_PATH, FileConstants.BOOK_HEADER);
-    return ResponseEntity.ok(BookMapper.INSTANCE.toListDTO(exportBooks));
+  public ResponseEntity<StreamingResponseBody> exportAll(
+      @Parameter(description = "Формат выгрузки",
+          schema = @Schema(implementation = ExportFormat.class), example = "CSV")
+      @RequestParam(value = "format", defaultValue = "CSV") ExportFormat format) {
+    return ExportController.exportAll(bookFacade::exportAll, "books",
+        FileConstants.BOOK_HEADER, format);
   }
 
   @Operation(
@@ -336,6 +505,7 @@ public class BooksControllerImpl implements BooksController {
   )
   @PutMapping("/export/{id}")
   @PreAuthorize("hasRole('ADMIN')")
+  @StatementBudget(maxStatements = 2)
   @Override
   public ResponseEntity<?> exportBook(
       @Parameter(description = "Идентификатор книги для экспорта", required = true, example = "1")
@@ -345,4 +515,8 @@ public class BooksControllerImpl implements BooksController {
         FileConstants.EXPORT_BOOK_PATH, FileConstants.BOOK_HEADER);
     return ResponseEntity.ok(BookMapper.INSTANCE.toDTO(exportBook));
   }
+
+  private static String bookTag(long bookId, long version) {
+    return ETags.of("book", bookId, version);
+  }
 }
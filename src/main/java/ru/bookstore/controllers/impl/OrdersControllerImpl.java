@@ -10,30 +10,51 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.bookstore.constants.FileConstants;
 import ru.bookstore.controllers.OrdersController;
 import ru.bookstore.controllers.impl.importexport.ExportController;
+import ru.bookstore.controllers.impl.importexport.ExportFormat;
 import ru.bookstore.controllers.impl.importexport.ImportController;
+import ru.bookstore.dto.OrderBatchResultDTO;
 import ru.bookstore.dto.OrderDTO;
+import ru.bookstore.dto.OrderPageDTO;
+import ru.bookstore.dto.SalesEntryDTO;
+import ru.bookstore.dto.mappers.BookMapper;
 import ru.bookstore.dto.mappers.OrderMapper;
+import ru.bookstore.etag.ETags;
 import ru.bookstore.facade.OrderFacade;
+import ru.bookstore.idempotency.IdempotencyHandler;
+import ru.bookstore.metrics.StatementBudget;
+import ru.bookstore.model.OrderBatchResult;
+import ru.bookstore.model.OrderCursor;
+import ru.bookstore.model.OrderPage;
 import ru.bookstore.model.OrderStatus;
+import ru.bookstore.model.OrderVersion;
 import ru.bookstore.model.impl.Order;
 import ru.bookstore.security.SecurityAccessUtils;
 import ru.bookstore.sorting.OrderSort;
@@ -45,6 +66,15 @@ import ru.bookstore.sorting.OrderSort;
 @Tag(name = "Контроллер заказов", description = "API для управления заказами магазина")
 public class OrdersControllerImpl implements OrdersController {
   private final OrderFacade orderFacade;
+  private final IdempotencyHandler idempotencyHandler;
+  @Value("${orders.batch.max.size:500}")
+  private int maxBatchSize;
+  @Value("${orders.history.max.page:100}")
+  private int maxHistoryPage;
+  @Value("${dashboard.top.max.limit:100}")
+  private int maxTopLimit;
+  @Value("${dashboard.bestsellers.max.days:365}")
+  private int maxBestsellerDays;
 
   @Operation(
       summary = "Создать новый заказ",
@@ -72,18 +102,98 @@ public class OrdersControllerImpl implements OrdersController {
                   mediaType = "application/json",
                   schema = @Schema(implementation = ProblemDetail.class)
               )
+          ),
+          @ApiResponse(
+              responseCode = "409",
+              description = "Запрос с этим ключом идемпотентности ещё выполняется "
+                  + "или ключ использован для другого заказа",
+              content = @Content(
+                  mediaType = "application/json",
+                  schema = @Schema(implementation = ProblemDetail.class)
+              )
           )
       }
   )
   @PostMapping
+  @StatementBudget(maxStatements = 100, maxRepeats = 20)
   @Override
-  public ResponseEntity<?> createOrder(@RequestBody @Valid OrderDTO orderDTO) {
+  public ResponseEntity<?> createOrder(
+      @RequestBody @Valid OrderDTO orderDTO,
+      @Parameter(description = "Ключ идемпотентности: повтор запроса с тем же ключом вернёт "
+          + "уже созданный заказ", example = "3f1c2a9e-7b7d-4c1e-9a57-0c8a4b1d2e6f")
+      @RequestHeader(value = IdempotencyHandler.HEADER, required = false) String idempotencyKey) {
     SecurityAccessUtils.checkAccessDenied(SecurityContextHolder.getContext().getAuthentication(),
         "Вы можете создать заказ только на своё имя", orderDTO.getClientName());
-    return ResponseEntity.ok(OrderMapper.INSTANCE
-        .toDTO(orderFacade.createOrder(orderDTO.getBooks(),
+    IdempotencyHandler.Result<OrderDTO> result = idempotencyHandler.execute(
+        orderDTO.getClientName(), idempotencyKey, orderDTO.getBooks(), OrderDTO.class,
+        () -> OrderMapper.INSTANCE.toDTO(orderFacade.createOrder(orderDTO.getBooks(),
             orderDTO.getClientName(),
             LocalDateTime.now())));
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (result.replayed()) {
+      response.header(IdempotencyHandler.REPLAYED_HEADER, "true");
+    }
+    return response.body(result.body());
+  }
+
+  @Operation(
+      summary = "Создать пакет заказов",
+      description = "Создает несколько заказов за один проход. Заказ с ошибкой отклоняется, "
+          + "не мешая остальным; результаты возвращаются в порядке запроса",
+      security = @SecurityRequirement(name = "bearerAuth"),
+      responses = {
+          @ApiResponse(
+              responseCode = "200",
+              description = "Пакет обработан, результат указан для каждого заказа",
+              content = @Content(
+                  mediaType = "application/json",
+                  array = @ArraySchema(schema = @Schema(implementation = OrderBatchResultDTO.class))
+              )),
+          @ApiResponse(
+              responseCode = "400",
+              description = "Пакет пуст или превышает допустимый размер",
+              content = @Content(
+                  mediaType = "application/json",
+                  schema = @Schema(implementation = ProblemDetail.class)
+              ))
+      }
+  )
+  @PostMapping("batch")
+  @Override
+  public ResponseEntity<?> createOrders(@RequestBody List<OrderDTO> orderDTOs) {
+    if (orderDTOs.isEmpty() || orderDTOs.size() > maxBatchSize) {
+      throw new IllegalArgumentException("В пакете должно быть от 1 до " + maxBatchSize
+          + " заказов");
+    }
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    OrderBatchResultDTO[] results = new OrderBatchResultDTO[orderDTOs.size()];
+    List<Integer> indexes = new ArrayList<>();
+    List<Order> orders = new ArrayList<>();
+    for (int i = 0; i < orderDTOs.size(); i++) {
+      OrderDTO orderDTO = orderDTOs.get(i);
+      try {
+        SecurityAccessUtils.checkAccessDenied(authentication,
+            "Вы можете создать заказ только на своё имя", String.valueOf(orderDTO.getClientName()));
+      } catch (AccessDeniedException e) {
+        results[i] = new OrderBatchResultDTO(i, null, e.getMessage());
+        continue;
+      }
+      Order order = new Order();
+      order.setBooks(orderDTO.getBooks());
+      order.setClientName(orderDTO.getClientName());
+      orders.add(order);
+      indexes.add(i);
+    }
+    if (!orders.isEmpty()) {
+      List<OrderBatchResult> created = orderFacade.createOrders(orders, LocalDateTime.now());
+      for (int i = 0; i < created.size(); i++) {
+        OrderBatchResult result = created.get(i);
+        results[indexes.get(i)] = new OrderBatchResultDTO(indexes.get(i),
+            result.isCreated() ? OrderMapper.INSTANCE.toDTO(result.order()) : null,
+            result.error());
+      }
+    }
+    return ResponseEntity.ok(List.of(results));
   }
 
   @Operation(
@@ -114,6 +224,7 @@ public class OrdersControllerImpl implements OrdersController {
               ))}
   )
   @PostMapping(value = "cancelOrder/{id}")
+  @StatementBudget(maxStatements = 50, maxRepeats = 20)
   @Override
   public ResponseEntity<?> cancelOrder(
       @Parameter(description = "ID заказа", required = true, example = "1")
@@ -138,6 +249,10 @@ public class OrdersControllerImpl implements OrdersController {
                   schema = @Schema(implementation = OrderDTO.class)
               )
           ),
+          @ApiResponse(
+              responseCode = "304",
+              description = "Заказ не менялся с версии из If-None-Match"
+          ),
           @ApiResponse(
               responseCode = "403",
               description = "Доступ запрещен",
@@ -157,14 +272,34 @@ public class OrdersControllerImpl implements OrdersController {
       }
   )
   @GetMapping("{id}")
+  @StatementBudget(maxStatements = 3)
   @Override
   public ResponseEntity<?> showOrderDetails(
       @Parameter(description = "ID заказа", required = true, example = "1")
-      @PathVariable("id") Long id) {
-    SecurityAccessUtils.checkAccessDenied(SecurityContextHolder.getContext().getAuthentication(),
-        "Вы не можете увидеть детали чужого заказа", orderFacade.get(id).getClientName());
+      @PathVariable("id") Long id,
+      @Parameter(description = "ETag из прошлого ответа")
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (ifNoneMatch != null) {
+      Optional<OrderVersion> version = orderFacade.getVersion(id);
+      if (version.isPresent()) {
+        SecurityAccessUtils.checkAccessDenied(authentication,
+            "Вы не можете увидеть детали чужого заказа", version.get().clientName());
+        String etag = orderTag(id, version.get().version());
+        if (ETags.matches(ifNoneMatch, etag)) {
+          return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+              .varyBy(HttpHeaders.ACCEPT).build();
+        }
+      }
+    }
+    Order order = orderFacade.get(id);
+    SecurityAccessUtils.checkAccessDenied(authentication,
+        "Вы не можете увидеть детали чужого заказа", order.getClientName());
 
-    return ResponseEntity.ok(OrderMapper.INSTANCE.toDTO(orderFacade.get(id)));
+    return ResponseEntity.ok()
+        .eTag(orderTag(id, order.getVersion()))
+        .varyBy(HttpHeaders.ACCEPT)
+        .body(OrderMapper.INSTANCE.toDTO(order));
   }
 
   @Operation(
@@ -198,6 +333,7 @@ public class OrdersControllerImpl implements OrdersController {
   )
   @PostMapping("/setOrderStatus")
   @PreAuthorize("hasRole('ADMIN')")
+  @StatementBudget(maxStatements = 5)
   @Override
   public ResponseEntity<?> setOrderStatus(
       @Parameter(description = "ID заказа", required = true, example = "1")
@@ -232,6 +368,7 @@ public class OrdersControllerImpl implements OrdersController {
   )
   @GetMapping
   @PreAuthorize("hasRole('ADMIN')")
+  @StatementBudget(maxStatements = 2)
   @Override
   public ResponseEntity<?> getOrders(
       @Parameter(description = "Параметр сортировки", required = true,
@@ -240,6 +377,101 @@ public class OrdersControllerImpl implements OrdersController {
     return ResponseEntity.ok(OrderMapper.INSTANCE.toListDTO(orderFacade.getAll(orderSort)));
   }
 
+  @Operation(
+      summary = "Получить свои заказы",
+      description = "Возвращает заказы текущего пользователя от новых к старым, постранично",
+      security = @SecurityRequirement(name = "bearerAuth"),
+      responses = {
+          @ApiResponse(
+              responseCode = "200",
+              description = "Страница заказов",
+              content = @Content(
+                  mediaType = "application/json",
+                  schema = @Schema(implementation = OrderPageDTO.class)
+              )),
+          @ApiResponse(
+              responseCode = "400",
+              description = "Некорректный курсор или размер страницы",
+              content = @Content(
+                  mediaType = "application/json",
+                  schema = @Schema(implementation = ProblemDetail.class)
+              ))
+      }
+  )
+  @GetMapping("my")
+  @StatementBudget(maxStatements = 2)
+  @Override
+  public ResponseEntity<?> getMyOrders(
+      @Parameter(description = "Статус заказа",
+          schema = @Schema(implementation = OrderStatus.class))
+      @RequestParam(value = "status", required = false) OrderStatus status,
+      @Parameter(description = "Курсор из поля next предыдущей страницы")
+      @RequestParam(value = "after", required = false) String after,
+      @Parameter(description = "Размер страницы", example = "20")
+      @RequestParam(value = "limit", defaultValue = "20") int limit) {
+    String clientName = SecurityContextHolder.getContext().getAuthentication().getName();
+    return ResponseEntity.ok(clientOrdersPage(clientName, status, after, limit));
+  }
+
+  @Operation(
+      summary = "Получить заказы клиента",
+      description = "Возвращает заказы указанного клиента от новых к старым, постранично "
+          + "(только для ADMIN)",
+      security = @SecurityRequirement(name = "bearerAuth"),
+      responses = {
+          @ApiResponse(
+              responseCode = "200",
+              description = "Страница заказов",
+              content = @Content(
+                  mediaType = "application/json",
+                  schema = @Schema(implementation = OrderPageDTO.class)
+              )),
+          @ApiResponse(
+              responseCode = "400",
+              description = "Некорректный курсор или размер страницы",
+              content = @Content(
+                  mediaType = "application/json",
+                  schema = @Schema(implementation = ProblemDetail.class)
+              )),
+          @ApiResponse(
+              responseCode = "403",
+              description = "Доступ запрещен",
+              content = @Content(
+                  mediaType = "application/json",
+                  schema = @Schema(implementation = ProblemDetail.class))
+          )
+      }
+  )
+  @GetMapping("client/{clientName}")
+  @PreAuthorize("hasRole('ADMIN')")
+  @StatementBudget(maxStatements = 2)
+  @Override
+  public ResponseEntity<?> getClientOrders(
+      @Parameter(description = "Имя клиента", required = true, example = "user")
+      @PathVariable("clientName") String clientName,
+      @Parameter(description = "Статус заказа",
+          schema = @Schema(implementation = OrderStatus.class))
+      @RequestParam(value = "status", required = false) OrderStatus status,
+      @Parameter(description = "Курсор из поля next предыдущей страницы")
+      @RequestParam(value = "after", required = false) String after,
+      @Parameter(description = "Размер страницы", example = "20")
+      @RequestParam(value = "limit", defaultValue = "20") int limit) {
+    return ResponseEntity.ok(clientOrdersPage(clientName, status, after, limit));
+  }
+
+  private OrderPageDTO clientOrdersPage(String clientName, OrderStatus status, String after,
+                                        int limit) {
+    if (limit < 1 || limit > maxHistoryPage) {
+      throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + maxHistoryPage);
+    }
+    OrderPage page = orderFacade.getClientOrders(clientName, status,
+        after == null ? null : OrderCursor.decode(after), limit);
+    return OrderPageDTO.builder()
+        .orders(OrderMapper.INSTANCE.toListDTO(page.orders()))
+        .next(page.next() == null ? null : page.next().encode())
+        .build();
+  }
+
   @Operation(
       summary = "Получить выполненные заказы",
       description = "Возвращает список выполненных заказов за указанный период (только для ADMIN)",
@@ -263,6 +495,7 @@ public class OrdersControllerImpl implements OrdersController {
   )
   @GetMapping("completed")
   @PreAuthorize("hasRole('ADMIN')")
+  @StatementBudget(maxStatements = 3)
   @Override
   public ResponseEntity<?> getCompleted(
       @Parameter(description = "Параметр сортировки", required = true,
@@ -301,6 +534,7 @@ public class OrdersControllerImpl implements OrdersController {
   )
   @GetMapping("/countCompletedOrders")
   @PreAuthorize("hasRole('ADMIN')")
+  @StatementBudget(maxStatements = 2)
   @Override
   public ResponseEntity<?> getCountCompletedOrders(
       @Parameter(description = "Начальная дата периода (формат: dd.MM.yyyy HH:mm:ss)", example = "01.01.2023 00:00:00")
@@ -335,6 +569,7 @@ public class OrdersControllerImpl implements OrdersController {
   )
   @GetMapping("/earnedSum")
   @PreAuthorize("hasRole('ADMIN')")
+  @StatementBudget(maxStatements = 2)
   @Override
   public ResponseEntity<?> getEarnedSum(
       @Parameter(description = "Начальная дата периода (формат: dd.MM.yyyy HH:mm:ss)", example = "01.01.2023 00:00:00")
@@ -346,6 +581,55 @@ public class OrdersControllerImpl implements OrdersController {
     return ResponseEntity.ok(orderFacade.getEarnedSum(begin, end));
   }
 
+  @Operation(
+      summary = "Бестселлеры",
+      description = "Возвращает самые продаваемые книги по выполненным заказам за последние "
+          + "days дней. Рейтинг кешируется на несколько секунд (только для ADMIN)",
+      security = @SecurityRequirement(name = "bearerAuth"),
+      responses = {
+          @ApiResponse(
+              responseCode = "200",
+              description = "Книги по убыванию числа проданных экземпляров",
+              content = @Content(
+                  mediaType = "application/json",
+                  array = @ArraySchema(schema = @Schema(implementation = SalesEntryDTO.class)))
+          ),
+          @ApiResponse(
+              responseCode = "400",
+              description = "Некорректный размер рейтинга или период",
+              content = @Content(
+                  mediaType = "application/json",
+                  schema = @Schema(implementation = ProblemDetail.class))
+          ),
+          @ApiResponse(
+              responseCode = "403",
+              description = "Доступ запрещен",
+              content = @Content(
+                  mediaType = "application/json",
+                  schema = @Schema(implementation = ProblemDetail.class))
+          )
+      }
+  )
+  @GetMapping("/bestsellers")
+  @PreAuthorize("hasRole('ADMIN')")
+  @StatementBudget(maxStatements = 2)
+  @Override
+  public ResponseEntity<?> getBestsellers(
+      @Parameter(description = "Период в днях", example = "30")
+      @RequestParam(value = "days", defaultValue = "30") int days,
+      @Parameter(description = "Размер рейтинга", example = "20")
+      @RequestParam(value = "limit", defaultValue = "20") int limit) {
+    if (limit < 1 || limit > maxTopLimit) {
+      throw new IllegalArgumentException("Размер рейтинга должен быть от 1 до " + maxTopLimit);
+    }
+    if (days < 1 || days > maxBestsellerDays) {
+      throw new IllegalArgumentException("Период должен быть от 1 до " + maxBestsellerDays
+          + " дней");
+    }
+    return ResponseEntity.ok(BookMapper.INSTANCE.toSalesDTOs(
+        orderFacade.getBestsellers(days, limit)));
+  }
+
   @Operation(
       summary = "Импорт всех заказов",
       description = "Импортирует все заказы из файла (только для ADMIN)",
@@ -385,17 +669,18 @@ public class OrdersControllerImpl implements OrdersController {
   }
 
   @Operation(
-      summary = "Экспорт всех заказов",
-      description = "Экспортирует все заказы в файл (только для ADMIN)",
+      summary = "Выгрузка всех заказов",
+      description = "Потоково выгружает все заказы в выбранном формате (CSV или CSV в gzip) "
+          + "напрямую из базы данных в ответ, без промежуточного файла (только для ADMIN)",
       security = @SecurityRequirement(name = "bearerAuth"),
       responses = {
           @ApiResponse(
               responseCode = "200",
-              description = "Список экспортированных заказов",
-              content = @Content(
-                  mediaType = "application/json",
-                  array = @ArraySchema(schema = @Schema(implementation = OrderDTO.class)))
-          ),
+              description = "Файл с выгруженными заказами",
+              content = {
+                  @Content(mediaType = "text/csv"),
+                  @Content(mediaType = "application/gzip")
+              }),
           @ApiResponse(
               responseCode = "403",
               description = "Доступ запрещен",
@@ -412,14 +697,15 @@ public class OrdersControllerImpl implements OrdersController {
           )
       }
   )
-  @PutMapping("/export")
+  @GetMapping("/export")
   @PreAuthorize("hasRole('ADMIN')")
   @Override
-  public ResponseEntity<?> exportAll() {
-    List<Order> exportOrders = orderFacade.getAll(OrderSort.ID);
-    ExportController.exportAll(exportOrders,
-        FileConstants.EXPORT_ORDER_PATH, FileConstants.ORDER_HEADER);
-    return ResponseEntity.ok(OrderMapper.INSTANCE.toListDTO(exportOrders));
+  public ResponseEntity<StreamingResponseBody> exportAll(
+      @Parameter(description = "Формат выгрузки",
+          schema = @Schema(implementation = ExportFormat.class), example = "CSV")
+      @RequestParam(value = "format", defaultValue = "CSV") ExportFormat format) {
+    return ExportController.exportAll(orderFacade::exportAll, "orders",
+        FileConstants.ORDER_HEADER, format);
   }
 
   @Operation(
@@ -492,6 +778,7 @@ public class OrdersControllerImpl implements OrdersController {
   )
   @PutMapping("/export/{id}")
   @PreAuthorize("hasRole('ADMIN')")
+  @StatementBudget(maxStatements = 2)
   @Override
   public ResponseEntity<?> exportOrder(
       @Parameter(description = "ID заказа для экспорта", required = true, example = "1")
@@ -501,4 +788,8 @@ public class OrdersControllerImpl implements OrdersController {
         FileConstants.EXPORT_ORDER_PATH, FileConstants.ORDER_HEADER);
     return ResponseEntity.ok(OrderMapper.INSTANCE.toDTO(exportOrder));
   }
-}
\ No newline at end of file
+
+  private static String orderTag(long orderId, long version) {
+    return ETags.of("order", orderId, version);
+  }
+}
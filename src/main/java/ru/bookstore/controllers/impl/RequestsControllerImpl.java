@@ -12,8 +12,9 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -23,25 +24,31 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.bookstore.constants.FileConstants;
 import ru.bookstore.controllers.RequestsController;
 import ru.bookstore.controllers.impl.importexport.ExportController;
+import ru.bookstore.controllers.impl.importexport.ExportFormat;
 import ru.bookstore.controllers.impl.importexport.ImportController;
+import ru.bookstore.dto.DemandEntryDTO;
 import ru.bookstore.dto.RequestDTO;
 import ru.bookstore.dto.mappers.BookMapper;
 import ru.bookstore.dto.mappers.RequestMapper;
 import ru.bookstore.facade.RequestFacade;
+import ru.bookstore.metrics.StatementBudget;
 import ru.bookstore.model.impl.Request;
 import ru.bookstore.sorting.RequestSort;
 
 @Slf4j
-@AllArgsConstructor
+@RequiredArgsConstructor
 @RestController
 @RequestMapping("/requests")
 @Tag(name = "Контроллер запросов на книги", description = "API для управления запросами на книги")
 public class RequestsControllerImpl implements RequestsController {
   private final RequestFacade requestFacade;
   private final ImportController importController;
+  @Value("${dashboard.top.max.limit:100}")
+  private int maxTopLimit;
 
   @Operation(
       summary = "Создать запрос на книгу",
@@ -73,6 +80,7 @@ public class RequestsControllerImpl implements RequestsController {
       }
   )
   @PostMapping
+  @StatementBudget(maxStatements = 5)
   public ResponseEntity<?> createRequest(
       @Parameter(description = "ID книги", required = true, example = "1")
       @RequestParam("bookId") Long bookId,
@@ -103,6 +111,7 @@ public class RequestsControllerImpl implements RequestsController {
       }
   )
   @GetMapping
+  @StatementBudget(maxStatements = 3)
   @Override
   public ResponseEntity<?> getRequests(
       @Parameter(description = "Параметр сортировки", required = true,
@@ -117,6 +126,40 @@ public class RequestsControllerImpl implements RequestsController {
         )));
   }
 
+  @Operation(
+      summary = "Самые востребованные книги",
+      description = "Возвращает книги с наибольшим числом открытых запросов. Рейтинг "
+          + "кешируется на несколько секунд и может немного отставать",
+      security = @SecurityRequirement(name = "bearerAuth"),
+      responses = {
+          @ApiResponse(
+              responseCode = "200",
+              description = "Книги по убыванию числа открытых запросов",
+              content = @Content(
+                  mediaType = "application/json",
+                  array = @ArraySchema(schema = @Schema(implementation = DemandEntryDTO.class))
+              )),
+          @ApiResponse(
+              responseCode = "400",
+              description = "Некорректный размер рейтинга",
+              content = @Content(
+                  mediaType = "application/json",
+                  schema = @Schema(implementation = ProblemDetail.class)
+              ))
+      }
+  )
+  @GetMapping("top")
+  @StatementBudget(maxStatements = 1)
+  @Override
+  public ResponseEntity<?> getTopDemand(
+      @Parameter(description = "Размер рейтинга", example = "20")
+      @RequestParam(value = "limit", defaultValue = "20") int limit) {
+    if (limit < 1 || limit > maxTopLimit) {
+      throw new IllegalArgumentException("Размер рейтинга должен быть от 1 до " + maxTopLimit);
+    }
+    return ResponseEntity.ok(BookMapper.INSTANCE.toDemandDTOs(requestFacade.getTopDemand(limit)));
+  }
+
 
   @Operation(
       summary = "Получить все запросы",
@@ -133,6 +176,7 @@ public class RequestsControllerImpl implements RequestsController {
       }
   )
   @GetMapping("getAll")
+  @StatementBudget(maxStatements = 2)
   @Override
   public ResponseEntity<?> getAllRequests() {
     return ResponseEntity.ok(RequestMapper.INSTANCE.toListDTO(requestFacade.getAllRequests()));
@@ -168,6 +212,7 @@ public class RequestsControllerImpl implements RequestsController {
       }
   )
   @PutMapping("export/{id}")
+  @StatementBudget(maxStatements = 2)
   @Override
   public ResponseEntity<?> exportRequest(
       @Parameter(description = "ID запроса для экспорта", required = true, example = "1")
@@ -248,17 +293,18 @@ public class RequestsControllerImpl implements RequestsController {
   }
 
   @Operation(
-      summary = "Экспортировать все запросы",
-      description = "Экспортирует все запросы в файл (только для ADMIN)",
+      summary = "Выгрузить все запросы",
+      description = "Потоково выгружает все запросы в выбранном формате (CSV или CSV в gzip) "
+          + "напрямую из базы данных в ответ, без промежуточного файла (только для ADMIN)",
       security = @SecurityRequirement(name = "bearerAuth"),
       responses = {
           @ApiResponse(
               responseCode = "200",
-              description = "Список всех экспортированных запросов",
-              content = @Content(
-                  mediaType = "application/json",
-                  array = @ArraySchema(schema = @Schema(implementation = RequestDTO.class)))
-          ),
+              description = "Файл с выгруженными запросами",
+              content = {
+                  @Content(mediaType = "text/csv"),
+                  @Content(mediaType = "application/gzip")
+              }),
           @ApiResponse(
               responseCode = "500",
               description = "Ошибка экспорта",
@@ -268,12 +314,13 @@ public class RequestsControllerImpl implements RequestsController {
           )
       }
   )
-  @PutMapping("export")
+  @GetMapping("export")
   @Override
-  public ResponseEntity<?> exportAll() {
-    List<Request> exportRequests = requestFacade.getAllRequests();
-    ExportController.exportAll(exportRequests,
-        FileConstants.EXPORT_REQUEST_PATH, FileConstants.REQUEST_HEADER);
-    return ResponseEntity.ok(RequestMapper.INSTANCE.toListDTO(exportRequests));
+  public ResponseEntity<StreamingResponseBody> exportAll(
+      @Parameter(description = "Формат выгрузки",
+          schema = @Schema(implementation = ExportFormat.class), example = "CSV")
+      @RequestParam(value = "format", defaultValue = "CSV") ExportFormat format) {
+    return ExportController.exportAll(requestFacade::exportAll, "requests",
+        FileConstants.REQUEST_HEADER, format);
   }
 }
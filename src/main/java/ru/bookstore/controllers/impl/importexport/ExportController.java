@@ -5,22 +5,68 @@ import java.io.BufferedWriter;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.bookstore.exceptions.ExportException;
 import ru.bookstore.model.Item;
 
 @Slf4j
 public class ExportController {
-  public static <T extends Item> void exportAll(List<T> items, String exportPath, String header) {
-    log.info("Выполняется экспорт объектов в файл {}...", exportPath);
-    items.forEach(item -> exportItemToFile(item, exportPath, header));
-    log.info("Выполнен экспорт объектов в файл {}.", exportPath);
+  private static final int WRITER_BUFFER_SIZE = 64 * 1024;
+
+  public static <T extends Item> ResponseEntity<StreamingResponseBody> exportAll(
+      Consumer<Consumer<T>> source, String fileName, String header, ExportFormat format) {
+    return ResponseEntity.ok()
+        .contentType(format.getMediaType())
+        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+            .filename(fileName + format.getFileExtension())
+            .build()
+            .toString())
+        .body(outputStream -> writeAll(source, header, format, outputStream));
+  }
+
+  private static <T extends Item> void writeAll(Consumer<Consumer<T>> source, String header,
+                                                ExportFormat format, OutputStream outputStream)
+      throws IOException {
+    log.info("Выполняется потоковый экспорт объектов в формате {}...", format);
+    OutputStream target = format.wrap(outputStream);
+    Writer writer = new BufferedWriter(
+        new OutputStreamWriter(target, StandardCharsets.UTF_8), WRITER_BUFFER_SIZE);
+    long[] exported = {0};
+    try {
+      writer.write(header);
+      writer.write('\n');
+      source.accept(item -> {
+        try {
+          writer.write(item.toString());
+          writer.write('\n');
+          exported[0]++;
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+      writer.flush();
+      format.finish(target);
+    } catch (UncheckedIOException e) {
+      throw new ExportException("При потоковом экспорте возникла ошибка: "
+          + e.getCause().getMessage(), e.getCause());
+    }
+    log.info("Выполнен потоковый экспорт {} объектов в формате {}.", exported[0], format);
   }
 
   public static <T extends Item> void exportItemToFile(T item, String exportPath, String header) {
-    log.info("Выполняется экспорт объекта: {}...", item);
+    log.info("Выполняется экспорт объекта [{}]...", item.getId());
     String exportString = item.toString();
     List<String> newFileStrings = new ArrayList<>();
     newFileStrings.add(header);
@@ -59,6 +105,6 @@ public class ExportController {
     } catch (IOException e) {
       throw new ExportException("При экспорте " + item + "возникла ошибка: " + e.getMessage(), e);
     }
-    log.info("Экспорт выполнен успешно: {}", item);
+    log.info("Экспорт объекта [{}] выполнен успешно", item.getId());
   }
 }
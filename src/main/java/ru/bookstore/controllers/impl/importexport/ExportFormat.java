@@ -0,0 +1,31 @@
+package ru.bookstore.controllers.impl.importexport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+  CSV(new MediaType("text", "csv"), ".csv"),
+  CSV_GZIP(new MediaType("application", "gzip"), ".csv.gz");
+
+  private static final int GZIP_BUFFER_SIZE = 8192;
+
+  private final MediaType mediaType;
+  private final String fileExtension;
+
+  public OutputStream wrap(OutputStream outputStream) throws IOException {
+    return this == CSV_GZIP ? new GZIPOutputStream(outputStream, GZIP_BUFFER_SIZE) : outputStream;
+  }
+
+  public void finish(OutputStream outputStream) throws IOException {
+    if (outputStream instanceof GZIPOutputStream gzipOutputStream) {
+      gzipOutputStream.finish();
+    }
+    outputStream.flush();
+  }
+}
@@ -15,6 +15,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional;
+import ru.bookstore.datasource.ReplicaRead;
 import ru.bookstore.exceptions.ImportException;
 import ru.bookstore.model.BookStatus;
 import ru.bookstore.model.Item;
@@ -57,6 +58,7 @@ public class ImportController {
   }
 
   @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = ReplicaRead.PRIMARY_ONLY)
   public Request requestParser(String[] parts) {
     if (parts.length != 4) {
       throw new ImportException("Неверное количество частей в строке: " + parts.length);
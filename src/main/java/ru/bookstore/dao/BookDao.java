@@ -2,7 +2,11 @@ package ru.bookstore.dao;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import ru.bookstore.model.BookCursor;
+import ru.bookstore.model.BookFilter;
 import ru.bookstore.model.impl.Book;
 import ru.bookstore.sorting.BookSort;
 
@@ -11,11 +15,29 @@ public interface BookDao extends GenericDao<Book> {
 
   Book writeOff(long bookId, int amount, LocalDateTime saleDate);
 
+  List<Long> adjustAmounts(Map<Long, Integer> deltas, LocalDateTime adjustDate);
+
+  boolean reserve(long bookId, int amount);
+
+  void releaseReserved(long bookId, int amount);
+
+  Book writeOffReserved(long bookId, int amount, LocalDateTime saleDate);
+
   List<Book> getAllBooks(BookSort sortType);
 
+  List<Book> findBooks(BookFilter filter, BookSort sortType, BookCursor after, int limit);
+
   List<Book> getBooks(List<Long> bookIds);
 
+  List<Book> getBooksForUpdate(List<Long> bookIds);
+
+  void forEachBook(Consumer<Book> action);
+
   Optional<Book> getBookById(long bookId);
 
+  Optional<Long> getVersion(long bookId);
+
+  Optional<Book> findForUpdate(long bookId);
+
   void importBook(Book book) throws IllegalArgumentException;
 }
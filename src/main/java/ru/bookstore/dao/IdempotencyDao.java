@@ -0,0 +1,27 @@
+package ru.bookstore.dao;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import ru.bookstore.model.impl.IdempotencyRecord;
+
+public interface IdempotencyDao {
+  Optional<IdempotencyRecord> find(String clientName, String idempotencyKey);
+
+  void insert(String clientName, String idempotencyKey, String requestHash,
+              LocalDateTime createdAt, LocalDateTime expiresAt, LocalDateTime lockedUntil);
+
+  /**
+   * Забирает незавершённый ключ, срок захвата которого истёк, возвращает число изменённых строк.
+   */
+  int takeOver(String clientName, String idempotencyKey, LocalDateTime now,
+               LocalDateTime lockedUntil);
+
+  /**
+   * Сохраняет ответ, если его ещё нет, возвращает число изменённых строк.
+   */
+  int complete(String clientName, String idempotencyKey, String response);
+
+  void delete(String clientName, String idempotencyKey);
+
+  int deleteExpired(LocalDateTime now);
+}
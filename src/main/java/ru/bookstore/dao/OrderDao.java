@@ -3,20 +3,39 @@ package ru.bookstore.dao;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import ru.bookstore.model.OrderCursor;
 import ru.bookstore.model.OrderStatus;
+import ru.bookstore.model.OrderVersion;
+import ru.bookstore.model.SalesEntry;
 import ru.bookstore.model.impl.Order;
 import ru.bookstore.sorting.OrderSort;
 
 public interface OrderDao extends GenericDao<Order> {
   Order setOrderStatus(long orderId, OrderStatus status);
 
+  boolean changeStatus(Order order, OrderStatus status, LocalDateTime changeDate);
+
   Order addOrder(Order order);
 
+  void addOrders(List<Order> orders);
+
   List<Order> getAllOrders(OrderSort sortType, LocalDateTime begin, LocalDateTime end);
 
+  List<Order> getClientOrders(String clientName, OrderStatus status, OrderCursor before,
+                              int limit);
+
   Double getEarnedSum(LocalDateTime begin, LocalDateTime end);
 
   Long getCountCompletedOrders(LocalDateTime begin, LocalDateTime end);
 
+  List<SalesEntry> getBestsellers(LocalDateTime since, int limit);
+
+  int archiveOrders(LocalDateTime completedBefore, int batchSize);
+
   Optional<Order> findWithBooks(Long id);
+
+  Optional<OrderVersion> getVersion(long orderId);
+
+  void forEachOrder(Consumer<Order> action);
 }
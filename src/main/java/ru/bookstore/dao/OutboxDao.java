@@ -0,0 +1,19 @@
+package ru.bookstore.dao;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import ru.bookstore.model.impl.OutboxEvent;
+
+public interface OutboxDao {
+  void append(OutboxEvent event);
+
+  void appendAll(List<OutboxEvent> events);
+
+  List<OutboxEvent> findAfter(long lastEventId, int limit);
+
+  long getCheckpoint(String consumer);
+
+  void saveCheckpoint(String consumer, long lastEventId, LocalDateTime updatedAt);
+
+  int deleteUpTo(long eventId);
+}
@@ -1,9 +1,12 @@
 package ru.bookstore.dao;
 
+import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import ru.bookstore.model.DemandEntry;
 import ru.bookstore.model.impl.Book;
 import ru.bookstore.model.impl.Request;
 import ru.bookstore.sorting.RequestSort;
@@ -13,11 +16,21 @@ public interface RequestDao extends GenericDao<Request> {
 
   LinkedHashMap<Book, Long> getRequests(RequestSort typeSort);
 
+  List<DemandEntry> getTopDemand(int limit);
+
+  void forEachRequest(Consumer<Request> action);
+
   Optional<Request> getRequestById(long requestId);
 
   long addRequest(Book book, int amount) throws IllegalArgumentException;
 
+  void addRequests(List<Map<Long, Integer>> orderedBooks);
+
   Request importRequest(Request request) throws IllegalArgumentException;
 
   void closeRequests(Map<Long, Integer> book);
+
+  int reconcileDemand();
+
+  int archiveRequests(LocalDateTime closedBefore, int batchSize);
 }
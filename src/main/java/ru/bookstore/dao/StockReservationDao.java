@@ -0,0 +1,23 @@
+package ru.bookstore.dao;
+
+import java.util.List;
+import ru.bookstore.allocation.LedgerLine;
+import ru.bookstore.model.impl.StockReservation;
+
+public interface StockReservationDao {
+  List<StockReservation> findByOrder(long orderId);
+
+  /**
+   * Все строки журнала у заказов, где есть хотя бы одна ожидающая строка.
+   */
+  List<LedgerLine> findPendingLines();
+
+  /**
+   * Переводит строку из WAITING в RESERVED, возвращает число изменённых строк (0 или 1).
+   */
+  int markReserved(long orderId, long bookId);
+
+  void save(StockReservation reservation);
+
+  int deleteByOrder(long orderId);
+}
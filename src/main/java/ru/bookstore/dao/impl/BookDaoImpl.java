@@ -1,20 +1,41 @@
 package ru.bookstore.dao.impl;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.HibernateException;
+import org.hibernate.LockMode;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.query.Query;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
+import ru.bookstore.catalog.BooksChanged;
 import ru.bookstore.dao.BookDao;
+import ru.bookstore.etag.ChangeCounters;
 import ru.bookstore.exceptions.DataAccessException;
 import ru.bookstore.exceptions.EntityNotFoundException;
 import ru.bookstore.exceptions.ImportException;
+import ru.bookstore.model.BookCursor;
+import ru.bookstore.model.BookFilter;
+import ru.bookstore.model.BookStatus;
 import ru.bookstore.model.impl.Book;
 import ru.bookstore.sorting.BookSort;
 
@@ -25,6 +46,10 @@ import ru.bookstore.sorting.BookSort;
 public class BookDaoImpl extends HibernateAbstractDao<Book> implements BookDao {
   @Value("${book.stale.months}")
   private int staleBookMonths;
+  @Autowired
+  private ChangeCounters changeCounters;
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
 
   @Autowired
   public BookDaoImpl(SessionFactory sessionFactory) {
@@ -37,7 +62,7 @@ public class BookDaoImpl extends HibernateAbstractDao<Book> implements BookDao {
   public Book add(long bookId, int amount, LocalDateTime deliveredDate) {
     log.debug("Добавляем {} книг [{}]...", amount, bookId);
     try {
-      Book book = sessionFactory.getCurrentSession().get(Book.class, bookId);
+      Book book = lock(bookId);
       if (book == null) {
         throw new EntityNotFoundException("Такой книги нет в магазине");
       }
@@ -45,6 +70,7 @@ public class BookDaoImpl extends HibernateAbstractDao<Book> implements BookDao {
       book.setLastDeliveredDate(deliveredDate);
 
       book = sessionFactory.getCurrentSession().merge(book);
+      booksChanged(List.of(bookId));
       log.info("Успешно добавлено {} книг [{}], дата поставки: {}", amount, bookId, deliveredDate);
       return book;
     } catch (Exception e) {
@@ -57,17 +83,19 @@ public class BookDaoImpl extends HibernateAbstractDao<Book> implements BookDao {
       throws IllegalArgumentException {
     log.info("Списываем {} книг [{}]...", amount, bookId);
     try {
-      Book book = sessionFactory.getCurrentSession().get(Book.class, bookId);
+      Book book = lock(bookId);
       if (book == null) {
         throw new IllegalArgumentException("Попытка списать книги с несуществующим id: " + bookId);
       }
-      if (book.getAmount() < amount) {
-        throw new IllegalArgumentException("Попытка списать " + amount + " книг [" + bookId + "], но доступно только " + book.getAmount());
+      if (book.availableAmount() < amount) {
+        throw new IllegalArgumentException("Попытка списать " + amount + " книг [" + bookId
+            + "], но доступно только " + book.availableAmount());
       }
       book.setAmount(book.getAmount() - amount);
       book.setLastSaleDate(saleDate);
 
       book = sessionFactory.getCurrentSession().merge(book);
+      booksChanged(List.of(bookId));
       log.info("Списано {} книг [{}], дата продажи: {}", amount, bookId, saleDate);
       return book;
     } catch (Exception e) {
@@ -75,6 +103,140 @@ public class BookDaoImpl extends HibernateAbstractDao<Book> implements BookDao {
     }
   }
 
+  /**
+   * Применяет изменения остатков одним JDBC-пакетом условных UPDATE в порядке id. Списание
+   * проходит, только если хватает незарезервированных книг; статус пересчитывается в том же
+   * запросе (он стоит первым, чтобы MySQL считал его по старому остатку). Книги, которых нет или
+   * которых не хватило, возвращаются списком. Загруженные в сессию книги после вызова устаревают.
+   * Hibernate об этих UPDATE не знает, поэтому счётчик изменений каталога двигается вручную.
+   */
+  @Override
+  public List<Long> adjustAmounts(Map<Long, Integer> deltas, LocalDateTime adjustDate) {
+    log.debug("Пакетно меняем остатки {} книг...", deltas.size());
+    List<Long> bookIds = new ArrayList<>(new TreeMap<>(deltas).keySet());
+    List<Long> rejected = new ArrayList<>();
+    try {
+      sessionFactory.getCurrentSession().doWork(connection -> {
+        try (PreparedStatement update = connection.prepareStatement("UPDATE library SET "
+            + "status = CASE WHEN amount + ? > 0 THEN 'AVAILABLE' ELSE 'NOT_AVAILABLE' END, "
+            + "amount = amount + ?, "
+            + "lastDeliveredDate = CASE WHEN ? > 0 THEN ? ELSE lastDeliveredDate END, "
+            + "lastSaleDate = CASE WHEN ? < 0 THEN ? ELSE lastSaleDate END, "
+            + "version = version + 1 "
+            + "WHERE book_id = ? AND amount - reserved + ? >= 0")) {
+          Timestamp timestamp = Timestamp.valueOf(adjustDate);
+          for (Long bookId : bookIds) {
+            int delta = deltas.get(bookId);
+            update.setInt(1, delta);
+            update.setInt(2, delta);
+            update.setInt(3, delta);
+            update.setTimestamp(4, timestamp);
+            update.setInt(5, delta);
+            update.setTimestamp(6, timestamp);
+            update.setLong(7, bookId);
+            update.setInt(8, delta);
+            update.addBatch();
+          }
+          int[] updated = update.executeBatch();
+          for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+              rejected.add(bookIds.get(i));
+            }
+          }
+        }
+      });
+      changeCounters.changed(Book.class);
+      List<Long> changed = new ArrayList<>(bookIds);
+      changed.removeAll(rejected);
+      booksChanged(changed);
+      log.info("Остатки {} книг изменены, отклонено {}", bookIds.size() - rejected.size(),
+          rejected.size());
+      return rejected;
+    } catch (HibernateException e) {
+      throw new DataAccessException("Не удалось изменить остатки книг: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public boolean reserve(long bookId, int amount) {
+    try {
+      Book book = lock(bookId);
+      if (book == null) {
+        throw new EntityNotFoundException("Книга [" + bookId + "] не найдена");
+      }
+      if (book.availableAmount() < amount) {
+        log.debug("Книг [{}] свободно {}, для резерва нужно {}", bookId,
+            book.availableAmount(), amount);
+        return false;
+      }
+      book.setReserved(book.getReserved() + amount);
+      log.debug("Зарезервировано {} книг [{}]", amount, bookId);
+      return true;
+    } catch (HibernateException e) {
+      throw new DataAccessException("Не удалось зарезервировать книги [" + bookId + "]: "
+          + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void releaseReserved(long bookId, int amount) {
+    try {
+      Book book = lock(bookId);
+      if (book != null) {
+        book.setReserved(Math.max(0, book.getReserved() - amount));
+        log.debug("Снят резерв {} книг [{}]", amount, bookId);
+      }
+    } catch (HibernateException e) {
+      throw new DataAccessException("Не удалось снять резерв книг [" + bookId + "]: "
+          + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public Book writeOffReserved(long bookId, int amount, LocalDateTime saleDate) {
+    try {
+      Book book = lock(bookId);
+      if (book == null || book.getReserved() < amount) {
+        throw new IllegalArgumentException("Попытка списать " + amount + " зарезервированных книг ["
+            + bookId + "], но в резерве " + (book == null ? 0 : book.getReserved()));
+      }
+      book.setReserved(book.getReserved() - amount);
+      book.setAmount(book.getAmount() - amount);
+      book.setLastSaleDate(saleDate);
+      booksChanged(List.of(bookId));
+      log.info("Списано {} зарезервированных книг [{}], дата продажи: {}", amount, bookId,
+          saleDate);
+      return book;
+    } catch (HibernateException e) {
+      throw new DataAccessException("Не удалось списать книги [" + bookId + "]: "
+          + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Каталог в памяти перечитает книги после коммита. Резерв в каталоге не виден, поэтому
+   * {@link #reserve} и {@link #releaseReserved} его не трогают.
+   */
+  private void booksChanged(List<Long> bookIds) {
+    if (!bookIds.isEmpty()) {
+      eventPublisher.publishEvent(new BooksChanged(bookIds));
+    }
+  }
+
+  /**
+   * Читает книгу под блокировкой строки (SELECT ... FOR UPDATE), чтобы остаток и резерв менялись
+   * только одной транзакцией. Если книга уже была прочитана без блокировки, её состояние
+   * перечитывается. Книги одного заказа нужно блокировать в порядке id, иначе возможен deadlock.
+   */
+  private Book lock(long bookId) {
+    Session session = sessionFactory.getCurrentSession();
+    Book book = session.find(Book.class, bookId);
+    if (book != null && session.getCurrentLockMode(book) != LockMode.PESSIMISTIC_WRITE) {
+      session.refresh(book, LockMode.PESSIMISTIC_WRITE);
+    }
+    return book;
+  }
+
   @Override
   public List<Book> getAllBooks(BookSort sortType) {
     log.debug("Получаем все книги, отсортированные по {}...", sortType);
@@ -91,6 +253,90 @@ public class BookDaoImpl extends HibernateAbstractDao<Book> implements BookDao {
     }
   }
 
+  /**
+   * Собирает запрос только из заданных условий фильтра. Сортировка всегда дополняется id, а
+   * страница начинается строго после курсора, так что база читает лишь нужные строки индекса
+   * (idx_library_*) вместо всего каталога.
+   */
+  @Override
+  public List<Book> findBooks(BookFilter filter, BookSort sortType, BookCursor after,
+                              int limit) {
+    log.debug("Ищем до {} книг по фильтру {}, сортировка {}, после {}...", limit, filter,
+        sortType, after);
+    try {
+      CriteriaBuilder cb = sessionFactory.getCurrentSession().getCriteriaBuilder();
+      CriteriaQuery<Book> criteria = cb.createQuery(Book.class);
+      Root<Book> book = criteria.from(Book.class);
+      Path<Long> id = book.get("id");
+
+      List<Predicate> predicates = new ArrayList<>();
+      if (filter.minPrice() != null) {
+        predicates.add(cb.greaterThanOrEqualTo(book.get("price"), filter.minPrice()));
+      }
+      if (filter.maxPrice() != null) {
+        predicates.add(cb.lessThanOrEqualTo(book.get("price"), filter.maxPrice()));
+      }
+      if (filter.author() != null) {
+        predicates.add(cb.equal(book.get("author"), filter.author()));
+      }
+      if (filter.minYear() != null) {
+        predicates.add(cb.greaterThanOrEqualTo(book.get("publicationDate"), filter.minYear()));
+      }
+      if (filter.maxYear() != null) {
+        predicates.add(cb.lessThanOrEqualTo(book.get("publicationDate"), filter.maxYear()));
+      }
+      if (filter.status() != null) {
+        predicates.add(cb.equal(book.get("status"), filter.status()));
+      }
+
+      Path<? extends Comparable<?>> sortPath = switch (sortType) {
+        case NAME -> book.<String>get("name");
+        case PUBLICATION_DATE -> book.<Integer>get("publicationDate");
+        case PRICE -> book.<Double>get("price");
+        case STATUS -> book.<BookStatus>get("status");
+        default -> null;
+      };
+      if (after != null) {
+        predicates.add(switch (sortType) {
+          case NAME -> strictlyAfter(cb, book.get("name"), (String) after.value(), id,
+              after.id());
+          case PUBLICATION_DATE -> strictlyAfter(cb, book.get("publicationDate"),
+              (Integer) after.value(), id, after.id());
+          case PRICE -> strictlyAfter(cb, book.get("price"), (Double) after.value(), id,
+              after.id());
+          case STATUS -> strictlyAfter(cb, book.get("status"), (BookStatus) after.value(), id,
+              after.id());
+          default -> cb.greaterThan(id, after.id());
+        });
+      }
+
+      criteria.select(book).where(predicates.toArray(Predicate[]::new));
+      if (sortPath == null) {
+        criteria.orderBy(cb.asc(id));
+      } else {
+        criteria.orderBy(cb.asc(sortPath), cb.asc(id));
+      }
+      List<Book> books = sessionFactory.getCurrentSession()
+          .createQuery(criteria)
+          .setMaxResults(limit)
+          .list();
+      log.debug("Найдено {} книг по фильтру {}", books.size(), filter);
+      return books;
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при поиске книг по фильтру " + filter + ": "
+          + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Условие «строго после курсора» для сортировки (column, id).
+   */
+  private static <Y extends Comparable<? super Y>> Predicate strictlyAfter(
+      CriteriaBuilder cb, Path<Y> column, Y value, Path<Long> id, long lastId) {
+    return cb.or(cb.greaterThan(column, value),
+        cb.and(cb.equal(column, value), cb.greaterThan(id, lastId)));
+  }
+
   private String getQuery(BookSort sortType) {
     return switch (sortType) {
       case ID -> "FROM Book ORDER BY id";
@@ -111,7 +357,7 @@ public class BookDaoImpl extends HibernateAbstractDao<Book> implements BookDao {
 
   @Override
   public List<Book> getBooks(List<Long> bookIds) {
-    log.debug("Получаем книги [{}]...", bookIds);
+    log.debug("Получаем {} книг...", bookIds.size());
     try {
       List<Book> books = sessionFactory.getCurrentSession()
           .createQuery("FROM Book WHERE id IN (:bookIds)", Book.class)
@@ -120,7 +366,7 @@ public class BookDaoImpl extends HibernateAbstractDao<Book> implements BookDao {
       if (books.size() != bookIds.size()) {
         throw new IllegalArgumentException("В списке есть несуществующие книги: " + bookIds);
       }
-      log.debug("Успешно получено {} книг [{}]", books.size(), bookIds);
+      log.debug("Успешно получено {} книг", books.size());
       return books;
     } catch (Exception e) {
       throw new DataAccessException("Ошибка при получении книг ["
@@ -128,19 +374,77 @@ public class BookDaoImpl extends HibernateAbstractDao<Book> implements BookDao {
     }
   }
 
+  @Override
+  public void forEachBook(Consumer<Book> action) {
+    log.debug("Потоково читаем все книги...");
+    scroll(sessionFactory.getCurrentSession()
+        .createQuery("FROM Book ORDER BY id", Book.class), action);
+  }
+
   @Override
   public void importBook(Book book) {
-    log.info("Импортируем книгу: {}...", book);
+    log.info("Импортируем книгу [{}]...", book.getId());
     try {
-      sessionFactory.getCurrentSession().merge(book);
-      log.info("Книга успешно импортирована: {}", book);
+      if (book.getId() != null) {
+        Book existing = lock(book.getId());
+        book.setReserved(existing == null ? 0 : existing.getReserved());
+        book.setVersion(existing == null ? 0 : existing.getVersion());
+      }
+      book.setId(sessionFactory.getCurrentSession().merge(book).getId());
+      booksChanged(List.of(book.getId()));
+      log.info("Книга [{}] успешно импортирована", book.getId());
     } catch (Exception e) {
       throw new ImportException("Не удалось импортировать книгу: " + book, e);
     }
   }
 
+  /**
+   * Читает книги одним SELECT ... FOR UPDATE в порядке id. Несуществующие книги просто не
+   * попадают в результат, а последующие {@link #reserve} по этим книгам уже не ходят в базу.
+   */
+  @Override
+  public List<Book> getBooksForUpdate(List<Long> bookIds) {
+    log.debug("Блокируем {} книг...", bookIds.size());
+    if (bookIds.isEmpty()) {
+      return List.of();
+    }
+    try {
+      return sessionFactory.getCurrentSession()
+          .createQuery("FROM Book WHERE id IN (:bookIds) ORDER BY id", Book.class)
+          .setParameterList("bookIds", bookIds)
+          .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+          .list();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Не удалось заблокировать книги " + bookIds + ": "
+          + e.getMessage(), e);
+    }
+  }
+
   @Override
   public Optional<Book> getBookById(long bookId) {
     return find(bookId);
   }
+
+  @Override
+  public Optional<Long> getVersion(long bookId) {
+    try {
+      return sessionFactory.getCurrentSession()
+          .createQuery("SELECT b.version FROM Book b WHERE b.id = :id", Long.class)
+          .setParameter("id", bookId)
+          .uniqueResultOptional();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Не удалось получить версию книги [" + bookId + "]: "
+          + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public Optional<Book> findForUpdate(long bookId) {
+    try {
+      return Optional.ofNullable(lock(bookId));
+    } catch (HibernateException e) {
+      throw new DataAccessException("Не удалось заблокировать книгу [" + bookId + "]: "
+          + e.getMessage(), e);
+    }
+  }
 }
@@ -1,10 +1,17 @@
 package ru.bookstore.dao.impl;
 
 import java.util.Optional;
+import java.util.function.Consumer;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.graph.GraphSemantic;
+import org.hibernate.graph.RootGraph;
+import org.hibernate.query.Query;
 import ru.bookstore.dao.GenericDao;
 import ru.bookstore.exceptions.DataAccessException;
 import ru.bookstore.model.Item;
@@ -12,6 +19,8 @@ import ru.bookstore.model.Item;
 @Slf4j
 @NoArgsConstructor
 public abstract class HibernateAbstractDao<T extends Item> implements GenericDao<T> {
+  protected static final int SCROLL_FETCH_SIZE = 500;
+
   private Class<T> type;
   protected SessionFactory sessionFactory;
 
@@ -21,7 +30,7 @@ public abstract class HibernateAbstractDao<T extends Item> implements GenericDao
 
   @Override
   public T update(T entity) {
-    log.debug("Перезаписываем информацию о сущности: {}", entity);
+    log.debug("Перезаписываем информацию о сущности [{}]...", entity.getId());
     T mergedEntity = sessionFactory.getCurrentSession().merge(entity);
     log.debug("Информация о сущности успешно перезаписана: {}", entity.getId());
     return mergedEntity;
@@ -35,7 +44,7 @@ public abstract class HibernateAbstractDao<T extends Item> implements GenericDao
       if (entity.isEmpty()) {
         log.debug("Сущность {} [{}] не найдена.", type.getName(), id);
       } else {
-        log.debug("Сущность {} [{}] найдена: {}", type.getName(), id, entity.get());
+        log.debug("Сущность {} [{}] найдена.", type.getName(), id);
       }
       return entity;
     } catch (HibernateException e) {
@@ -43,4 +52,48 @@ public abstract class HibernateAbstractDao<T extends Item> implements GenericDao
           + type.getName() + " с id " + id + ": " + e.getMessage(), e);
     }
   }
+
+  /**
+   * Поиск по id с загрузкой связей из именованного графа сущности, чтобы за пределами
+   * транзакции не осталось ленивых полей, к которым обратятся маппер или сериализатор.
+   */
+  @SuppressWarnings("unchecked")
+  protected Optional<T> find(Long id, String graphName) {
+    log.debug("Поиск сущности {} [{}] с графом {}...", type.getName(), id, graphName);
+    try {
+      Session session = sessionFactory.getCurrentSession();
+      return Optional.ofNullable(session.byId(type)
+          .with((RootGraph<T>) session.getEntityGraph(graphName), GraphSemantic.FETCH)
+          .load(id));
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при поиске сущности типа "
+          + type.getName() + " с id " + id + ": " + e.getMessage(), e);
+    }
+  }
+
+  protected <R> Query<R> withGraph(Query<R> query, String graphName) {
+    query.applyGraph(sessionFactory.getCurrentSession().getEntityGraph(graphName),
+        GraphSemantic.FETCH);
+    return query;
+  }
+
+  protected void scroll(Query<T> query, Consumer<T> action) {
+    Session session = sessionFactory.getCurrentSession();
+    long count = 0;
+    try (ScrollableResults<T> results = query
+        .setFetchSize(SCROLL_FETCH_SIZE)
+        .setReadOnly(true)
+        .scroll(ScrollMode.FORWARD_ONLY)) {
+      while (results.next()) {
+        T entity = results.get();
+        action.accept(entity);
+        session.detach(entity);
+        count++;
+      }
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при потоковом чтении сущностей типа "
+          + type.getName() + ": " + e.getMessage(), e);
+    }
+    log.debug("Потоково прочитано {} сущностей {}", count, type.getName());
+  }
 }
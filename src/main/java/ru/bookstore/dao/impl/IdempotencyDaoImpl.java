@@ -0,0 +1,151 @@
+package ru.bookstore.dao.impl;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.stereotype.Repository;
+import ru.bookstore.dao.IdempotencyDao;
+import ru.bookstore.exceptions.DataAccessException;
+import ru.bookstore.exceptions.IdempotencyKeyConflictException;
+import ru.bookstore.model.impl.IdempotencyRecord;
+
+@Repository
+@Slf4j
+public class IdempotencyDaoImpl extends HibernateAbstractDao<IdempotencyRecord>
+    implements IdempotencyDao {
+
+  public IdempotencyDaoImpl(SessionFactory sessionFactory) {
+    super(IdempotencyRecord.class);
+    this.sessionFactory = sessionFactory;
+  }
+
+  @Override
+  public Optional<IdempotencyRecord> find(String clientName, String idempotencyKey) {
+    try {
+      return sessionFactory.getCurrentSession()
+          .createQuery("FROM IdempotencyRecord WHERE clientName = :clientName "
+              + "AND idempotencyKey = :key", IdempotencyRecord.class)
+          .setParameter("clientName", clientName)
+          .setParameter("key", idempotencyKey)
+          .uniqueResultOptional();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при поиске ключа идемпотентности: "
+          + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Занимает ключ одним INSERT, предварительно удалив его просроченную запись. Вставку защищает
+   * уникальный индекс (clientName, idempotencyKey): из двух одновременных запросов с одним ключом
+   * второй получит нарушение ограничения, пока первый ещё выполняется.
+   */
+  @Override
+  public void insert(String clientName, String idempotencyKey, String requestHash,
+                     LocalDateTime createdAt, LocalDateTime expiresAt,
+                     LocalDateTime lockedUntil) {
+    Session session = sessionFactory.getCurrentSession();
+    try {
+      session.createMutationQuery("DELETE FROM IdempotencyRecord WHERE clientName = :clientName "
+              + "AND idempotencyKey = :key AND expiresAt <= :now")
+          .setParameter("clientName", clientName)
+          .setParameter("key", idempotencyKey)
+          .setParameter("now", createdAt)
+          .executeUpdate();
+      session.createMutationQuery("INSERT INTO IdempotencyRecord "
+              + "(clientName, idempotencyKey, requestHash, createdAt, expiresAt, lockedUntil) "
+              + "VALUES (:clientName, :key, :requestHash, :createdAt, :expiresAt, :lockedUntil)")
+          .setParameter("clientName", clientName)
+          .setParameter("key", idempotencyKey)
+          .setParameter("requestHash", requestHash)
+          .setParameter("createdAt", createdAt)
+          .setParameter("expiresAt", expiresAt)
+          .setParameter("lockedUntil", lockedUntil)
+          .executeUpdate();
+    } catch (ConstraintViolationException e) {
+      throw new IdempotencyKeyConflictException(
+          "Запрос с этим ключом идемпотентности уже выполняется");
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при сохранении ключа идемпотентности: "
+          + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Условный UPDATE: из двух повторов, одновременно увидевших истёкший захват, ключ получит
+   * только один. Ключи без lockedUntil остались с тех пор, когда захват не ограничивался сроком.
+   */
+  @Override
+  public int takeOver(String clientName, String idempotencyKey, LocalDateTime now,
+                      LocalDateTime lockedUntil) {
+    try {
+      return sessionFactory.getCurrentSession()
+          .createMutationQuery("UPDATE IdempotencyRecord SET lockedUntil = :lockedUntil "
+              + "WHERE clientName = :clientName AND idempotencyKey = :key "
+              + "AND response IS NULL AND (lockedUntil IS NULL OR lockedUntil <= :now)")
+          .setParameter("lockedUntil", lockedUntil)
+          .setParameter("clientName", clientName)
+          .setParameter("key", idempotencyKey)
+          .setParameter("now", now)
+          .executeUpdate();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при захвате ключа идемпотентности: "
+          + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Выполняется в транзакции самого запроса. Если ответ уже сохранил повтор, забравший ключ,
+   * UPDATE ничего не изменит, и вызывающий откатит свой результат.
+   */
+  @Override
+  public int complete(String clientName, String idempotencyKey, String response) {
+    try {
+      return sessionFactory.getCurrentSession()
+          .createMutationQuery("UPDATE IdempotencyRecord SET response = :response, "
+              + "lockedUntil = NULL WHERE clientName = :clientName "
+              + "AND idempotencyKey = :key AND response IS NULL")
+          .setParameter("response", response)
+          .setParameter("clientName", clientName)
+          .setParameter("key", idempotencyKey)
+          .executeUpdate();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при сохранении ответа по ключу идемпотентности: "
+          + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void delete(String clientName, String idempotencyKey) {
+    try {
+      sessionFactory.getCurrentSession()
+          .createMutationQuery("DELETE FROM IdempotencyRecord "
+              + "WHERE clientName = :clientName AND idempotencyKey = :key "
+              + "AND response IS NULL")
+          .setParameter("clientName", clientName)
+          .setParameter("key", idempotencyKey)
+          .executeUpdate();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при удалении ключа идемпотентности: "
+          + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public int deleteExpired(LocalDateTime now) {
+    try {
+      int deleted = sessionFactory.getCurrentSession()
+          .createMutationQuery("DELETE FROM IdempotencyRecord WHERE expiresAt <= :now")
+          .setParameter("now", now)
+          .executeUpdate();
+      log.debug("Удалено {} просроченных ключей идемпотентности", deleted);
+      return deleted;
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при удалении просроченных ключей идемпотентности: "
+          + e.getMessage(), e);
+    }
+  }
+}
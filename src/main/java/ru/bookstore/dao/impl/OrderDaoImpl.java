@@ -1,22 +1,46 @@
 package ru.bookstore.dao.impl;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.query.Query;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import ru.bookstore.dao.OrderDao;
 import ru.bookstore.exceptions.DataAccessException;
 import ru.bookstore.exceptions.EntityNotFoundException;
+import ru.bookstore.exceptions.OrderConflictException;
+import ru.bookstore.model.OrderCursor;
 import ru.bookstore.model.OrderStatus;
+import ru.bookstore.model.OrderVersion;
+import ru.bookstore.model.SalesEntry;
+import ru.bookstore.model.impl.ArchivedOrder;
+import ru.bookstore.model.impl.Book;
 import ru.bookstore.model.impl.Order;
 import ru.bookstore.sorting.OrderSort;
 
 @Repository
 @Slf4j
 public class OrderDaoImpl extends HibernateAbstractDao<Order> implements OrderDao {
+  @Value("${archive.orders.after.days:365}")
+  @Setter
+  private int archiveAfterDays;
+
   public OrderDaoImpl(SessionFactory sessionFactory) {
     super(Order.class);
     this.sessionFactory = sessionFactory;
@@ -27,42 +51,144 @@ public class OrderDaoImpl extends HibernateAbstractDao<Order> implements OrderDa
   public Order setOrderStatus(long orderId, OrderStatus status) {
     log.debug("Устанавливаем статус {} для заказа [{}]...", status, orderId);
 
-    Optional<Order> orderOptional = find(orderId);
+    Optional<Order> orderOptional = find(orderId, Order.WITH_BOOKS);
     if (orderOptional.isEmpty()) {
       throw new EntityNotFoundException("Заказ с id " + orderId + " не найден");
     }
     Order order = orderOptional.get();
-    order.setStatus(status);
-    order.setCompleteDate(LocalDateTime.now());
-
-    update(order);
+    if (!order.getStatus().canTransitionTo(status)) {
+      throw new IllegalArgumentException("Нельзя перевести заказ [" + orderId + "] из статуса "
+          + order.getStatus() + " в статус " + status);
+    }
+    if (!changeStatus(order, status, LocalDateTime.now())) {
+      throw new OrderConflictException("Заказ [" + orderId + "] был изменён параллельно");
+    }
     log.debug("Статус {} успешно установлен для заказа [{}]", status, orderId);
     return order;
   }
 
+  /**
+   * Меняет статус одним условным UPDATE: строка обновится, только если статус и версия заказа
+   * в базе совпадают с прочитанными. Иначе заказ уже изменил кто-то другой, и метод вернёт false.
+   */
+  @Override
+  public boolean changeStatus(Order order, OrderStatus status, LocalDateTime changeDate) {
+    Session session = sessionFactory.getCurrentSession();
+    try {
+      if (session.contains(order)) {
+        // версия управляемого заказа могла вырасти при flush, который сделал бы сам UPDATE
+        session.flush();
+      }
+      int updated = session.createMutationQuery("UPDATE Order SET status = :status, "
+              + "completeDate = :changeDate, version = version + 1 "
+              + "WHERE id = :id AND status = :current AND version = :version")
+          .setParameter("status", status)
+          .setParameter("changeDate", changeDate)
+          .setParameter("id", order.getId())
+          .setParameter("current", order.getStatus())
+          .setParameter("version", order.getVersion())
+          .executeUpdate();
+      if (updated == 0) {
+        log.info("Заказ [{}] изменён параллельно, статус {} не установлен", order.getId(), status);
+        return false;
+      }
+      if (session.contains(order)) {
+        session.refresh(order);
+      } else {
+        order.setStatus(status);
+        order.setCompleteDate(changeDate);
+        order.setVersion(order.getVersion() + 1);
+      }
+      return true;
+    } catch (HibernateException e) {
+      throw new DataAccessException("Не удалось изменить статус заказа [" + order.getId()
+          + "]: " + e.getMessage(), e);
+    }
+  }
+
   @Override
   public Order addOrder(Order order) {
-    log.debug("Добавление заказа в бд: {}...", order);
+    log.debug("Добавление заказа клиента {} в бд ({} позиций)...", order.getClientName(),
+        order.getBooks().size());
     try {
       sessionFactory.getCurrentSession().persist(order);
-      log.info("Заказ [{}] успешно добавлен", order);
+      log.info("Заказ [{}] успешно добавлен", order.getId());
       return order;
     } catch (Exception e) {
       throw new DataAccessException("Не удалось добавить заказ: " + e.getMessage(), e);
     }
   }
 
+  /**
+   * Вставляет заказы и их строки двумя JDBC-пакетами вместо persist на каждый заказ: с
+   * IDENTITY Hibernate не умеет пакетировать вставки. Id заказов берутся из сгенерированных
+   * ключей. Заказы не попадают в сессию, поэтому менять их дальше нужно запросами.
+   */
+  @Override
+  public void addOrders(List<Order> orders) {
+    log.debug("Пакетно добавляем {} заказов в бд...", orders.size());
+    try {
+      sessionFactory.getCurrentSession().doWork(connection -> {
+        try (PreparedStatement insertOrders = connection.prepareStatement(
+            "INSERT INTO orders (status, price, orderDate, completeDate, clientName, version) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement insertBooks = connection.prepareStatement(
+                 "INSERT INTO ordered_books (order_id, book_id, amount) VALUES (?, ?, ?)")) {
+          for (Order order : orders) {
+            insertOrders.setString(1, order.getStatus().name());
+            insertOrders.setDouble(2, order.getPrice());
+            insertOrders.setTimestamp(3, Timestamp.valueOf(order.getOrderDate()));
+            insertOrders.setTimestamp(4, order.getCompleteDate() == null
+                ? null : Timestamp.valueOf(order.getCompleteDate()));
+            insertOrders.setString(5, order.getClientName());
+            insertOrders.setLong(6, order.getVersion());
+            insertOrders.addBatch();
+          }
+          insertOrders.executeBatch();
+          try (ResultSet keys = insertOrders.getGeneratedKeys()) {
+            for (Order order : orders) {
+              if (!keys.next()) {
+                throw new SQLException("База вернула не все id вставленных заказов");
+              }
+              order.setId(keys.getLong(1));
+            }
+          }
+          for (Order order : orders) {
+            for (Map.Entry<Long, Integer> line : order.getBooks().entrySet()) {
+              insertBooks.setLong(1, order.getId());
+              insertBooks.setLong(2, line.getKey());
+              insertBooks.setInt(3, line.getValue());
+              insertBooks.addBatch();
+            }
+          }
+          insertBooks.executeBatch();
+        }
+      });
+      log.info("Пакетно добавлено {} заказов", orders.size());
+    } catch (HibernateException e) {
+      throw new DataAccessException("Не удалось добавить заказы: " + e.getMessage(), e);
+    }
+  }
+
   @Override
   public List<Order> getAllOrders(OrderSort sortType,
                                   LocalDateTime begin, LocalDateTime end) {
     log.debug("Получаем все заказы, отсортированные по {}...", sortType);
     try {
-      Query<Order> query = sessionFactory.getCurrentSession().createQuery(getQuery(sortType), Order.class);
+      Query<Order> query = withGraph(sessionFactory.getCurrentSession()
+          .createQuery(getQuery(sortType), Order.class), Order.WITH_BOOKS);
       if (sortType == OrderSort.COMPLETED_BY_DATE || sortType == OrderSort.COMPLETED_BY_PRICE) {
         query.setParameter("begin", begin);
         query.setParameter("end", end);
       }
       List<Order> orders = query.list();
+      if ((sortType == OrderSort.COMPLETED_BY_DATE || sortType == OrderSort.COMPLETED_BY_PRICE)
+          && reachesArchive(begin)) {
+        orders = new ArrayList<>(orders);
+        orders.addAll(getArchivedOrders(begin, end));
+        orders.sort(sortType == OrderSort.COMPLETED_BY_DATE
+            ? Comparator.comparing(Order::getCompleteDate) : Comparator.comparing(Order::getPrice));
+      }
       log.info("Успешно получено {} заказов, отсортированных по {}", orders.size(), sortType);
       return orders;
     } catch (Exception e) {
@@ -70,19 +196,195 @@ public class OrderDaoImpl extends HibernateAbstractDao<Order> implements OrderDa
     }
   }
 
+  /**
+   * Сначала берёт id страницы по индексу idx_orders_client_date, от новых заказов к старым и
+   * строго перед курсором, затем одним запросом дочитывает эти заказы с книгами. Если подгружать
+   * книги сразу, Hibernate не сможет ограничить выборку в базе и отрежет страницу в памяти.
+   */
+  @Override
+  public List<Order> getClientOrders(String clientName, OrderStatus status, OrderCursor before,
+                                     int limit) {
+    log.debug("Получаем до {} заказов клиента {} со статусом {} до {}...", limit, clientName,
+        status, before);
+    try {
+      Session session = sessionFactory.getCurrentSession();
+      Query<Long> idQuery = session.createQuery("SELECT o.id FROM Order o "
+          + "WHERE o.clientName = :clientName"
+          + (status == null ? "" : " AND o.status = :status")
+          + (before == null ? "" : " AND (o.orderDate < :orderDate "
+          + "OR (o.orderDate = :orderDate AND o.id < :id))")
+          + " ORDER BY o.orderDate DESC, o.id DESC", Long.class)
+          .setParameter("clientName", clientName)
+          .setMaxResults(limit);
+      if (status != null) {
+        idQuery.setParameter("status", status);
+      }
+      if (before != null) {
+        idQuery.setParameter("orderDate", before.orderDate());
+        idQuery.setParameter("id", before.id());
+      }
+      List<Long> orderIds = idQuery.list();
+      if (orderIds.isEmpty()) {
+        return List.of();
+      }
+      List<Order> orders = withGraph(session.createQuery(
+          "SELECT o FROM Order o WHERE o.id IN (:orderIds)", Order.class), Order.WITH_BOOKS)
+          .setParameterList("orderIds", orderIds)
+          .list();
+      orders.sort(Comparator.comparing(Order::getOrderDate).thenComparing(Order::getId)
+          .reversed());
+      log.debug("Получено {} заказов клиента {}", orders.size(), clientName);
+      return orders;
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при получении заказов клиента " + clientName + ": "
+          + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Суммирует проданные экземпляры по выполненным с {@code since} заказам (индекс
+   * idx_orders_status_complete) и сразу ограничивает результат limit книгами: MySQL сортирует
+   * такой ORDER BY ... LIMIT, держа в памяти только limit лучших групп. Если период уходит за
+   * границу архива, строки архива объединяются с горячими до группировки. Затем одним запросом
+   * дочитываются сами книги.
+   */
+  @Override
+  public List<SalesEntry> getBestsellers(LocalDateTime since, int limit) {
+    log.debug("Получаем {} самых продаваемых книг с {}...", limit, since);
+    try {
+      Session session = sessionFactory.getCurrentSession();
+      List<Object[]> sales = reachesArchive(since)
+          ? getSalesWithArchive(since, limit)
+          : session.createQuery("SELECT KEY(b), SUM(VALUE(b)) "
+              + "FROM Order o JOIN o.books b "
+              + "WHERE o.status = :status AND o.completeDate >= :since "
+              + "GROUP BY KEY(b) ORDER BY SUM(VALUE(b)) DESC, KEY(b)", Object[].class)
+          .setParameter("status", OrderStatus.COMPLETED)
+          .setParameter("since", since)
+          .setMaxResults(limit)
+          .list();
+      if (sales.isEmpty()) {
+        return List.of();
+      }
+      Map<Long, Book> books = new HashMap<>();
+      session.createQuery("FROM Book WHERE id IN (:bookIds)", Book.class)
+          .setParameterList("bookIds",
+              sales.stream().map(row -> ((Number) row[0]).longValue()).toList())
+          .list()
+          .forEach(book -> books.put(book.getId(), book));
+      return sales.stream()
+          .map(row -> new SalesEntry(books.get(((Number) row[0]).longValue()),
+              ((Number) row[1]).longValue()))
+          .toList();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при получении самых продаваемых книг: "
+          + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Переносит в orders_archive и ordered_books_archive до batchSize заказов, выполненных или
+   * отменённых до {@code completedBefore}. Эти статусы конечные, поэтому строки выбираются без
+   * блокировок. Заказы, у которых остались строки журнала резервов, пропускаются.
+   */
+  @Override
+  public int archiveOrders(LocalDateTime completedBefore, int batchSize) {
+    Session session = sessionFactory.getCurrentSession();
+    try {
+      List<Long> orderIds = session.createNativeQuery("SELECT o.order_id FROM orders o "
+              + "WHERE o.status IN (:statuses) AND o.completeDate < :completedBefore "
+              + "AND NOT EXISTS (SELECT 1 FROM stock_reservations r "
+              + "WHERE r.order_id = o.order_id) ORDER BY o.completeDate, o.order_id", Long.class)
+          .setParameterList("statuses",
+              List.of(OrderStatus.COMPLETED.name(), OrderStatus.CANCELED.name()))
+          .setParameter("completedBefore", completedBefore)
+          .setMaxResults(batchSize)
+          .list();
+      if (orderIds.isEmpty()) {
+        return 0;
+      }
+      session.createNativeMutationQuery("INSERT INTO orders_archive "
+              + "(order_id, status, price, orderDate, completeDate, clientName, version, "
+              + "archivedAt) SELECT order_id, status, price, orderDate, completeDate, "
+              + "clientName, version, CURRENT_TIMESTAMP FROM orders "
+              + "WHERE order_id IN (:orderIds)")
+          .setParameterList("orderIds", orderIds)
+          .executeUpdate();
+      session.createNativeMutationQuery("INSERT INTO ordered_books_archive "
+              + "(order_id, book_id, amount) SELECT order_id, book_id, amount "
+              + "FROM ordered_books WHERE order_id IN (:orderIds)")
+          .setParameterList("orderIds", orderIds)
+          .executeUpdate();
+      session.createNativeMutationQuery("DELETE FROM ordered_books WHERE order_id IN (:orderIds)")
+          .setParameterList("orderIds", orderIds)
+          .executeUpdate();
+      session.createNativeMutationQuery("DELETE FROM orders WHERE order_id IN (:orderIds)")
+          .setParameterList("orderIds", orderIds)
+          .executeUpdate();
+      log.debug("В архив перенесено {} завершённых заказов", orderIds.size());
+      return orderIds.size();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Не удалось перенести завершённые заказы в архив: "
+          + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Архив хранит только заказы, завершённые раньше archiveAfterDays дней назад, так что период,
+   * начинающийся позже этой границы, целиком лежит в горячих таблицах.
+   */
+  private boolean reachesArchive(LocalDateTime begin) {
+    return begin != null && begin.isBefore(LocalDateTime.now().minusDays(archiveAfterDays));
+  }
+
+  private List<Object[]> getSalesWithArchive(LocalDateTime since, int limit) {
+    return sessionFactory.getCurrentSession()
+        .createNativeQuery("SELECT book_id, SUM(amount) AS sold FROM ("
+            + "SELECT ob.book_id, ob.amount FROM orders o "
+            + "JOIN ordered_books ob ON ob.order_id = o.order_id "
+            + "WHERE o.status = :status AND o.completeDate >= :since "
+            + "UNION ALL SELECT ob.book_id, ob.amount FROM orders_archive o "
+            + "JOIN ordered_books_archive ob ON ob.order_id = o.order_id "
+            + "WHERE o.status = :status AND o.completeDate >= :since) sales "
+            + "GROUP BY book_id ORDER BY sold DESC, book_id", Object[].class)
+        .setParameter("status", OrderStatus.COMPLETED.name())
+        .setParameter("since", since)
+        .setMaxResults(limit)
+        .list();
+  }
+
+  private <R> R archiveScalar(String select, Class<R> type, LocalDateTime begin,
+                              LocalDateTime end) {
+    return sessionFactory.getCurrentSession().createQuery(select
+            + " FROM ArchivedOrder WHERE completeDate >= :begin AND completeDate <= :end", type)
+        .setParameter("begin", begin)
+        .setParameter("end", end)
+        .uniqueResult();
+  }
+
+  private List<Order> getArchivedOrders(LocalDateTime begin, LocalDateTime end) {
+    return sessionFactory.getCurrentSession().createQuery("SELECT DISTINCT a "
+            + "FROM ArchivedOrder a LEFT JOIN FETCH a.books "
+            + "WHERE a.completeDate >= :begin AND a.completeDate <= :end", ArchivedOrder.class)
+        .setParameter("begin", begin)
+        .setParameter("end", end)
+        .setReadOnly(true)
+        .list().stream()
+        .map(ArchivedOrder::toOrder)
+        .toList();
+  }
+
   private String getQuery(OrderSort sortType) {
-    String baseQuery = "SELECT DISTINCT o FROM Order o";
+    String baseQuery = "SELECT o FROM Order o";
     return switch (sortType) {
-      case COMPLETE_DATE -> baseQuery + " LEFT JOIN FETCH o.books ORDER BY o.completeDate";
-      case PRICE -> baseQuery + " LEFT JOIN FETCH o.books ORDER BY o.price";
-      case STATUS -> baseQuery + " LEFT JOIN FETCH o.books ORDER BY o.status";
+      case COMPLETE_DATE -> baseQuery + " ORDER BY o.completeDate";
+      case PRICE -> baseQuery + " ORDER BY o.price";
+      case STATUS -> baseQuery + " ORDER BY o.status";
       case COMPLETED_BY_DATE -> baseQuery
-          + " LEFT JOIN FETCH o.books WHERE o.completeDate >= :begin AND o.completeDate <= "
-          + ":end ORDER BY o.completeDate";
+          + " WHERE o.completeDate >= :begin AND o.completeDate <= :end ORDER BY o.completeDate";
       case COMPLETED_BY_PRICE -> baseQuery
-          + " LEFT JOIN FETCH o.books WHERE o.completeDate >= :begin AND o.completeDate <= "
-          + ":end ORDER BY o.price";
-      default -> baseQuery + " LEFT JOIN FETCH o.books ORDER BY o.id";
+          + " WHERE o.completeDate >= :begin AND o.completeDate <= :end ORDER BY o.price";
+      default -> baseQuery + " ORDER BY o.id";
     };
   }
 
@@ -96,6 +398,12 @@ public class OrderDaoImpl extends HibernateAbstractDao<Order> implements OrderDa
           .setParameter("begin", begin)
           .setParameter("end", end)
           .uniqueResult();
+      if (reachesArchive(begin)) {
+        Double archived = archiveScalar("SELECT SUM(price)", Double.class, begin, end);
+        if (archived != null) {
+          sum = (sum == null ? 0 : sum) + archived;
+        }
+      }
       log.info("Заработанная сумма за период: {}", sum);
       return sum;
     } catch (Exception e) {
@@ -113,6 +421,9 @@ public class OrderDaoImpl extends HibernateAbstractDao<Order> implements OrderDa
           .setParameter("begin", begin)
           .setParameter("end", end)
           .uniqueResult();
+      if (reachesArchive(begin)) {
+        count += archiveScalar("SELECT COUNT(*)", Long.class, begin, end);
+      }
       log.info("Количество завершенных заказов за период: {}", count);
       return count;
     } catch (Exception e) {
@@ -124,22 +435,33 @@ public class OrderDaoImpl extends HibernateAbstractDao<Order> implements OrderDa
   @Override
   public Optional<Order> findWithBooks(Long id) {
     log.debug("Поиск заказа [{}] с книгами...", id);
+    Optional<Order> order = find(id, Order.WITH_BOOKS);
+    if (order.isEmpty()) {
+      log.debug("Заказ [{}] не найден.", id);
+    } else {
+      log.debug("Заказ [{}] найден", id);
+    }
+    return order;
+  }
+
+  @Override
+  public Optional<OrderVersion> getVersion(long orderId) {
     try {
-      String hql = "SELECT o FROM Order o LEFT JOIN FETCH o.books WHERE o.id = :id";
-      Order order = sessionFactory.getCurrentSession().createQuery(hql, Order.class)
-          .setParameter("id", id)
-          .uniqueResultOptional()
-          .orElse(null);
-
-      if (order == null) {
-        log.debug("Заказ [{}] не найден.", id);
-        return Optional.empty();
-      } else {
-        log.debug("Заказ [{}] найден: {}", id, order);
-        return Optional.of(order);
-      }
-    } catch (Exception e) {
-      throw new DataAccessException("Ошибка при поиске заказа с id " + id + ": " + e.getMessage(), e);
+      return sessionFactory.getCurrentSession()
+          .createQuery("SELECT new ru.bookstore.model.OrderVersion(o.clientName, o.version) "
+              + "FROM Order o WHERE o.id = :id", OrderVersion.class)
+          .setParameter("id", orderId)
+          .uniqueResultOptional();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Не удалось получить версию заказа [" + orderId + "]: "
+          + e.getMessage(), e);
     }
   }
+
+  @Override
+  public void forEachOrder(Consumer<Order> action) {
+    log.debug("Потоково читаем все заказы...");
+    scroll(withGraph(sessionFactory.getCurrentSession().createQuery(
+        "SELECT o FROM Order o ORDER BY o.id", Order.class), Order.WITH_BOOKS), action);
+  }
 }
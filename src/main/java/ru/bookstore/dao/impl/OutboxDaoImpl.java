@@ -0,0 +1,117 @@
+package ru.bookstore.dao.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Repository;
+import ru.bookstore.dao.OutboxDao;
+import ru.bookstore.exceptions.DataAccessException;
+import ru.bookstore.model.impl.OutboxCheckpoint;
+import ru.bookstore.model.impl.OutboxEvent;
+
+@Repository
+@Slf4j
+public class OutboxDaoImpl extends HibernateAbstractDao<OutboxEvent> implements OutboxDao {
+
+  public OutboxDaoImpl(SessionFactory sessionFactory) {
+    super(OutboxEvent.class);
+    this.sessionFactory = sessionFactory;
+  }
+
+  @Override
+  public void append(OutboxEvent event) {
+    try {
+      sessionFactory.getCurrentSession().persist(event);
+      log.debug("Событие {} [{}] записано в outbox", event.getType(), event.getAggregateId());
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при записи события " + event.getType()
+          + " в outbox: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Вставляет события одним JDBC-пакетом; id событиям не проставляются.
+   */
+  @Override
+  public void appendAll(List<OutboxEvent> events) {
+    try {
+      sessionFactory.getCurrentSession().doWork(connection -> {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO outbox_events "
+            + "(type, aggregateId, payload, createdAt) VALUES (?, ?, ?, ?)")) {
+          for (OutboxEvent event : events) {
+            insert.setString(1, event.getType().name());
+            insert.setLong(2, event.getAggregateId());
+            insert.setString(3, event.getPayload());
+            insert.setTimestamp(4, Timestamp.valueOf(event.getCreatedAt()));
+            insert.addBatch();
+          }
+          insert.executeBatch();
+        }
+      });
+      log.debug("В outbox записано {} событий", events.size());
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при записи " + events.size() + " событий в outbox: "
+          + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public List<OutboxEvent> findAfter(long lastEventId, int limit) {
+    try {
+      return sessionFactory.getCurrentSession()
+          .createQuery("FROM OutboxEvent WHERE id > :lastEventId ORDER BY id", OutboxEvent.class)
+          .setParameter("lastEventId", lastEventId)
+          .setMaxResults(limit)
+          .list();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при чтении outbox после события [" + lastEventId
+          + "]: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public long getCheckpoint(String consumer) {
+    try {
+      OutboxCheckpoint checkpoint =
+          sessionFactory.getCurrentSession().get(OutboxCheckpoint.class, consumer);
+      return checkpoint == null ? 0 : checkpoint.getLastEventId();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при чтении позиции потребителя " + consumer + ": "
+          + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void saveCheckpoint(String consumer, long lastEventId, LocalDateTime updatedAt) {
+    Session session = sessionFactory.getCurrentSession();
+    try {
+      OutboxCheckpoint checkpoint = session.get(OutboxCheckpoint.class, consumer);
+      if (checkpoint == null) {
+        session.persist(new OutboxCheckpoint(consumer, lastEventId, updatedAt));
+      } else {
+        checkpoint.setLastEventId(lastEventId);
+        checkpoint.setUpdatedAt(updatedAt);
+      }
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при сохранении позиции потребителя " + consumer
+          + ": " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public int deleteUpTo(long eventId) {
+    try {
+      return sessionFactory.getCurrentSession()
+          .createMutationQuery("DELETE FROM OutboxEvent WHERE id <= :eventId")
+          .setParameter("eventId", eventId)
+          .executeUpdate();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при очистке outbox: " + e.getMessage(), e);
+    }
+  }
+}
@@ -1,19 +1,29 @@
 package ru.bookstore.dao.impl;
 
-import java.util.Comparator;
+import jakarta.persistence.LockModeType;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.springframework.stereotype.Repository;
 import ru.bookstore.dao.RequestDao;
 import ru.bookstore.exceptions.DataAccessException;
 import ru.bookstore.exceptions.ImportException;
+import ru.bookstore.model.DemandEntry;
 import ru.bookstore.model.RequestStatus;
 import ru.bookstore.model.impl.Book;
+import ru.bookstore.model.impl.BookDemand;
 import ru.bookstore.model.impl.Request;
 import ru.bookstore.sorting.RequestSort;
 
@@ -30,8 +40,8 @@ public class RequestDaoImpl extends HibernateAbstractDao<Request> implements Req
   public List<Request> getAllRequests(RequestSort typeSort) {
     log.info("Получаем все запросы, отсортированные по {}...", typeSort);
     try {
-      List<Request> requests = sessionFactory.getCurrentSession()
-          .createQuery("FROM Request ORDER BY id", Request.class)
+      List<Request> requests = withGraph(sessionFactory.getCurrentSession()
+          .createQuery("FROM Request ORDER BY id", Request.class), Request.WITH_BOOK)
           .getResultList();
       log.info("Успешно получено {} запросов", requests.size());
       return requests;
@@ -53,9 +63,42 @@ public class RequestDaoImpl extends HibernateAbstractDao<Request> implements Req
     }
   }
 
+  /**
+   * Книги с наибольшим числом открытых запросов. В book_demand только книги со спросом, поэтому
+   * ORDER BY ... LIMIT сортирует маленькую таблицу и держит в памяти лишь limit строк.
+   */
+  @Override
+  public List<DemandEntry> getTopDemand(int limit) {
+    log.debug("Получаем {} самых востребованных книг...", limit);
+    try {
+      return sessionFactory.getCurrentSession().createQuery("SELECT d.book, d.openRequests, "
+              + "d.openAmount FROM BookDemand d WHERE d.openRequests > 0 "
+              + "ORDER BY d.openRequests DESC, d.openAmount DESC, d.bookId", Object[].class)
+          .setMaxResults(limit)
+          .list()
+          .stream()
+          .map(row -> new DemandEntry((Book) row[0], (Long) row[1], (Long) row[2]))
+          .toList();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при получении самых востребованных книг: "
+          + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void forEachRequest(Consumer<Request> action) {
+    log.debug("Потоково читаем все запросы...");
+    scroll(withGraph(sessionFactory.getCurrentSession().createQuery(
+        "SELECT r FROM Request r ORDER BY r.id", Request.class), Request.WITH_BOOK), action);
+  }
+
+  /**
+   * Читает счётчики спроса (book_demand) по индексу idx_book_demand_requests, а не группирует
+   * всю таблицу запросов.
+   */
   private LinkedHashMap<Book, Long> getRequestsSortedByCount() {
-    String hql = "SELECT r.book, COUNT(r) FROM Request r "
-        + "WHERE r.status = 'OPEN' GROUP BY r.book ORDER BY COUNT(r)";
+    String hql = "SELECT d.book, d.openRequests FROM BookDemand d "
+        + "WHERE d.openRequests > 0 ORDER BY d.openRequests, d.bookId";
 
     List<Object[]> resultList = sessionFactory.getCurrentSession().createQuery(hql, Object[].class)
         .getResultList();
@@ -63,18 +106,12 @@ public class RequestDaoImpl extends HibernateAbstractDao<Request> implements Req
   }
 
   private LinkedHashMap<Book, Long> getRequestsSortedByPrice() {
-    Map<Book, Double> bookPrices = getBookPrices();
+    String hql = "SELECT b, d.openRequests FROM BookDemand d JOIN d.book b "
+        + "WHERE d.openRequests > 0 ORDER BY b.price, b.id";
 
-    String hql = "SELECT r.book, COUNT(r) FROM Request r WHERE r.status = 'OPEN' GROUP BY r.book";
     List<Object[]> resultList = sessionFactory.getCurrentSession().createQuery(hql, Object[].class)
         .getResultList();
-
-    List<Object[]> sortedResultList = resultList.stream()
-        .sorted(Comparator.comparingDouble(
-            result -> bookPrices.getOrDefault((Book) result[0], 0.0)))
-        .toList();
-
-    return getBookLongLinkedHashMap(sortedResultList);
+    return getBookLongLinkedHashMap(resultList);
   }
 
   private LinkedHashMap<Book, Long> getBookLongLinkedHashMap(List<Object[]> resultList) {
@@ -89,21 +126,9 @@ public class RequestDaoImpl extends HibernateAbstractDao<Request> implements Req
     return requests;
   }
 
-  private Map<Book, Double> getBookPrices() {
-    String hql = "SELECT b.id, b.price FROM Book b";
-    List<Object[]> resultList = sessionFactory.getCurrentSession().createQuery(hql, Object[].class)
-        .getResultList();
-
-    return resultList.stream()
-        .collect(Collectors.toMap(
-            result -> sessionFactory.getCurrentSession().find(Book.class, result[0]),
-            result -> (Double) result[1]
-        ));
-  }
-
   @Override
   public Optional<Request> getRequestById(long requestId) {
-    return find(requestId);
+    return find(requestId, Request.WITH_BOOK);
   }
 
   @Override
@@ -116,6 +141,7 @@ public class RequestDaoImpl extends HibernateAbstractDao<Request> implements Req
       request.setStatus(RequestStatus.OPEN);
 
       sessionFactory.getCurrentSession().persist(request);
+      adjustDemand(Map.of(book.getId(), new DemandDelta(1, amount)));
       return request.getId();
     } catch (Exception e) {
       throw new DataAccessException("Не удалось добавить запрос для bookId=" + book.getId()
@@ -123,12 +149,69 @@ public class RequestDaoImpl extends HibernateAbstractDao<Request> implements Req
     }
   }
 
+  /**
+   * Создаёт открытые запросы на строки нескольких заказов одним JDBC-пакетом. Каждый элемент
+   * списка — книги одного заказа.
+   */
+  @Override
+  public void addRequests(List<Map<Long, Integer>> orderedBooks) {
+    log.debug("Пакетно добавляем запросы для {} заказов...", orderedBooks.size());
+    Map<Long, DemandDelta> demand = new TreeMap<>();
+    orderedBooks.forEach(books -> books.forEach((bookId, amount) ->
+        demand.merge(bookId, new DemandDelta(1, amount), DemandDelta::plus)));
+    try {
+      sessionFactory.getCurrentSession().doWork(connection -> {
+        try (PreparedStatement insert = connection.prepareStatement(
+            "INSERT INTO requests (book_id, amount, status) VALUES (?, ?, ?)")) {
+          for (Map<Long, Integer> books : orderedBooks) {
+            for (Map.Entry<Long, Integer> line : books.entrySet()) {
+              insert.setLong(1, line.getKey());
+              insert.setInt(2, line.getValue());
+              insert.setString(3, RequestStatus.OPEN.name());
+              insert.addBatch();
+            }
+          }
+          insert.executeBatch();
+        }
+      });
+      adjustDemand(demand);
+    } catch (HibernateException e) {
+      throw new DataAccessException("Не удалось добавить запросы: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Импорт может перезаписать существующий запрос, поэтому из счётчиков спроса вычитается прежнее
+   * состояние строки и прибавляется новое: так учитываются смена статуса, количества и книги.
+   * В файле импорта нет closedAt: он ставится, когда импорт закрывает открытый запрос, и
+   * сохраняется, когда запрос уже был закрыт.
+   */
   @Override
   public Request importRequest(Request request) {
-    log.debug("Импортируем запрос: {}...", request);
+    log.debug("Импортируем запрос [{}]...", request.getId());
     try {
+      Map<Long, DemandDelta> demand = new TreeMap<>();
+      Object[] previous = request.getId() == null ? null : sessionFactory.getCurrentSession()
+          .createQuery("SELECT r.book.id, r.amount, r.status, r.closedAt FROM Request r "
+              + "WHERE r.id = :id", Object[].class)
+          .setParameter("id", request.getId())
+          .uniqueResult();
+      if (previous != null && previous[2] == RequestStatus.OPEN) {
+        demand.put((Long) previous[0], new DemandDelta(-1, -((Number) previous[1]).longValue()));
+      }
+      if (previous != null && request.getStatus() == RequestStatus.CLOSED
+          && request.getClosedAt() == null) {
+        request.setClosedAt(previous[2] == RequestStatus.OPEN
+            ? LocalDateTime.now() : (LocalDateTime) previous[3]);
+      }
       Request importedRequest = update(request);
-      log.debug("Запрос успешно импортирован: {}", request);
+      if (importedRequest.getStatus() == RequestStatus.OPEN) {
+        demand.merge(importedRequest.getBook().getId(),
+            new DemandDelta(1, importedRequest.getAmount()), DemandDelta::plus);
+      }
+      demand.values().removeIf(DemandDelta::isZero);
+      adjustDemand(demand);
+      log.debug("Запрос [{}] успешно импортирован", request.getId());
       return importedRequest;
     } catch (Exception e) {
       throw new ImportException("Не удалось импортировать запрос: " + request, e);
@@ -137,7 +220,8 @@ public class RequestDaoImpl extends HibernateAbstractDao<Request> implements Req
 
   @Override
   public void closeRequests(Map<Long, Integer> books) {
-    log.info("Закрываем запросы для книг: {}...", books);
+    log.info("Закрываем запросы для {} книг...", books.size());
+    Map<Long, DemandDelta> closed = new TreeMap<>();
     try {
       for (Map.Entry<Long, Integer> bookEntry : books.entrySet()) {
         Long bookId = bookEntry.getKey();
@@ -147,23 +231,164 @@ public class RequestDaoImpl extends HibernateAbstractDao<Request> implements Req
           log.warn("Книга [{}] не найдена. Пропускаем закрытие запроса.", bookId);
           continue;
         }
-        Request request = sessionFactory.getCurrentSession().createQuery("FROM Request WHERE book = :book " +
-                "AND amount = :amount", Request.class)
+        Request request = sessionFactory.getCurrentSession().createQuery("FROM Request "
+                + "WHERE book = :book AND amount = :amount AND status = :status", Request.class)
             .setParameter("book", book)
             .setParameter("amount", amount)
+            .setParameter("status", RequestStatus.OPEN)
             .setMaxResults(1)
             .uniqueResult();
         if (request != null) {
+          // выбираются только открытые запросы, так что closedAt ставится ровно один раз
+          closed.merge(bookId, new DemandDelta(-1, -request.getAmount()), DemandDelta::plus);
           request.setStatus(RequestStatus.CLOSED);
+          request.setClosedAt(LocalDateTime.now());
           sessionFactory.getCurrentSession().persist(request);
           log.debug("Закрываем запрос [{}] для bookId={} и amount={}",
               request.getId(), bookId, amount);
         }
       }
-      log.info("Запросы для книг {} успешно закрыты.", books);
+      adjustDemand(closed);
+      log.info("Запросы для {} книг успешно закрыты.", books.size());
     } catch (Exception e) {
       throw new DataAccessException("Не удалось закрыть запросы для книг "
           + books + ": " + e.getMessage(), e);
     }
   }
+
+  /**
+   * Приводит счётчики спроса к открытым запросам и возвращает число исправленных книг. Строки
+   * счётчиков блокируются до подсчёта запросов: транзакция, успевшая добавить запрос, но ещё не
+   * изменившая счётчик, дождётся сверки и прибавит свою единицу уже к сверенному значению.
+   * Счётчики книг без открытых запросов удаляются, так что таблица остаётся маленькой.
+   */
+  @Override
+  public int reconcileDemand() {
+    log.debug("Сверяем счётчики спроса с открытыми запросами...");
+    Session session = sessionFactory.getCurrentSession();
+    try {
+      Map<Long, BookDemand> counters = new HashMap<>();
+      session.createQuery("FROM BookDemand ORDER BY bookId", BookDemand.class)
+          .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+          .list()
+          .forEach(demand -> counters.put(demand.getBookId(), demand));
+      List<Object[]> actual = session.createQuery("SELECT r.book.id, COUNT(r), SUM(r.amount) "
+              + "FROM Request r WHERE r.status = :status GROUP BY r.book.id", Object[].class)
+          .setParameter("status", RequestStatus.OPEN)
+          .list();
+      int fixed = 0;
+      for (Object[] row : actual) {
+        Long bookId = (Long) row[0];
+        long requests = ((Number) row[1]).longValue();
+        long amount = ((Number) row[2]).longValue();
+        BookDemand demand = counters.remove(bookId);
+        if (demand == null) {
+          session.persist(new BookDemand(session.getReference(Book.class, bookId), requests,
+              amount));
+          fixed++;
+        } else if (demand.getOpenRequests() != requests || demand.getOpenAmount() != amount) {
+          demand.setOpenRequests(requests);
+          demand.setOpenAmount(amount);
+          fixed++;
+        }
+      }
+      for (BookDemand stale : counters.values()) {
+        if (stale.getOpenRequests() != 0 || stale.getOpenAmount() != 0) {
+          fixed++;
+        }
+        session.remove(stale);
+      }
+      log.info("Счётчики спроса сверены: {} книг с открытыми запросами, исправлено {}",
+          actual.size(), fixed);
+      return fixed;
+    } catch (HibernateException e) {
+      throw new DataAccessException("Не удалось сверить счётчики спроса: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Переносит в requests_archive до batchSize закрытых до {@code closedBefore} запросов (и
+   * закрытых до появления closedAt). Закрытый запрос больше не меняется и не входит в счётчики
+   * спроса, поэтому строки выбираются без блокировок: вставка и удаление трогают только их.
+   */
+  @Override
+  public int archiveRequests(LocalDateTime closedBefore, int batchSize) {
+    Session session = sessionFactory.getCurrentSession();
+    try {
+      List<Long> requestIds = session.createNativeQuery("SELECT request_id FROM requests "
+              + "WHERE status = :status AND (closedAt IS NULL OR closedAt < :closedBefore) "
+              + "ORDER BY request_id", Long.class)
+          .setParameter("status", RequestStatus.CLOSED.name())
+          .setParameter("closedBefore", closedBefore)
+          .setMaxResults(batchSize)
+          .list();
+      if (requestIds.isEmpty()) {
+        return 0;
+      }
+      session.createNativeMutationQuery("INSERT INTO requests_archive "
+              + "(request_id, book_id, amount, status, closedAt, archivedAt) "
+              + "SELECT request_id, book_id, amount, status, closedAt, CURRENT_TIMESTAMP "
+              + "FROM requests "
+              + "WHERE request_id IN (:requestIds)")
+          .setParameterList("requestIds", requestIds)
+          .executeUpdate();
+      session.createNativeMutationQuery("DELETE FROM requests WHERE request_id IN (:requestIds)")
+          .setParameterList("requestIds", requestIds)
+          .executeUpdate();
+      log.debug("В архив перенесено {} закрытых запросов", requestIds.size());
+      return requestIds.size();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Не удалось перенести закрытые запросы в архив: "
+          + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Прибавляет изменения к счётчикам спроса одним JDBC-пакетом в порядке id книг, чтобы
+   * параллельные транзакции блокировали строки в одном порядке. Строка создаётся первым
+   * запросом на книгу.
+   */
+  private void adjustDemand(Map<Long, DemandDelta> deltas) {
+    if (deltas.isEmpty()) {
+      return;
+    }
+    Map<Long, DemandDelta> ordered = new TreeMap<>(deltas);
+    sessionFactory.getCurrentSession().doWork(connection -> {
+      try (PreparedStatement upsert = connection.prepareStatement(upsertDemandSql(connection))) {
+        for (Map.Entry<Long, DemandDelta> entry : ordered.entrySet()) {
+          upsert.setLong(1, entry.getKey());
+          upsert.setLong(2, entry.getValue().requests());
+          upsert.setLong(3, entry.getValue().amount());
+          upsert.addBatch();
+        }
+        upsert.executeBatch();
+      }
+    });
+  }
+
+  /**
+   * В MySQL VALUES(col) внутри ON DUPLICATE KEY UPDATE устарел, вместо него псевдоним строки.
+   * H2 в режиме MySQL (замеры и тесты) псевдоним не разбирает, поэтому для неё остаётся VALUES.
+   */
+  private static String upsertDemandSql(Connection connection) throws SQLException {
+    String insert = "INSERT INTO book_demand (book_id, openRequests, openAmount) VALUES (?, ?, ?) ";
+    if ("H2".equals(connection.getMetaData().getDatabaseProductName())) {
+      return insert + "ON DUPLICATE KEY UPDATE "
+          + "openRequests = openRequests + VALUES(openRequests), "
+          + "openAmount = openAmount + VALUES(openAmount)";
+    }
+    return insert + "AS delta ON DUPLICATE KEY UPDATE "
+        + "openRequests = openRequests + delta.openRequests, "
+        + "openAmount = openAmount + delta.openAmount";
+  }
+
+  private record DemandDelta(long requests, long amount) {
+    DemandDelta plus(DemandDelta other) {
+      return new DemandDelta(requests + other.requests, amount + other.amount);
+    }
+
+    boolean isZero() {
+      return requests == 0 && amount == 0;
+    }
+  }
 }
@@ -0,0 +1,96 @@
+package ru.bookstore.dao.impl;
+
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Repository;
+import ru.bookstore.allocation.LedgerLine;
+import ru.bookstore.dao.StockReservationDao;
+import ru.bookstore.exceptions.DataAccessException;
+import ru.bookstore.model.ReservationStatus;
+import ru.bookstore.model.impl.StockReservation;
+
+@Repository
+@Slf4j
+public class StockReservationDaoImpl extends HibernateAbstractDao<StockReservation>
+    implements StockReservationDao {
+
+  public StockReservationDaoImpl(SessionFactory sessionFactory) {
+    super(StockReservation.class);
+    this.sessionFactory = sessionFactory;
+  }
+
+  @Override
+  public List<StockReservation> findByOrder(long orderId) {
+    try {
+      return sessionFactory.getCurrentSession()
+          .createQuery("FROM StockReservation WHERE orderId = :orderId ORDER BY bookId",
+              StockReservation.class)
+          .setParameter("orderId", orderId)
+          .list();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при получении резервов заказа [" + orderId + "]: "
+          + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public List<LedgerLine> findPendingLines() {
+    try {
+      return sessionFactory.getCurrentSession()
+          .createQuery("SELECT new ru.bookstore.allocation.LedgerLine(r.orderId, r.bookId, "
+              + "r.amount, r.status, o.price) FROM StockReservation r, Order o "
+              + "WHERE o.id = r.orderId AND r.orderId IN (SELECT w.orderId "
+              + "FROM StockReservation w WHERE w.status = :status)", LedgerLine.class)
+          .setParameter("status", ReservationStatus.WAITING)
+          .list();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при получении ожидающих резервов: "
+          + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public int markReserved(long orderId, long bookId) {
+    try {
+      return sessionFactory.getCurrentSession()
+          .createMutationQuery("UPDATE StockReservation SET status = :reserved "
+              + "WHERE orderId = :orderId AND bookId = :bookId AND status = :waiting")
+          .setParameter("reserved", ReservationStatus.RESERVED)
+          .setParameter("orderId", orderId)
+          .setParameter("bookId", bookId)
+          .setParameter("waiting", ReservationStatus.WAITING)
+          .executeUpdate();
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при резервировании книги [" + bookId
+          + "] для заказа [" + orderId + "]: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void save(StockReservation reservation) {
+    try {
+      sessionFactory.getCurrentSession().persist(reservation);
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при сохранении резерва книги ["
+          + reservation.getBookId() + "] для заказа [" + reservation.getOrderId() + "]: "
+          + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public int deleteByOrder(long orderId) {
+    try {
+      int deleted = sessionFactory.getCurrentSession()
+          .createMutationQuery("DELETE FROM StockReservation WHERE orderId = :orderId")
+          .setParameter("orderId", orderId)
+          .executeUpdate();
+      log.debug("Удалено {} резервов заказа [{}]", deleted, orderId);
+      return deleted;
+    } catch (HibernateException e) {
+      throw new DataAccessException("Ошибка при удалении резервов заказа [" + orderId + "]: "
+          + e.getMessage(), e);
+    }
+  }
+}
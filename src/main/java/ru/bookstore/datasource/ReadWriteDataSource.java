@@ -0,0 +1,65 @@
+package ru.bookstore.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Отправляет readOnly-транзакции в реплику, а всё остальное — в основную базу. Физическое
+ * соединение берётся лениво, при первом запросе: к этому моменту менеджер транзакций уже
+ * отметил транзакцию как readOnly, а {@link ReplicaReadAspect} — допустимое отставание.
+ */
+public class ReadWriteDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+  private final DataSource primary;
+  private final DataSource replica;
+  private final ReplicaMonitor monitor;
+
+  public ReadWriteDataSource(DataSource primary, DataSource replica, ReplicaMonitor monitor,
+                             long defaultMaxLagSeconds) {
+    this.primary = primary;
+    this.replica = replica;
+    this.monitor = monitor;
+
+    AbstractRoutingDataSource router = new AbstractRoutingDataSource() {
+      @Override
+      protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+          return Target.PRIMARY;
+        }
+        Long maxLag = ReplicaReadAspect.currentMaxLagSeconds();
+        return monitor.isUsable(maxLag == null ? defaultMaxLagSeconds : maxLag)
+            ? Target.REPLICA : Target.PRIMARY;
+      }
+    };
+    router.setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+    router.setDefaultTargetDataSource(primary);
+    router.setLenientFallback(false);
+    router.afterPropertiesSet();
+    setTargetDataSource(router);
+    afterPropertiesSet();
+  }
+
+  public ReplicaMonitor getMonitor() {
+    return monitor;
+  }
+
+  @Override
+  public void close() {
+    monitor.close();
+    closePool(replica);
+    closePool(primary);
+  }
+
+  private static void closePool(DataSource dataSource) {
+    if (dataSource instanceof HikariDataSource pool) {
+      pool.close();
+    }
+  }
+
+  private enum Target {
+    PRIMARY, REPLICA
+  }
+}
@@ -0,0 +1,106 @@
+package ru.bookstore.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Периодически проверяет реплику: отвечает ли она и насколько отстаёт. Отставание читается
+ * запросом {@code lagQuery} из колонки Seconds_Behind_Source (для MySQL 8 — SHOW REPLICA STATUS).
+ * Пустой результат считается нулевым отставанием, NULL — остановленной репликацией. Если
+ * {@code lagQuery} пуст, проверяется только доступность.
+ */
+@Slf4j
+public class ReplicaMonitor implements AutoCloseable {
+  static final String LAG_COLUMN = "Seconds_Behind_Source";
+  private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+  private final DataSource replica;
+  private final String lagQuery;
+  private volatile boolean healthy;
+  private volatile long lagSeconds = Long.MAX_VALUE;
+  private ScheduledExecutorService executor;
+
+  public ReplicaMonitor(DataSource replica, String lagQuery) {
+    this.replica = replica;
+    this.lagQuery = lagQuery;
+  }
+
+  public void start(long intervalMillis) {
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "replica-monitor");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this::refresh, 0, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public void refresh() {
+    boolean wasHealthy = healthy;
+    try (Connection connection = replica.getConnection()) {
+      if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+        markUnhealthy("соединение не прошло проверку");
+        return;
+      }
+      Long lag = readLag(connection);
+      if (lag == null) {
+        markUnhealthy("репликация остановлена");
+        return;
+      }
+      lagSeconds = lag;
+      healthy = true;
+      if (!wasHealthy) {
+        log.info("Реплика доступна, отставание {} с", lag);
+      }
+    } catch (SQLException | RuntimeException e) {
+      markUnhealthy(e.getMessage());
+    }
+  }
+
+  public boolean isUsable(long maxLagSeconds) {
+    return healthy && lagSeconds <= maxLagSeconds;
+  }
+
+  public boolean isHealthy() {
+    return healthy;
+  }
+
+  public long getLagSeconds() {
+    return lagSeconds;
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  private Long readLag(Connection connection) throws SQLException {
+    if (lagQuery == null || lagQuery.isBlank()) {
+      return 0L;
+    }
+    try (Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery(lagQuery)) {
+      if (!resultSet.next()) {
+        return 0L;
+      }
+      long lag = resultSet.getLong(LAG_COLUMN);
+      return resultSet.wasNull() ? null : lag;
+    }
+  }
+
+  private void markUnhealthy(String reason) {
+    if (healthy) {
+      log.warn("Реплика недоступна, чтение переключено на основную базу: {}", reason);
+    }
+    healthy = false;
+    lagSeconds = Long.MAX_VALUE;
+  }
+}
@@ -0,0 +1,19 @@
+package ru.bookstore.datasource;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Допустимое отставание реплики для readOnly-транзакции метода. Если реплика отстаёт сильнее
+ * или недоступна, чтение идёт в основную базу. Без аннотации действует db.replica.max.lag.seconds,
+ * а {@link #PRIMARY_ONLY} нужен методам, которые должны видеть только что записанные данные.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReplicaRead {
+  long PRIMARY_ONLY = -1;
+
+  long maxLagSeconds();
+}
@@ -0,0 +1,37 @@
+package ru.bookstore.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Запоминает допустимое отставание реплики из {@link ReplicaRead} на время вызова метода.
+ * Соединение берётся лениво, при первом запросе, поэтому порядок относительно транзакционного
+ * прокси не важен.
+ */
+@Aspect
+@Component
+public class ReplicaReadAspect {
+  private static final ThreadLocal<Long> maxLagSeconds = new ThreadLocal<>();
+
+  static Long currentMaxLagSeconds() {
+    return maxLagSeconds.get();
+  }
+
+  @Around("@annotation(replicaRead)")
+  public Object withMaxLag(ProceedingJoinPoint joinPoint, ReplicaRead replicaRead)
+      throws Throwable {
+    Long previous = maxLagSeconds.get();
+    maxLagSeconds.set(replicaRead.maxLagSeconds());
+    try {
+      return joinPoint.proceed();
+    } finally {
+      if (previous == null) {
+        maxLagSeconds.remove();
+      } else {
+        maxLagSeconds.set(previous);
+      }
+    }
+  }
+}
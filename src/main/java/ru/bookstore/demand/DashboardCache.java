@@ -0,0 +1,53 @@
+package ru.bookstore.demand;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Короткий кеш рейтингов для панели администратора: рейтинги меняются медленно, а панель
+ * опрашивает их часто. Значение живёт dashboard.cache.seconds. При промахе его считает
+ * вызывающий поток, так что одновременные промахи по одному ключу могут посчитать его дважды.
+ */
+@Component
+public class DashboardCache {
+  public static final String LOOKUPS = "bookstore.dashboard.cache";
+
+  private final Map<Object, Cached> entries = new ConcurrentHashMap<>();
+  private final long ttlNanos;
+  private final Counter hits;
+  private final Counter misses;
+
+  public DashboardCache(MeterRegistry meterRegistry,
+                        @Value("${dashboard.cache.seconds:30}") long ttlSeconds) {
+    this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    this.hits = Counter.builder(LOOKUPS).tag("result", "hit").register(meterRegistry);
+    this.misses = Counter.builder(LOOKUPS).tag("result", "miss").register(meterRegistry);
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Supplier<T> loader) {
+    Cached cached = entries.get(key);
+    if (cached != null && !cached.isExpired(System.nanoTime(), ttlNanos)) {
+      hits.increment();
+      return (T) cached.value();
+    }
+    misses.increment();
+    T value = loader.get();
+    long now = System.nanoTime();
+    entries.values().removeIf(entry -> entry.isExpired(now, ttlNanos));
+    entries.put(key, new Cached(value, now));
+    return value;
+  }
+
+  private record Cached(Object value, long loadedAt) {
+    boolean isExpired(long now, long ttlNanos) {
+      return now - loadedAt >= ttlNanos;
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package ru.bookstore.demand;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bookstore.service.RequestService;
+
+/**
+ * Периодически сверяет счётчики спроса (book_demand) с открытыми запросами. Счётчики меняются в
+ * транзакциях запросов, поэтому расхождение означает запись мимо DAO (ручную правку базы,
+ * миграцию). Первая сверка идёт при старте и заполняет счётчики для уже существующих запросов.
+ */
+@Component
+@Slf4j
+public class DemandReconciler implements DisposableBean {
+  public static final String RECONCILED = "bookstore.demand.reconciled";
+
+  private final RequestService requestService;
+  private final TransactionTemplate transactionTemplate;
+  private final Counter reconciled;
+  private final long intervalMinutes;
+  private ScheduledExecutorService executor;
+
+  public DemandReconciler(RequestService requestService,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${requests.demand.reconcile.interval.minutes:60}")
+                          long intervalMinutes) {
+    this.requestService = requestService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.reconciled = Counter.builder(RECONCILED).register(meterRegistry);
+    this.intervalMinutes = intervalMinutes;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void start() {
+    if (executor != null) {
+      return;
+    }
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "demand-reconciler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this::reconcile, 0, intervalMinutes, TimeUnit.MINUTES);
+  }
+
+  /**
+   * Возвращает число книг, счётчики которых пришлось исправить.
+   */
+  public int reconcile() {
+    try {
+      int fixed = transactionTemplate.execute(status -> requestService.reconcileDemand());
+      if (fixed > 0) {
+        log.warn("Счётчики спроса расходились с запросами у {} книг и исправлены", fixed);
+        reconciled.increment(fixed);
+      }
+      return fixed;
+    } catch (RuntimeException e) {
+      log.warn("Не удалось сверить счётчики спроса, повторим через {} мин: {}", intervalMinutes,
+          e.getMessage());
+      return 0;
+    }
+  }
+
+  @Override
+  public synchronized void destroy() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package ru.bookstore.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "Страница отфильтрованного каталога")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPageDTO {
+  @Schema(description = "Книги страницы в порядке сортировки")
+  private List<BookDTO> books;
+
+  @Schema(description = "Курсор следующей страницы, null на последней странице",
+      example = "UFJJQ0V8N3wzNDkuOTk")
+  private String next;
+}
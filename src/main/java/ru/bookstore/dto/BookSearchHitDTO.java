@@ -0,0 +1,29 @@
+package ru.bookstore.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "Книга, найденная поиском")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSearchHitDTO {
+  @Schema(description = "Идентификатор книги", example = "1245")
+  private long bookId;
+
+  @Schema(description = "Название книги", example = "Анна Каренина")
+  private String name;
+
+  @Schema(description = "Автор книги", example = "Л.Н.Толстой")
+  private String author;
+
+  @Schema(description = "Есть ли книга в наличии", example = "true")
+  private boolean available;
+
+  @Schema(description = "Релевантность: чем больше, тем выше в выдаче", example = "6.0")
+  private double score;
+}
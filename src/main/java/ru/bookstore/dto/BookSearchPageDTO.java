@@ -0,0 +1,27 @@
+package ru.bookstore.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "Страница результатов поиска книг")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSearchPageDTO {
+  @Schema(description = "Сколько книг нашлось всего", example = "42")
+  private long total;
+
+  @Schema(description = "Номер страницы, начиная с нуля", example = "0")
+  private int page;
+
+  @Schema(description = "Размер страницы", example = "20")
+  private int size;
+
+  @Schema(description = "Книги страницы в порядке релевантности")
+  private List<BookSearchHitDTO> hits;
+}
@@ -0,0 +1,23 @@
+package ru.bookstore.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "Книга и её открытый спрос")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DemandEntryDTO {
+  @Schema(description = "Книга")
+  private BookDTO book;
+
+  @Schema(description = "Число открытых запросов на книгу", example = "12")
+  private long openRequests;
+
+  @Schema(description = "Сколько экземпляров запрошено в открытых запросах", example = "17")
+  private long openAmount;
+}
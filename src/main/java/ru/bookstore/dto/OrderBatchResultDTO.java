@@ -0,0 +1,24 @@
+package ru.bookstore.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "Результат одного заказа из пакета")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBatchResultDTO {
+  @Schema(description = "Позиция заказа в запросе, начиная с нуля", example = "0")
+  private int index;
+
+  @Schema(description = "Созданный заказ; пусто, если заказ отклонён")
+  private OrderDTO order;
+
+  @Schema(description = "Причина отказа; пусто, если заказ создан",
+      example = "Клиент не зарегистрирован.")
+  private String error;
+}
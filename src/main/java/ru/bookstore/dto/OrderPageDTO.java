@@ -0,0 +1,22 @@
+package ru.bookstore.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "Страница истории заказов клиента")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPageDTO {
+  @Schema(description = "Заказы страницы, от новых к старым")
+  private List<OrderDTO> orders;
+
+  @Schema(description = "Курсор следующей страницы, null на последней странице",
+      example = "MjAyNS0wMy0xMFQxMjozMDp8NDI")
+  private String next;
+}
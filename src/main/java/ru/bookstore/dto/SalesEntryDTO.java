@@ -0,0 +1,20 @@
+package ru.bookstore.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "Книга и её продажи за период")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesEntryDTO {
+  @Schema(description = "Книга")
+  private BookDTO book;
+
+  @Schema(description = "Продано экземпляров в выполненных заказах", example = "40")
+  private long sold;
+}
@@ -0,0 +1,26 @@
+package ru.bookstore.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "Изменение остатка одной книги")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAdjustmentDTO {
+  @Schema(description = "Идентификатор книги", example = "1")
+  @NotNull
+  @Min(value = 1, message = "Id must be greater than 0")
+  private Long bookId;
+
+  @Schema(description = "Изменение остатка: положительное — поставка, отрицательное — списание",
+      example = "-3")
+  @NotNull
+  private Integer delta;
+}
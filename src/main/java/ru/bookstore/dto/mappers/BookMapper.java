@@ -4,7 +4,13 @@ import java.util.List;
 import org.mapstruct.Mapper;
 import org.mapstruct.factory.Mappers;
 import ru.bookstore.dto.BookDTO;
+import ru.bookstore.dto.BookSearchHitDTO;
+import ru.bookstore.dto.DemandEntryDTO;
+import ru.bookstore.dto.SalesEntryDTO;
+import ru.bookstore.model.DemandEntry;
+import ru.bookstore.model.SalesEntry;
 import ru.bookstore.model.impl.Book;
+import ru.bookstore.search.SearchHit;
 
 @Mapper
 public interface BookMapper {
@@ -13,4 +19,16 @@ public interface BookMapper {
   BookDTO toDTO(Book book);
 
   List<BookDTO> toListDTO(List<Book> books);
+
+  BookSearchHitDTO toDTO(SearchHit hit);
+
+  List<BookSearchHitDTO> toSearchHitDTOs(List<SearchHit> hits);
+
+  DemandEntryDTO toDTO(DemandEntry entry);
+
+  List<DemandEntryDTO> toDemandDTOs(List<DemandEntry> entries);
+
+  SalesEntryDTO toDTO(SalesEntry entry);
+
+  List<SalesEntryDTO> toSalesDTOs(List<SalesEntry> entries);
 }
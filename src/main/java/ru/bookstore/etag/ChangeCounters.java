@@ -0,0 +1,93 @@
+package ru.bookstore.etag;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Счётчики изменений таблиц для ETag списков. Счётчик сущности растёт после коммита каждой
+ * транзакции, которая её вставила, изменила или удалила, так что по нему без запроса к базе видно,
+ * менялась ли таблица с момента выдачи ETag.
+ *
+ * <p>Изменения через Hibernate передаёт {@link EntityChangeListener}. JDBC-пакеты и bulk-запросы
+ * событий Hibernate не порождают, поэтому такие пути вызывают {@link #changed} явно. Счётчики
+ * живут в памяти одного процесса, а epoch в ETag отличает их от счётчиков прошлого запуска.
+ */
+@Slf4j
+@Component
+public class ChangeCounters {
+  private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+  private final Map<Class<?>, Counter> counters = new ConcurrentHashMap<>();
+  private final long settleNanos;
+
+  public ChangeCounters(@Value("${etag.list.settle.seconds:60}") long settleSeconds) {
+    this.settleNanos = TimeUnit.SECONDS.toNanos(settleSeconds);
+    log.debug("Счётчики изменений запущены, epoch = {}", epoch);
+  }
+
+  /**
+   * ETag текущего состояния таблицы сущности.
+   */
+  public String tag(Class<?> entityType) {
+    return ETags.of(epoch, counter(entityType).value.get());
+  }
+
+  /**
+   * Таблица не менялась последние etag.list.settle.seconds. Только такому списку можно выдать
+   * ETag: список мог быть прочитан с реплики, которая ещё не получила последнее изменение.
+   */
+  public boolean isSettled(Class<?> entityType) {
+    return System.nanoTime() - counter(entityType).changedAt >= settleNanos;
+  }
+
+  /**
+   * Отмечает изменение таблицы. Внутри транзакции счётчик вырастет после коммита, один раз на
+   * транзакцию, при откате не изменится.
+   */
+  public void changed(Class<?> entityType) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      counter(entityType).increment();
+      return;
+    }
+    @SuppressWarnings("unchecked")
+    Set<Class<?>> pending = (Set<Class<?>>) TransactionSynchronizationManager.getResource(this);
+    if (pending == null) {
+      Set<Class<?>> types = new HashSet<>();
+      TransactionSynchronizationManager.bindResource(this, types);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResourceIfPossible(ChangeCounters.this);
+          if (status == STATUS_COMMITTED) {
+            types.forEach(type -> counter(type).increment());
+          }
+        }
+      });
+      pending = types;
+    }
+    pending.add(entityType);
+  }
+
+  private Counter counter(Class<?> entityType) {
+    return counters.computeIfAbsent(entityType, type -> new Counter());
+  }
+
+  private static final class Counter {
+    private final AtomicLong value = new AtomicLong();
+    private volatile long changedAt = System.nanoTime();
+
+    void increment() {
+      changedAt = System.nanoTime();
+      value.incrementAndGet();
+    }
+  }
+}
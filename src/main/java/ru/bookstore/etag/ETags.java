@@ -0,0 +1,40 @@
+package ru.bookstore.etag;
+
+/**
+ * Слабые ETag и их сравнение с заголовком If-None-Match. Теги слабые, потому что встроенный Tomcat
+ * не сжимает ответ с сильным ETag, а сжатое и несжатое тело по байтам различаются.
+ */
+public final class ETags {
+  private ETags() {
+  }
+
+  public static String of(Object... parts) {
+    StringBuilder tag = new StringBuilder("W/\"");
+    for (int i = 0; i < parts.length; i++) {
+      tag.append(i == 0 ? "" : "-").append(parts[i]);
+    }
+    return tag.append('"').toString();
+  }
+
+  /**
+   * If-None-Match допускает список тегов и *. Для GET теги сравниваются слабо (RFC 9110), то есть
+   * без учёта префикса W/.
+   */
+  public static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+      return false;
+    }
+    String opaque = opaque(etag);
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.equals("*") || opaque(tag).equals(opaque)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String opaque(String tag) {
+    return tag.startsWith("W/") ? tag.substring(2) : tag;
+  }
+}
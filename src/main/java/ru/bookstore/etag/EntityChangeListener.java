@@ -0,0 +1,53 @@
+package ru.bookstore.etag;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+/**
+ * Передаёт в {@link ChangeCounters} вставки, изменения и удаления сущностей, сделанные через
+ * Hibernate.
+ */
+@Component
+public class EntityChangeListener implements PostInsertEventListener, PostUpdateEventListener,
+    PostDeleteEventListener {
+  private final ChangeCounters changeCounters;
+
+  public EntityChangeListener(SessionFactory sessionFactory, ChangeCounters changeCounters) {
+    this.changeCounters = changeCounters;
+    EventListenerRegistry registry = sessionFactory.unwrap(SessionFactoryImplementor.class)
+        .getServiceRegistry().getService(EventListenerRegistry.class);
+    registry.appendListeners(EventType.POST_INSERT, this);
+    registry.appendListeners(EventType.POST_UPDATE, this);
+    registry.appendListeners(EventType.POST_DELETE, this);
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    changeCounters.changed(event.getEntity().getClass());
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    changeCounters.changed(event.getEntity().getClass());
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    changeCounters.changed(event.getEntity().getClass());
+  }
+
+  @Override
+  public boolean requiresPostCommitHandling(EntityPersister persister) {
+    return false;
+  }
+}
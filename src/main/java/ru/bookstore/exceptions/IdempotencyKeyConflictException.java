@@ -0,0 +1,7 @@
+package ru.bookstore.exceptions;
+
+public class IdempotencyKeyConflictException extends RuntimeException {
+  public IdempotencyKeyConflictException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,7 @@
+package ru.bookstore.exceptions;
+
+public class OrderConflictException extends RuntimeException {
+  public OrderConflictException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,7 @@
+package ru.bookstore.exceptions;
+
+public class StatementBudgetExceededException extends RuntimeException {
+  public StatementBudgetExceededException(String message) {
+    super(message);
+  }
+}
@@ -2,7 +2,15 @@ package ru.bookstore.facade;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import ru.bookstore.dto.BookDTO;
+import ru.bookstore.model.BookCursor;
+import ru.bookstore.model.BookFilter;
+import ru.bookstore.model.BookPage;
 import ru.bookstore.model.impl.Book;
+import ru.bookstore.search.SearchPage;
 import ru.bookstore.sorting.BookSort;
 
 public interface BookFacade {
@@ -11,11 +19,23 @@ public interface BookFacade {
 
   Book writeOff(Long bookId, Integer amount, LocalDateTime saleDate);
 
+  List<Book> adjustStock(Map<Long, Integer> deltas, LocalDateTime adjustDate);
+
   Book get(Long bookId);
 
+  Optional<Long> getVersion(Long bookId);
+
+  SearchPage search(String query, int page, int size);
+
   List<Book> getAll(BookSort sortType);
 
+  List<BookDTO> getCatalog(BookSort sortType);
+
+  BookPage find(BookFilter filter, BookSort sortType, BookCursor after, int limit);
+
   List<Book> getStale(BookSort sortType);
 
   void importBook(Book book);
+
+  void exportAll(Consumer<Book> consumer);
 }
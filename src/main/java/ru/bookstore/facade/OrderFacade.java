@@ -3,28 +3,48 @@ package ru.bookstore.facade;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import ru.bookstore.model.OrderBatchResult;
+import ru.bookstore.model.OrderCursor;
+import ru.bookstore.model.OrderPage;
 import ru.bookstore.model.OrderStatus;
+import ru.bookstore.model.OrderVersion;
+import ru.bookstore.model.SalesEntry;
 import ru.bookstore.model.impl.Order;
 import ru.bookstore.sorting.OrderSort;
 
 public interface OrderFacade {
   Order get(Long orderId);
 
+  Optional<OrderVersion> getVersion(Long orderId);
+
   List<Order> getAll(OrderSort orderSort);
 
+  OrderPage getClientOrders(String clientName, OrderStatus status, OrderCursor before,
+                            int limit);
+
   Order setOrderStatus(Long id, OrderStatus orderStatus);
 
   List<Order> getCompleted(OrderSort orderSort, LocalDateTime begin, LocalDateTime end);
 
   Order createOrder(Map<Long, Integer> booksIds, String clientName, LocalDateTime createDate);
 
+  List<OrderBatchResult> createOrders(List<Order> orders, LocalDateTime createDate);
+
   Order cancelOrder(long orderId);
 
   Double getEarnedSum(LocalDateTime begin, LocalDateTime end);
 
   Long getCountCompletedOrders(LocalDateTime begin, LocalDateTime end);
 
+  List<SalesEntry> getBestsellers(int days, int limit);
+
   Order importOrder(Order order);
 
+  void exportAll(Consumer<Order> consumer);
+
   void updateOrders();
+
+  void completeOrders(List<Long> orderIds);
 }
@@ -2,6 +2,8 @@ package ru.bookstore.facade;
 
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.function.Consumer;
+import ru.bookstore.model.DemandEntry;
 import ru.bookstore.model.impl.Book;
 import ru.bookstore.model.impl.Request;
 import ru.bookstore.sorting.RequestSort;
@@ -13,7 +15,11 @@ public interface RequestFacade {
 
   LinkedHashMap<Book, Long> getRequests(RequestSort requestSort);
 
+  List<DemandEntry> getTopDemand(int limit);
+
   List<Request> getAllRequests();
 
+  void exportAll(Consumer<Request> consumer);
+
   Request importRequest(Request request);
 }
@@ -1,14 +1,32 @@
 package ru.bookstore.facade.impl;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.bookstore.catalog.BookCatalog;
+import ru.bookstore.datasource.ReplicaRead;
+import ru.bookstore.dto.BookDTO;
 import ru.bookstore.facade.BookFacade;
+import ru.bookstore.model.BookCursor;
+import ru.bookstore.model.BookFilter;
+import ru.bookstore.model.BookPage;
+import ru.bookstore.model.OutboxEventType;
 import ru.bookstore.model.impl.Book;
+import ru.bookstore.outbox.StockChangedPayload;
+import ru.bookstore.search.BookSearchIndex;
+import ru.bookstore.search.SearchPage;
 import ru.bookstore.service.BookService;
+import ru.bookstore.service.OutboxService;
 import ru.bookstore.sorting.BookSort;
 
 @Service
@@ -16,17 +34,52 @@ import ru.bookstore.sorting.BookSort;
 @Slf4j
 public class BookFacadeImpl implements BookFacade {
   private final BookService bookService;
+  private final OutboxService outboxService;
+  private final BookSearchIndex bookSearchIndex;
+  private final BookCatalog bookCatalog;
 
   @Transactional
   @Override
   public Book addBook(Long id, Integer amount, LocalDateTime deliveredDate) {
-    return bookService.add(id, amount, deliveredDate);
+    Book book = bookService.add(id, amount, deliveredDate);
+    publishStockChanged(id, amount, book);
+    return book;
   }
 
   @Transactional
   @Override
   public Book writeOff(Long id, Integer amount, LocalDateTime writeOffDate) {
-    return bookService.writeOff(id, amount, writeOffDate);
+    Book book = bookService.writeOff(id, amount, writeOffDate);
+    publishStockChanged(id, -amount, book);
+    return book;
+  }
+
+  /**
+   * Применяет поставки и списания по многим книгам одним пакетом. Одинаковые книги уже сложены
+   * вызывающим, нулевые изменения пропускаются. Раздача поставки ожидающим заказам происходит
+   * один раз на весь пакет — потребитель outbox получает все STOCK_CHANGED вместе.
+   */
+  @Transactional
+  @Override
+  public List<Book> adjustStock(Map<Long, Integer> deltas, LocalDateTime adjustDate) {
+    Map<Long, Integer> changes = new TreeMap<>();
+    deltas.forEach((bookId, delta) -> {
+      if (delta != 0) {
+        changes.put(bookId, delta);
+      }
+    });
+    if (changes.isEmpty()) {
+      throw new IllegalArgumentException("В пакете нет ни одного изменения остатка");
+    }
+    bookService.adjustAmounts(changes, adjustDate);
+    List<Book> books = new ArrayList<>(bookService.getBooks(new ArrayList<>(changes.keySet())));
+    books.sort(Comparator.comparing(Book::getId));
+    Map<Long, StockChangedPayload> payloads = new LinkedHashMap<>();
+    books.forEach(book -> payloads.put(book.getId(),
+        new StockChangedPayload(book.getId(), changes.get(book.getId()), book.getAmount())));
+    outboxService.publishAll(OutboxEventType.STOCK_CHANGED, payloads);
+    log.info("Изменены остатки {} книг", books.size());
+    return books;
   }
 
   @Transactional(readOnly = true)
@@ -35,13 +88,36 @@ public class BookFacadeImpl implements BookFacade {
     return bookService.get(bookId);
   }
 
+  @Transactional(readOnly = true)
+  @Override
+  public Optional<Long> getVersion(Long bookId) {
+    return bookService.getVersion(bookId);
+  }
+
+  /**
+   * Поиск идёт по индексу в памяти и в базу не обращается, поэтому транзакция не нужна.
+   */
+  @Override
+  public SearchPage search(String query, int page, int size) {
+    return bookSearchIndex.search(query, page * size, size);
+  }
+
   @Transactional
   @Override
   public void importBook(Book book) {
     bookService.importBook(book);
+    publishStockChanged(book.getId(), null, book);
+  }
+
+  @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = 60)
+  @Override
+  public void exportAll(Consumer<Book> consumer) {
+    bookService.forEachBook(consumer);
   }
 
   @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = 60)
   @Override
   public List<Book> getAll(BookSort sortType) {
     return switch (sortType) {
@@ -53,7 +129,39 @@ public class BookFacadeImpl implements BookFacade {
     };
   }
 
+  /**
+   * Каталог отдаётся из снимка в памяти уже в виде DTO, поэтому транзакция не нужна.
+   */
+  @Override
+  public List<BookDTO> getCatalog(BookSort sortType) {
+    return bookCatalog.books(sortType);
+  }
+
+  /**
+   * Читает на одну книгу больше страницы: так без отдельного COUNT понятно, есть ли продолжение.
+   */
   @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = 60)
+  @Override
+  public BookPage find(BookFilter filter, BookSort sortType, BookCursor after, int limit) {
+    if (sortType == BookSort.STALE_BY_DATE || sortType == BookSort.STALE_BY_PRICE) {
+      throw new IllegalArgumentException("Сортировка " + sortType
+          + " не поддерживается при фильтрации каталога");
+    }
+    if (after != null && after.sort() != sortType) {
+      throw new IllegalArgumentException("Курсор получен для сортировки " + after.sort()
+          + ", а запрошена " + sortType);
+    }
+    List<Book> books = bookService.findBooks(filter, sortType, after, limit + 1);
+    if (books.size() <= limit) {
+      return new BookPage(books, null);
+    }
+    List<Book> page = books.subList(0, limit);
+    return new BookPage(page, BookCursor.after(page.get(limit - 1), sortType));
+  }
+
+  @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = 60)
   @Override
   public List<Book> getStale(BookSort sortType) {
     return switch (sortType) {
@@ -61,4 +169,12 @@ public class BookFacadeImpl implements BookFacade {
       default -> bookService.getAllStaleBooksByPrice();
     };
   }
+
+  /**
+   * Поставка раздаётся ожидающим заказам потребителем outbox, уже после коммита.
+   */
+  private void publishStockChanged(Long bookId, Integer delta, Book book) {
+    outboxService.publish(OutboxEventType.STOCK_CHANGED, bookId,
+        new StockChangedPayload(bookId, delta, book.getAmount()));
+  }
 }
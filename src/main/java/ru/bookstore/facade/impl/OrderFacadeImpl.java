@@ -1,23 +1,43 @@
 package ru.bookstore.facade.impl;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.bookstore.concurrency.RetryOnConflict;
+import ru.bookstore.datasource.ReplicaRead;
+import ru.bookstore.demand.DashboardCache;
 import ru.bookstore.exceptions.EntityNotFoundException;
+import ru.bookstore.exceptions.OrderConflictException;
 import ru.bookstore.facade.OrderFacade;
+import ru.bookstore.model.OrderBatchResult;
+import ru.bookstore.model.OrderCursor;
+import ru.bookstore.model.OrderPage;
 import ru.bookstore.model.OrderStatus;
+import ru.bookstore.model.OrderVersion;
+import ru.bookstore.model.OutboxEventType;
+import ru.bookstore.model.SalesEntry;
 import ru.bookstore.model.impl.Book;
 import ru.bookstore.model.impl.Order;
+import ru.bookstore.outbox.OrderEventPayload;
 import ru.bookstore.service.BookService;
 import ru.bookstore.service.MyUserDetailsService;
 import ru.bookstore.service.OrderService;
-import ru.bookstore.service.RequestService;
+import ru.bookstore.service.OutboxService;
+import ru.bookstore.service.StockReservationService;
 import ru.bookstore.sorting.OrderSort;
 
 @Service
@@ -30,8 +50,10 @@ public class OrderFacadeImpl implements OrderFacade {
 
   private final OrderService orderService;
   private final BookService bookService;
-  private final RequestService requestService;
   private final MyUserDetailsService userDetailsService;
+  private final StockReservationService stockReservationService;
+  private final OutboxService outboxService;
+  private final DashboardCache dashboardCache;
 
   @Transactional(readOnly = true)
   @Override
@@ -41,23 +63,65 @@ public class OrderFacadeImpl implements OrderFacade {
 
   @Transactional(readOnly = true)
   @Override
+  public Optional<OrderVersion> getVersion(Long orderId) {
+    return orderService.getVersion(orderId);
+  }
+
+  /**
+   * Читает с основной базы: клиент должен сразу видеть только что оформленный заказ.
+   */
+  @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = ReplicaRead.PRIMARY_ONLY)
+  @Override
+  public OrderPage getClientOrders(String clientName, OrderStatus status, OrderCursor before,
+                                   int limit) {
+    List<Order> orders = orderService.getClientOrders(clientName, status, before, limit + 1);
+    if (orders.size() <= limit) {
+      return new OrderPage(orders, null);
+    }
+    List<Order> page = orders.subList(0, limit);
+    return new OrderPage(page, OrderCursor.after(page.get(limit - 1)));
+  }
+
+  @RetryOnConflict
+  @Transactional
+  @Override
   public Order setOrderStatus(Long id, OrderStatus orderStatus) {
-    return orderService.setOrderStatus(id, orderStatus);
+    Order order = orderService.setOrderStatus(id, orderStatus);
+    if (orderStatus == OrderStatus.COMPLETED) {
+      stockReservationService.fulfil(order, order.getCompleteDate());
+      publish(OutboxEventType.ORDER_COMPLETED, order);
+    } else {
+      stockReservationService.release(order);
+      publish(OutboxEventType.ORDER_CANCELED, order);
+    }
+    return order;
   }
 
   @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = 60)
   @Override
   public Double getEarnedSum(LocalDateTime begin, LocalDateTime end) {
     return orderService.getEarnedSum(begin, end);
   }
 
   @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = 60)
   @Override
   public Long getCountCompletedOrders(LocalDateTime begin, LocalDateTime end) {
     return orderService.getCountCompletedOrders(begin, end);
   }
 
   @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = 60)
+  @Override
+  public List<SalesEntry> getBestsellers(int days, int limit) {
+    return dashboardCache.get(List.of("bestsellers", days, limit),
+        () -> orderService.getBestsellers(LocalDateTime.now().minusDays(days), limit));
+  }
+
+  @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = 60)
   @Override
   public List<Order> getAll(OrderSort orderSort) {
     return switch (orderSort) {
@@ -69,6 +133,14 @@ public class OrderFacadeImpl implements OrderFacade {
   }
 
   @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = 60)
+  @Override
+  public void exportAll(Consumer<Order> consumer) {
+    orderService.forEachOrder(consumer);
+  }
+
+  @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = 60)
   @Override
   public List<Order> getCompleted(OrderSort orderSort,
                                   LocalDateTime begin, LocalDateTime end) {
@@ -96,19 +168,98 @@ public class OrderFacadeImpl implements OrderFacade {
             .mapToDouble(book -> book.getPrice() * booksIds.get(book.getId()))
             .sum(),
             OrderStatus.NEW, orderDate, clientName));
-    createRequests(createdOrder);
+    stockReservationService.reserve(createdOrder);
+    publish(OutboxEventType.ORDER_CREATED, createdOrder);
     updateOrder(createdOrder, LocalDateTime.now());
     return createdOrder;
   }
 
+  /**
+   * Создаёт пакет заказов за один проход: каждый клиент проверяется один раз, все книги читаются
+   * и блокируются одним запросом в порядке id, заказы вставляются JDBC-пакетом, а заказы,
+   * которым хватило книг, выполняются после резервирования всего пакета. Заказ с ошибкой
+   * в данных отклоняется, не мешая остальным; результаты идут в порядке входного списка.
+   */
+  @Transactional
+  @Override
+  public List<OrderBatchResult> createOrders(List<Order> orders, LocalDateTime orderDate) {
+    log.info("Создаём пакет из {} заказов...", orders.size());
+    Set<Long> bookIds = new TreeSet<>();
+    orders.stream()
+        .filter(order -> order.getBooks() != null)
+        .forEach(order -> bookIds.addAll(order.getBooks().keySet()));
+    Map<Long, Book> books = bookService.getBooksForUpdate(new ArrayList<>(bookIds)).stream()
+        .collect(Collectors.toMap(Book::getId, Function.identity()));
+    Map<String, Boolean> registeredClients = new HashMap<>();
+
+    List<OrderBatchResult> results = new ArrayList<>(orders.size());
+    List<Order> accepted = new ArrayList<>();
+    for (Order order : orders) {
+      String error = validate(order, books, registeredClients);
+      if (error != null) {
+        results.add(OrderBatchResult.failed(error));
+        continue;
+      }
+      order.setId(null);
+      order.setStatus(OrderStatus.NEW);
+      order.setOrderDate(orderDate);
+      order.setCompleteDate(null);
+      order.setPrice(order.getBooks().entrySet().stream()
+          .mapToDouble(line -> books.get(line.getKey()).getPrice() * line.getValue())
+          .sum());
+      accepted.add(order);
+      results.add(OrderBatchResult.created(order));
+    }
+    if (accepted.isEmpty()) {
+      return results;
+    }
+
+    orderService.addOrders(accepted);
+    List<Order> reserved = new ArrayList<>();
+    for (Order order : accepted) {
+      if (stockReservationService.reserve(order)) {
+        reserved.add(order);
+      }
+      publish(OutboxEventType.ORDER_CREATED, order);
+    }
+    LocalDateTime now = LocalDateTime.now();
+    long completed = reserved.stream().filter(order -> completeOrder(order, now)).count();
+    log.info("Пакет заказов обработан: создано {}, выполнено сразу {}, отклонено {}",
+        accepted.size(), completed, orders.size() - accepted.size());
+    return results;
+  }
+
+  private String validate(Order order, Map<Long, Book> books,
+                          Map<String, Boolean> registeredClients) {
+    if (order.getBooks() == null || order.getBooks().isEmpty()) {
+      return "Список книг не может быть пустым.";
+    }
+    for (Map.Entry<Long, Integer> line : order.getBooks().entrySet()) {
+      if (!books.containsKey(line.getKey())) {
+        return "Книга [" + line.getKey() + "] не найдена";
+      } else if (line.getValue() == null || line.getValue() <= 0) {
+        return "Количество книги [" + line.getKey() + "] должно быть положительным";
+      }
+    }
+    if (order.getClientName() == null || !registeredClients.computeIfAbsent(
+        order.getClientName(), userDetailsService::existsByUsername)) {
+      return "Клиент не зарегистрирован.";
+    }
+    return null;
+  }
+
+  @RetryOnConflict
   @Transactional
   @Override
   public Order cancelOrder(long orderId) {
     log.debug("Отменяем заказ [{}]...", orderId);
     Order order = orderService.getOrder(orderId);
-    if (order.getStatus() == OrderStatus.NEW) {
-      order = orderService.setOrderStatus(orderId, OrderStatus.CANCELED);
-      requestService.closeRequests(order.getBooks());
+    if (order.getStatus().canTransitionTo(OrderStatus.CANCELED)) {
+      if (!orderService.changeStatus(order, OrderStatus.CANCELED, LocalDateTime.now())) {
+        throw new OrderConflictException("Заказ [" + orderId + "] был изменён параллельно");
+      }
+      stockReservationService.release(order);
+      publish(OutboxEventType.ORDER_CANCELED, order);
       log.info("Заказ [{}] успешно отменен", orderId);
       return order;
     } else {
@@ -116,29 +267,38 @@ public class OrderFacadeImpl implements OrderFacade {
     }
   }
 
+  /**
+   * Переданный заказ не меняется: при конфликте версий метод повторяется с тем же аргументом,
+   * поэтому данные импорта копируются в перечитанный из базы заказ или в новый.
+   */
+  @RetryOnConflict
   @Transactional
   @Override
   public Order importOrder(Order order) {
+    Order imported;
     try {
-      Order findOrder = orderService.getOrder(order.getId());
-      requestService.closeRequests(findOrder.getBooks());
-      orderService.updateOrder(order);
-      updateOrder(order, LocalDateTime.now());
+      imported = orderService.getOrder(order.getId());
+      stockReservationService.release(imported);
+      publish(OutboxEventType.ORDER_CANCELED, imported);
+      copyImported(order, imported);
+      publish(OutboxEventType.ORDER_CREATED, imported);
+      updateOrder(imported, LocalDateTime.now());
     } catch (EntityNotFoundException e) {
-      orderService.addOrder(order);
-    } finally {
-      createRequests(order);
+      imported = new Order();
+      copyImported(order, imported);
+      orderService.addOrder(imported);
+      publish(OutboxEventType.ORDER_CREATED, imported);
     }
-    return order;
+    return imported;
   }
 
-  private void createRequests(Order order) {
-    log.info("Создание запросов для заказа [{}]...", order);
-    for (Map.Entry<Long, Integer> entry : order.getBooks().entrySet()) {
-      Book book = bookService.get(entry.getKey());
-      requestService.addRequest(book, entry.getValue());
-    }
-    log.info("Созданы запросы для заказа [{}].", order);
+  private static void copyImported(Order source, Order target) {
+    target.setStatus(source.getStatus());
+    target.setPrice(source.getPrice());
+    target.setOrderDate(source.getOrderDate());
+    target.setCompleteDate(source.getCompleteDate());
+    target.setClientName(source.getClientName());
+    target.setBooks(new HashMap<>(source.getBooks()));
   }
 
   @Transactional
@@ -151,35 +311,50 @@ public class OrderFacadeImpl implements OrderFacade {
     }
   }
 
+  /**
+   * Выполняет заказы, которым поставка только что зарезервировала последние книги. В отличие от
+   * {@link #updateOrders()}, не обходит остальные заказы.
+   */
+  @Transactional
+  @Override
+  public void completeOrders(List<Long> orderIds) {
+    if (markOrdersCompleted) {
+      LocalDateTime now = LocalDateTime.now();
+      orderIds.forEach(orderId -> updateOrder(orderService.getOrder(orderId), now));
+    }
+  }
+
   public void updateOrder(Order order, LocalDateTime updateDate) {
-    boolean needBeCompleted = true;
-    log.debug("Обновляем заказ: {}...", order);
+    log.debug("Обновляем заказ [{}]...", order.getId());
     if (order.getStatus() == OrderStatus.NEW) {
-      for (Map.Entry<Long, Integer> entry : order.getBooks().entrySet()) {
-        Book book = bookService.get(entry.getKey());
-        if (book.getAmount() < entry.getValue()) {
-          log.debug("В заказе [{}] есть {} книг [{}], но на складе таких книг только {}",
-              order.getId(), entry.getValue(), entry.getValue(), book.getAmount());
-          needBeCompleted = false;
-          break;
-        }
-      }
-      if (!needBeCompleted) {
+      if (!stockReservationService.isReserved(order)) {
+        log.debug("Заказ [{}] ждёт поставки книг", order.getId());
         return;
       }
-      log.info("Есть все необходимые книги для заказа [{}], выполняем заказ...",
+      log.info("Все книги для заказа [{}] зарезервированы, выполняем заказ...",
           order.getId());
-      completeOrder(order, updateDate);
+      if (!completeOrder(order, updateDate)) {
+        return;
+      }
       log.info("Заказ [{}] успешно выполнен.", order.getId());
     }
-    log.debug("Заказ успешно обновлен: {}.", order);
+    log.debug("Заказ [{}] успешно обновлен.", order.getId());
   }
 
-  private void completeOrder(Order order, LocalDateTime completeDate) {
-    orderService.setOrderStatus(order.getId(), OrderStatus.COMPLETED);
-    requestService.closeRequests(order.getBooks());
-    for (Map.Entry<Long, Integer> entry : order.getBooks().entrySet()) {
-      bookService.writeOff(entry.getKey(), entry.getValue(), completeDate);
+  private boolean completeOrder(Order order, LocalDateTime completeDate) {
+    if (!orderService.changeStatus(order, OrderStatus.COMPLETED, completeDate)) {
+      log.info("Заказ [{}] уже изменён другим запросом, пропускаем выполнение", order.getId());
+      return false;
     }
+    stockReservationService.fulfil(order, completeDate);
+    publish(OutboxEventType.ORDER_COMPLETED, order);
+    return true;
+  }
+
+  /**
+   * Запросы на книги создаются и закрываются потребителем outbox после коммита, а не здесь.
+   */
+  private void publish(OutboxEventType type, Order order) {
+    outboxService.publish(type, order.getId(), OrderEventPayload.of(order));
   }
 }
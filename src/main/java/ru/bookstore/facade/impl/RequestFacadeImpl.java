@@ -2,11 +2,15 @@ package ru.bookstore.facade.impl;
 
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.bookstore.datasource.ReplicaRead;
+import ru.bookstore.demand.DashboardCache;
 import ru.bookstore.facade.RequestFacade;
+import ru.bookstore.model.DemandEntry;
 import ru.bookstore.model.impl.Book;
 import ru.bookstore.model.impl.Request;
 import ru.bookstore.service.BookService;
@@ -19,6 +23,7 @@ import ru.bookstore.sorting.RequestSort;
 public class RequestFacadeImpl implements RequestFacade {
   private final BookService bookService;
   private final RequestService requestService;
+  private final DashboardCache dashboardCache;
 
   @Transactional
   @Override
@@ -33,6 +38,7 @@ public class RequestFacadeImpl implements RequestFacade {
   }
 
   @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = 60)
   @Override
   public LinkedHashMap<Book, Long> getRequests(RequestSort requestSort) {
     if (requestSort == RequestSort.COUNT) {
@@ -42,11 +48,26 @@ public class RequestFacadeImpl implements RequestFacade {
   }
 
   @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = 60)
+  @Override
+  public List<DemandEntry> getTopDemand(int limit) {
+    return dashboardCache.get(List.of("demand", limit), () -> requestService.getTopDemand(limit));
+  }
+
+  @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = 60)
   @Override
   public List<Request> getAllRequests() {
     return requestService.getAllRequests();
   }
 
+  @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = 60)
+  @Override
+  public void exportAll(Consumer<Request> consumer) {
+    requestService.forEachRequest(consumer);
+  }
+
   @Transactional
   @Override
   public Request importRequest(Request request) {
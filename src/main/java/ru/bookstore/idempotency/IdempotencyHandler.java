@@ -0,0 +1,207 @@
+package ru.bookstore.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bookstore.exceptions.IdempotencyKeyConflictException;
+import ru.bookstore.model.impl.IdempotencyRecord;
+import ru.bookstore.service.IdempotencyService;
+
+/**
+ * Выполняет запрос с заголовком Idempotency-Key не больше одного раза. Ключ занимается в таблице
+ * idempotency_keys до выполнения запроса, а ответ сохраняется в одной транзакции с ним: заказ
+ * не может остаться созданным без сохранённого ответа. Повтор с тем же ключом получает
+ * сохранённый ответ, причём недавние ответы берутся из LRU в памяти без обращения к базе.
+ * Ключ живёт idempotency.ttl.hours, просроченные записи периодически удаляются.
+ */
+@Component
+@Slf4j
+public class IdempotencyHandler {
+  public static final String HEADER = "Idempotency-Key";
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+  public static final String REQUESTS = "bookstore.idempotency";
+  public static final String HIT_RATIO = "bookstore.idempotency.hit.ratio";
+  public static final int MAX_KEY_LENGTH = 100;
+
+  public record Result<T>(T body, boolean replayed) {
+  }
+
+  private record Cached(String requestHash, String response, LocalDateTime expiresAt) {
+  }
+
+  private record Completed<T>(T body, String response) {
+  }
+
+  private final IdempotencyService idempotencyService;
+  private final TransactionTemplate transactionTemplate;
+  private final MeterRegistry meterRegistry;
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+      .featuresToEnable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+      .build();
+  private final Duration ttl;
+  private final Duration purgeInterval;
+  private final Map<String, Cached> recent;
+  private final AtomicLong nextPurge = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder requests = new LongAdder();
+
+  public IdempotencyHandler(IdempotencyService idempotencyService,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${idempotency.ttl.hours:24}") long ttlHours,
+                            @Value("${idempotency.cache.size:10000}") int cacheSize,
+                            @Value("${idempotency.purge.interval.minutes:10}") long purgeMinutes) {
+    this.idempotencyService = idempotencyService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.meterRegistry = meterRegistry;
+    this.ttl = Duration.ofHours(ttlHours);
+    this.purgeInterval = Duration.ofMinutes(purgeMinutes);
+    this.recent = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+        return size() > cacheSize;
+      }
+    });
+    Gauge.builder(HIT_RATIO, this, IdempotencyHandler::hitRatio).register(meterRegistry);
+    Gauge.builder(REQUESTS + ".cache.size", recent, Map::size).register(meterRegistry);
+  }
+
+  /**
+   * Без ключа просто выполняет action. С ключом возвращает сохранённый ответ, если запрос с этим
+   * ключом уже выполнялся, и бросает {@link IdempotencyKeyConflictException}, если он ещё
+   * выполняется или ключ использован для другого запроса.
+   */
+  public <T> Result<T> execute(String clientName, String key, Object request, Class<T> type,
+                               Supplier<T> action) {
+    if (key == null) {
+      return new Result<>(action.get(), false);
+    }
+    if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+      throw new IllegalArgumentException("Ключ идемпотентности должен быть непустым и не длиннее "
+          + MAX_KEY_LENGTH + " символов");
+    }
+    requests.increment();
+    String requestHash = fingerprint(request);
+    String cacheKey = clientName + '\n' + key;
+
+    Cached cached = recent.get(cacheKey);
+    if (cached != null && cached.expiresAt().isAfter(LocalDateTime.now())) {
+      return replay(cached.requestHash(), requestHash, cached.response(), type, "cache");
+    }
+    Optional<IdempotencyRecord> existing =
+        idempotencyService.claim(clientName, key, requestHash, ttl);
+    if (existing.isPresent()) {
+      IdempotencyRecord record = existing.get();
+      if (record.getResponse() == null) {
+        count("in_progress");
+        throw new IdempotencyKeyConflictException(
+            "Запрос с этим ключом идемпотентности уже выполняется");
+      }
+      recent.put(cacheKey, new Cached(record.getRequestHash(), record.getResponse(),
+          record.getExpiresAt()));
+      return replay(record.getRequestHash(), requestHash, record.getResponse(), type, "db");
+    }
+
+    count("miss");
+    purgeIfDue();
+    Completed<T> completed;
+    try {
+      completed = transactionTemplate.execute(status -> {
+        T body = action.get();
+        String response = write(body);
+        idempotencyService.complete(clientName, key, response);
+        return new Completed<>(body, response);
+      });
+    } catch (IdempotencyKeyConflictException e) {
+      // ключ забрал повтор и уже сохранил свой ответ, наш результат откатился
+      throw e;
+    } catch (RuntimeException e) {
+      try {
+        idempotencyService.release(clientName, key);
+      } catch (RuntimeException releaseError) {
+        e.addSuppressed(releaseError);
+      }
+      throw e;
+    }
+    recent.put(cacheKey, new Cached(requestHash, completed.response(),
+        LocalDateTime.now().plus(ttl)));
+    return new Result<>(completed.body(), false);
+  }
+
+  double hitRatio() {
+    long total = requests.sum();
+    return total == 0 ? 0 : (double) hits.sum() / total;
+  }
+
+  private <T> Result<T> replay(String storedHash, String requestHash, String response,
+                               Class<T> type, String source) {
+    if (!storedHash.equals(requestHash)) {
+      count("mismatch");
+      throw new IdempotencyKeyConflictException(
+          "Ключ идемпотентности уже использован для другого запроса");
+    }
+    hits.increment();
+    meterRegistry.counter(REQUESTS, "result", "hit", "source", source).increment();
+    try {
+      return new Result<>(objectMapper.readValue(response, type), true);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Не удалось прочитать сохранённый ответ: "
+          + e.getMessage(), e);
+    }
+  }
+
+  private void purgeIfDue() {
+    long now = System.currentTimeMillis();
+    long next = nextPurge.get();
+    if (now < next || !nextPurge.compareAndSet(next, now + purgeInterval.toMillis())) {
+      return;
+    }
+    try {
+      idempotencyService.purgeExpired();
+    } catch (RuntimeException e) {
+      log.warn("Не удалось удалить просроченные ключи идемпотентности: {}", e.getMessage());
+    }
+  }
+
+  private void count(String result) {
+    meterRegistry.counter(REQUESTS, "result", result, "source", "none").increment();
+  }
+
+  private String write(Object body) {
+    try {
+      return objectMapper.writeValueAsString(body);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Не удалось сохранить ответ: " + e.getMessage(), e);
+    }
+  }
+
+  private String fingerprint(Object request) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+          .digest(write(request).getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
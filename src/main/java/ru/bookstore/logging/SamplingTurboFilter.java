@@ -0,0 +1,112 @@
+package ru.bookstore.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Marker;
+
+/**
+ * Ограничивает число событий ниже WARN в секунду для каждой категории логгеров. Категория — самый
+ * длинный префикс имени логгера из {@code limits} (например, {@code ru.bookstore.dao=200}),
+ * остальные логгеры делят лимит {@code defaultLimit}. Всё, что сверх лимита, отбрасывается до
+ * форматирования сообщения и учитывается в {@link #sampledOut()}.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+  private static final String DEFAULT_CATEGORY = "";
+  private static final LongAdder sampledOut = new LongAdder();
+
+  private final Map<String, Integer> limits = new LinkedHashMap<>();
+  private final Map<String, String> categoryByLogger = new ConcurrentHashMap<>();
+  private final Map<String, Window> windows = new ConcurrentHashMap<>();
+  private int defaultLimit = 1000;
+
+  public static long sampledOut() {
+    return sampledOut.sum();
+  }
+
+  public void setDefaultLimit(int defaultLimit) {
+    this.defaultLimit = defaultLimit;
+  }
+
+  /**
+   * Лимиты по категориям в виде {@code category=limit}, через запятую.
+   */
+  public void setLimits(String limits) {
+    this.limits.clear();
+    for (String entry : limits.split(",")) {
+      String[] parts = entry.trim().split("=");
+      if (parts.length != 2) {
+        addError("Неверный формат лимита логирования: " + entry);
+        continue;
+      }
+      this.limits.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+    }
+  }
+
+  @Override
+  public void start() {
+    windows.put(DEFAULT_CATEGORY, new Window(defaultLimit));
+    limits.forEach((category, limit) -> windows.put(category, new Window(limit)));
+    super.start();
+  }
+
+  @Override
+  public FilterReply decide(Marker marker, Logger logger, Level level, String format,
+                            Object[] params, Throwable t) {
+    if (!isStarted() || format == null || level.isGreaterOrEqual(Level.WARN)
+        || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+      return FilterReply.NEUTRAL;
+    }
+    String category = categoryByLogger.computeIfAbsent(logger.getName(), this::category);
+    if (windows.get(category).tryAcquire(currentSecond())) {
+      return FilterReply.NEUTRAL;
+    }
+    sampledOut.increment();
+    return FilterReply.DENY;
+  }
+
+  protected long currentSecond() {
+    return System.currentTimeMillis() / 1000;
+  }
+
+  private String category(String loggerName) {
+    String category = DEFAULT_CATEGORY;
+    for (String prefix : limits.keySet()) {
+      boolean matches = loggerName.equals(prefix) || loggerName.startsWith(prefix + ".");
+      if (matches && prefix.length() > category.length()) {
+        category = prefix;
+      }
+    }
+    return category;
+  }
+
+  private static final class Window {
+    // Старшие 32 бита — номер секунды, младшие — число событий в ней.
+    private final AtomicLong state = new AtomicLong();
+    private final int limit;
+
+    private Window(int limit) {
+      this.limit = limit;
+    }
+
+    private boolean tryAcquire(long second) {
+      while (true) {
+        long current = state.get();
+        boolean sameSecond = current >>> 32 == second;
+        if (sameSecond && (int) current >= limit) {
+          return false;
+        }
+        long next = sameSecond ? current + 1 : second << 32 | 1;
+        if (state.compareAndSet(current, next)) {
+          return true;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package ru.bookstore.metrics;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.AsyncAppenderBase;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.Iterator;
+import org.slf4j.LoggerFactory;
+import ru.bookstore.logging.SamplingTurboFilter;
+
+/**
+ * Стоимость логирования: сколько событий отсечено сэмплированием и насколько заполнены очереди
+ * асинхронных аппендеров. Число событий по уровням публикует сам Spring Boot (logback.events).
+ */
+public class LoggingMetrics implements MeterBinder {
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("bookstore.logging.sampled.out", SamplingTurboFilter.class,
+            filter -> SamplingTurboFilter.sampledOut())
+        .description("События, отброшенные лимитом логирования")
+        .register(registry);
+
+    if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+      return;
+    }
+    Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+    for (Iterator<Appender<ILoggingEvent>> it = root.iteratorForAppenders(); it.hasNext(); ) {
+      if (it.next() instanceof AsyncAppenderBase<ILoggingEvent> appender) {
+        Gauge.builder("bookstore.logging.queue.size", appender,
+                AsyncAppenderBase::getNumberOfElementsInQueue)
+            .tag("appender", appender.getName())
+            .register(registry);
+        Gauge.builder("bookstore.logging.queue.remaining", appender,
+                AsyncAppenderBase::getRemainingCapacity)
+            .tag("appender", appender.getName())
+            .register(registry);
+      }
+    }
+  }
+}
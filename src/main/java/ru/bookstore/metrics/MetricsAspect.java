@@ -0,0 +1,72 @@
+package ru.bookstore.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Таймеры на все публичные методы фасадов и DAO. Таймер DAO помечается тегом facade — методом
+ * фасада, внутри которого он вызван, так что по bookstore.dao{facade="OrderFacadeImpl.createOrder"}
+ * видно, из каких запросов складывается время createOrder.
+ *
+ * <p>Аспект стоит снаружи транзакционного прокси, поэтому время фасада включает flush и commit.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class MetricsAspect {
+  public static final String FACADE_TIMER = "bookstore.facade";
+  public static final String DAO_TIMER = "bookstore.dao";
+  private static final String NONE = "none";
+  private static final ThreadLocal<String> currentFacadeMethod = new ThreadLocal<>();
+
+  private final MeterRegistry meterRegistry;
+
+  @Around("execution(public * ru.bookstore.facade.impl..*(..))")
+  public Object timeFacade(ProceedingJoinPoint joinPoint) throws Throwable {
+    String className = joinPoint.getTarget().getClass().getSimpleName();
+    String method = joinPoint.getSignature().getName();
+    boolean outermost = currentFacadeMethod.get() == null;
+    if (outermost) {
+      currentFacadeMethod.set(className + "." + method);
+    }
+    try {
+      return time(joinPoint, Timer.builder(FACADE_TIMER)
+          .tag("class", className)
+          .tag("method", method));
+    } finally {
+      if (outermost) {
+        currentFacadeMethod.remove();
+      }
+    }
+  }
+
+  @Around("execution(public * ru.bookstore.dao.impl..*(..))")
+  public Object timeDao(ProceedingJoinPoint joinPoint) throws Throwable {
+    String facadeMethod = currentFacadeMethod.get();
+    return time(joinPoint, Timer.builder(DAO_TIMER)
+        .tag("class", joinPoint.getTarget().getClass().getSimpleName())
+        .tag("method", joinPoint.getSignature().getName())
+        .tag("facade", facadeMethod == null ? NONE : facadeMethod));
+  }
+
+  private Object time(ProceedingJoinPoint joinPoint, Timer.Builder timer) throws Throwable {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String exception = NONE;
+    try {
+      return joinPoint.proceed();
+    } catch (Throwable e) {
+      exception = e.getClass().getSimpleName();
+      throw e;
+    } finally {
+      sample.stop(timer.tag("exception", exception).register(meterRegistry));
+    }
+  }
+}
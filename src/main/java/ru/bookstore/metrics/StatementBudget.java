@@ -0,0 +1,19 @@
+package ru.bookstore.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Сколько SQL-запросов может выполнить метод контроллера и сколько раз в нём может повториться
+ * запрос одного вида. Превышение — почти всегда N+1: в тестах оно роняет запрос, в работе
+ * попадает в лог и в метрику bookstore.statements.budget.exceeded.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StatementBudget {
+  int maxStatements();
+
+  int maxRepeats() default 3;
+}
@@ -0,0 +1,81 @@
+package ru.bookstore.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.bookstore.exceptions.StatementBudgetExceededException;
+
+/**
+ * Число SQL-запросов на каждый вызов фасада (bookstore.statements) и проверка
+ * {@link StatementBudget} на методах контроллеров. При statements.budget.fail=true превышение
+ * бюджета бросает исключение — так настроены тесты, в работе оно только логируется.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StatementBudgetAspect {
+  public static final String STATEMENTS = "bookstore.statements";
+  public static final String BUDGET_EXCEEDED = "bookstore.statements.budget.exceeded";
+
+  private final MeterRegistry meterRegistry;
+
+  @Value("${statements.budget.fail:false}")
+  @Setter
+  private boolean failOnExceeded;
+
+  @Around("execution(public * ru.bookstore.facade.impl..*(..))")
+  public Object countFacade(ProceedingJoinPoint joinPoint) throws Throwable {
+    StatementCounter.Scope scope = StatementCounter.open();
+    try {
+      return joinPoint.proceed();
+    } finally {
+      scope.close();
+      DistributionSummary.builder(STATEMENTS)
+          .tag("class", joinPoint.getTarget().getClass().getSimpleName())
+          .tag("method", joinPoint.getSignature().getName())
+          .register(meterRegistry)
+          .record(scope.statements());
+    }
+  }
+
+  @Around("@annotation(budget)")
+  public Object checkBudget(ProceedingJoinPoint joinPoint, StatementBudget budget)
+      throws Throwable {
+    Object result;
+    StatementCounter.Scope scope = StatementCounter.open();
+    try {
+      result = joinPoint.proceed();
+    } finally {
+      scope.close();
+    }
+
+    String endpoint = joinPoint.getTarget().getClass().getSimpleName() + "."
+        + joinPoint.getSignature().getName();
+    Map.Entry<String, Integer> repeated = scope.mostRepeated();
+    if (scope.statements() > budget.maxStatements()) {
+      exceeded(endpoint, "statements", "Метод " + endpoint + " выполнил " + scope.statements()
+          + " SQL-запросов при бюджете " + budget.maxStatements());
+    } else if (repeated.getValue() > budget.maxRepeats()) {
+      exceeded(endpoint, "repeats", "Метод " + endpoint + " выполнил " + repeated.getValue()
+          + " раз запрос [" + repeated.getKey() + "] при бюджете " + budget.maxRepeats());
+    }
+    return result;
+  }
+
+  private void exceeded(String endpoint, String reason, String message) {
+    meterRegistry.counter(BUDGET_EXCEEDED, "endpoint", endpoint, "reason", reason).increment();
+    if (failOnExceeded) {
+      throw new StatementBudgetExceededException(message);
+    }
+    log.warn(message);
+  }
+}
@@ -0,0 +1,78 @@
+package ru.bookstore.metrics;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Считает SQL-запросы Hibernate в открытых на текущем потоке областях. Области вкладываются:
+ * запрос засчитывается и вызову фасада, и запросу к контроллеру, внутри которого он сделан.
+ */
+public class StatementCounter implements StatementInspector {
+  private static final ThreadLocal<Deque<Scope>> scopes = ThreadLocal.withInitial(ArrayDeque::new);
+  private static final Pattern IN_LIST = Pattern.compile("\\(\\?(\\s*,\\s*\\?)+\\)");
+  private static final Pattern NUMBER = Pattern.compile("\\b\\d+\\b");
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  public static Scope open() {
+    Scope scope = new Scope();
+    scopes.get().push(scope);
+    return scope;
+  }
+
+  @Override
+  public String inspect(String sql) {
+    Deque<Scope> active = scopes.get();
+    if (!active.isEmpty()) {
+      String shape = shape(sql);
+      for (Scope scope : active) {
+        scope.record(shape);
+      }
+    }
+    return sql;
+  }
+
+  /**
+   * Вид запроса: без литералов и с любым списком IN, сжатым до одного параметра.
+   */
+  static String shape(String sql) {
+    String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+    shape = IN_LIST.matcher(shape).replaceAll("(?)");
+    return NUMBER.matcher(shape).replaceAll("?");
+  }
+
+  public static final class Scope implements AutoCloseable {
+    private final Map<String, Integer> shapes = new HashMap<>();
+    private int statements;
+
+    private Scope() {
+    }
+
+    private void record(String shape) {
+      statements++;
+      shapes.merge(shape, 1, Integer::sum);
+    }
+
+    public int statements() {
+      return statements;
+    }
+
+    public Map.Entry<String, Integer> mostRepeated() {
+      return shapes.entrySet().stream()
+          .max(Map.Entry.comparingByValue())
+          .orElse(Map.entry("", 0));
+    }
+
+    @Override
+    public void close() {
+      Deque<Scope> active = scopes.get();
+      active.remove(this);
+      if (active.isEmpty()) {
+        scopes.remove();
+      }
+    }
+  }
+}
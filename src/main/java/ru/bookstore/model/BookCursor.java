@@ -0,0 +1,49 @@
+package ru.bookstore.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import ru.bookstore.model.impl.Book;
+import ru.bookstore.sorting.BookSort;
+
+/**
+ * Позиция в выборке каталога: значение ключа сортировки и id последней выданной книги. Следующая
+ * страница начинается строго после этой пары, поэтому ей не нужен OFFSET. Клиенту курсор отдаётся
+ * непрозрачной строкой.
+ */
+public record BookCursor(BookSort sort, Comparable<?> value, long id) {
+  private static final String SEPARATOR = "|";
+
+  public static BookCursor after(Book book, BookSort sort) {
+    return new BookCursor(sort, switch (sort) {
+      case NAME -> book.getName();
+      case PUBLICATION_DATE -> book.getPublicationDate();
+      case PRICE -> book.getPrice();
+      case STATUS -> book.getStatus();
+      default -> null;
+    }, book.getId());
+  }
+
+  public String encode() {
+    String raw = sort + SEPARATOR + id + SEPARATOR + (value == null ? "" : value);
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static BookCursor decode(String encoded) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+      String[] parts = raw.split("\\" + SEPARATOR, 3);
+      BookSort sort = BookSort.valueOf(parts[0]);
+      String value = parts[2];
+      return new BookCursor(sort, switch (sort) {
+        case NAME -> value;
+        case PUBLICATION_DATE -> Integer.valueOf(value);
+        case PRICE -> Double.valueOf(value);
+        case STATUS -> BookStatus.valueOf(value);
+        default -> null;
+      }, Long.parseLong(parts[1]));
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Некорректный курсор: " + encoded);
+    }
+  }
+}
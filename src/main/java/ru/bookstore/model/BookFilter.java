@@ -0,0 +1,16 @@
+package ru.bookstore.model;
+
+/**
+ * Условия выборки каталога. Пустое поле означает, что по нему не фильтруем.
+ */
+public record BookFilter(Double minPrice, Double maxPrice, String author, Integer minYear,
+                         Integer maxYear, BookStatus status) {
+  public static BookFilter none() {
+    return new BookFilter(null, null, null, null, null, null);
+  }
+
+  public boolean isEmpty() {
+    return minPrice == null && maxPrice == null && author == null && minYear == null
+        && maxYear == null && status == null;
+  }
+}
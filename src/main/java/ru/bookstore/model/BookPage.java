@@ -0,0 +1,10 @@
+package ru.bookstore.model;
+
+import java.util.List;
+import ru.bookstore.model.impl.Book;
+
+/**
+ * Страница выборки каталога. next равен null, если книг дальше нет.
+ */
+public record BookPage(List<Book> books, BookCursor next) {
+}
@@ -0,0 +1,9 @@
+package ru.bookstore.model;
+
+import ru.bookstore.model.impl.Book;
+
+/**
+ * Книга и её открытый спрос: число открытых запросов и сколько экземпляров в них запрошено.
+ */
+public record DemandEntry(Book book, long openRequests, long openAmount) {
+}
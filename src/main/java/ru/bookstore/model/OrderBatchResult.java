@@ -0,0 +1,20 @@
+package ru.bookstore.model;
+
+import ru.bookstore.model.impl.Order;
+
+/**
+ * Итог одного заказа из пакета: созданный заказ либо причина, по которой он отклонён.
+ */
+public record OrderBatchResult(Order order, String error) {
+  public static OrderBatchResult created(Order order) {
+    return new OrderBatchResult(order, null);
+  }
+
+  public static OrderBatchResult failed(String error) {
+    return new OrderBatchResult(null, error);
+  }
+
+  public boolean isCreated() {
+    return order != null;
+  }
+}
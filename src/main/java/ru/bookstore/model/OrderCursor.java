@@ -0,0 +1,36 @@
+package ru.bookstore.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import ru.bookstore.model.impl.Order;
+
+/**
+ * Позиция в истории заказов клиента: дата и id последнего выданного заказа. История идёт от
+ * новых к старым, поэтому следующая страница начинается строго перед этой парой.
+ */
+public record OrderCursor(LocalDateTime orderDate, long id) {
+  private static final String SEPARATOR = "|";
+
+  public static OrderCursor after(Order order) {
+    return new OrderCursor(order.getOrderDate(), order.getId());
+  }
+
+  public String encode() {
+    String raw = orderDate + SEPARATOR + id;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static OrderCursor decode(String encoded) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+      int separator = raw.indexOf(SEPARATOR);
+      return new OrderCursor(LocalDateTime.parse(raw.substring(0, separator)),
+          Long.parseLong(raw.substring(separator + 1)));
+    } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Некорректный курсор: " + encoded);
+    }
+  }
+}
@@ -0,0 +1,10 @@
+package ru.bookstore.model;
+
+import java.util.List;
+import ru.bookstore.model.impl.Order;
+
+/**
+ * Страница истории заказов клиента. next равен null, если заказов дальше нет.
+ */
+public record OrderPage(List<Order> orders, OrderCursor next) {
+}
@@ -1,5 +1,12 @@
 package ru.bookstore.model;
 
 public enum OrderStatus {
-  NEW, COMPLETED, CANCELED
+  NEW, COMPLETED, CANCELED;
+
+  /**
+   * Допустимые переходы: из NEW — в COMPLETED или CANCELED, завершённые заказы не меняются.
+   */
+  public boolean canTransitionTo(OrderStatus target) {
+    return this == NEW && (target == COMPLETED || target == CANCELED);
+  }
 }
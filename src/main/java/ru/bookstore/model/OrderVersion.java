@@ -0,0 +1,7 @@
+package ru.bookstore.model;
+
+/**
+ * Версия заказа и его владелец: этого хватает, чтобы ответить 304, не загружая сам заказ.
+ */
+public record OrderVersion(String clientName, long version) {
+}
@@ -0,0 +1,5 @@
+package ru.bookstore.model;
+
+public enum OutboxEventType {
+  ORDER_CREATED, ORDER_COMPLETED, ORDER_CANCELED, STOCK_CHANGED
+}
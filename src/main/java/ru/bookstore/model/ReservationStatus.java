@@ -0,0 +1,5 @@
+package ru.bookstore.model;
+
+public enum ReservationStatus {
+  WAITING, RESERVED
+}
@@ -0,0 +1,9 @@
+package ru.bookstore.model;
+
+import ru.bookstore.model.impl.Book;
+
+/**
+ * Книга и сколько её экземпляров продано в выполненных заказах за период.
+ */
+public record SalesEntry(Book book, long sold) {
+}
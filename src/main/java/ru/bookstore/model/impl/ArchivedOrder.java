@@ -0,0 +1,67 @@
+package ru.bookstore.model.impl;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.MapKeyColumn;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.bookstore.model.OrderStatus;
+
+/**
+ * Заказ, перенесённый из orders архиватором. Строки пишутся только INSERT ... SELECT из горячих
+ * таблиц, сущность нужна для чтения отчётов и чтобы схема создавалась вместе с остальными.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "orders_archive", indexes =
+    @Index(name = "idx_orders_archive_complete", columnList = "completeDate"))
+public class ArchivedOrder {
+  @Id
+  @Column(name = "order_id")
+  private Long id;
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 10)
+  private OrderStatus status;
+  @Column(nullable = false)
+  private Double price;
+  @Column(nullable = false)
+  private LocalDateTime orderDate;
+  @Column(nullable = false)
+  private LocalDateTime completeDate;
+  @Column(nullable = false)
+  private String clientName;
+  @ElementCollection
+  @CollectionTable(name = "ordered_books_archive",
+      joinColumns = @JoinColumn(name = "order_id"))
+  @MapKeyColumn(name = "book_id")
+  @Column(name = "amount")
+  private Map<Long, Integer> books;
+  @Column(nullable = false)
+  private long version;
+  @Column(nullable = false)
+  private LocalDateTime archivedAt;
+
+  /**
+   * Отсоединённая копия в виде Order для отчётов, которые объединяют архив с горячими заказами.
+   */
+  public Order toOrder() {
+    Order order = new Order(id, status, price, orderDate, completeDate, clientName,
+        new HashMap<>(books));
+    order.setVersion(version);
+    return order;
+  }
+}
@@ -0,0 +1,38 @@
+package ru.bookstore.model.impl;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.bookstore.model.RequestStatus;
+
+/**
+ * Закрытый запрос, перенесённый из requests архиватором.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "requests_archive")
+public class ArchivedRequest {
+  @Id
+  @Column(name = "request_id")
+  private Long id;
+  @Column(name = "book_id", nullable = false)
+  private Long bookId;
+  @Column(nullable = false)
+  private Integer amount;
+  @Enumerated(EnumType.STRING)
+  @Column(length = 10, nullable = false)
+  private RequestStatus status;
+  @Column
+  private LocalDateTime closedAt;
+  @Column(nullable = false)
+  private LocalDateTime archivedAt;
+}
@@ -7,7 +7,9 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.time.LocalDateTime;
 import java.util.Objects;
 import lombok.AllArgsConstructor;
@@ -24,7 +26,13 @@ import ru.bookstore.model.Item;
 @Setter
 @Getter
 @Entity
-@Table(name = "library")
+@Table(name = "library", indexes = {
+    @Index(name = "idx_library_name", columnList = "name"),
+    @Index(name = "idx_library_price", columnList = "price"),
+    @Index(name = "idx_library_year", columnList = "publicationDate"),
+    @Index(name = "idx_library_status_price", columnList = "status, price"),
+    @Index(name = "idx_library_author_year", columnList = "author, publicationDate")
+})
 public class Book implements Item {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -49,6 +57,26 @@ public class Book implements Item {
   @Enumerated(EnumType.STRING)
   @Column(length = 20, nullable = false)
   private BookStatus status;
+  @Builder.Default
+  @Column(nullable = false)
+  private Integer reserved = 0;
+  @Version
+  @Column(nullable = false)
+  private long version;
+
+  public Book(Long id, String name, String author, Integer publicationDate, Integer amount,
+              Double price, LocalDateTime lastDeliveredDate, LocalDateTime lastSaleDate,
+              BookStatus status) {
+    this(id, name, author, publicationDate, amount, price, lastDeliveredDate, lastSaleDate,
+        status, 0, 0);
+  }
+
+  /**
+   * Сколько экземпляров ещё не зарезервировано под заказы.
+   */
+  public int availableAmount() {
+    return amount - reserved;
+  }
 
   public void setAmount(Integer amount) {
     this.amount = amount;
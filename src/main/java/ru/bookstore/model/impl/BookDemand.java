@@ -0,0 +1,44 @@
+package ru.bookstore.model.impl;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.MapsId;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Открытый спрос на книгу: сколько открытых запросов на неё и сколько экземпляров в них
+ * запрошено. Меняется в той же транзакции, что и запросы, и сверяется с ними по расписанию.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "book_demand", indexes =
+    @Index(name = "idx_book_demand_requests", columnList = "openRequests, book_id"))
+public class BookDemand {
+  @Id
+  @Column(name = "book_id")
+  private Long bookId;
+  @MapsId
+  @OneToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "book_id")
+  private Book book;
+  @Column(nullable = false)
+  private long openRequests;
+  @Column(nullable = false)
+  private long openAmount;
+
+  public BookDemand(Book book, long openRequests, long openAmount) {
+    this.book = book;
+    this.openRequests = openRequests;
+    this.openAmount = openAmount;
+  }
+}
@@ -0,0 +1,47 @@
+package ru.bookstore.model.impl;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.bookstore.model.Item;
+
+/**
+ * Ключ идемпотентности клиента и сохранённый ответ на первый запрос с этим ключом. Пока запрос
+ * выполняется, response пустой, а lockedUntil ограничивает, сколько его можно считать
+ * выполняющимся: после этого повтор с тем же ключом забирает ключ себе.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "idempotency_keys",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"clientName", "idempotencyKey"}),
+    indexes = @Index(name = "idx_idempotency_expires", columnList = "expiresAt"))
+public class IdempotencyRecord implements Item {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+  @Column(nullable = false)
+  private String clientName;
+  @Column(nullable = false, length = 100)
+  private String idempotencyKey;
+  @Column(nullable = false, length = 64)
+  private String requestHash;
+  @Column(columnDefinition = "TEXT")
+  private String response;
+  @Column(nullable = false)
+  private LocalDateTime createdAt;
+  @Column(nullable = false)
+  private LocalDateTime expiresAt;
+  @Column
+  private LocalDateTime lockedUntil;
+}
@@ -10,13 +10,16 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.MapKeyColumn;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.Objects;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -24,14 +27,19 @@ import lombok.Setter;
 import ru.bookstore.model.Item;
 import ru.bookstore.model.OrderStatus;
 
-@AllArgsConstructor
 @NoArgsConstructor
 @Setter
 @Data
 @Getter
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_client_date", columnList = "clientName, orderDate"),
+    @Index(name = "idx_orders_status_complete", columnList = "status, completeDate")
+})
+@NamedEntityGraph(name = Order.WITH_BOOKS, attributeNodes = @NamedAttributeNode("books"))
 public class Order implements Item {
+  public static final String WITH_BOOKS = "Order.withBooks";
+
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   @Column(name = "order_id")
@@ -58,6 +66,20 @@ public class Order implements Item {
   @MapKeyColumn(name = "book_id")
   @Column(name = "amount")
   private Map<Long, Integer> books;
+  @Version
+  @Column(nullable = false)
+  private long version;
+
+  public Order(Long id, OrderStatus status, Double price, LocalDateTime orderDate,
+               LocalDateTime completeDate, String clientName, Map<Long, Integer> books) {
+    this.id = id;
+    this.status = status;
+    this.price = price;
+    this.orderDate = orderDate;
+    this.completeDate = completeDate;
+    this.clientName = clientName;
+    this.books = books;
+  }
 
   public Order(Map<Long, Integer> books, double price, OrderStatus status,
                LocalDateTime orderDate, String clientName) {
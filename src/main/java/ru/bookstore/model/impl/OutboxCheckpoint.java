@@ -0,0 +1,30 @@
+package ru.bookstore.model.impl;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Последнее событие outbox, которое потребитель обработал.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "outbox_checkpoints")
+public class OutboxCheckpoint {
+  @Id
+  @Column(length = 50)
+  private String consumer;
+  @Column(nullable = false)
+  private Long lastEventId;
+  @Column(nullable = false)
+  private LocalDateTime updatedAt;
+}
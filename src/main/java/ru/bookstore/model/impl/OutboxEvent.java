@@ -0,0 +1,48 @@
+package ru.bookstore.model.impl;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.bookstore.model.Item;
+import ru.bookstore.model.OutboxEventType;
+
+/**
+ * Доменное событие, записанное в той же транзакции, что и изменение, которое оно описывает.
+ * Потребители читают события по возрастанию id, payload — JSON.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "outbox_events")
+public class OutboxEvent implements Item {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+  @Enumerated(EnumType.STRING)
+  @Column(length = 20, nullable = false)
+  private OutboxEventType type;
+  @Column(nullable = false)
+  private Long aggregateId;
+  @Column(columnDefinition = "TEXT", nullable = false)
+  private String payload;
+  @Column(nullable = false)
+  private LocalDateTime createdAt;
+
+  public OutboxEvent(OutboxEventType type, Long aggregateId, String payload,
+                     LocalDateTime createdAt) {
+    this.type = type;
+    this.aggregateId = aggregateId;
+    this.payload = payload;
+    this.createdAt = createdAt;
+  }
+}
@@ -4,13 +4,17 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.Table;
-import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -19,16 +23,19 @@ import ru.bookstore.model.RequestStatus;
 
 @Getter
 @Setter
-@AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "requests")
+@Table(name = "requests", indexes =
+    @Index(name = "idx_requests_status_closed", columnList = "status, closedAt"))
+@NamedEntityGraph(name = Request.WITH_BOOK, attributeNodes = @NamedAttributeNode("book"))
 public class Request implements Item {
+  public static final String WITH_BOOK = "Request.withBook";
+
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   @Column(name = "request_id")
   private Long id;
-  @ManyToOne
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "book_id", nullable = false)
   private Book book;
   @Column(nullable = false)
@@ -36,6 +43,15 @@ public class Request implements Item {
   @Enumerated(EnumType.STRING)
   @Column(name = "status", length = 10, nullable = false)
   private RequestStatus status;
+  @Column
+  private LocalDateTime closedAt;
+
+  public Request(Long id, Book book, Integer amount, RequestStatus status) {
+    this.id = id;
+    this.book = book;
+    this.amount = amount;
+    this.status = status;
+  }
 
   @Override
   public String toString() {
@@ -0,0 +1,54 @@
+package ru.bookstore.model.impl;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.bookstore.model.Item;
+import ru.bookstore.model.ReservationStatus;
+
+/**
+ * Строка заказа в журнале резервов. RESERVED — нужное количество уже вычтено из свободного
+ * остатка книги (Book.reserved), WAITING — ждёт поставки. Строки живут, пока заказ NEW.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "stock_reservations",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"order_id", "book_id"}),
+    indexes = @Index(name = "idx_reservation_book_status", columnList = "book_id, status"))
+public class StockReservation implements Item {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+  @Column(name = "order_id", nullable = false)
+  private Long orderId;
+  @Column(name = "book_id", nullable = false)
+  private Long bookId;
+  @Column(nullable = false)
+  private Integer amount;
+  @Enumerated(EnumType.STRING)
+  @Column(length = 10, nullable = false)
+  private ReservationStatus status;
+  @Column(nullable = false)
+  private LocalDateTime createdAt;
+
+  public StockReservation(Long orderId, Long bookId, Integer amount, LocalDateTime createdAt) {
+    this.orderId = orderId;
+    this.bookId = bookId;
+    this.amount = amount;
+    this.status = ReservationStatus.WAITING;
+    this.createdAt = createdAt;
+  }
+}
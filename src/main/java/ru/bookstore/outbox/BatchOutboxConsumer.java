@@ -0,0 +1,18 @@
+package ru.bookstore.outbox;
+
+import java.util.List;
+import ru.bookstore.model.impl.OutboxEvent;
+
+/**
+ * Потребитель, которому выгодно обрабатывать подряд идущие события вместе, например вставлять
+ * строки одним пакетом. Диспетчер отдаёт ему все готовые события опроса одной транзакцией,
+ * поэтому ошибка в любом из них откатывает и повторяет всю пачку.
+ */
+public interface BatchOutboxConsumer extends OutboxConsumer {
+  void handle(List<OutboxEvent> events);
+
+  @Override
+  default void handle(OutboxEvent event) {
+    handle(List.of(event));
+  }
+}
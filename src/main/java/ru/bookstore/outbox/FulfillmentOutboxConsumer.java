@@ -0,0 +1,52 @@
+package ru.bookstore.outbox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.bookstore.facade.OrderFacade;
+import ru.bookstore.model.OutboxEventType;
+import ru.bookstore.model.impl.OutboxEvent;
+import ru.bookstore.service.StockReservationService;
+
+/**
+ * Раздаёт пришедшие книги ожидающим заказам и выполняет заказы, которые после этого собраны.
+ * Пачка событий обрабатывается за один проход: каждая затронутая книга раздаётся один раз,
+ * а собранные заказы выполняются одним вызовом.
+ */
+@Component
+@RequiredArgsConstructor
+public class FulfillmentOutboxConsumer implements BatchOutboxConsumer {
+  private final StockReservationService stockReservationService;
+  private final OrderFacade orderFacade;
+
+  @Override
+  public String name() {
+    return "fulfillment";
+  }
+
+  @Override
+  public Set<OutboxEventType> types() {
+    return Set.of(OutboxEventType.STOCK_CHANGED);
+  }
+
+  @Override
+  public void handle(List<OutboxEvent> events) {
+    Set<Long> bookIds = new TreeSet<>();
+    for (OutboxEvent event : events) {
+      StockChangedPayload stock = OutboxPayloads.read(event, StockChangedPayload.class);
+      if (stock.delta() == null || stock.delta() >= 0) {
+        bookIds.add(stock.bookId());
+      }
+    }
+    List<Long> ready = new ArrayList<>();
+    for (Long bookId : bookIds) {
+      ready.addAll(stockReservationService.allocate(bookId));
+    }
+    if (!ready.isEmpty()) {
+      orderFacade.completeOrders(ready);
+    }
+  }
+}
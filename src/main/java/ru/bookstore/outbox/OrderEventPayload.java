@@ -0,0 +1,15 @@
+package ru.bookstore.outbox;
+
+import java.util.Map;
+import ru.bookstore.model.impl.Order;
+
+/**
+ * Данные событий ORDER_CREATED, ORDER_COMPLETED и ORDER_CANCELED.
+ */
+public record OrderEventPayload(long orderId, String clientName, Map<Long, Integer> books,
+                                double price) {
+  public static OrderEventPayload of(Order order) {
+    return new OrderEventPayload(order.getId(), order.getClientName(), Map.copyOf(order.getBooks()),
+        order.getPrice());
+  }
+}
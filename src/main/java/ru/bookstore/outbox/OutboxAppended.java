@@ -0,0 +1,9 @@
+package ru.bookstore.outbox;
+
+import ru.bookstore.model.OutboxEventType;
+
+/**
+ * Сигнал диспетчеру, что в outbox появилось событие. Доставляется после коммита транзакции.
+ */
+public record OutboxAppended(OutboxEventType type) {
+}
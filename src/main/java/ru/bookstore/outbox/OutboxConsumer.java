@@ -0,0 +1,21 @@
+package ru.bookstore.outbox;
+
+import java.util.Set;
+import ru.bookstore.model.OutboxEventType;
+import ru.bookstore.model.impl.OutboxEvent;
+
+/**
+ * Потребитель событий outbox. Событие обрабатывается в одной транзакции с сохранением позиции
+ * потребителя, но доставка «хотя бы один раз»: после сбоя или при нескольких экземплярах
+ * приложения событие может прийти повторно.
+ */
+public interface OutboxConsumer {
+  /**
+   * Имя, под которым хранится позиция потребителя. Не должно меняться между запусками.
+   */
+  String name();
+
+  Set<OutboxEventType> types();
+
+  void handle(OutboxEvent event);
+}
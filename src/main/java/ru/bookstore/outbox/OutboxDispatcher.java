@@ -0,0 +1,190 @@
+package ru.bookstore.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bookstore.model.impl.OutboxEvent;
+import ru.bookstore.service.OutboxService;
+
+/**
+ * Доставляет события outbox потребителям в отдельном потоке. Каждый потребитель читает события
+ * по возрастанию id от своей позиции; событие и новая позиция фиксируются одной транзакцией.
+ * Ошибка потребителя останавливает его на этом событии до следующего опроса, остальные
+ * потребители продолжают работу. {@link BatchOutboxConsumer} получает все готовые события опроса
+ * одной транзакцией. События, обработанные всеми, удаляются.
+ *
+ * <p>id выдаются при вставке, а фиксируются транзакции в произвольном порядке, поэтому пропуск
+ * в id может означать ещё не зафиксированное событие. Такой пропуск ждут outbox.gap.timeout.ms,
+ * после чего считают его откатившейся транзакцией.
+ */
+@Component
+@Slf4j
+public class OutboxDispatcher implements DisposableBean {
+  public static final String EVENTS = "bookstore.outbox.events";
+
+  private final List<OutboxConsumer> consumers;
+  private final OutboxService outboxService;
+  private final TransactionTemplate transactionTemplate;
+  private final MeterRegistry meterRegistry;
+  private final long pollIntervalMs;
+  private final int batchSize;
+  private final Duration gapTimeout;
+  private final AtomicBoolean drainQueued = new AtomicBoolean();
+  private volatile ScheduledExecutorService executor;
+
+  public OutboxDispatcher(List<OutboxConsumer> consumers, OutboxService outboxService,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${outbox.poll.interval.ms:1000}") long pollIntervalMs,
+                          @Value("${outbox.batch.size:100}") int batchSize,
+                          @Value("${outbox.gap.timeout.ms:60000}") long gapTimeoutMs) {
+    this.consumers = consumers;
+    this.outboxService = outboxService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.meterRegistry = meterRegistry;
+    this.pollIntervalMs = pollIntervalMs;
+    this.batchSize = batchSize;
+    this.gapTimeout = Duration.ofMillis(gapTimeoutMs);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void start() {
+    if (executor != null) {
+      return;
+    }
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "outbox-dispatcher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this::drain, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+    log.info("Диспетчер outbox запущен, потребители: {}",
+        consumers.stream().map(OutboxConsumer::name).toList());
+  }
+
+  /**
+   * Будит диспетчер после коммита транзакции, записавшей событие, чтобы не ждать опроса.
+   */
+  @TransactionalEventListener
+  public void onAppended(OutboxAppended appended) {
+    ScheduledExecutorService current = executor;
+    if (current != null && drainQueued.compareAndSet(false, true)) {
+      current.execute(this::drain);
+    }
+  }
+
+  /**
+   * Обрабатывает все накопившиеся события и возвращает их число.
+   */
+  public synchronized int drain() {
+    drainQueued.set(false);
+    int processed = 0;
+    long purgeUpTo = Long.MAX_VALUE;
+    for (OutboxConsumer consumer : consumers) {
+      try {
+        processed += drain(consumer);
+      } catch (RuntimeException e) {
+        log.warn("Потребитель outbox {} остановился на ошибке, повторим при следующем опросе: {}",
+            consumer.name(), e.getMessage());
+        count(consumer, "failed", 1);
+      }
+      purgeUpTo = Math.min(purgeUpTo,
+          transactionTemplate.execute(status -> outboxService.checkpoint(consumer.name())));
+    }
+    if (processed > 0 && purgeUpTo != Long.MAX_VALUE && purgeUpTo > 0) {
+      long upTo = purgeUpTo;
+      int purged = transactionTemplate.execute(status -> outboxService.purgeUpTo(upTo));
+      log.debug("Из outbox удалено {} обработанных событий", purged);
+    }
+    return processed;
+  }
+
+  private int drain(OutboxConsumer consumer) {
+    int processed = 0;
+    while (true) {
+      long checkpoint =
+          transactionTemplate.execute(status -> outboxService.checkpoint(consumer.name()));
+      List<OutboxEvent> events =
+          transactionTemplate.execute(status -> outboxService.eventsAfter(checkpoint, batchSize));
+      List<OutboxEvent> ready = withoutRecentGap(consumer, checkpoint, events);
+      if (consumer instanceof BatchOutboxConsumer && !ready.isEmpty()) {
+        deliver(consumer, ready);
+        processed += ready.size();
+      } else {
+        for (OutboxEvent event : ready) {
+          deliver(consumer, List.of(event));
+          processed++;
+        }
+      }
+      if (ready.size() < events.size() || events.size() < batchSize) {
+        return processed;
+      }
+    }
+  }
+
+  private List<OutboxEvent> withoutRecentGap(OutboxConsumer consumer, long checkpoint,
+                                             List<OutboxEvent> events) {
+    LocalDateTime gapDeadline = LocalDateTime.now().minus(gapTimeout);
+    long expected = checkpoint + 1;
+    for (int i = 0; i < events.size(); i++) {
+      OutboxEvent event = events.get(i);
+      if (event.getId() != expected && event.getCreatedAt().isAfter(gapDeadline)) {
+        log.debug("Потребитель {} ждёт событие [{}] перед [{}]", consumer.name(), expected,
+            event.getId());
+        return events.subList(0, i);
+      }
+      expected = event.getId() + 1;
+    }
+    return events;
+  }
+
+  private void deliver(OutboxConsumer consumer, List<OutboxEvent> events) {
+    List<OutboxEvent> handled = events.stream()
+        .filter(event -> consumer.types().contains(event.getType()))
+        .toList();
+    long lastEventId = events.get(events.size() - 1).getId();
+    transactionTemplate.executeWithoutResult(status -> {
+      if (consumer instanceof BatchOutboxConsumer batchConsumer && !handled.isEmpty()) {
+        batchConsumer.handle(handled);
+      } else {
+        handled.forEach(consumer::handle);
+      }
+      outboxService.saveCheckpoint(consumer.name(), lastEventId);
+    });
+    count(consumer, "processed", handled.size());
+  }
+
+  private void count(OutboxConsumer consumer, String outcome, int amount) {
+    if (amount == 0) {
+      return;
+    }
+    Counter.builder(EVENTS)
+        .tag("consumer", consumer.name())
+        .tag("outcome", outcome)
+        .register(meterRegistry)
+        .increment(amount);
+  }
+
+  @Override
+  public synchronized void destroy() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+}
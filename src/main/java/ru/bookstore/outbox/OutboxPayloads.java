@@ -0,0 +1,30 @@
+package ru.bookstore.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.bookstore.model.impl.OutboxEvent;
+
+public final class OutboxPayloads {
+  private static final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+  private OutboxPayloads() {
+  }
+
+  public static String write(Object payload) {
+    try {
+      return objectMapper.writeValueAsString(payload);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Не удалось сериализовать событие: " + payload, e);
+    }
+  }
+
+  public static <T> T read(OutboxEvent event, Class<T> type) {
+    try {
+      return objectMapper.readValue(event.getPayload(), type);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Не удалось прочитать событие [" + event.getId() + "] "
+          + event.getType(), e);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package ru.bookstore.outbox;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.bookstore.model.OutboxEventType;
+import ru.bookstore.model.impl.OutboxEvent;
+import ru.bookstore.service.RequestService;
+
+/**
+ * Создаёт запросы на книги нового заказа и закрывает их, когда заказ выполнен или отменён.
+ * Запросы подряд идущих новых заказов вставляются одним пакетом.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RequestsOutboxConsumer implements BatchOutboxConsumer {
+  private final RequestService requestService;
+
+  @Override
+  public String name() {
+    return "requests";
+  }
+
+  @Override
+  public Set<OutboxEventType> types() {
+    return EnumSet.of(OutboxEventType.ORDER_CREATED, OutboxEventType.ORDER_COMPLETED,
+        OutboxEventType.ORDER_CANCELED);
+  }
+
+  @Override
+  public void handle(List<OutboxEvent> events) {
+    List<Map<Long, Integer>> created = new ArrayList<>();
+    for (OutboxEvent event : events) {
+      OrderEventPayload order = OutboxPayloads.read(event, OrderEventPayload.class);
+      if (event.getType() == OutboxEventType.ORDER_CREATED) {
+        created.add(order.books());
+      } else {
+        addRequests(created);
+        requestService.closeRequests(order.books());
+        log.info("Закрыты запросы заказа [{}].", order.orderId());
+      }
+    }
+    addRequests(created);
+  }
+
+  private void addRequests(List<Map<Long, Integer>> created) {
+    if (!created.isEmpty()) {
+      requestService.addRequests(created);
+      log.info("Созданы запросы для {} заказов.", created.size());
+      created.clear();
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package ru.bookstore.outbox;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.bookstore.model.OutboxEventType;
+import ru.bookstore.model.impl.OutboxEvent;
+import ru.bookstore.search.BookSearchIndex;
+import ru.bookstore.service.BookService;
+
+/**
+ * Переиндексирует книги, остаток которых изменился или которые перезаписаны импортом, а также книги
+ * выполненного заказа: списание резерва меняет остаток и статус без STOCK_CHANGED. Книги пачки
+ * перечитываются из базы одним запросом, так что в индекс попадает состояние после коммита.
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchIndexOutboxConsumer implements BatchOutboxConsumer {
+  private final BookService bookService;
+  private final BookSearchIndex bookSearchIndex;
+
+  @Override
+  public String name() {
+    return "search";
+  }
+
+  @Override
+  public Set<OutboxEventType> types() {
+    return EnumSet.of(OutboxEventType.STOCK_CHANGED, OutboxEventType.ORDER_COMPLETED);
+  }
+
+  @Override
+  public void handle(List<OutboxEvent> events) {
+    Set<Long> bookIds = new TreeSet<>();
+    for (OutboxEvent event : events) {
+      if (event.getType() == OutboxEventType.ORDER_COMPLETED) {
+        bookIds.addAll(OutboxPayloads.read(event, OrderEventPayload.class).books().keySet());
+      } else {
+        bookIds.add(OutboxPayloads.read(event, StockChangedPayload.class).bookId());
+      }
+    }
+    bookService.getBooks(new ArrayList<>(bookIds)).forEach(bookSearchIndex::put);
+  }
+}
@@ -0,0 +1,8 @@
+package ru.bookstore.outbox;
+
+/**
+ * Данные события STOCK_CHANGED: delta — на сколько изменился остаток (null, если книга
+ * перезаписана импортом), amount — остаток после изменения.
+ */
+public record StockChangedPayload(long bookId, Integer delta, int amount) {
+}
@@ -0,0 +1,242 @@
+package ru.bookstore.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bookstore.dao.BookDao;
+import ru.bookstore.exceptions.DataAccessException;
+import ru.bookstore.model.BookStatus;
+import ru.bookstore.model.impl.Book;
+
+/**
+ * Инвертированный индекс по названию и автору книги в памяти. Каждое слово индексируется всеми
+ * своими префиксами (до {@value #MAX_PREFIX} символов), поэтому и целое слово, и начало слова
+ * ищутся одним обращением к хеш-таблице. Книга находится, если каждое слово запроса совпадает
+ * с началом какого-то её слова. Порядок: точные совпадения выше префиксных, название важнее
+ * автора, затем книги в наличии, затем id.
+ *
+ * <p>Индекс строится из базы при старте (или при первом поиске) и обновляется потребителем
+ * outbox после коммита изменений книг. Как и очереди распределения, он живёт в одном процессе.
+ */
+@Component
+@Slf4j
+public class BookSearchIndex {
+  public static final String INDEXED_BOOKS = "bookstore.search.indexed.books";
+  static final int MAX_PREFIX = 20;
+  private static final double NAME_EXACT = 4;
+  private static final double AUTHOR_EXACT = 3;
+  private static final double NAME_PREFIX = 2;
+  private static final double AUTHOR_PREFIX = 1;
+  private static final Comparator<SearchHit> RANKING =
+      Comparator.comparingDouble(SearchHit::score).reversed()
+          .thenComparing(SearchHit::available, Comparator.reverseOrder())
+          .thenComparingLong(SearchHit::bookId);
+
+  private final BookDao bookDao;
+  private final TransactionTemplate transactionTemplate;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile Map<Long, IndexedBook> books;
+  private Map<String, Set<Long>> postings;
+
+  public BookSearchIndex(BookDao bookDao, PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry) {
+    this.bookDao = bookDao;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+    Gauge.builder(INDEXED_BOOKS, this, BookSearchIndex::indexedBooks).register(meterRegistry);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    try {
+      ensureBuilt();
+    } catch (DataAccessException e) {
+      log.warn("Не удалось построить поисковый индекс при старте, построим при первом поиске: {}",
+          e.getMessage());
+    }
+  }
+
+  public void rebuild() {
+    lock.writeLock().lock();
+    try {
+      Map<Long, IndexedBook> rebuiltBooks = new HashMap<>();
+      Map<String, Set<Long>> rebuiltPostings = new HashMap<>();
+      transactionTemplate.executeWithoutResult(status -> bookDao.forEachBook(book ->
+          add(IndexedBook.of(book), rebuiltBooks, rebuiltPostings)));
+      postings = rebuiltPostings;
+      books = rebuiltBooks;
+      log.info("Поисковый индекс построен: {} книг, {} префиксов", rebuiltBooks.size(),
+          rebuiltPostings.size());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Добавляет книгу или переиндексирует её. Пока индекс не построен, ничего не делает: при
+   * построении книга всё равно прочитается из базы.
+   */
+  public void put(Book book) {
+    lock.writeLock().lock();
+    try {
+      if (books == null) {
+        return;
+      }
+      IndexedBook previous = books.remove(book.getId());
+      if (previous != null) {
+        for (String prefix : previous.prefixes()) {
+          Set<Long> ids = postings.get(prefix);
+          ids.remove(previous.id());
+          if (ids.isEmpty()) {
+            postings.remove(prefix);
+          }
+        }
+      }
+      add(IndexedBook.of(book), books, postings);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public SearchPage search(String query, int offset, int limit) {
+    List<String> terms = TextNormalizer.tokens(query).stream()
+        .map(BookSearchIndex::prefixKey)
+        .distinct()
+        .toList();
+    if (terms.isEmpty() || limit <= 0) {
+      return SearchPage.empty();
+    }
+    ensureBuilt();
+    lock.readLock().lock();
+    try {
+      List<Set<Long>> matches = new ArrayList<>(terms.size());
+      for (String term : terms) {
+        Set<Long> ids = postings.get(term);
+        if (ids == null) {
+          return SearchPage.empty();
+        }
+        matches.add(ids);
+      }
+      matches.sort(Comparator.comparingInt(Set::size));
+      int wanted = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+      PriorityQueue<SearchHit> best = new PriorityQueue<>(RANKING.reversed());
+      long total = 0;
+      for (Long id : matches.get(0)) {
+        if (!containsInAll(matches, id)) {
+          continue;
+        }
+        total++;
+        best.offer(hit(books.get(id), terms));
+        if (best.size() > wanted) {
+          best.poll();
+        }
+      }
+      List<SearchHit> ranked = new ArrayList<>(best);
+      ranked.sort(RANKING);
+      return new SearchPage(total, ranked.subList(Math.min(offset, ranked.size()),
+          ranked.size()));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void ensureBuilt() {
+    if (books == null) {
+      lock.writeLock().lock();
+      try {
+        if (books == null) {
+          rebuild();
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  private static boolean containsInAll(List<Set<Long>> matches, Long id) {
+    for (int i = 1; i < matches.size(); i++) {
+      if (!matches.get(i).contains(id)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static SearchHit hit(IndexedBook book, List<String> terms) {
+    double score = 0;
+    for (String term : terms) {
+      score += Math.max(weight(book.nameTokens(), term, NAME_EXACT, NAME_PREFIX),
+          weight(book.authorTokens(), term, AUTHOR_EXACT, AUTHOR_PREFIX));
+    }
+    return new SearchHit(book.id(), book.name(), book.author(), book.available(), score);
+  }
+
+  private static double weight(List<String> tokens, String term, double exact, double prefix) {
+    double weight = 0;
+    for (String token : tokens) {
+      if (token.equals(term)) {
+        return exact;
+      } else if (token.startsWith(term)) {
+        weight = prefix;
+      }
+    }
+    return weight;
+  }
+
+  private static void add(IndexedBook book, Map<Long, IndexedBook> books,
+                          Map<String, Set<Long>> postings) {
+    books.put(book.id(), book);
+    for (String prefix : book.prefixes()) {
+      postings.computeIfAbsent(prefix, key -> new HashSet<>()).add(book.id());
+    }
+  }
+
+  private static String prefixKey(String token) {
+    return token.length() > MAX_PREFIX ? token.substring(0, MAX_PREFIX) : token;
+  }
+
+  private double indexedBooks() {
+    Map<Long, IndexedBook> current = books;
+    return current == null ? Double.NaN : current.size();
+  }
+
+  private record IndexedBook(long id, String name, String author, List<String> nameTokens,
+                             List<String> authorTokens, boolean available) {
+    static IndexedBook of(Book book) {
+      return new IndexedBook(book.getId(), book.getName(), book.getAuthor(),
+          TextNormalizer.tokens(book.getName()), TextNormalizer.tokens(book.getAuthor()),
+          book.getStatus() == BookStatus.AVAILABLE);
+    }
+
+    Set<String> prefixes() {
+      Set<String> prefixes = new HashSet<>();
+      addPrefixes(nameTokens, prefixes);
+      addPrefixes(authorTokens, prefixes);
+      return prefixes;
+    }
+
+    private static void addPrefixes(Collection<String> tokens, Set<String> prefixes) {
+      for (String token : tokens) {
+        for (int length = 1; length <= Math.min(token.length(), MAX_PREFIX); length++) {
+          prefixes.add(token.substring(0, length));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,5 @@
+package ru.bookstore.search;
+
+public record SearchHit(long bookId, String name, String author, boolean available,
+                        double score) {
+}
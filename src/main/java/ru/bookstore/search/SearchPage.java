@@ -0,0 +1,12 @@
+package ru.bookstore.search;
+
+import java.util.List;
+
+/**
+ * Страница результатов поиска: total — сколько книг нашлось всего, hits — запрошенная страница.
+ */
+public record SearchPage(long total, List<SearchHit> hits) {
+  public static SearchPage empty() {
+    return new SearchPage(0, List.of());
+  }
+}
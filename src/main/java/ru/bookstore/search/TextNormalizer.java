@@ -0,0 +1,34 @@
+package ru.bookstore.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Разбивает текст на слова для поиска: нижний регистр, «ё» как «е», разделитель — всё, что не
+ * буква и не цифра. Так «Ёлка», «ЕЛКА» и «елка» дают одно и то же слово.
+ */
+public final class TextNormalizer {
+  private TextNormalizer() {
+  }
+
+  public static List<String> tokens(String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text == null) {
+      return tokens;
+    }
+    String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    int start = -1;
+    for (int i = 0; i <= normalized.length(); i++) {
+      boolean wordChar = i < normalized.length()
+          && Character.isLetterOrDigit(normalized.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        tokens.add(normalized.substring(start, i));
+        start = -1;
+      }
+    }
+    return tokens;
+  }
+}
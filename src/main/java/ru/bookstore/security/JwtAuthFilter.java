@@ -31,15 +31,14 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     try {
       String token = null;
       String header = request.getHeader("Authorization");
-      log.debug("Заголовок: Authorization: {}", header);
       if (header != null && header.startsWith("Bearer ")) {
         token = header.substring(7);
-        log.debug("Токен, полученный из Authorization token: {}", token);
       }
       if (token != null && JwtUtils.validateToken(token)) {
         String username = JwtUtils.getUsernameFromToken(token);
         UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-        log.info("Авторизован пользователь: {} с ролью: {}", username, userDetails.getAuthorities());
+        log.debug("Авторизован пользователь: {} с ролью: {}", username,
+            userDetails.getAuthorities());
 
         UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
             userDetails,
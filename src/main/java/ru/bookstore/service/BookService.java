@@ -2,19 +2,35 @@ package ru.bookstore.service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import ru.bookstore.model.BookCursor;
+import ru.bookstore.model.BookFilter;
 import ru.bookstore.model.impl.Book;
+import ru.bookstore.sorting.BookSort;
 
 public interface BookService {
   Book add(Long id, Integer amount, LocalDateTime addTime);
 
   Book writeOff(Long id, Integer amount, LocalDateTime addTime);
 
+  void adjustAmounts(Map<Long, Integer> deltas, LocalDateTime adjustDate);
+
   Book get(Long bookId);
 
+  Optional<Long> getVersion(Long bookId);
+
   List<Book> getBooks(List<Long> bookIds);
 
+  List<Book> getBooksForUpdate(List<Long> bookIds);
+
   void importBook(Book book);
 
+  void forEachBook(Consumer<Book> action);
+
+  List<Book> findBooks(BookFilter filter, BookSort sortType, BookCursor after, int limit);
+
   List<Book> getAllBooksById();
 
   List<Book> getAllBooksByName();
@@ -0,0 +1,16 @@
+package ru.bookstore.service;
+
+import java.time.Duration;
+import java.util.Optional;
+import ru.bookstore.model.impl.IdempotencyRecord;
+
+public interface IdempotencyService {
+  Optional<IdempotencyRecord> claim(String clientName, String idempotencyKey, String requestHash,
+                                    Duration ttl);
+
+  void complete(String clientName, String idempotencyKey, String response);
+
+  void release(String clientName, String idempotencyKey);
+
+  int purgeExpired();
+}
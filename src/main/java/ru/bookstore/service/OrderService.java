@@ -2,18 +2,29 @@ package ru.bookstore.service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import ru.bookstore.model.OrderCursor;
 import ru.bookstore.model.OrderStatus;
+import ru.bookstore.model.OrderVersion;
+import ru.bookstore.model.SalesEntry;
 import ru.bookstore.model.impl.Order;
 
 public interface OrderService {
   Order getOrder(Long orderId);
 
+  Optional<OrderVersion> getVersion(Long orderId);
+
   Order addOrder(Order order);
 
+  void addOrders(List<Order> orders);
+
   Order updateOrder(Order order);
 
   Order setOrderStatus(Long orderId, OrderStatus orderStatus);
 
+  boolean changeStatus(Order order, OrderStatus orderStatus, LocalDateTime changeDate);
+
   List<Order> getAllOrdersById();
 
   List<Order> getAllOrdersByDate();
@@ -26,7 +37,16 @@ public interface OrderService {
 
   List<Order> getCompletedOrdersByPrice(LocalDateTime begin, LocalDateTime end);
 
+  List<Order> getClientOrders(String clientName, OrderStatus status, OrderCursor before,
+                              int limit);
+
   Long getCountCompletedOrders(LocalDateTime begin, LocalDateTime end);
 
   Double getEarnedSum(LocalDateTime begin, LocalDateTime end);
+
+  List<SalesEntry> getBestsellers(LocalDateTime since, int limit);
+
+  int archiveOrders(LocalDateTime completedBefore, int batchSize);
+
+  void forEachOrder(Consumer<Order> action);
 }
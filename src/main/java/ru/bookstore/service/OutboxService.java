@@ -0,0 +1,20 @@
+package ru.bookstore.service;
+
+import java.util.List;
+import java.util.Map;
+import ru.bookstore.model.OutboxEventType;
+import ru.bookstore.model.impl.OutboxEvent;
+
+public interface OutboxService {
+  void publish(OutboxEventType type, long aggregateId, Object payload);
+
+  void publishAll(OutboxEventType type, Map<Long, ?> payloads);
+
+  List<OutboxEvent> eventsAfter(long lastEventId, int limit);
+
+  long checkpoint(String consumer);
+
+  void saveCheckpoint(String consumer, long lastEventId);
+
+  int purgeUpTo(long eventId);
+}
@@ -1,8 +1,11 @@
 package ru.bookstore.service;
 
+import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import ru.bookstore.model.DemandEntry;
 import ru.bookstore.model.impl.Book;
 import ru.bookstore.model.impl.Request;
 
@@ -11,8 +14,12 @@ public interface RequestService {
 
   Long addRequest(Book book, Integer amount);
 
+  void addRequests(List<Map<Long, Integer>> orderedBooks);
+
   List<Request> getAllRequests();
 
+  void forEachRequest(Consumer<Request> action);
+
   LinkedHashMap<Book, Long> getRequestsByCount();
 
   LinkedHashMap<Book, Long> getRequestsByPrice();
@@ -20,4 +27,10 @@ public interface RequestService {
   Request importRequest(Request request);
 
   void closeRequests(Map<Long, Integer> books);
+
+  int reconcileDemand();
+
+  List<DemandEntry> getTopDemand(int limit);
+
+  int archiveRequests(LocalDateTime closedBefore, int batchSize);
 }
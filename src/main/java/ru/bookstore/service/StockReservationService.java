@@ -0,0 +1,21 @@
+package ru.bookstore.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import ru.bookstore.model.impl.Order;
+
+public interface StockReservationService {
+  boolean reserve(Order order);
+
+  boolean isReserved(Order order);
+
+  /**
+   * Раздаёт свободный остаток книги ожидающим заказам и возвращает id заказов, которые после
+   * этого зарезервированы полностью.
+   */
+  List<Long> allocate(long bookId);
+
+  void fulfil(Order order, LocalDateTime saleDate);
+
+  void release(Order order);
+}
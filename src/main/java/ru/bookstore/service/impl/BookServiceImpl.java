@@ -2,11 +2,16 @@ package ru.bookstore.service.impl;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.bookstore.dao.BookDao;
 import ru.bookstore.exceptions.EntityNotFoundException;
+import ru.bookstore.model.BookCursor;
+import ru.bookstore.model.BookFilter;
 import ru.bookstore.model.impl.Book;
 import ru.bookstore.service.BookService;
 import ru.bookstore.sorting.BookSort;
@@ -23,6 +28,11 @@ public class BookServiceImpl implements BookService {
         -> new EntityNotFoundException("Книга [" + id + "] не найдена"));
   }
 
+  @Override
+  public Optional<Long> getVersion(Long bookId) {
+    return bookDao.getVersion(bookId);
+  }
+
   @Override
   public Book add(Long id, Integer amount, LocalDateTime addTime) {
     if (amount < 0) {
@@ -39,11 +49,35 @@ public class BookServiceImpl implements BookService {
     return bookDao.writeOff(id, amount, addTime);
   }
 
+  /**
+   * Пакет применяется целиком или не применяется: если хоть одной книги нет или её не хватает
+   * на списание, бросается исключение и транзакция откатывается.
+   */
+  @Override
+  public void adjustAmounts(Map<Long, Integer> deltas, LocalDateTime adjustDate) {
+    List<Long> rejected = bookDao.adjustAmounts(deltas, adjustDate);
+    if (!rejected.isEmpty()) {
+      throw new IllegalArgumentException("Книг нет в магазине или не хватает для списания: "
+          + rejected);
+    }
+  }
+
   @Override
   public List<Book> getBooks(List<Long> bookIds) {
     return bookDao.getBooks(bookIds);
   }
 
+  @Override
+  public List<Book> getBooksForUpdate(List<Long> bookIds) {
+    return bookDao.getBooksForUpdate(bookIds);
+  }
+
+  @Override
+  public List<Book> findBooks(BookFilter filter, BookSort sortType, BookCursor after,
+                              int limit) {
+    return bookDao.findBooks(filter, sortType, after, limit);
+  }
+
   @Override
   public List<Book> getAllBooksById() {
     return bookDao.getAllBooks(BookSort.ID);
@@ -83,4 +117,9 @@ public class BookServiceImpl implements BookService {
   public void importBook(Book book) {
     bookDao.importBook(book);
   }
+
+  @Override
+  public void forEachBook(Consumer<Book> action) {
+    bookDao.forEachBook(action);
+  }
 }
@@ -0,0 +1,72 @@
+package ru.bookstore.service.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.bookstore.dao.IdempotencyDao;
+import ru.bookstore.exceptions.IdempotencyKeyConflictException;
+import ru.bookstore.model.impl.IdempotencyRecord;
+import ru.bookstore.service.IdempotencyService;
+
+/**
+ * Ключ занимается и освобождается отдельными короткими транзакциями, а ответ сохраняется в
+ * транзакции самого запроса (complete присоединяется к ней). Занятый ключ считается
+ * выполняющимся idempotency.lease.seconds: если процесс упал, не сохранив ответ, повтор после
+ * этого срока забирает ключ и выполняет запрос заново.
+ */
+@Service
+@RequiredArgsConstructor
+public class IdempotencyServiceImpl implements IdempotencyService {
+  private final IdempotencyDao idempotencyDao;
+  @Value("${idempotency.lease.seconds:30}")
+  @Setter
+  private long leaseSeconds;
+
+  @Transactional
+  @Override
+  public Optional<IdempotencyRecord> claim(String clientName, String idempotencyKey,
+                                           String requestHash, Duration ttl) {
+    LocalDateTime now = LocalDateTime.now();
+    Optional<IdempotencyRecord> existing = idempotencyDao.find(clientName, idempotencyKey)
+        .filter(record -> record.getExpiresAt().isAfter(now));
+    LocalDateTime lockedUntil = now.plusSeconds(leaseSeconds);
+    if (existing.isEmpty()) {
+      idempotencyDao.insert(clientName, idempotencyKey, requestHash, now, now.plus(ttl),
+          lockedUntil);
+      return existing;
+    }
+    IdempotencyRecord record = existing.get();
+    if (record.getResponse() == null && record.getRequestHash().equals(requestHash)
+        && (record.getLockedUntil() == null || !record.getLockedUntil().isAfter(now))
+        && idempotencyDao.takeOver(clientName, idempotencyKey, now, lockedUntil) == 1) {
+      return Optional.empty();
+    }
+    return existing;
+  }
+
+  @Transactional
+  @Override
+  public void complete(String clientName, String idempotencyKey, String response) {
+    if (idempotencyDao.complete(clientName, idempotencyKey, response) == 0) {
+      throw new IdempotencyKeyConflictException(
+          "Запрос с этим ключом идемпотентности уже выполнен повтором");
+    }
+  }
+
+  @Transactional
+  @Override
+  public void release(String clientName, String idempotencyKey) {
+    idempotencyDao.delete(clientName, idempotencyKey);
+  }
+
+  @Transactional
+  @Override
+  public int purgeExpired() {
+    return idempotencyDao.deleteExpired(LocalDateTime.now());
+  }
+}
@@ -2,12 +2,17 @@ package ru.bookstore.service.impl;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.bookstore.dao.OrderDao;
 import ru.bookstore.exceptions.EntityNotFoundException;
+import ru.bookstore.model.OrderCursor;
 import ru.bookstore.model.OrderStatus;
+import ru.bookstore.model.OrderVersion;
+import ru.bookstore.model.SalesEntry;
 import ru.bookstore.model.impl.Order;
 import ru.bookstore.service.OrderService;
 import ru.bookstore.sorting.OrderSort;
@@ -23,12 +28,22 @@ public class OrderServiceImpl implements OrderService {
     return orderDao.addOrder(order);
   }
 
+  @Override
+  public void addOrders(List<Order> orders) {
+    orderDao.addOrders(orders);
+  }
+
   @Override
   public Order getOrder(Long orderId) {
     return orderDao.findWithBooks(orderId).orElseThrow(()
         -> new EntityNotFoundException("Заказ [" + orderId + "] не найден"));
   }
 
+  @Override
+  public Optional<OrderVersion> getVersion(Long orderId) {
+    return orderDao.getVersion(orderId);
+  }
+
   @Override
   public Order updateOrder(Order order) {
     return orderDao.update(order);
@@ -39,6 +54,11 @@ public class OrderServiceImpl implements OrderService {
     return orderDao.setOrderStatus(orderId, orderStatus);
   }
 
+  @Override
+  public boolean changeStatus(Order order, OrderStatus orderStatus, LocalDateTime changeDate) {
+    return orderDao.changeStatus(order, orderStatus, changeDate);
+  }
+
   @Override
   public List<Order> getAllOrdersById() {
     return orderDao.getAllOrders(OrderSort.ID, null, null);
@@ -69,6 +89,12 @@ public class OrderServiceImpl implements OrderService {
     return orderDao.getAllOrders(OrderSort.COMPLETED_BY_PRICE, begin, end);
   }
 
+  @Override
+  public List<Order> getClientOrders(String clientName, OrderStatus status, OrderCursor before,
+                                     int limit) {
+    return orderDao.getClientOrders(clientName, status, before, limit);
+  }
+
   @Override
   public Double getEarnedSum(LocalDateTime begin, LocalDateTime end) {
     return orderDao.getEarnedSum(begin, end);
@@ -78,4 +104,19 @@ public class OrderServiceImpl implements OrderService {
   public Long getCountCompletedOrders(LocalDateTime begin, LocalDateTime end) {
     return orderDao.getCountCompletedOrders(begin, end);
   }
+
+  @Override
+  public List<SalesEntry> getBestsellers(LocalDateTime since, int limit) {
+    return orderDao.getBestsellers(since, limit);
+  }
+
+  @Override
+  public int archiveOrders(LocalDateTime completedBefore, int batchSize) {
+    return orderDao.archiveOrders(completedBefore, batchSize);
+  }
+
+  @Override
+  public void forEachOrder(Consumer<Order> action) {
+    orderDao.forEachOrder(action);
+  }
 }
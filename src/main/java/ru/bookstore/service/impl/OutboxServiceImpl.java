@@ -0,0 +1,76 @@
+package ru.bookstore.service.impl;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.bookstore.dao.OutboxDao;
+import ru.bookstore.model.OutboxEventType;
+import ru.bookstore.model.impl.OutboxEvent;
+import ru.bookstore.outbox.OutboxAppended;
+import ru.bookstore.outbox.OutboxPayloads;
+import ru.bookstore.service.OutboxService;
+
+/**
+ * Событие пишется только внутри транзакции изменения (MANDATORY), поэтому оно попадает в outbox
+ * тогда и только тогда, когда фиксируется само изменение.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxServiceImpl implements OutboxService {
+  private final OutboxDao outboxDao;
+  private final ApplicationEventPublisher eventPublisher;
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  @Override
+  public void publish(OutboxEventType type, long aggregateId, Object payload) {
+    outboxDao.append(new OutboxEvent(type, aggregateId, OutboxPayloads.write(payload),
+        LocalDateTime.now()));
+    eventPublisher.publishEvent(new OutboxAppended(type));
+  }
+
+  /**
+   * Пишет по событию на каждый агрегат одним пакетом, в порядке обхода payloads.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  @Override
+  public void publishAll(OutboxEventType type, Map<Long, ?> payloads) {
+    if (payloads.isEmpty()) {
+      return;
+    }
+    LocalDateTime now = LocalDateTime.now();
+    outboxDao.appendAll(payloads.entrySet().stream()
+        .map(entry -> new OutboxEvent(type, entry.getKey(), OutboxPayloads.write(entry.getValue()),
+            now))
+        .toList());
+    eventPublisher.publishEvent(new OutboxAppended(type));
+  }
+
+  @Transactional
+  @Override
+  public List<OutboxEvent> eventsAfter(long lastEventId, int limit) {
+    return outboxDao.findAfter(lastEventId, limit);
+  }
+
+  @Transactional
+  @Override
+  public long checkpoint(String consumer) {
+    return outboxDao.getCheckpoint(consumer);
+  }
+
+  @Transactional
+  @Override
+  public void saveCheckpoint(String consumer, long lastEventId) {
+    outboxDao.saveCheckpoint(consumer, lastEventId, LocalDateTime.now());
+  }
+
+  @Transactional
+  @Override
+  public int purgeUpTo(long eventId) {
+    return outboxDao.deleteUpTo(eventId);
+  }
+}
@@ -1,14 +1,17 @@
 package ru.bookstore.service.impl;
 
+import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.bookstore.dao.RequestDao;
 import ru.bookstore.exceptions.EntityNotFoundException;
+import ru.bookstore.model.DemandEntry;
 import ru.bookstore.model.impl.Book;
 import ru.bookstore.model.impl.Request;
 import ru.bookstore.service.RequestService;
@@ -31,11 +34,21 @@ public class RequestServiceImpl implements RequestService {
     return requestDao.addRequest(book, amount);
   }
 
+  @Override
+  public void addRequests(List<Map<Long, Integer>> orderedBooks) {
+    requestDao.addRequests(orderedBooks);
+  }
+
   @Override
   public List<Request> getAllRequests() {
     return requestDao.getAllRequests(RequestSort.ID);
   }
 
+  @Override
+  public void forEachRequest(Consumer<Request> action) {
+    requestDao.forEachRequest(action);
+  }
+
   @Override
   public LinkedHashMap<Book, Long> getRequestsByCount() {
     return requestDao.getRequests(RequestSort.COUNT);
@@ -62,4 +75,19 @@ public class RequestServiceImpl implements RequestService {
   public void closeRequests(Map<Long, Integer> books) {
     requestDao.closeRequests(books);
   }
+
+  @Override
+  public int reconcileDemand() {
+    return requestDao.reconcileDemand();
+  }
+
+  @Override
+  public List<DemandEntry> getTopDemand(int limit) {
+    return requestDao.getTopDemand(limit);
+  }
+
+  @Override
+  public int archiveRequests(LocalDateTime closedBefore, int batchSize) {
+    return requestDao.archiveRequests(closedBefore, batchSize);
+  }
 }
@@ -0,0 +1,108 @@
+package ru.bookstore.service.impl;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.bookstore.allocation.StockAllocationEngine;
+import ru.bookstore.dao.BookDao;
+import ru.bookstore.dao.StockReservationDao;
+import ru.bookstore.model.ReservationStatus;
+import ru.bookstore.model.impl.Book;
+import ru.bookstore.model.impl.Order;
+import ru.bookstore.model.impl.StockReservation;
+import ru.bookstore.service.StockReservationService;
+
+/**
+ * Журнал резервов: каждая строка заказа либо держит свой объём в Book.reserved (RESERVED), либо
+ * ждёт поставки (WAITING). Готовность заказа — это чтение его строк журнала, без обхода книг
+ * и других заказов. Книги блокируются в порядке id, чтобы параллельные заказы не ловили deadlock.
+ * Кому достанется поставка, решает {@link StockAllocationEngine}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockReservationServiceImpl implements StockReservationService {
+  private final StockReservationDao stockReservationDao;
+  private final BookDao bookDao;
+  private final StockAllocationEngine stockAllocationEngine;
+
+  @Override
+  public boolean reserve(Order order) {
+    LocalDateTime now = LocalDateTime.now();
+    Map<Long, Integer> waitingLines = new HashMap<>();
+    int totalCopies = 0;
+    for (Map.Entry<Long, Integer> line : new TreeMap<>(order.getBooks()).entrySet()) {
+      StockReservation reservation =
+          new StockReservation(order.getId(), line.getKey(), line.getValue(), now);
+      if (bookDao.reserve(line.getKey(), line.getValue())) {
+        reservation.setStatus(ReservationStatus.RESERVED);
+      } else {
+        waitingLines.put(line.getKey(), line.getValue());
+      }
+      totalCopies += line.getValue();
+      stockReservationDao.save(reservation);
+    }
+    boolean allReserved = waitingLines.isEmpty();
+    if (!allReserved) {
+      stockAllocationEngine.register(order.getId(), order.getPrice(), totalCopies, waitingLines);
+    }
+    log.debug("Заказ [{}] зарезервирован {}", order.getId(),
+        allReserved ? "полностью" : "частично");
+    return allReserved;
+  }
+
+  @Override
+  public boolean isReserved(Order order) {
+    List<StockReservation> lines = stockReservationDao.findByOrder(order.getId());
+    if (lines.isEmpty()) {
+      return reserve(order);
+    }
+    return lines.stream().allMatch(line -> line.getStatus() == ReservationStatus.RESERVED);
+  }
+
+  @Override
+  public List<Long> allocate(long bookId) {
+    int available = bookDao.findForUpdate(bookId).map(Book::availableAmount).orElse(0);
+    List<Long> ready = stockAllocationEngine.allocate(bookId, available, (orderId, amount) -> {
+      if (stockReservationDao.markReserved(orderId, bookId) == 0) {
+        return false;
+      }
+      if (!bookDao.reserve(bookId, amount)) {
+        throw new IllegalStateException("Не удалось зарезервировать " + amount
+            + " экз. книги [" + bookId + "] для заказа [" + orderId + "]");
+      }
+      return true;
+    });
+    if (!ready.isEmpty()) {
+      log.info("Поставка книги [{}] полностью зарезервировала заказы {}", bookId, ready);
+    }
+    return ready;
+  }
+
+  @Override
+  public void fulfil(Order order, LocalDateTime saleDate) {
+    for (StockReservation line : stockReservationDao.findByOrder(order.getId())) {
+      if (line.getStatus() == ReservationStatus.RESERVED) {
+        bookDao.writeOffReserved(line.getBookId(), line.getAmount(), saleDate);
+      }
+    }
+    stockReservationDao.deleteByOrder(order.getId());
+    stockAllocationEngine.remove(order.getId());
+  }
+
+  @Override
+  public void release(Order order) {
+    for (StockReservation line : stockReservationDao.findByOrder(order.getId())) {
+      if (line.getStatus() == ReservationStatus.RESERVED) {
+        bookDao.releaseReserved(line.getBookId(), line.getAmount());
+      }
+    }
+    stockReservationDao.deleteByOrder(order.getId());
+    stockAllocationEngine.remove(order.getId());
+  }
+}
@@ -8,6 +8,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.bookstore.dao.UserDao;
+import ru.bookstore.datasource.ReplicaRead;
 import ru.bookstore.dto.AuthDTO;
 import ru.bookstore.exceptions.UserAlreadyExistsException;
 import ru.bookstore.model.Role;
@@ -23,12 +24,13 @@ public class UserDetailsServiceImpl implements MyUserDetailsService {
 
   @Override
   @Transactional(readOnly = true)
+  @ReplicaRead(maxLagSeconds = ReplicaRead.PRIMARY_ONLY)
   public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
     log.debug("Поиск пользователя по username: {}", username);
     User user = userDao.findByUsername(username)
         .orElseThrow(
             () -> new UsernameNotFoundException("Пользователь " + username + " не найден"));
-    log.debug("Пользователь найден: {}", user);
+    log.debug("Пользователь [{}] найден", user.getId());
     return org.springframework.security.core.userdetails.User.builder()
         .username(user.getUsername())
         .password(user.getPassword())
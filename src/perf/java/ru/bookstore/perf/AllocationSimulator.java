@@ -0,0 +1,200 @@
+package ru.bookstore.perf;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import ru.bookstore.allocation.AllocationPolicy;
+import ru.bookstore.allocation.AllocationQueues;
+import ru.bookstore.allocation.StandardAllocationPolicy;
+
+/**
+ * Проигрывает поток заказов и поставок на очередях распределения для каждой политики и
+ * сравнивает, сколько заказов и на какую сумму удалось выполнить и сколько они ждали. База не
+ * нужна: резервы при поступлении заказа и поставки считаются так же, как в
+ * StockReservationServiceImpl, только в памяти.
+ *
+ * <p>Поток читается из -Dperf.allocation.stream (строки {@code ORDER;id;цена;книга:кол-во,...}
+ * и {@code RESTOCK;книга;кол-во}), а без него генерируется по -Dperf.seed, -Dperf.books
+ * и -Dperf.orders и сохраняется рядом с результатами, чтобы прогон можно было повторить.
+ */
+public class AllocationSimulator {
+  private static final DateTimeFormatter RESULT_FILE_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+  private static final String ORDER = "ORDER";
+  private static final String RESTOCK = "RESTOCK";
+  private static final int ORDERS_PER_RESTOCK = 3;
+
+  private record Event(String type, long id, double price, Map<Long, Integer> books) {
+  }
+
+  private record Result(String policy, int completed, double completedValue, int waiting,
+                        double meanWait, long p95Wait, double allocationMs) {
+  }
+
+  public static void main(String[] args) throws IOException {
+    String timestamp = LocalDateTime.now().format(RESULT_FILE_FORMATTER);
+    String recorded = System.getProperty("perf.allocation.stream");
+    List<String> lines;
+    if (recorded != null) {
+      lines = Files.readAllLines(Path.of(recorded));
+    } else {
+      lines = generate(Long.getLong("perf.seed", 42L), Integer.getInteger("perf.books", 1_000),
+          Integer.getInteger("perf.orders", 100_000));
+      Path stream = Path.of("perf-results", "allocation-stream-" + timestamp + ".txt");
+      Files.createDirectories(stream.getParent());
+      Files.write(stream, lines);
+      System.out.println("Поток событий сохранён в " + stream.toAbsolutePath());
+    }
+    List<Event> events = lines.stream()
+        .filter(line -> !line.isBlank())
+        .map(AllocationSimulator::parse)
+        .toList();
+
+    List<Result> results = new ArrayList<>();
+    for (StandardAllocationPolicy policy : StandardAllocationPolicy.values()) {
+      results.add(simulate(policy, events));
+    }
+    Path csv = Path.of("perf-results", "allocation-" + timestamp + ".csv");
+    writeCsv(csv, results);
+    printSummary(results);
+    System.out.println("Результаты сохранены в " + csv.toAbsolutePath());
+  }
+
+  private static Result simulate(AllocationPolicy policy, List<Event> events) {
+    AllocationQueues queues = new AllocationQueues(policy);
+    Map<Long, Integer> free = new HashMap<>();
+    Map<Long, Integer> arrivedAt = new HashMap<>();
+    Map<Long, Double> prices = new HashMap<>();
+    List<Integer> waits = new ArrayList<>();
+    double completedValue = 0;
+    long allocationNanos = 0;
+
+    for (int index = 0; index < events.size(); index++) {
+      Event event = events.get(index);
+      if (ORDER.equals(event.type())) {
+        Map<Long, Integer> waitingLines = new HashMap<>();
+        event.books().forEach((bookId, amount) -> {
+          int stock = free.getOrDefault(bookId, 0);
+          if (stock >= amount) {
+            free.put(bookId, stock - amount);
+          } else {
+            waitingLines.put(bookId, amount);
+          }
+        });
+        if (waitingLines.isEmpty()) {
+          waits.add(0);
+          completedValue += event.price();
+        } else {
+          int totalCopies = event.books().values().stream().mapToInt(Integer::intValue).sum();
+          queues.add(event.id(), event.price(), totalCopies, waitingLines);
+          arrivedAt.put(event.id(), index);
+          prices.put(event.id(), event.price());
+        }
+      } else {
+        long bookId = event.id();
+        int amount = event.books().get(bookId);
+        free.merge(bookId, amount, Integer::sum);
+        long start = System.nanoTime();
+        List<Long> ready = queues.allocate(bookId, free.get(bookId), (orderId, reserved) -> {
+          free.merge(bookId, -reserved, Integer::sum);
+          return true;
+        });
+        allocationNanos += System.nanoTime() - start;
+        for (long orderId : ready) {
+          waits.add(index - arrivedAt.remove(orderId));
+          completedValue += prices.remove(orderId);
+        }
+      }
+    }
+
+    int[] sorted = waits.stream().mapToInt(Integer::intValue).sorted().toArray();
+    double meanWait = Arrays.stream(sorted).average().orElse(0);
+    long p95Wait = sorted.length == 0 ? 0 : sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+    return new Result(policy.name(), sorted.length, completedValue, queues.waitingOrders(),
+        meanWait, p95Wait, allocationNanos / 1_000_000.0);
+  }
+
+  /**
+   * Заказы из 1–4 позиций по 1–3 экземпляра с популярностью книг по Ципфу; после каждых
+   * {@value #ORDERS_PER_RESTOCK} заказов приходит поставка одной книги, выбранной по тому же
+   * распределению. Цена книги зависит только от её id.
+   */
+  private static List<String> generate(long seed, int books, int orders) {
+    SplittableRandom random = new SplittableRandom(seed);
+    ZipfSampler popularity = new ZipfSampler(books, 1.0);
+    List<String> lines = new ArrayList<>();
+    for (long orderId = 1; orderId <= orders; orderId++) {
+      Map<Long, Integer> lineItems = new LinkedHashMap<>();
+      int positions = 1 + random.nextInt(4);
+      for (int i = 0; i < positions; i++) {
+        lineItems.merge((long) popularity.sample(random), 1 + random.nextInt(3), Integer::sum);
+      }
+      double price = lineItems.entrySet().stream()
+          .mapToDouble(line -> bookPrice(line.getKey()) * line.getValue())
+          .sum();
+      StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%s;%d;%.2f;",
+          ORDER, orderId, price));
+      lineItems.forEach((bookId, amount) -> line.append(bookId).append(':').append(amount)
+          .append(','));
+      line.setLength(line.length() - 1);
+      lines.add(line.toString());
+      if (orderId % ORDERS_PER_RESTOCK == 0) {
+        lines.add(RESTOCK + ";" + popularity.sample(random) + ";" + (1 + random.nextInt(20)));
+      }
+    }
+    return lines;
+  }
+
+  private static double bookPrice(long bookId) {
+    return 100 + bookId * 37 % 900;
+  }
+
+  private static Event parse(String line) {
+    String[] parts = line.trim().split(";");
+    if (ORDER.equals(parts[0]) && parts.length == 4) {
+      Map<Long, Integer> books = new HashMap<>();
+      for (String item : parts[3].split(",")) {
+        String[] pair = item.split(":");
+        books.merge(Long.parseLong(pair[0]), Integer.parseInt(pair[1]), Integer::sum);
+      }
+      return new Event(ORDER, Long.parseLong(parts[1]), Double.parseDouble(parts[2]), books);
+    } else if (RESTOCK.equals(parts[0]) && parts.length == 3) {
+      long bookId = Long.parseLong(parts[1]);
+      return new Event(RESTOCK, bookId, 0, Map.of(bookId, Integer.parseInt(parts[2])));
+    }
+    throw new IllegalArgumentException("Неизвестное событие в потоке: " + line);
+  }
+
+  private static void writeCsv(Path file, List<Result> results) throws IOException {
+    List<String> lines = new ArrayList<>();
+    lines.add("policy,completed,completed_value,waiting,mean_wait_events,p95_wait_events,"
+        + "allocation_ms");
+    for (Result result : results) {
+      lines.add(String.format(Locale.ROOT, "%s,%d,%.2f,%d,%.2f,%d,%.3f", result.policy(),
+          result.completed(), result.completedValue(), result.waiting(), result.meanWait(),
+          result.p95Wait(), result.allocationMs()));
+    }
+    Files.createDirectories(file.getParent());
+    Files.write(file, lines);
+  }
+
+  private static void printSummary(List<Result> results) {
+    System.out.printf("%n%-22s %10s %16s %10s %12s %10s %14s%n", "политика", "выполнено",
+        "сумма", "ожидают", "ожидание ср.", "p95", "распред., мс");
+    for (Result result : results) {
+      System.out.printf(Locale.ROOT, "%-22s %10d %16.2f %10d %12.2f %10d %14.3f%n",
+          result.policy(), result.completed(), result.completedValue(), result.waiting(),
+          result.meanWait(), result.p95Wait(), result.allocationMs());
+    }
+  }
+}
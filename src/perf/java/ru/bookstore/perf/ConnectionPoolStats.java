@@ -0,0 +1,54 @@
+package ru.bookstore.perf;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Снимок таймеров Hikari (hikaricp.connections.usage и .acquire) по каждому пулу. Разность двух
+ * снимков показывает, сколько соединений было выдано за замер и сколько в среднем каждое
+ * удерживалось — это время от открытия транзакции (или сессии) до возврата соединения в пул.
+ */
+record ConnectionPoolStats(Map<String, Usage> pools) {
+  private static final String USAGE_TIMER = "hikaricp.connections.usage";
+  private static final String ACQUIRE_TIMER = "hikaricp.connections.acquire";
+
+  record Usage(long checkouts, double holdMs, double maxHoldMs, double acquireMs) {
+  }
+
+  static ConnectionPoolStats snapshot(MeterRegistry registry) {
+    Map<String, Usage> pools = new TreeMap<>();
+    if (registry == null) {
+      return new ConnectionPoolStats(pools);
+    }
+    for (Timer usage : registry.find(USAGE_TIMER).timers()) {
+      String pool = usage.getId().getTag("pool");
+      Timer acquire = registry.find(ACQUIRE_TIMER).tag("pool", pool).timer();
+      pools.put(pool, new Usage(usage.count(),
+          usage.totalTime(TimeUnit.MILLISECONDS),
+          usage.max(TimeUnit.MILLISECONDS),
+          acquire == null ? 0 : acquire.totalTime(TimeUnit.MILLISECONDS)));
+    }
+    return new ConnectionPoolStats(pools);
+  }
+
+  void printSince(ConnectionPoolStats before, PrintStream out) {
+    if (pools.isEmpty()) {
+      out.println("Метрики пула соединений недоступны.");
+      return;
+    }
+    out.printf("%nПул%26sВыдано  Удержание, мс  Макс., мс  Ожидание, мс%n", "");
+    pools.forEach((pool, after) -> {
+      Usage start = before.pools().getOrDefault(pool, new Usage(0, 0, 0, 0));
+      long checkouts = after.checkouts() - start.checkouts();
+      double hold = checkouts == 0 ? 0 : (after.holdMs() - start.holdMs()) / checkouts;
+      double acquire = checkouts == 0 ? 0 : (after.acquireMs() - start.acquireMs()) / checkouts;
+      out.printf(Locale.ROOT, "%-29s%6d  %13.3f  %9.1f  %12.3f%n",
+          pool, checkouts, hold, after.maxHoldMs(), acquire);
+    });
+  }
+}
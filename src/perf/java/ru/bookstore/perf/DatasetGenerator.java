@@ -0,0 +1,234 @@
+package ru.bookstore.perf;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.SplittableRandom;
+import javax.sql.DataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ru.bookstore.model.BookStatus;
+import ru.bookstore.model.OrderStatus;
+import ru.bookstore.model.RequestStatus;
+import ru.bookstore.model.Role;
+
+/**
+ * Детерминированный генератор данных для library, users, orders, ordered_books и requests.
+ * Популярность книг и активность клиентов распределены по Ципфу, поэтому небольшая часть книг
+ * попадает в большинство заказов, как в реальном магазине. Для каждой позиции заказа создаётся
+ * запрос, как это делает OrderFacade: открытый для NEW, закрытый для остальных.
+ *
+ * <p>Строки пишутся пакетами JDBC с коммитом после каждого пакета. Таблицы должны быть пустыми,
+ * чтобы идентификаторы книг и заказов совпали с 1..N.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class DatasetGenerator {
+  private static final int BATCH_SIZE = 5000;
+  private static final int HISTORY_DAYS = 730;
+
+  private final DataSource dataSource;
+  private final String encodedPassword;
+
+  public record Result(long books, long users, long orders, long orderedBooks, long requests) {
+    public long totalRows() {
+      return books + users + orders + orderedBooks + requests;
+    }
+  }
+
+  public Result generate(DatasetSpec spec) throws SQLException {
+    log.warn("Генерируем данные: {} книг, {} клиентов, {} заказов (seed={})...",
+        spec.books(), spec.users(), spec.orders(), spec.seed());
+    long start = System.nanoTime();
+    LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    SplittableRandom random = new SplittableRandom(spec.seed());
+    Result result;
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      checkEmpty(connection);
+      insertUsers(connection, spec);
+      double[] prices = insertBooks(connection, spec, random.split(), now);
+      long orderLines = insertOrders(connection, spec, random.split(), now, prices);
+      insertDemand(connection);
+      result = new Result(spec.books(), spec.users() + 1L, spec.orders(), orderLines, orderLines);
+    }
+    log.warn("Сгенерировано {} строк за {} мс.", result.totalRows(),
+        (System.nanoTime() - start) / 1_000_000);
+    return result;
+  }
+
+  private static void checkEmpty(Connection connection) throws SQLException {
+    try (Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery(
+             "SELECT (SELECT COUNT(*) FROM library) + (SELECT COUNT(*) FROM orders)")) {
+      if (resultSet.next() && resultSet.getLong(1) > 0) {
+        throw new IllegalStateException("Генератору нужна пустая схема (db.ddl.auto=create)");
+      }
+    }
+  }
+
+  private void insertUsers(Connection connection, DatasetSpec spec) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(
+        "INSERT INTO users (username, password, role) VALUES (?, ?, ?)")) {
+      statement.setString(1, LoadTestConfig.ADMIN_USERNAME);
+      statement.setString(2, encodedPassword);
+      statement.setString(3, Role.ADMIN.name());
+      statement.addBatch();
+      for (int i = 0; i < spec.users(); i++) {
+        statement.setString(1, LoadTestConfig.username(i));
+        statement.setString(2, encodedPassword);
+        statement.setString(3, Role.USER.name());
+        statement.addBatch();
+        flushIfFull(connection, i, statement);
+      }
+      flush(connection, statement);
+    }
+  }
+
+  private static double[] insertBooks(Connection connection, DatasetSpec spec,
+                                      SplittableRandom random, LocalDateTime now)
+      throws SQLException {
+    double[] prices = new double[spec.books() + 1];
+    try (PreparedStatement statement = connection.prepareStatement(
+        "INSERT INTO library (name, author, publicationDate, amount, price, lastDeliveredDate, "
+            + "lastSaleDate, status, reserved) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)")) {
+      for (int id = 1; id <= spec.books(); id++) {
+        int amount = random.nextInt(100) < 15 ? 0 : 1 + random.nextInt(30);
+        prices[id] = 150 + 50 * random.nextInt(40);
+        LocalDateTime delivered = now.minusDays(random.nextInt(HISTORY_DAYS));
+        long daysSinceDelivery = ChronoUnit.DAYS.between(delivered, now);
+
+        statement.setString(1, "Book " + id);
+        statement.setString(2, "Author " + (1 + random.nextInt(Math.max(1, spec.books() / 5))));
+        statement.setInt(3, 1900 + random.nextInt(125));
+        statement.setInt(4, amount);
+        statement.setDouble(5, prices[id]);
+        statement.setTimestamp(6, Timestamp.valueOf(delivered));
+        statement.setTimestamp(7, random.nextInt(100) < 20 ? null
+            : Timestamp.valueOf(delivered.plusDays(random.nextLong(daysSinceDelivery + 1))));
+        statement.setString(8, amount > 0
+            ? BookStatus.AVAILABLE.name() : BookStatus.NOT_AVAILABLE.name());
+        statement.addBatch();
+        flushIfFull(connection, id, statement);
+      }
+      flush(connection, statement);
+    }
+    return prices;
+  }
+
+  private static long insertOrders(Connection connection, DatasetSpec spec,
+                                   SplittableRandom random, LocalDateTime now, double[] prices)
+      throws SQLException {
+    ZipfSampler bookPopularity = new ZipfSampler(spec.books(), spec.bookSkew());
+    ZipfSampler clientActivity = new ZipfSampler(spec.users(), spec.clientSkew());
+    long orderedBooksCount = 0;
+    int[] bookIds = new int[spec.maxBooksPerOrder()];
+    int[] amounts = new int[spec.maxBooksPerOrder()];
+
+    try (PreparedStatement orders = connection.prepareStatement(
+        "INSERT INTO orders (status, price, orderDate, completeDate, clientName, version) "
+            + "VALUES (?, ?, ?, ?, ?, 0)");
+         PreparedStatement orderedBooks = connection.prepareStatement(
+             "INSERT INTO ordered_books (order_id, book_id, amount) VALUES (?, ?, ?)");
+         PreparedStatement requests = connection.prepareStatement(
+             "INSERT INTO requests (book_id, amount, status) VALUES (?, ?, ?)")) {
+      for (int orderId = 1; orderId <= spec.orders(); orderId++) {
+        int lines = pickBooks(random, bookPopularity, bookIds, amounts,
+            1 + random.nextInt(spec.maxBooksPerOrder()));
+        double price = 0;
+        for (int i = 0; i < lines; i++) {
+          price += prices[bookIds[i]] * amounts[i];
+        }
+
+        int statusRoll = random.nextInt(100);
+        OrderStatus status = statusRoll < 15 ? OrderStatus.NEW
+            : statusRoll < 90 ? OrderStatus.COMPLETED : OrderStatus.CANCELED;
+        LocalDateTime orderDate = now.minusMinutes(random.nextLong(HISTORY_DAYS * 24L * 60));
+        orders.setString(1, status.name());
+        orders.setDouble(2, price);
+        orders.setTimestamp(3, Timestamp.valueOf(orderDate));
+        orders.setTimestamp(4, status == OrderStatus.COMPLETED
+            ? Timestamp.valueOf(orderDate.plusHours(random.nextInt(7 * 24))) : null);
+        orders.setString(5, LoadTestConfig.username(clientActivity.sample(random) - 1));
+        orders.addBatch();
+
+        RequestStatus requestStatus =
+            status == OrderStatus.NEW ? RequestStatus.OPEN : RequestStatus.CLOSED;
+        for (int i = 0; i < lines; i++) {
+          orderedBooks.setLong(1, orderId);
+          orderedBooks.setLong(2, bookIds[i]);
+          orderedBooks.setInt(3, amounts[i]);
+          orderedBooks.addBatch();
+          requests.setLong(1, bookIds[i]);
+          requests.setInt(2, amounts[i]);
+          requests.setString(3, requestStatus.name());
+          requests.addBatch();
+        }
+        orderedBooksCount += lines;
+
+        if (orderId % BATCH_SIZE == 0) {
+          orders.executeBatch();
+          orderedBooks.executeBatch();
+          requests.executeBatch();
+          connection.commit();
+          if (orderId % (BATCH_SIZE * 100) == 0) {
+            log.warn("Записано {} из {} заказов...", orderId, spec.orders());
+          }
+        }
+      }
+      orders.executeBatch();
+      orderedBooks.executeBatch();
+      requests.executeBatch();
+      connection.commit();
+    }
+    return orderedBooksCount;
+  }
+
+  /**
+   * Счётчики спроса считаются одним запросом по вставленным запросам, как при сверке на старте.
+   */
+  private static void insertDemand(Connection connection) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.executeUpdate("INSERT INTO book_demand (book_id, openRequests, openAmount) "
+          + "SELECT book_id, COUNT(*), SUM(amount) FROM requests WHERE status = 'OPEN' "
+          + "GROUP BY book_id");
+    }
+    connection.commit();
+  }
+
+  private static int pickBooks(SplittableRandom random, ZipfSampler popularity,
+                               int[] bookIds, int[] amounts, int wanted) {
+    int picked = 0;
+    for (int attempt = 0; picked < wanted && attempt < wanted * 4; attempt++) {
+      int bookId = popularity.sample(random);
+      boolean duplicate = false;
+      for (int i = 0; i < picked; i++) {
+        duplicate |= bookIds[i] == bookId;
+      }
+      if (!duplicate) {
+        bookIds[picked] = bookId;
+        amounts[picked] = 1 + random.nextInt(3);
+        picked++;
+      }
+    }
+    return picked;
+  }
+
+  private static void flushIfFull(Connection connection, int index, PreparedStatement statement)
+      throws SQLException {
+    if (index % BATCH_SIZE == 0) {
+      flush(connection, statement);
+    }
+  }
+
+  private static void flush(Connection connection, PreparedStatement statement)
+      throws SQLException {
+    statement.executeBatch();
+    connection.commit();
+  }
+}
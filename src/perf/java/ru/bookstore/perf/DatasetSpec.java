@@ -0,0 +1,32 @@
+package ru.bookstore.perf;
+
+/**
+ * Размер и форма синтетического набора данных. Одинаковые spec и seed всегда дают одни и те же
+ * строки.
+ *
+ * @param bookSkew   показатель Ципфа для популярности книг: чем больше, тем сильнее заказы
+ *                   сосредоточены на бестселлерах
+ * @param clientSkew показатель Ципфа для активности клиентов
+ */
+public record DatasetSpec(int books,
+                          int users,
+                          int orders,
+                          int maxBooksPerOrder,
+                          double bookSkew,
+                          double clientSkew,
+                          long seed) {
+  public static final double DEFAULT_BOOK_SKEW = 1.1;
+  public static final double DEFAULT_CLIENT_SKEW = 0.8;
+
+  public DatasetSpec(int books, int users, int orders, long seed) {
+    this(books, users, orders, 5, DEFAULT_BOOK_SKEW, DEFAULT_CLIENT_SKEW, seed);
+  }
+
+  /**
+   * Набор данных, размер которого задаётся числом заказов; остальные таблицы масштабируются
+   * пропорционально: книг в 10 раз меньше, клиентов в 20 раз меньше.
+   */
+  public static DatasetSpec forScale(int orders, long seed) {
+    return new DatasetSpec(Math.max(100, orders / 10), Math.max(50, orders / 20), orders, seed);
+  }
+}
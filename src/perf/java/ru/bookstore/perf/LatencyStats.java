@@ -0,0 +1,102 @@
+package ru.bookstore.perf;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+public class LatencyStats {
+  private static final long MAX_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+  private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+  private volatile boolean recording;
+
+  public LatencyStats() {
+    for (Operation operation : Operation.values()) {
+      histograms.put(operation, new ConcurrentHistogram(MAX_TRACKABLE_NANOS, 3));
+      errors.put(operation, new LongAdder());
+    }
+  }
+
+  public void startRecording() {
+    recording = true;
+  }
+
+  public void stopRecording() {
+    recording = false;
+  }
+
+  public void record(Operation operation, long latencyNanos, boolean success) {
+    if (!recording) {
+      return;
+    }
+    histograms.get(operation).recordValue(Math.min(latencyNanos, MAX_TRACKABLE_NANOS));
+    if (!success) {
+      errors.get(operation).increment();
+    }
+  }
+
+  public void print(PrintStream out, Duration duration) {
+    out.printf("%-32s %10s %8s %10s %10s %10s %10s %10s%n",
+        "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+    for (String[] row : rows(duration)) {
+      out.printf("%-32s %10s %8s %10s %10s %10s %10s %10s%n", (Object[]) row);
+    }
+  }
+
+  public void writeCsv(Path file, Duration duration) throws IOException {
+    List<String> lines = new ArrayList<>();
+    lines.add("endpoint,requests,errors,rps,p50_ms,p95_ms,p99_ms,max_ms");
+    for (String[] row : rows(duration)) {
+      lines.add(String.join(",", row));
+    }
+    Files.createDirectories(file.getParent());
+    Files.write(file, lines);
+  }
+
+  private List<String[]> rows(Duration duration) {
+    double seconds = duration.toMillis() / 1000.0;
+    List<String[]> rows = new ArrayList<>();
+    Histogram total = new Histogram(MAX_TRACKABLE_NANOS, 3);
+    long totalErrors = 0;
+    for (Operation operation : Operation.values()) {
+      Histogram histogram = histograms.get(operation);
+      if (histogram.getTotalCount() == 0) {
+        continue;
+      }
+      total.add(histogram);
+      totalErrors += errors.get(operation).sum();
+      rows.add(row(operation.getEndpoint(), histogram, errors.get(operation).sum(), seconds));
+    }
+    rows.add(row("TOTAL", total, totalErrors, seconds));
+    return rows;
+  }
+
+  private static String[] row(String name, Histogram histogram, long errors, double seconds) {
+    return new String[] {
+        name,
+        String.valueOf(histogram.getTotalCount()),
+        String.valueOf(errors),
+        String.format(Locale.ROOT, "%.1f", histogram.getTotalCount() / seconds),
+        millis(histogram.getValueAtPercentile(50)),
+        millis(histogram.getValueAtPercentile(95)),
+        millis(histogram.getValueAtPercentile(99)),
+        millis(histogram.getMaxValue())
+    };
+  }
+
+  private static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+  }
+}
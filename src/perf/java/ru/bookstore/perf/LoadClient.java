@@ -0,0 +1,151 @@
+package ru.bookstore.perf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Один виртуальный клиент: логинится под своим пользователем и до дедлайна выполняет операции
+ * согласно весам perf.mix. Отменяет только заказы, которые создал сам.
+ */
+public class LoadClient implements Runnable {
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final HttpClient httpClient;
+  private final String baseUrl;
+  private final LoadTestConfig config;
+  private final LatencyStats stats;
+  private final String adminToken;
+  private final String username;
+  private final long deadlineNanos;
+  private final SplittableRandom random;
+  private final Operation[] operations;
+  private final int[] cumulativeWeights;
+  private final Deque<Long> ownOrders = new ArrayDeque<>();
+  private String token;
+
+  public LoadClient(HttpClient httpClient, String baseUrl, LoadTestConfig config,
+                    LatencyStats stats, String adminToken, int clientIndex, long deadlineNanos) {
+    this.httpClient = httpClient;
+    this.baseUrl = baseUrl;
+    this.config = config;
+    this.stats = stats;
+    this.adminToken = adminToken;
+    this.username = LoadTestConfig.username(clientIndex % config.users());
+    this.deadlineNanos = deadlineNanos;
+    this.random = new SplittableRandom(config.seed() + clientIndex);
+    this.operations = config.mix().keySet().toArray(new Operation[0]);
+    this.cumulativeWeights = new int[operations.length];
+    int sum = 0;
+    for (int i = 0; i < operations.length; i++) {
+      sum += config.mix().get(operations[i]);
+      cumulativeWeights[i] = sum;
+    }
+  }
+
+  @Override
+  public void run() {
+    try {
+      token = login(username, LoadTestConfig.USER_PASSWORD);
+      while (System.nanoTime() < deadlineNanos) {
+        execute(nextOperation());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Клиент " + username + " завершился с ошибкой", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private Operation nextOperation() {
+    int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    for (int i = 0; i < cumulativeWeights.length; i++) {
+      if (value < cumulativeWeights[i]) {
+        return operations[i];
+      }
+    }
+    return operations[operations.length - 1];
+  }
+
+  private void execute(Operation operation) throws IOException, InterruptedException {
+    switch (operation) {
+      case LOGIN -> token = login(username, LoadTestConfig.USER_PASSWORD);
+      case GET_BOOK -> send(operation, authorized(token, "/books/" + randomBookId()).GET());
+      case ADD_BOOKS -> send(operation, authorized(adminToken,
+          "/books/add?id=" + randomBookId() + "&amount=" + (1 + random.nextInt(5)))
+          .method("PATCH", HttpRequest.BodyPublishers.noBody()));
+      case CREATE_ORDER -> createOrder();
+      case CANCEL_ORDER -> {
+        Long orderId = ownOrders.pollFirst();
+        if (orderId == null) {
+          createOrder();
+        } else {
+          send(operation, authorized(token, "/orders/cancelOrder/" + orderId)
+              .POST(HttpRequest.BodyPublishers.noBody()));
+        }
+      }
+      default -> throw new IllegalArgumentException("Неизвестная операция: " + operation);
+    }
+  }
+
+  private void createOrder() throws IOException, InterruptedException {
+    Map<Long, Integer> books = new LinkedHashMap<>();
+    int booksInOrder = 1 + random.nextInt(3);
+    for (int i = 0; i < booksInOrder; i++) {
+      books.put(randomBookId(), 1 + random.nextInt(2));
+    }
+    String body = objectMapper.writeValueAsString(
+        Map.of("clientName", username, "books", books));
+    HttpResponse<String> response = send(Operation.CREATE_ORDER,
+        authorized(token, "/orders")
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body)));
+    if (response.statusCode() == 200) {
+      JsonNode order = objectMapper.readTree(response.body());
+      if ("NEW".equals(order.path("status").asText())) {
+        ownOrders.addLast(order.path("id").asLong());
+      }
+    }
+  }
+
+  String login(String login, String password) throws IOException, InterruptedException {
+    String body = objectMapper.writeValueAsString(
+        Map.of("username", login, "password", password));
+    HttpResponse<String> response = send(Operation.LOGIN,
+        HttpRequest.newBuilder(URI.create(baseUrl + "/auth/login"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body)));
+    if (response.statusCode() != 200) {
+      throw new IllegalStateException("Не удалось авторизоваться под " + login
+          + ": " + response.statusCode());
+    }
+    return objectMapper.readTree(response.body()).path("token").asText();
+  }
+
+  private HttpRequest.Builder authorized(String bearer, String path) {
+    return HttpRequest.newBuilder(URI.create(baseUrl + path))
+        .header("Authorization", "Bearer " + bearer);
+  }
+
+  private HttpResponse<String> send(Operation operation, HttpRequest.Builder request)
+      throws IOException, InterruptedException {
+    long start = System.nanoTime();
+    HttpResponse<String> response =
+        httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    stats.record(operation, System.nanoTime() - start, response.statusCode() / 100 == 2);
+    return response;
+  }
+
+  private long randomBookId() {
+    return 1 + random.nextInt(config.books());
+  }
+}
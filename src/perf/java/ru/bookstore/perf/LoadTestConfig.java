@@ -0,0 +1,52 @@
+package ru.bookstore.perf;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Параметры нагрузочного прогона. Все значения читаются из системных свойств perf.*,
+ * например: -Dperf.clients=500 -Dperf.duration=PT2M -Dperf.mix=GET_BOOK=80,CREATE_ORDER=20
+ */
+public record LoadTestConfig(int clients,
+                             Duration warmup,
+                             Duration duration,
+                             long seed,
+                             int books,
+                             int users,
+                             int orders,
+                             int poolSize,
+                             Map<Operation, Integer> mix) {
+  static final String USER_PASSWORD = "perf_password";
+  static final String ADMIN_USERNAME = "perf_admin";
+
+  public static LoadTestConfig fromSystemProperties() {
+    return new LoadTestConfig(
+        Integer.getInteger("perf.clients", 200),
+        Duration.parse(System.getProperty("perf.warmup", "PT10S")),
+        Duration.parse(System.getProperty("perf.duration", "PT60S")),
+        Long.getLong("perf.seed", 42L),
+        Integer.getInteger("perf.books", 10_000),
+        Integer.getInteger("perf.users", 1_000),
+        Integer.getInteger("perf.orders", 1_000),
+        Integer.getInteger("perf.pool", 20),
+        parseMix(System.getProperty("perf.mix",
+            "LOGIN=5,GET_BOOK=60,CREATE_ORDER=20,ADD_BOOKS=5,CANCEL_ORDER=10")));
+  }
+
+  static String username(int userIndex) {
+    return "perf_user_" + userIndex + "@bookstore.ru";
+  }
+
+  private static Map<Operation, Integer> parseMix(String value) {
+    Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+    for (String part : value.split(",")) {
+      String[] weight = part.split("=");
+      if (weight.length != 2) {
+        throw new IllegalArgumentException("Неверный формат perf.mix: " + part);
+      }
+      mix.put(Operation.valueOf(weight[0].trim()), Integer.parseInt(weight[1].trim()));
+    }
+    return mix;
+  }
+}
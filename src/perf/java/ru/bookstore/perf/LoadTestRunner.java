@@ -0,0 +1,101 @@
+package ru.bookstore.perf;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Поднимает приложение целиком (см. {@link PerfApplication}), заполняет базу и гоняет
+ * смешанную нагрузку из perf.clients виртуальных потоков. Таблица с пропускной способностью
+ * и p50/p95/p99 по каждому эндпоинту печатается в консоль и пишется в perf-results/. Следом
+ * печатается, сколько соединений выдал пул за замер и сколько в среднем каждое удерживалось.
+ */
+@Slf4j
+public class LoadTestRunner {
+  private static final DateTimeFormatter RESULT_FILE_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+  public static void main(String[] args) throws Exception {
+    LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+    DatasetSpec spec =
+        new DatasetSpec(config.books(), config.users(), config.orders(), config.seed());
+    try (ConfigurableApplicationContext context =
+             PerfApplication.start("bookstore", config.poolSize())) {
+      new DatasetGenerator(context.getBean(DataSource.class),
+          context.getBean(PasswordEncoder.class).encode(LoadTestConfig.USER_PASSWORD))
+          .generate(spec);
+      String baseUrl = "http://localhost:"
+          + context.getEnvironment().getProperty("local.server.port");
+
+      MeterRegistry registry = context.getBeanProvider(MeterRegistry.class).getIfAvailable();
+      ConnectionPoolStats[] pool = new ConnectionPoolStats[2];
+      LatencyStats stats = run(config, baseUrl,
+          () -> pool[0] = ConnectionPoolStats.snapshot(registry),
+          () -> pool[1] = ConnectionPoolStats.snapshot(registry));
+
+      System.out.printf("%nКлиентов: %d, замер: %s (после прогрева %s)%n",
+          config.clients(), config.duration(), config.warmup());
+      stats.print(System.out, config.duration());
+      pool[1].printSince(pool[0], System.out);
+      Path report = Path.of("perf-results",
+          "load-" + LocalDateTime.now().format(RESULT_FILE_FORMATTER) + ".csv");
+      stats.writeCsv(report, config.duration());
+      System.out.println("Результаты сохранены в " + report.toAbsolutePath());
+    }
+  }
+
+  private static LatencyStats run(LoadTestConfig config, String baseUrl,
+                                  Runnable onStart, Runnable onStop)
+      throws IOException, InterruptedException, ExecutionException {
+    LatencyStats stats = new LatencyStats();
+    // по потоку на клиента плюс потоки HttpClient; виртуальные потоки есть только с JDK 21
+    ExecutorService executor = Executors.newCachedThreadPool();
+    try {
+      HttpClient httpClient = HttpClient.newBuilder()
+          .executor(executor)
+          .connectTimeout(Duration.ofSeconds(10))
+          .build();
+      String adminToken = new LoadClient(httpClient, baseUrl, config, stats, null, 0, 0)
+          .login(LoadTestConfig.ADMIN_USERNAME, LoadTestConfig.USER_PASSWORD);
+
+      long deadline = System.nanoTime() + config.warmup().toNanos() + config.duration().toNanos();
+      List<Future<?>> clients = new ArrayList<>(config.clients());
+      for (int i = 0; i < config.clients(); i++) {
+        clients.add(executor.submit(
+            new LoadClient(httpClient, baseUrl, config, stats, adminToken, i, deadline)));
+      }
+      log.warn("Запущено {} клиентов, прогрев {}...", config.clients(), config.warmup());
+      Thread.sleep(config.warmup().toMillis());
+      stats.startRecording();
+      onStart.run();
+      log.warn("Прогрев завершён, замер {}...", config.duration());
+      Thread.sleep(Math.max(0, (deadline - System.nanoTime()) / 1_000_000));
+      stats.stopRecording();
+      onStop.run();
+      for (Future<?> client : clients) {
+        client.get();
+      }
+    } finally {
+      executor.shutdown();
+      if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+        executor.shutdownNow();
+      }
+    }
+    return stats;
+  }
+}
@@ -0,0 +1,16 @@
+package ru.bookstore.perf;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum Operation {
+  LOGIN("POST /auth/login"),
+  GET_BOOK("GET /books/{id}"),
+  CREATE_ORDER("POST /orders"),
+  ADD_BOOKS("PATCH /books/add"),
+  CANCEL_ORDER("POST /orders/cancelOrder/{id}");
+
+  private final String endpoint;
+}
@@ -0,0 +1,60 @@
+package ru.bookstore.perf;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.bookstore.BookstoreApplication;
+
+/**
+ * Запуск приложения для замеров. По умолчанию база — встроенная H2 в режиме MySQL, но её можно
+ * заменить настоящей MySQL через -Dperf.db.url, -Dperf.db.user, -Dperf.db.password
+ * (драйвер и диалект MySQL берутся по умолчанию). Схема каждый раз создаётся заново,
+ * а база H2 живёт, пока открыт пул соединений, то есть до закрытия контекста.
+ *
+ * <p>С -Dperf.replica=true readOnly-транзакции идут через отдельный пул реплики: для H2 это та же
+ * база (отставание всегда нулевое), для MySQL адрес реплики задаётся -Dperf.db.replica.url.
+ */
+final class PerfApplication {
+  private static final String H2_URL =
+      "jdbc:h2:mem:%s;MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+
+  private PerfApplication() {
+  }
+
+  static ConfigurableApplicationContext start(String databaseName, int poolSize) {
+    Map<String, Object> properties = new HashMap<>();
+    String externalUrl = System.getProperty("perf.db.url");
+    if (externalUrl == null) {
+      properties.put("db.url", H2_URL.formatted(databaseName));
+      properties.put("db.user", "sa");
+      properties.put("db.password", "");
+      properties.put("db.driver", "org.h2.Driver");
+      properties.put("db.dialect", "org.hibernate.dialect.H2Dialect");
+      if (Boolean.getBoolean("perf.replica")) {
+        properties.put("db.replica.url", H2_URL.formatted(databaseName));
+        properties.put("db.replica.lag.query", "");
+      }
+    } else {
+      properties.put("db.url", externalUrl);
+      properties.put("db.user", System.getProperty("perf.db.user", "root"));
+      properties.put("db.password", System.getProperty("perf.db.password", ""));
+      if (Boolean.getBoolean("perf.replica")) {
+        properties.put("db.replica.url", System.getProperty("perf.db.replica.url", externalUrl));
+      }
+    }
+    properties.put("db.ddl.auto", "create");
+    properties.put("db.pool.size", poolSize);
+    properties.put("db.show.sql", false);
+    properties.put("server.port", 0);
+    properties.put("springdoc.api-docs.enabled", false);
+    properties.put("springdoc.swagger-ui.enabled", false);
+    properties.put("logging.level.root", "WARN");
+    properties.put("logging.level.org.springframework.orm.hibernate5", "WARN");
+    properties.put("logging.level.org.hibernate.engine.transaction", "WARN");
+    properties.put("logging.level.com.zaxxer.hikari", "WARN");
+    return new SpringApplicationBuilder(BookstoreApplication.class)
+        .properties(properties)
+        .run();
+  }
+}
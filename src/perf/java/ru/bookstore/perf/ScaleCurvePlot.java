@@ -0,0 +1,132 @@
+package ru.bookstore.perf;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Рисует латентность от числа строк в логарифмическом масштабе по обеим осям в SVG. На таком
+ * графике линейная операция идёт с наклоном 1, а всё, что круче, растёт сверхлинейно.
+ */
+final class ScaleCurvePlot {
+  private static final String[] COLORS = {"#1f77b4", "#ff7f0e", "#2ca02c", "#d62728",
+      "#9467bd", "#8c564b", "#e377c2", "#7f7f7f", "#bcbd22", "#17becf"};
+  private static final int PLOT_WIDTH = 720;
+  private static final int PLOT_HEIGHT = 480;
+  private static final int MARGIN = 70;
+  private static final int LEGEND_WIDTH = 420;
+  private static final int LEGEND_LINE = 18;
+
+  private ScaleCurvePlot() {
+  }
+
+  static void write(Path file, List<ScaleMeasurement> measurements, Map<String, Double> slopes)
+      throws IOException {
+    Map<String, List<ScaleMeasurement>> series = new LinkedHashMap<>();
+    for (ScaleMeasurement measurement : measurements) {
+      if (measurement.hasTime()) {
+        series.computeIfAbsent(measurement.operation(), key -> new ArrayList<>())
+            .add(measurement);
+      }
+    }
+    double minX = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE;
+    double minY = Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    for (List<ScaleMeasurement> points : series.values()) {
+      for (ScaleMeasurement point : points) {
+        minX = Math.min(minX, Math.floor(Math.log10(point.totalRows())));
+        maxX = Math.max(maxX, Math.ceil(Math.log10(point.totalRows())));
+        minY = Math.min(minY, Math.floor(Math.log10(Math.max(point.medianMs(), 0.01))));
+        maxY = Math.max(maxY, Math.ceil(Math.log10(Math.max(point.medianMs(), 0.01))));
+      }
+    }
+    if (series.isEmpty()) {
+      minX = minY = 0;
+      maxX = maxY = 1;
+    }
+    maxX = Math.max(maxX, minX + 1);
+    maxY = Math.max(maxY, minY + 1);
+
+    int height = Math.max(PLOT_HEIGHT + 2 * MARGIN, MARGIN + series.size() * LEGEND_LINE + 20);
+    StringBuilder svg = new StringBuilder();
+    svg.append(String.format(Locale.ROOT, "<svg xmlns=\"http://www.w3.org/2000/svg\" "
+            + "width=\"%d\" height=\"%d\" font-family=\"sans-serif\" font-size=\"12\">%n",
+        PLOT_WIDTH + 2 * MARGIN + LEGEND_WIDTH, height));
+    svg.append("<rect width=\"100%\" height=\"100%\" fill=\"white\"/>\n");
+    svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"30\" font-size=\"16\">"
+        + "Латентность (медиана, мс) от числа строк</text>%n", MARGIN));
+
+    for (int decade = (int) minX; decade <= maxX; decade++) {
+      double x = x(decade, minX, maxX);
+      svg.append(String.format(Locale.ROOT, "<line x1=\"%.1f\" y1=\"%d\" x2=\"%.1f\" y2=\"%d\" "
+          + "stroke=\"#ddd\"/>%n", x, MARGIN, x, MARGIN + PLOT_HEIGHT));
+      svg.append(String.format(Locale.ROOT, "<text x=\"%.1f\" y=\"%d\" text-anchor=\"middle\">"
+          + "1e%d</text>%n", x, MARGIN + PLOT_HEIGHT + 20, decade));
+    }
+    for (int decade = (int) minY; decade <= maxY; decade++) {
+      double y = y(decade, minY, maxY);
+      svg.append(String.format(Locale.ROOT, "<line x1=\"%d\" y1=\"%.1f\" x2=\"%d\" y2=\"%.1f\" "
+          + "stroke=\"#ddd\"/>%n", MARGIN, y, MARGIN + PLOT_WIDTH, y));
+      svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%.1f\" text-anchor=\"end\">"
+          + "%s</text>%n", MARGIN - 8, y + 4, decadeLabel(decade)));
+    }
+    svg.append(String.format(Locale.ROOT, "<rect x=\"%d\" y=\"%d\" width=\"%d\" height=\"%d\" "
+        + "fill=\"none\" stroke=\"black\"/>%n", MARGIN, MARGIN, PLOT_WIDTH, PLOT_HEIGHT));
+    svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%d\" text-anchor=\"middle\">"
+            + "строк в базе</text>%n", MARGIN + PLOT_WIDTH / 2, MARGIN + PLOT_HEIGHT + 45));
+
+    int index = 0;
+    for (Map.Entry<String, List<ScaleMeasurement>> entry : series.entrySet()) {
+      String color = COLORS[index % COLORS.length];
+      String dash = index >= COLORS.length ? " stroke-dasharray=\"6 3\"" : "";
+      StringBuilder polyline = new StringBuilder();
+      for (ScaleMeasurement point : entry.getValue()) {
+        double x = x(Math.log10(point.totalRows()), minX, maxX);
+        double y = y(Math.log10(Math.max(point.medianMs(), 0.01)), minY, maxY);
+        polyline.append(String.format(Locale.ROOT, "%.1f,%.1f ", x, y));
+        svg.append(String.format(Locale.ROOT,
+            "<circle cx=\"%.1f\" cy=\"%.1f\" r=\"3\" fill=\"%s\"/>%n", x, y, color));
+      }
+      svg.append(String.format(Locale.ROOT, "<polyline points=\"%s\" fill=\"none\" "
+          + "stroke=\"%s\" stroke-width=\"2\"%s/>%n", polyline.toString().trim(), color, dash));
+
+      int legendY = MARGIN + index * LEGEND_LINE;
+      int legendX = MARGIN + PLOT_WIDTH + 20;
+      svg.append(String.format(Locale.ROOT, "<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" "
+          + "stroke=\"%s\" stroke-width=\"2\"%s/>%n", legendX, legendY, legendX + 24, legendY,
+          color, dash));
+      Double slope = slopes.get(entry.getKey());
+      svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%d\">%s%s</text>%n",
+          legendX + 30, legendY + 4, escape(entry.getKey()),
+          slope == null ? "" : String.format(Locale.ROOT, " (наклон %.2f)", slope)));
+      index++;
+    }
+    svg.append("</svg>\n");
+
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, svg);
+  }
+
+  private static double x(double log, double minX, double maxX) {
+    return MARGIN + (log - minX) / (maxX - minX) * PLOT_WIDTH;
+  }
+
+  private static double y(double log, double minY, double maxY) {
+    return MARGIN + PLOT_HEIGHT - (log - minY) / (maxY - minY) * PLOT_HEIGHT;
+  }
+
+  private static String decadeLabel(int decade) {
+    return decade >= 0 ? String.valueOf((long) Math.pow(10, decade))
+        : String.format(Locale.ROOT, "%s", Math.pow(10, decade));
+  }
+
+  private static String escape(String text) {
+    return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+  }
+}
@@ -0,0 +1,251 @@
+package ru.bookstore.perf;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bookstore.dao.BookDao;
+import ru.bookstore.dao.OrderDao;
+import ru.bookstore.dao.RequestDao;
+import ru.bookstore.facade.OrderFacade;
+import ru.bookstore.sorting.BookSort;
+import ru.bookstore.sorting.OrderSort;
+import ru.bookstore.sorting.RequestSort;
+
+/**
+ * Прогоняет методы DAO (и OrderFacade.updateOrders) на нескольких масштабах данных, чтобы было
+ * видно, как время растёт с числом строк. Для каждого масштаба поднимается свежая база, которую
+ * заполняет {@link DatasetGenerator}. Каждый вызов выполняется в отдельной транзакции с откатом,
+ * поэтому изменяющие операции не портят данные между повторами.
+ *
+ * <p>Параметры: -Dperf.scales=10000,100000,1000000 (число заказов), -Dperf.repeats=5,
+ * -Dperf.budget=PT60S (операция, первый вызов которой дольше бюджета, на следующих масштабах
+ * пропускается), -Dperf.seed=42.
+ */
+@Slf4j
+public class ScaleCurveSuite {
+  private static final DateTimeFormatter RESULT_FILE_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+  private static final double SUPERLINEAR_SLOPE = 1.2;
+
+  public static void main(String[] args) throws Exception {
+    List<Integer> scales = Arrays.stream(
+            System.getProperty("perf.scales", "10000,100000,1000000").split(","))
+        .map(String::trim)
+        .map(Integer::parseInt)
+        .toList();
+    int repeats = Integer.getInteger("perf.repeats", 5);
+    Duration budget = Duration.parse(System.getProperty("perf.budget", "PT60S"));
+    long seed = Long.getLong("perf.seed", 42L);
+
+    List<ScaleMeasurement> measurements = new ArrayList<>();
+    Set<String> dropped = new HashSet<>();
+    for (int scale : scales) {
+      DatasetSpec spec = DatasetSpec.forScale(scale, seed);
+      try (ConfigurableApplicationContext context =
+               PerfApplication.start("scale_" + scale, 4)) {
+        DatasetGenerator.Result dataset = new DatasetGenerator(context.getBean(DataSource.class),
+            context.getBean(PasswordEncoder.class).encode(LoadTestConfig.USER_PASSWORD))
+            .generate(spec);
+        TransactionTemplate transaction =
+            new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        for (Map.Entry<String, Supplier<Object>> operation : operations(context, spec).entrySet()) {
+          String name = operation.getKey();
+          if (dropped.contains(name)) {
+            measurements.add(ScaleMeasurement.notMeasured(name, scale, dataset.totalRows(),
+                ScaleMeasurement.Status.SKIPPED));
+            continue;
+          }
+          ScaleMeasurement measurement = measure(name, scale, dataset.totalRows(),
+              operation.getValue(), transaction, repeats, budget);
+          if (measurement.status() != ScaleMeasurement.Status.OK) {
+            dropped.add(name);
+          }
+          measurements.add(measurement);
+          log.warn("{} @ {} строк: {} мс ({})", name, dataset.totalRows(),
+              String.format(Locale.ROOT, "%.2f", measurement.medianMs()), measurement.status());
+        }
+      }
+    }
+
+    Map<String, Double> slopes = slopes(measurements);
+    String timestamp = LocalDateTime.now().format(RESULT_FILE_FORMATTER);
+    Path csv = Path.of("perf-results", "scale-" + timestamp + ".csv");
+    Path svg = Path.of("perf-results", "scale-" + timestamp + ".svg");
+    writeCsv(csv, measurements);
+    ScaleCurvePlot.write(svg, measurements, slopes);
+    printSummary(slopes);
+    System.out.println("Результаты сохранены в " + csv.toAbsolutePath()
+        + " и " + svg.toAbsolutePath());
+  }
+
+  private static Map<String, Supplier<Object>> operations(ConfigurableApplicationContext context,
+                                                          DatasetSpec spec) {
+    BookDao bookDao = context.getBean(BookDao.class);
+    OrderDao orderDao = context.getBean(OrderDao.class);
+    RequestDao requestDao = context.getBean(RequestDao.class);
+    OrderFacade orderFacade = context.getBean(OrderFacade.class);
+    LocalDateTime end = LocalDateTime.now();
+    LocalDateTime begin = end.minusDays(30);
+    List<Long> someBookIds = new ArrayList<>();
+    for (long id = 1; id <= spec.books(); id += Math.max(1, spec.books() / 100)) {
+      someBookIds.add(id);
+    }
+    Map<Long, Integer> popularBooks = Map.of(1L, 1, 2L, 2, 3L, 1);
+
+    Map<String, Supplier<Object>> operations = new LinkedHashMap<>();
+    for (BookSort sort : BookSort.values()) {
+      operations.put("BookDao.getAllBooks(" + sort + ")", () -> bookDao.getAllBooks(sort));
+    }
+    operations.put("BookDao.getBooks(100 ids)", () -> bookDao.getBooks(someBookIds));
+    operations.put("BookDao.find", () -> bookDao.find(spec.books() / 2L));
+    operations.put("BookDao.forEachBook", () -> count(bookDao::forEachBook));
+    for (OrderSort sort : OrderSort.values()) {
+      operations.put("OrderDao.getAllOrders(" + sort + ")",
+          () -> orderDao.getAllOrders(sort, begin, end));
+    }
+    operations.put("OrderDao.getEarnedSum", () -> orderDao.getEarnedSum(begin, end));
+    operations.put("OrderDao.getCountCompletedOrders",
+        () -> orderDao.getCountCompletedOrders(begin, end));
+    operations.put("OrderDao.findWithBooks", () -> orderDao.findWithBooks(spec.orders() / 2L));
+    operations.put("OrderDao.forEachOrder", () -> count(orderDao::forEachOrder));
+    // заказы генератора разбросаны на два года, так что половина выполненных старше границы
+    // архива: перенос каждый раз двигает полную пачку, а отчёт за два года читает и архив
+    operations.put("OrderDao.archiveOrders",
+        () -> orderDao.archiveOrders(end.minusDays(365), 500));
+    operations.put("OrderDao.getEarnedSum(730 days)",
+        () -> orderDao.getEarnedSum(end.minusDays(730), end));
+    operations.put("RequestDao.getAllRequests", () -> requestDao.getAllRequests(RequestSort.ID));
+    operations.put("RequestDao.getRequests(COUNT)",
+        () -> requestDao.getRequests(RequestSort.COUNT));
+    operations.put("RequestDao.getRequests(PRICE)",
+        () -> requestDao.getRequests(RequestSort.PRICE));
+    operations.put("RequestDao.forEachRequest", () -> count(requestDao::forEachRequest));
+    operations.put("RequestDao.closeRequests", () -> {
+      requestDao.closeRequests(popularBooks);
+      return popularBooks;
+    });
+    operations.put("RequestDao.reconcileDemand", requestDao::reconcileDemand);
+    operations.put("OrderFacade.updateOrders", () -> {
+      orderFacade.updateOrders();
+      return orderFacade;
+    });
+    return operations;
+  }
+
+  private static <T> Long count(Consumer<Consumer<T>> scroll) {
+    AtomicLong counter = new AtomicLong();
+    scroll.accept(item -> counter.incrementAndGet());
+    return counter.get();
+  }
+
+  private static ScaleMeasurement measure(String name, int scale, long totalRows,
+                                          Supplier<Object> operation,
+                                          TransactionTemplate transaction,
+                                          int repeats, Duration budget) {
+    long[] nanos = new long[repeats];
+    try {
+      long first = timeInRolledBackTransaction(operation, transaction);
+      if (first > budget.toNanos()) {
+        double firstMs = first / 1_000_000.0;
+        return new ScaleMeasurement(name, scale, totalRows, firstMs, firstMs,
+            ScaleMeasurement.Status.OVER_BUDGET);
+      }
+      for (int i = 0; i < repeats; i++) {
+        nanos[i] = timeInRolledBackTransaction(operation, transaction);
+      }
+    } catch (RuntimeException e) {
+      log.warn("{} @ {} строк завершился ошибкой: {}", name, totalRows, e.getMessage());
+      return ScaleMeasurement.notMeasured(name, scale, totalRows,
+          ScaleMeasurement.Status.FAILED);
+    }
+    Arrays.sort(nanos);
+    return new ScaleMeasurement(name, scale, totalRows, nanos[repeats / 2] / 1_000_000.0,
+        nanos[repeats - 1] / 1_000_000.0, ScaleMeasurement.Status.OK);
+  }
+
+  private static long timeInRolledBackTransaction(Supplier<Object> operation,
+                                                  TransactionTemplate transaction) {
+    long start = System.nanoTime();
+    transaction.execute(status -> {
+      status.setRollbackOnly();
+      return operation.get();
+    });
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * Наклон прямой, проведённой методом наименьших квадратов через точки (lg строк, lg мс):
+   * 1 — время растёт линейно, 2 — квадратично.
+   */
+  private static Map<String, Double> slopes(List<ScaleMeasurement> measurements) {
+    Map<String, List<ScaleMeasurement>> byOperation = new LinkedHashMap<>();
+    for (ScaleMeasurement measurement : measurements) {
+      if (measurement.hasTime()) {
+        byOperation.computeIfAbsent(measurement.operation(), key -> new ArrayList<>())
+            .add(measurement);
+      }
+    }
+    Map<String, Double> slopes = new LinkedHashMap<>();
+    for (Map.Entry<String, List<ScaleMeasurement>> entry : byOperation.entrySet()) {
+      List<ScaleMeasurement> points = entry.getValue();
+      if (points.size() < 2) {
+        continue;
+      }
+      double sumX = 0;
+      double sumY = 0;
+      double sumXy = 0;
+      double sumXx = 0;
+      for (ScaleMeasurement point : points) {
+        double x = Math.log10(point.totalRows());
+        double y = Math.log10(Math.max(point.medianMs(), 0.001));
+        sumX += x;
+        sumY += y;
+        sumXy += x * y;
+        sumXx += x * x;
+      }
+      int n = points.size();
+      slopes.put(entry.getKey(), (n * sumXy - sumX * sumY) / (n * sumXx - sumX * sumX));
+    }
+    return slopes;
+  }
+
+  private static void writeCsv(Path file, List<ScaleMeasurement> measurements)
+      throws IOException {
+    List<String> lines = new ArrayList<>();
+    lines.add("operation,scale_orders,total_rows,median_ms,max_ms,status");
+    for (ScaleMeasurement measurement : measurements) {
+      lines.add(String.format(Locale.ROOT, "\"%s\",%d,%d,%.3f,%.3f,%s",
+          measurement.operation(), measurement.scale(), measurement.totalRows(),
+          measurement.medianMs(), measurement.maxMs(), measurement.status()));
+    }
+    Files.createDirectories(file.getParent());
+    Files.write(file, lines);
+  }
+
+  private static void printSummary(Map<String, Double> slopes) {
+    System.out.printf("%n%-45s %8s%n", "операция", "наклон");
+    slopes.forEach((operation, slope) -> System.out.printf(Locale.ROOT, "%-45s %8.2f%s%n",
+        operation, slope, slope > SUPERLINEAR_SLOPE ? "  <- сверхлинейно" : ""));
+  }
+}
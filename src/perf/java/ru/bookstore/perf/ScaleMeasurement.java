@@ -0,0 +1,24 @@
+package ru.bookstore.perf;
+
+/**
+ * Замер одной операции на одном масштабе. Для пропущенных и упавших замеров времена равны -1.
+ */
+public record ScaleMeasurement(String operation,
+                               int scale,
+                               long totalRows,
+                               double medianMs,
+                               double maxMs,
+                               Status status) {
+  public enum Status {
+    OK, OVER_BUDGET, SKIPPED, FAILED
+  }
+
+  public boolean hasTime() {
+    return status == Status.OK || status == Status.OVER_BUDGET;
+  }
+
+  static ScaleMeasurement notMeasured(String operation, int scale, long totalRows,
+                                      Status status) {
+    return new ScaleMeasurement(operation, scale, totalRows, -1, -1, status);
+  }
+}
@@ -0,0 +1,61 @@
+package ru.bookstore.perf;
+
+import java.util.SplittableRandom;
+
+/**
+ * Распределение Ципфа на 1..n методом rejection-inversion (Hörmann, Derflinger). Память O(1),
+ * поэтому подходит и для десятков миллионов книг. Ранг 1 — самый популярный.
+ */
+final class ZipfSampler {
+  private final int n;
+  private final double exponent;
+  private final double hIntegralX1;
+  private final double hIntegralN;
+  private final double threshold;
+
+  ZipfSampler(int n, double exponent) {
+    if (n < 1 || exponent <= 0) {
+      throw new IllegalArgumentException("Неверные параметры распределения: n=" + n
+          + ", exponent=" + exponent);
+    }
+    this.n = n;
+    this.exponent = exponent;
+    this.hIntegralX1 = hIntegral(1.5) - 1.0;
+    this.hIntegralN = hIntegral(n + 0.5);
+    this.threshold = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+  }
+
+  int sample(SplittableRandom random) {
+    while (true) {
+      double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+      double x = hIntegralInverse(u);
+      int k = (int) Math.min(n, Math.max(1, (long) (x + 0.5)));
+      if (k - x <= threshold || u >= hIntegral(k + 0.5) - h(k)) {
+        return k;
+      }
+    }
+  }
+
+  private double hIntegral(double x) {
+    double logX = Math.log(x);
+    return expm1OverX((1.0 - exponent) * logX) * logX;
+  }
+
+  private double h(double x) {
+    return Math.exp(-exponent * Math.log(x));
+  }
+
+  private double hIntegralInverse(double x) {
+    double t = Math.max(-1.0, x * (1.0 - exponent));
+    return Math.exp(log1pOverX(t) * x);
+  }
+
+  private static double log1pOverX(double x) {
+    return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+  }
+
+  private static double expm1OverX(double x) {
+    return Math.abs(x) > 1e-8
+        ? Math.expm1(x) / x : 1.0 + x * 0.5 * (1.0 + x / 3.0 * (1.0 + 0.25 * x));
+  }
+}
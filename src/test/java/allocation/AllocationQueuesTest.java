@@ -0,0 +1,94 @@
+package allocation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import ru.bookstore.allocation.AllocationQueues;
+import ru.bookstore.allocation.StandardAllocationPolicy;
+
+class AllocationQueuesTest {
+  private static final long BOOK = 1L;
+  private static final long OTHER_BOOK = 2L;
+
+  private final List<Long> served = new ArrayList<>();
+
+  @Test
+  void fifo_whenStockShort_ShouldServeEarliestOrderFirst() {
+    AllocationQueues queues = queues(StandardAllocationPolicy.FIFO);
+
+    assertThat(queues.allocate(BOOK, 3, this::serve)).containsExactly(1L);
+
+    assertThat(served).containsExactly(1L);
+    assertThat(queues.waitingLines(BOOK)).isEqualTo(2);
+  }
+
+  @Test
+  void smallestOrderFirst_ShouldServeOrdersWithFewestCopies() {
+    AllocationQueues queues = queues(StandardAllocationPolicy.SMALLEST_ORDER_FIRST);
+
+    assertThat(queues.allocate(BOOK, 3, this::serve)).containsExactly(3L);
+
+    assertThat(served).containsExactly(3L);
+  }
+
+  @Test
+  void highestValueFirst_ShouldSkipLinesThatDoNotFit() {
+    AllocationQueues queues = queues(StandardAllocationPolicy.HIGHEST_VALUE_FIRST);
+
+    assertThat(queues.allocate(BOOK, 3, this::serve)).containsExactly(3L);
+
+    assertThat(served).containsExactly(3L);
+    assertThat(queues.waitingOrders()).isEqualTo(2);
+  }
+
+  @Test
+  void maximizeCompleted_ShouldReorderWhenOtherLineReserved() {
+    AllocationQueues queues = new AllocationQueues(StandardAllocationPolicy.MAXIMIZE_COMPLETED);
+    queues.add(1L, 10, 4, Map.of(BOOK, 2, OTHER_BOOK, 2));
+    queues.add(2L, 10, 3, Map.of(BOOK, 3));
+
+    assertThat(queues.allocate(OTHER_BOOK, 2, this::serve)).isEmpty();
+    assertThat(queues.allocate(BOOK, 3, this::serve)).containsExactly(1L);
+
+    assertThat(served).containsExactly(1L, 1L);
+    assertThat(queues.waitingOrders()).isEqualTo(1);
+  }
+
+  @Test
+  void whenReservationRejected_ShouldKeepLineWaiting() {
+    AllocationQueues queues = queues(StandardAllocationPolicy.FIFO);
+
+    assertThat(queues.allocate(BOOK, 10, (orderId, amount) -> orderId != 1L))
+        .containsExactly(2L, 3L);
+
+    assertThat(queues.waitingLines(BOOK)).isEqualTo(1);
+  }
+
+  @Test
+  void remove_ShouldDropOrderFromAllQueues() {
+    AllocationQueues queues = new AllocationQueues(StandardAllocationPolicy.FIFO);
+    queues.add(1L, 10, 2, Map.of(BOOK, 1, OTHER_BOOK, 1));
+
+    assertThat(queues.remove(1L)).isTrue();
+
+    assertThat(queues.waitingLines(BOOK)).isZero();
+    assertThat(queues.waitingLines(OTHER_BOOK)).isZero();
+    assertThat(queues.allocate(BOOK, 5, this::serve)).isEmpty();
+  }
+
+  private AllocationQueues queues(StandardAllocationPolicy policy) {
+    AllocationQueues queues = new AllocationQueues(policy);
+    queues.add(1L, 50, 3, Map.of(BOOK, 3));
+    queues.add(2L, 300, 4, Map.of(BOOK, 4));
+    queues.add(3L, 100, 1, Map.of(BOOK, 1));
+    return queues;
+  }
+
+  private boolean serve(long orderId, int amount) {
+    served.add(orderId);
+    return true;
+  }
+}
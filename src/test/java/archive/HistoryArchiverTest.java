@@ -0,0 +1,60 @@
+package archive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.bookstore.archive.HistoryArchiver;
+import ru.bookstore.exceptions.DataAccessException;
+import ru.bookstore.service.OrderService;
+import ru.bookstore.service.RequestService;
+
+class HistoryArchiverTest {
+  private OrderService orderService;
+  private RequestService requestService;
+  private SimpleMeterRegistry meterRegistry;
+  private HistoryArchiver archiver;
+
+  @BeforeEach
+  void setUp() {
+    orderService = mock(OrderService.class);
+    requestService = mock(RequestService.class);
+    meterRegistry = new SimpleMeterRegistry();
+    archiver = new HistoryArchiver(orderService, requestService,
+        mock(PlatformTransactionManager.class), meterRegistry, 365, 30, 2, 60);
+  }
+
+  @Test
+  void archive_ShouldMoveBatchesUntilShortBatch() {
+    when(orderService.archiveOrders(any(), eq(2))).thenReturn(2, 2, 1);
+    when(requestService.archiveRequests(any(), eq(2))).thenReturn(0);
+
+    assertThat(archiver.archive()).isEqualTo(5);
+    verify(orderService, times(3)).archiveOrders(any(), eq(2));
+    assertThat(archived("orders")).isEqualTo(5);
+    assertThat(archived("requests")).isZero();
+  }
+
+  @Test
+  void archive_WhenOrdersFail_ShouldStillArchiveRequests() {
+    when(orderService.archiveOrders(any(), eq(2))).thenReturn(2)
+        .thenThrow(new DataAccessException("нет соединения", null));
+    when(requestService.archiveRequests(any(), eq(2))).thenReturn(1);
+
+    assertThat(archiver.archive()).isEqualTo(3);
+    assertThat(archived("orders")).isEqualTo(2);
+    assertThat(archived("requests")).isEqualTo(1);
+  }
+
+  private double archived(String table) {
+    return meterRegistry.get(HistoryArchiver.ARCHIVED).tag("table", table).counter().count();
+  }
+}
@@ -0,0 +1,143 @@
+package catalog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.bookstore.catalog.BookCatalog;
+import ru.bookstore.dao.BookDao;
+import ru.bookstore.dto.BookDTO;
+import ru.bookstore.exceptions.DataAccessException;
+import ru.bookstore.model.BookStatus;
+import ru.bookstore.model.impl.Book;
+import ru.bookstore.sorting.BookSort;
+import util.TestUtil;
+
+class BookCatalogTest {
+  private List<Book> catalog;
+  private BookDao bookDao;
+  private SimpleMeterRegistry meterRegistry;
+  private BookCatalog bookCatalog;
+
+  @BeforeEach
+  void setUp() {
+    catalog = new ArrayList<>(List.of(
+        book(1L, "война и мир", 1869, 300.0, BookStatus.AVAILABLE),
+        book(2L, "Анна Каренина", 1877, 500.0, BookStatus.NOT_AVAILABLE),
+        book(3L, "Ёжик в тумане", 1969, 100.0, BookStatus.AVAILABLE),
+        book(4L, "Бесы", 1872, 300.0, BookStatus.NOT_AVAILABLE)));
+    bookDao = mock(BookDao.class);
+    doAnswer(invocation -> {
+      Consumer<Book> action = invocation.getArgument(0);
+      catalog.forEach(action);
+      return null;
+    }).when(bookDao).forEachBook(any());
+    meterRegistry = new SimpleMeterRegistry();
+    bookCatalog = new BookCatalog(bookDao, mock(PlatformTransactionManager.class),
+        meterRegistry);
+  }
+
+  @Test
+  void books_ShouldReturnEverySortOrderWithIdAsTieBreaker() {
+    assertThat(ids(BookSort.ID)).containsExactly(1L, 2L, 3L, 4L);
+    assertThat(ids(BookSort.NAME)).containsExactly(2L, 4L, 1L, 3L);
+    assertThat(ids(BookSort.PUBLICATION_DATE)).containsExactly(1L, 4L, 2L, 3L);
+    assertThat(ids(BookSort.PRICE)).containsExactly(3L, 1L, 4L, 2L);
+    assertThat(ids(BookSort.STATUS)).containsExactly(1L, 3L, 2L, 4L);
+    verify(bookDao, times(1)).forEachBook(any());
+  }
+
+  @Test
+  void refresh_ShouldMoveChangedBookInEveryOrderWithoutFullRebuild() {
+    bookCatalog.books(BookSort.ID);
+    Book changed = book(3L, "Ёжик в тумане", 1969, 1000.0, BookStatus.NOT_AVAILABLE);
+    when(bookDao.getBooks(List.of(3L))).thenReturn(List.of(changed));
+
+    bookCatalog.refresh(List.of(3L));
+
+    assertThat(ids(BookSort.PRICE)).containsExactly(1L, 4L, 2L, 3L);
+    assertThat(ids(BookSort.STATUS)).containsExactly(1L, 2L, 3L, 4L);
+    assertThat(ids(BookSort.NAME)).containsExactly(2L, 4L, 1L, 3L);
+    assertThat(bookCatalog.books(BookSort.ID).get(2).getPrice()).isEqualTo(1000.0);
+    verify(bookDao, times(1)).forEachBook(any());
+  }
+
+  @Test
+  void refresh_ShouldAddImportedBook() {
+    bookCatalog.books(BookSort.ID);
+    Book imported = book(5L, "Идиот", 1869, 200.0, BookStatus.AVAILABLE);
+    when(bookDao.getBooks(List.of(5L))).thenReturn(List.of(imported));
+
+    bookCatalog.refresh(List.of(5L));
+
+    assertThat(ids(BookSort.ID)).containsExactly(1L, 2L, 3L, 4L, 5L);
+    assertThat(ids(BookSort.PRICE)).containsExactly(3L, 5L, 1L, 4L, 2L);
+  }
+
+  @Test
+  void books_ShouldKeepServingPublishedSnapshot() {
+    List<BookDTO> before = bookCatalog.books(BookSort.PRICE);
+    when(bookDao.getBooks(List.of(1L)))
+        .thenReturn(List.of(book(1L, "война и мир", 1869, 50.0, BookStatus.AVAILABLE)));
+
+    bookCatalog.refresh(List.of(1L));
+
+    assertThat(before).extracting(BookDTO::getId).containsExactly(3L, 1L, 4L, 2L);
+    assertThat(ids(BookSort.PRICE)).containsExactly(1L, 3L, 4L, 2L);
+  }
+
+  @Test
+  void refresh_WhenReadFails_ShouldRebuildOnNextRead() {
+    bookCatalog.books(BookSort.ID);
+    when(bookDao.getBooks(List.of(2L)))
+        .thenThrow(new DataAccessException("нет соединения", null));
+    catalog.set(1, book(2L, "Анна Каренина", 1877, 10.0, BookStatus.AVAILABLE));
+
+    bookCatalog.refresh(List.of(2L));
+
+    assertThat(ids(BookSort.PRICE)).containsExactly(2L, 3L, 1L, 4L);
+    verify(bookDao, times(2)).forEachBook(any());
+  }
+
+  @Test
+  void refresh_BeforeFirstBuild_ShouldNotTouchDatabase() {
+    bookCatalog.refresh(List.of(1L));
+
+    verify(bookDao, times(0)).getBooks(any());
+    assertThat(meterRegistry.get(BookCatalog.CATALOG_BOOKS).gauge().value()).isNaN();
+  }
+
+  @Test
+  void rebuild_ShouldExposeSizeAgeAndRebuildTime() {
+    bookCatalog.books(BookSort.ID);
+
+    assertThat(meterRegistry.get(BookCatalog.CATALOG_BOOKS).gauge().value()).isEqualTo(4);
+    assertThat(meterRegistry.get(BookCatalog.CATALOG_AGE).gauge().value()).isNotNegative();
+    assertThat(meterRegistry.get(BookCatalog.CATALOG_REBUILD).tag("kind", "full").timer()
+        .count()).isEqualTo(1);
+  }
+
+  private List<Long> ids(BookSort sort) {
+    return bookCatalog.books(sort).stream().map(BookDTO::getId).toList();
+  }
+
+  private static Book book(long id, String name, int year, double price, BookStatus status) {
+    Book book = TestUtil.createTestBook(id);
+    book.setName(name);
+    book.setPublicationDate(year);
+    book.setPrice(price);
+    book.setStatus(status);
+    return book;
+  }
+}
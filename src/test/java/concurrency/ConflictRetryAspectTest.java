@@ -0,0 +1,136 @@
+package concurrency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import ru.bookstore.concurrency.ConflictRetryAspect;
+import ru.bookstore.concurrency.RetryOnConflict;
+import ru.bookstore.demand.DashboardCache;
+import ru.bookstore.exceptions.OrderConflictException;
+import ru.bookstore.facade.OrderFacade;
+import ru.bookstore.facade.impl.OrderFacadeImpl;
+import ru.bookstore.model.OrderStatus;
+import ru.bookstore.model.impl.Order;
+import ru.bookstore.service.BookService;
+import ru.bookstore.service.MyUserDetailsService;
+import ru.bookstore.service.OrderService;
+import ru.bookstore.service.OutboxService;
+import ru.bookstore.service.StockReservationService;
+import util.TestUtil;
+
+class ConflictRetryAspectTest {
+  private SimpleMeterRegistry meterRegistry;
+  private Target target;
+  private Target proxy;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    target = new Target();
+    proxy = proxy(target);
+  }
+
+  @Test
+  void whenConflictThenSuccess_ShouldRetryAndReturnResult() {
+    target.failures = 2;
+
+    assertThat(proxy.change()).isEqualTo("ok");
+
+    assertThat(target.calls.get()).isEqualTo(3);
+    assertThat(meterRegistry.get(ConflictRetryAspect.RETRIES)
+        .tag("outcome", "retried").counter().count()).isEqualTo(2);
+  }
+
+  @Test
+  void whenConflictPersists_ShouldGiveUpAfterMaxAttempts() {
+    target.failures = 10;
+
+    assertThatThrownBy(() -> proxy.change()).isInstanceOf(OrderConflictException.class);
+
+    assertThat(target.calls.get()).isEqualTo(3);
+    assertThat(meterRegistry.get(ConflictRetryAspect.RETRIES)
+        .tag("outcome", "exhausted").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  void whenHibernateVersionCheckFails_ShouldRetry() {
+    target.failures = 1;
+    target.conflict = new ObjectOptimisticLockingFailureException(Order.class, 1L);
+
+    assertThat(proxy.change()).isEqualTo("ok");
+    assertThat(target.calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  void whenOtherException_ShouldNotRetry() {
+    target.failures = 1;
+    target.conflict = new IllegalArgumentException("Невозможно отменить заказ");
+
+    assertThatThrownBy(() -> proxy.change()).isInstanceOf(IllegalArgumentException.class);
+    assertThat(target.calls.get()).isEqualTo(1);
+  }
+
+  @Test
+  void setOrderStatus_WhenConflict_ShouldRetry() {
+    OrderService orderService = mock(OrderService.class);
+    Order completed = TestUtil.createTestOrder(1L);
+    completed.setStatus(OrderStatus.COMPLETED);
+    completed.setCompleteDate(LocalDateTime.of(2023, 1, 2, 12, 0));
+    when(orderService.setOrderStatus(1L, OrderStatus.COMPLETED))
+        .thenThrow(new OrderConflictException("Заказ [1] был изменён параллельно"))
+        .thenReturn(completed);
+    OrderFacadeImpl facade = new OrderFacadeImpl(orderService, mock(BookService.class),
+        mock(MyUserDetailsService.class), mock(StockReservationService.class),
+        mock(OutboxService.class), mock(DashboardCache.class));
+
+    OrderFacade facadeProxy = proxy(facade);
+
+    assertThat(facadeProxy.setOrderStatus(1L, OrderStatus.COMPLETED)).isSameAs(completed);
+    verify(orderService, times(2)).setOrderStatus(1L, OrderStatus.COMPLETED);
+  }
+
+  @Test
+  void statusTransitions_ShouldOnlyLeaveNew() {
+    assertThat(OrderStatus.NEW.canTransitionTo(OrderStatus.CANCELED)).isTrue();
+    assertThat(OrderStatus.NEW.canTransitionTo(OrderStatus.COMPLETED)).isTrue();
+    assertThat(OrderStatus.COMPLETED.canTransitionTo(OrderStatus.CANCELED)).isFalse();
+    assertThat(OrderStatus.CANCELED.canTransitionTo(OrderStatus.COMPLETED)).isFalse();
+    assertThat(OrderStatus.NEW.canTransitionTo(OrderStatus.NEW)).isFalse();
+  }
+
+  private <T> T proxy(T object) {
+    ConflictRetryAspect aspect = new ConflictRetryAspect(meterRegistry);
+    aspect.setMaxAttempts(3);
+    aspect.setBaseDelayMs(1);
+    aspect.setMaxDelayMs(2);
+    AspectJProxyFactory factory = new AspectJProxyFactory(object);
+    factory.setProxyTargetClass(true);
+    factory.addAspect(aspect);
+    return factory.getProxy();
+  }
+
+  static class Target {
+    final AtomicInteger calls = new AtomicInteger();
+    int failures;
+    RuntimeException conflict = new OrderConflictException("Заказ [1] был изменён параллельно");
+
+    @RetryOnConflict
+    public String change() {
+      if (calls.incrementAndGet() <= failures) {
+        throw conflict;
+      }
+      return "ok";
+    }
+  }
+}
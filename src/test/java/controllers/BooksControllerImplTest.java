@@ -1,23 +1,38 @@
 package controllers;
 
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
 import org.springframework.test.context.ActiveProfiles;
@@ -25,24 +40,37 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import ru.bookstore.config.HibernateConfig;
 import ru.bookstore.config.SecurityConfig;
 import ru.bookstore.config.TestConfig;
+import ru.bookstore.constants.FileConstants;
 import ru.bookstore.controllers.impl.importexport.ExportController;
 import ru.bookstore.controllers.impl.importexport.ImportController;
 import ru.bookstore.dto.BookDTO;
+import ru.bookstore.dto.StockAdjustmentDTO;
 import ru.bookstore.dto.mappers.BookMapper;
+import ru.bookstore.etag.ChangeCounters;
 import ru.bookstore.exceptions.EntityNotFoundException;
 import ru.bookstore.facade.BookFacade;
 import ru.bookstore.facade.OrderFacade;
+import ru.bookstore.model.BookCursor;
+import ru.bookstore.model.BookFilter;
+import ru.bookstore.model.BookPage;
+import ru.bookstore.model.BookStatus;
 import ru.bookstore.model.impl.Book;
+import ru.bookstore.search.SearchHit;
+import ru.bookstore.search.SearchPage;
 import ru.bookstore.sorting.BookSort;
 import util.TestUtil;
 
@@ -59,6 +87,8 @@ class BooksControllerImplTest {
   @Autowired
   private OrderFacade orderFacade;
   @Autowired
+  private ChangeCounters changeCounters;
+  @Autowired
   private WebApplicationContext webApplicationContext;
 
   private MockMvc mockMvc;
@@ -87,6 +117,47 @@ class BooksControllerImplTest {
           .andExpect(content().json(TestUtil.objectMapper.writeValueAsString(expectedDto)));
     }
 
+    @Test
+    void whenBookExists_ShouldReturnVersionETag() throws Exception {
+      Book mockBook = TestUtil.createTestBook(1L);
+      mockBook.setVersion(7);
+      when(bookFacade.get(1L)).thenReturn(mockBook);
+
+      mockMvc.perform(get("/books/1")
+              .with(user("user").roles("USER")))
+          .andExpect(status().isOk())
+          .andExpect(header().string(HttpHeaders.ETAG, "W/\"book-1-7\""))
+          .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+    }
+
+    @Test
+    void whenVersionMatchesIfNoneMatch_ShouldReturnNotModifiedWithoutLoadingBook()
+        throws Exception {
+      when(bookFacade.getVersion(1L)).thenReturn(Optional.of(7L));
+
+      mockMvc.perform(get("/books/1")
+              .header(HttpHeaders.IF_NONE_MATCH, "\"book-1-7\"")
+              .with(user("user").roles("USER")))
+          .andExpect(status().isNotModified())
+          .andExpect(header().string(HttpHeaders.ETAG, "W/\"book-1-7\""))
+          .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+      verify(bookFacade, never()).get(any());
+    }
+
+    @Test
+    void whenVersionChanged_ShouldReturnNewBody() throws Exception {
+      Book mockBook = TestUtil.createTestBook(1L);
+      mockBook.setVersion(8);
+      when(bookFacade.getVersion(1L)).thenReturn(Optional.of(8L));
+      when(bookFacade.get(1L)).thenReturn(mockBook);
+
+      mockMvc.perform(get("/books/1")
+              .header(HttpHeaders.IF_NONE_MATCH, "\"book-1-7\"")
+              .with(user("user").roles("USER")))
+          .andExpect(status().isOk())
+          .andExpect(header().string(HttpHeaders.ETAG, "W/\"book-1-8\""));
+    }
+
     @Test
     void whenBookNotExists_ShouldReturnNotFound() throws Exception {
       when(bookFacade.get(999L)).thenThrow(new EntityNotFoundException("Book not found"));
@@ -156,6 +227,62 @@ class BooksControllerImplTest {
     }
   }
 
+  @Nested
+  class AdjustStockEndpointTest {
+    @Test
+    void whenAdmin_ShouldMergeDeltasOfSameBookAndAdjustInOneCall() throws Exception {
+      Book book = TestUtil.createTestBook(1L);
+      when(bookFacade.adjustStock(anyMap(), any(LocalDateTime.class))).thenReturn(List.of(book));
+
+      mockMvc.perform(patch("/books/adjust")
+              .contentType(MediaType.APPLICATION_JSON)
+              .content(TestUtil.toJson(List.of(
+                  new StockAdjustmentDTO(2L, -1),
+                  new StockAdjustmentDTO(1L, 10),
+                  new StockAdjustmentDTO(1L, 5))))
+              .with(user("admin").roles("ADMIN")))
+          .andExpect(status().isOk())
+          .andExpect(content().json(TestUtil.objectMapper.writeValueAsString(
+              List.of(BookMapper.INSTANCE.toDTO(book)))));
+
+      verify(bookFacade).adjustStock(eq(Map.of(1L, 15, 2L, -1)), any(LocalDateTime.class));
+    }
+
+    @Test
+    void whenUser_ShouldDenyAccess() throws Exception {
+      mockMvc.perform(patch("/books/adjust")
+              .contentType(MediaType.APPLICATION_JSON)
+              .content(TestUtil.toJson(List.of(new StockAdjustmentDTO(1L, 10))))
+              .with(user("user").roles("USER")))
+          .andExpect(status().isForbidden());
+    }
+  }
+
+  @Nested
+  class SearchBooksEndpointTest {
+    @Test
+    void whenUser_ShouldReturnPageOfHits() throws Exception {
+      when(bookFacade.search("толстой", 0, 20)).thenReturn(new SearchPage(1,
+          List.of(new SearchHit(2L, "Анна Каренина", "Лев Толстой", true, 3.0))));
+
+      mockMvc.perform(get("/books/search")
+              .param("q", "толстой")
+              .with(user("user").roles("USER")))
+          .andExpect(status().isOk())
+          .andExpect(content().json("{\"total\": 1, \"page\": 0, \"size\": 20, \"hits\": "
+              + "[{\"bookId\": 2, \"name\": \"Анна Каренина\", \"available\": true}]}"));
+    }
+
+    @Test
+    void whenPageSizeTooLarge_ShouldReturnBadRequest() throws Exception {
+      mockMvc.perform(get("/books/search")
+              .param("q", "толстой")
+              .param("size", "1000")
+              .with(user("user").roles("USER")))
+          .andExpect(status().isBadRequest());
+    }
+  }
+
   @Nested
   class GetStaleBooksEndpointTest {
     @Test
@@ -183,50 +310,55 @@ class BooksControllerImplTest {
   @Nested
   class ImportExportAllEndpointTest {
     @Test
-    void whenAdminImportAllBooks_ShouldAllowAccess() throws Exception {
+    void whenAdminExportAllBooks_ShouldStreamCsv() throws Exception {
       List<Book> mockBooks = List.of(
           TestUtil.createTestBook(1L),
           TestUtil.createTestBook(2L)
       );
-      List<BookDTO> expectedList = BookMapper.INSTANCE.toListDTO(mockBooks);
+      doAnswer(invocation -> {
+        Consumer<Book> consumer = invocation.getArgument(0);
+        mockBooks.forEach(consumer);
+        return null;
+      }).when(bookFacade).exportAll(any());
 
-      try (MockedStatic<ExportController> exportMock = Mockito.mockStatic(ExportController.class)) {
-        exportMock.when(() -> ExportController.exportAll(anyList(), anyString(), anyString()))
-            .thenAnswer(invocation -> null);
-
-        when(bookFacade.getAll(BookSort.ID)).thenReturn(mockBooks);
-
-        mockMvc.perform(put("/books/export")
-                .with(user("admin").roles("ADMIN")))
-            .andExpect(status().isOk())
-            .andExpect(content().json(TestUtil.objectMapper.writeValueAsString(expectedList)));
+      MvcResult result = mockMvc.perform(get("/books/export")
+              .with(user("admin").roles("ADMIN")))
+          .andExpect(request().asyncStarted())
+          .andReturn();
 
-        exportMock.verify(() ->
-            ExportController.exportAll(eq(mockBooks), anyString(), anyString()));
-      }
+      mockMvc.perform(asyncDispatch(result))
+          .andExpect(status().isOk())
+          .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+              containsString("books.csv")))
+          .andExpect(content().string(FileConstants.BOOK_HEADER + "\n"
+              + mockBooks.get(0) + "\n" + mockBooks.get(1) + "\n"));
     }
 
     @Test
-    void whenAdminExportAllBooks_ShouldAllowAccess() throws Exception {
-      List<Book> mockBooks = List.of(
-          TestUtil.createTestBook(1L),
-          TestUtil.createTestBook(2L)
-      );
-      List<BookDTO> expectedList = BookMapper.INSTANCE.toListDTO(mockBooks);
-
-      try (MockedStatic<ExportController> exportMock = Mockito.mockStatic(ExportController.class)) {
-        exportMock.when(() -> ExportController.exportAll(anyList(), anyString(), anyString()))
-            .thenAnswer(invocation -> null);
-
-        when(bookFacade.getAll(BookSort.ID)).thenReturn(mockBooks);
-
-        mockMvc.perform(put("/books/export")
-                .with(user("admin").roles("ADMIN")))
-            .andExpect(status().isOk())
-            .andExpect(content().json(TestUtil.objectMapper.writeValueAsString(expectedList)));
+    void whenAdminExportAllBooksGzip_ShouldStreamCompressedCsv() throws Exception {
+      Book mockBook = TestUtil.createTestBook(1L);
+      doAnswer(invocation -> {
+        Consumer<Book> consumer = invocation.getArgument(0);
+        consumer.accept(mockBook);
+        return null;
+      }).when(bookFacade).exportAll(any());
+
+      MvcResult result = mockMvc.perform(get("/books/export")
+              .param("format", "CSV_GZIP")
+              .with(user("admin").roles("ADMIN")))
+          .andExpect(request().asyncStarted())
+          .andReturn();
 
-        exportMock.verify(() ->
-            ExportController.exportAll(eq(mockBooks), anyString(), anyString()));
+      byte[] body = mockMvc.perform(asyncDispatch(result))
+          .andExpect(status().isOk())
+          .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/gzip"))
+          .andReturn()
+          .getResponse()
+          .getContentAsByteArray();
+
+      try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+        assertThat(new String(gzip.readAllBytes(), StandardCharsets.UTF_8))
+            .isEqualTo(FileConstants.BOOK_HEADER + "\n" + mockBook + "\n");
       }
     }
 
@@ -239,7 +371,7 @@ class BooksControllerImplTest {
 
     @Test
     void whenUserExportAll_ShouldDenyAccess() throws Exception {
-      mockMvc.perform(put("/books/export")
+      mockMvc.perform(get("/books/export")
               .with(user("user").roles("USER")))
           .andExpect(status().isForbidden());
     }
@@ -312,7 +444,7 @@ class BooksControllerImplTest {
       );
       List<BookDTO> expectedList = BookMapper.INSTANCE.toListDTO(mockBooks);
 
-      when(bookFacade.getAll(BookSort.ID)).thenReturn(mockBooks);
+      when(bookFacade.getCatalog(BookSort.ID)).thenReturn(BookMapper.INSTANCE.toListDTO(mockBooks));
 
       mockMvc.perform(get("/books")
               .param("sort", "ID")
@@ -329,7 +461,7 @@ class BooksControllerImplTest {
       );
       List<BookDTO> expectedList = BookMapper.INSTANCE.toListDTO(mockBooks);
 
-      when(bookFacade.getAll(BookSort.ID)).thenReturn(mockBooks);
+      when(bookFacade.getCatalog(BookSort.ID)).thenReturn(BookMapper.INSTANCE.toListDTO(mockBooks));
 
       mockMvc.perform(get("/books")
               .param("sort", "ID")
@@ -337,5 +469,107 @@ class BooksControllerImplTest {
           .andExpect(status().isOk())
           .andExpect(content().json(TestUtil.objectMapper.writeValueAsString(expectedList)));
     }
+
+    @Test
+    void whenCborAccepted_ShouldEncodeSameDtos() throws Exception {
+      List<Book> mockBooks = List.of(
+          TestUtil.createTestBook(1L),
+          TestUtil.createTestBook(2L)
+      );
+      String json = TestUtil.objectMapper.writeValueAsString(
+          BookMapper.INSTANCE.toListDTO(mockBooks));
+
+      when(bookFacade.getCatalog(BookSort.ID)).thenReturn(BookMapper.INSTANCE.toListDTO(mockBooks));
+
+      byte[] cbor = mockMvc.perform(get("/books")
+              .param("sort", "ID")
+              .accept(MediaType.APPLICATION_CBOR)
+              .with(user("user").roles("USER")))
+          .andExpect(status().isOk())
+          .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+          .andReturn().getResponse().getContentAsByteArray();
+
+      assertThat(new CBORMapper().readTree(cbor))
+          .isEqualTo(TestUtil.objectMapper.readTree(json));
+    }
+
+    @Test
+    void whenFiltered_ShouldReturnPageWithCursor() throws Exception {
+      List<Book> mockBooks = List.of(TestUtil.createTestBook(1L), TestUtil.createTestBook(2L));
+      BookCursor next = new BookCursor(BookSort.PRICE, 19.99, 2L);
+      BookFilter filter = new BookFilter(10.0, 20.0, null, null, null, BookStatus.AVAILABLE);
+      when(bookFacade.find(eq(filter), eq(BookSort.PRICE), isNull(), eq(2)))
+          .thenReturn(new BookPage(mockBooks, next));
+
+      mockMvc.perform(get("/books")
+              .param("sort", "PRICE")
+              .param("minPrice", "10")
+              .param("maxPrice", "20")
+              .param("status", "AVAILABLE")
+              .param("limit", "2")
+              .with(user("user").roles("USER")))
+          .andExpect(status().isOk())
+          .andExpect(content().json("{\"books\": "
+              + TestUtil.objectMapper.writeValueAsString(BookMapper.INSTANCE.toListDTO(mockBooks))
+              + ", \"next\": \"" + next.encode() + "\"}"));
+    }
+
+    @Test
+    void whenCursorGiven_ShouldContinueAfterIt() throws Exception {
+      BookCursor after = new BookCursor(BookSort.ID, null, 2L);
+      when(bookFacade.find(BookFilter.none(), BookSort.ID, after, 50))
+          .thenReturn(new BookPage(List.of(TestUtil.createTestBook(3L)), null));
+
+      mockMvc.perform(get("/books")
+              .param("sort", "ID")
+              .param("after", after.encode())
+              .with(user("user").roles("USER")))
+          .andExpect(status().isOk())
+          .andExpect(content().json("{\"books\": [{\"id\": 3}], \"next\": null}"));
+    }
+
+    @Test
+    void whenCatalogUnchanged_ShouldReturnNotModifiedWithoutReading() throws Exception {
+      mockMvc.perform(get("/books")
+              .param("sort", "ID")
+              .header(HttpHeaders.IF_NONE_MATCH, changeCounters.tag(Book.class))
+              .with(user("user").roles("USER")))
+          .andExpect(status().isNotModified())
+          .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+      verify(bookFacade, never()).getCatalog(any());
+    }
+
+    @Test
+    void whenCatalogChanged_ShouldReturnList() throws Exception {
+      String staleTag = changeCounters.tag(Book.class);
+      changeCounters.changed(Book.class);
+      when(bookFacade.getCatalog(BookSort.ID))
+          .thenReturn(BookMapper.INSTANCE.toListDTO(List.of(TestUtil.createTestBook(1L))));
+
+      mockMvc.perform(get("/books")
+              .param("sort", "ID")
+              .header(HttpHeaders.IF_NONE_MATCH, staleTag)
+              .with(user("user").roles("USER")))
+          .andExpect(status().isOk())
+          .andExpect(content().json("[{\"id\": 1}]"));
+    }
+
+    @Test
+    void whenCursorMalformed_ShouldReturnBadRequest() throws Exception {
+      mockMvc.perform(get("/books")
+              .param("sort", "ID")
+              .param("after", "не-курсор")
+              .with(user("user").roles("USER")))
+          .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenLimitTooLarge_ShouldReturnBadRequest() throws Exception {
+      mockMvc.perform(get("/books")
+              .param("sort", "ID")
+              .param("limit", "1000")
+              .with(user("user").roles("USER")))
+          .andExpect(status().isBadRequest());
+    }
   }
 }
\ No newline at end of file
@@ -1,22 +1,38 @@
 package controllers;
 
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
 import org.springframework.test.context.ActiveProfiles;
@@ -28,21 +44,30 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import ru.bookstore.config.HibernateConfig;
-import ru.bookstore.config.HibernateWebConfig;
 import ru.bookstore.config.SecurityConfig;
 import ru.bookstore.config.TestConfig;
 import ru.bookstore.controllers.impl.importexport.ExportController;
 import ru.bookstore.controllers.impl.importexport.ImportController;
 import ru.bookstore.dto.OrderDTO;
+import ru.bookstore.dto.mappers.BookMapper;
 import ru.bookstore.dto.mappers.OrderMapper;
 import ru.bookstore.exceptions.EntityNotFoundException;
 import ru.bookstore.facade.OrderFacade;
+import ru.bookstore.idempotency.IdempotencyHandler;
+import ru.bookstore.model.OrderBatchResult;
+import ru.bookstore.model.OrderCursor;
+import ru.bookstore.model.OrderPage;
 import ru.bookstore.model.OrderStatus;
+import ru.bookstore.model.OrderVersion;
+import ru.bookstore.model.SalesEntry;
+import ru.bookstore.model.impl.IdempotencyRecord;
 import ru.bookstore.model.impl.Order;
+import ru.bookstore.service.IdempotencyService;
 import ru.bookstore.sorting.OrderSort;
 import util.TestUtil;
 
@@ -57,6 +82,8 @@ class OrdersControllerImplTest {
   @Autowired
   private OrderFacade orderFacade;
   @Autowired
+  private IdempotencyService idempotencyService;
+  @Autowired
   private WebApplicationContext webApplicationContext;
 
   private MockMvc mockMvc;
@@ -68,7 +95,7 @@ class OrdersControllerImplTest {
         .apply(springSecurity())
         .build();
 
-    Mockito.reset(orderFacade);
+    Mockito.reset(orderFacade, idempotencyService);
   }
 
   @Nested
@@ -89,6 +116,97 @@ class OrdersControllerImplTest {
           .andExpect(content().json(TestUtil.objectMapper.writeValueAsString(orderDTO)));
     }
 
+    @Test
+    void whenRetriedWithSameIdempotencyKey_ShouldReplayWithoutCreatingAgain() throws Exception {
+      OrderDTO orderDTO = TestUtil.createTestOrderDTO(1L);
+      String key = UUID.randomUUID().toString();
+
+      when(idempotencyService.claim(eq("test_client"), eq(key), anyString(), any()))
+          .thenReturn(Optional.empty());
+      when(orderFacade.createOrder(anyMap(), anyString(), any(LocalDateTime.class)))
+          .thenReturn(TestUtil.createTestOrder(1L));
+
+      for (int attempt = 0; attempt < 2; attempt++) {
+        mockMvc.perform(post("/orders")
+                .header(IdempotencyHandler.HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(TestUtil.toJson(orderDTO))
+                .with(user("test_client").roles("USER")))
+            .andExpect(status().isOk())
+            .andExpect(content().json(TestUtil.objectMapper.writeValueAsString(orderDTO)));
+      }
+
+      verify(orderFacade, times(1)).createOrder(anyMap(), anyString(), any(LocalDateTime.class));
+      verify(idempotencyService, times(1)).claim(eq("test_client"), eq(key), anyString(), any());
+      verify(idempotencyService).complete(eq("test_client"), eq(key), anyString());
+    }
+
+    @Test
+    void whenIdempotencyKeyStoredInDatabase_ShouldReturnStoredResponse() throws Exception {
+      OrderDTO orderDTO = TestUtil.createTestOrderDTO(1L);
+      String key = UUID.randomUUID().toString();
+      IdempotencyRecord record = new IdempotencyRecord();
+      record.setRequestHash(fingerprint(orderDTO));
+      record.setResponse(TestUtil.objectMapper.writeValueAsString(orderDTO));
+      record.setExpiresAt(LocalDateTime.now().plusHours(1));
+
+      when(idempotencyService.claim(eq("test_client"), eq(key), anyString(), any()))
+          .thenReturn(Optional.of(record));
+
+      mockMvc.perform(post("/orders")
+              .header(IdempotencyHandler.HEADER, key)
+              .contentType(MediaType.APPLICATION_JSON)
+              .content(TestUtil.toJson(orderDTO))
+              .with(user("test_client").roles("USER")))
+          .andExpect(status().isOk())
+          .andExpect(header().string(IdempotencyHandler.REPLAYED_HEADER, "true"))
+          .andExpect(content().json(TestUtil.objectMapper.writeValueAsString(orderDTO)));
+
+      verify(orderFacade, never()).createOrder(anyMap(), anyString(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void whenIdempotencyKeyStillInProgress_ShouldReturnConflict() throws Exception {
+      OrderDTO orderDTO = TestUtil.createTestOrderDTO(1L);
+      String key = UUID.randomUUID().toString();
+      IdempotencyRecord record = new IdempotencyRecord();
+      record.setRequestHash(fingerprint(orderDTO));
+      record.setExpiresAt(LocalDateTime.now().plusHours(1));
+
+      when(idempotencyService.claim(eq("test_client"), eq(key), anyString(), any()))
+          .thenReturn(Optional.of(record));
+
+      mockMvc.perform(post("/orders")
+              .header(IdempotencyHandler.HEADER, key)
+              .contentType(MediaType.APPLICATION_JSON)
+              .content(TestUtil.toJson(orderDTO))
+              .with(user("test_client").roles("USER")))
+          .andExpect(status().isConflict());
+
+      verify(orderFacade, never()).createOrder(anyMap(), anyString(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void whenCreateFails_ShouldReleaseIdempotencyKey() throws Exception {
+      OrderDTO orderDTO = TestUtil.createTestOrderDTO(1L);
+      String key = UUID.randomUUID().toString();
+
+      when(idempotencyService.claim(eq("test_client"), eq(key), anyString(), any()))
+          .thenReturn(Optional.empty());
+      when(orderFacade.createOrder(anyMap(), anyString(), any(LocalDateTime.class)))
+          .thenThrow(new IllegalArgumentException("Клиент не зарегистрирован."));
+
+      mockMvc.perform(post("/orders")
+              .header(IdempotencyHandler.HEADER, key)
+              .contentType(MediaType.APPLICATION_JSON)
+              .content(TestUtil.toJson(orderDTO))
+              .with(user("test_client").roles("USER")))
+          .andExpect(status().isBadRequest());
+
+      verify(idempotencyService).release("test_client", key);
+      verify(idempotencyService, never()).complete(anyString(), anyString(), anyString());
+    }
+
     @Test
     void whenDifferentClientName_ShouldDenyAccess() throws Exception {
       OrderDTO orderDTO = TestUtil.createTestOrderDTO(1L);
@@ -113,6 +231,41 @@ class OrdersControllerImplTest {
     }
   }
 
+  @Nested
+  class CreateOrdersTests {
+    @Test
+    void whenBatchHasForeignOrder_ShouldRejectOnlyIt() throws Exception {
+      OrderDTO own = TestUtil.createTestOrderDTO(null);
+      OrderDTO foreign = TestUtil.createTestOrderDTO(null);
+      foreign.setClientName("another_client");
+
+      when(orderFacade.createOrders(anyList(), any(LocalDateTime.class)))
+          .thenReturn(List.of(OrderBatchResult.created(TestUtil.createTestOrder(1L))));
+
+      mockMvc.perform(post("/orders/batch")
+              .contentType(MediaType.APPLICATION_JSON)
+              .content(TestUtil.toJson(List.of(own, foreign)))
+              .with(user("test_client").roles("USER")))
+          .andExpect(status().isOk())
+          .andExpect(content().json("[{\"index\": 0, \"order\": {\"id\": 1}}, "
+              + "{\"index\": 1, \"error\": \"Вы можете создать заказ только на своё имя\"}]"));
+
+      verify(orderFacade).createOrders(argThat(orders -> orders.size() == 1
+          && orders.get(0).getClientName().equals("test_client")), any(LocalDateTime.class));
+    }
+
+    @Test
+    void whenBatchEmpty_ShouldReturnBadRequest() throws Exception {
+      mockMvc.perform(post("/orders/batch")
+              .contentType(MediaType.APPLICATION_JSON)
+              .content("[]")
+              .with(user("test_client").roles("USER")))
+          .andExpect(status().isBadRequest());
+
+      verify(orderFacade, never()).createOrders(anyList(), any());
+    }
+  }
+
   @Nested
   class CancelOrderTests {
     @Test
@@ -129,6 +282,30 @@ class OrdersControllerImplTest {
           .andExpect(content().json(TestUtil.objectMapper.writeValueAsString(expectedDto)));
     }
 
+    @Test
+    void whenVersionMatchesIfNoneMatch_ShouldReturnNotModified() throws Exception {
+      when(orderFacade.getVersion(1L)).thenReturn(Optional.of(new OrderVersion("test_client", 3)));
+
+      mockMvc.perform(get("/orders/1")
+              .header(HttpHeaders.IF_NONE_MATCH, "\"order-1-3\"")
+              .with(user("test_client").roles("USER")))
+          .andExpect(status().isNotModified())
+          .andExpect(header().string(HttpHeaders.ETAG, "W/\"order-1-3\""))
+          .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+      verify(orderFacade, never()).get(any());
+    }
+
+    @Test
+    void whenDifferentClientSendsIfNoneMatch_ShouldDenyAccess() throws Exception {
+      when(orderFacade.getVersion(1L))
+          .thenReturn(Optional.of(new OrderVersion("another_client", 3)));
+
+      mockMvc.perform(get("/orders/1")
+              .header(HttpHeaders.IF_NONE_MATCH, "\"order-1-3\"")
+              .with(user("client").roles("USER")))
+          .andExpect(status().isForbidden());
+    }
+
     @Test
     void whenDifferentClient_ShouldDenyAccess() throws Exception {
       Order mockOrder = TestUtil.createTestOrder(1L);
@@ -179,6 +356,66 @@ class OrdersControllerImplTest {
     }
   }
 
+  @Nested
+  class ClientOrdersTests {
+    @Test
+    void whenUserRequestsOwnOrders_ShouldQueryByOwnName() throws Exception {
+      List<Order> mockOrders = List.of(TestUtil.createTestOrder(2L),
+          TestUtil.createTestOrder(1L));
+      OrderCursor next = OrderCursor.after(mockOrders.get(1));
+      when(orderFacade.getClientOrders("test_client", OrderStatus.NEW, null, 2))
+          .thenReturn(new OrderPage(mockOrders, next));
+
+      mockMvc.perform(get("/orders/my")
+              .param("status", "NEW")
+              .param("limit", "2")
+              .with(user("test_client").roles("USER")))
+          .andExpect(status().isOk())
+          .andExpect(content().json("{\"orders\": "
+              + TestUtil.objectMapper.writeValueAsString(OrderMapper.INSTANCE.toListDTO(mockOrders))
+              + ", \"next\": \"" + next.encode() + "\"}"));
+    }
+
+    @Test
+    void whenCursorGiven_ShouldContinueBeforeIt() throws Exception {
+      OrderCursor after = new OrderCursor(LocalDateTime.of(2023, 1, 1, 12, 0), 5L);
+      when(orderFacade.getClientOrders("test_client", null, after, 20))
+          .thenReturn(new OrderPage(List.of(), null));
+
+      mockMvc.perform(get("/orders/my")
+              .param("after", after.encode())
+              .with(user("test_client").roles("USER")))
+          .andExpect(status().isOk())
+          .andExpect(content().json("{\"orders\": [], \"next\": null}"));
+    }
+
+    @Test
+    void whenLimitTooLarge_ShouldReturnBadRequest() throws Exception {
+      mockMvc.perform(get("/orders/my")
+              .param("limit", "1000")
+              .with(user("test_client").roles("USER")))
+          .andExpect(status().isBadRequest());
+      verify(orderFacade, never()).getClientOrders(anyString(), any(), any(), Mockito.anyInt());
+    }
+
+    @Test
+    void whenAdminRequestsClientOrders_ShouldAllowAccess() throws Exception {
+      when(orderFacade.getClientOrders(eq("another_client"), isNull(), isNull(), eq(20)))
+          .thenReturn(new OrderPage(List.of(), null));
+
+      mockMvc.perform(get("/orders/client/another_client")
+              .with(user("admin").roles("ADMIN")))
+          .andExpect(status().isOk());
+    }
+
+    @Test
+    void whenUserRequestsClientOrders_ShouldDenyAccess() throws Exception {
+      mockMvc.perform(get("/orders/client/another_client")
+              .with(user("client").roles("USER")))
+          .andExpect(status().isForbidden());
+    }
+  }
+
   @Nested
   class AdminOperationsTests {
     @Test
@@ -206,6 +443,30 @@ class OrdersControllerImplTest {
           .andExpect(status().isForbidden());
     }
 
+    @Test
+    void whenAdminAcceptsCbor_ShouldEncodeSameDtosMoreCompactly() throws Exception {
+      List<Order> mockOrders = List.of(
+          TestUtil.createTestOrder(1L),
+          TestUtil.createTestOrder(2L)
+      );
+      String json = TestUtil.objectMapper.writeValueAsString(
+          OrderMapper.INSTANCE.toListDTO(mockOrders));
+
+      when(orderFacade.getAll(OrderSort.ID)).thenReturn(mockOrders);
+
+      byte[] cbor = mockMvc.perform(get("/orders")
+              .param("sort", "ID")
+              .accept(MediaType.APPLICATION_CBOR)
+              .with(user("admin").roles("ADMIN")))
+          .andExpect(status().isOk())
+          .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+          .andReturn().getResponse().getContentAsByteArray();
+
+      assertThat(new CBORMapper().readTree(cbor))
+          .isEqualTo(TestUtil.objectMapper.readTree(json));
+      assertThat(cbor.length).isLessThan(json.getBytes(StandardCharsets.UTF_8).length);
+    }
+
     @Test
     void whenAdminGetsOrders_ShouldAllowAccess() throws Exception {
       List<Order> mockOrders = List.of(
@@ -308,5 +569,45 @@ class OrdersControllerImplTest {
           .andExpect(status().isOk())
           .andExpect(content().string("1000.0"));
     }
+
+    @Test
+    void whenAdminGetsBestsellers_ShouldReturnRanking() throws Exception {
+      List<SalesEntry> ranking = List.of(
+          new SalesEntry(TestUtil.createTestBook(3L), 40L),
+          new SalesEntry(TestUtil.createTestBook(1L), 7L));
+
+      when(orderFacade.getBestsellers(7, 2)).thenReturn(ranking);
+
+      mockMvc.perform(get("/orders/bestsellers")
+              .param("days", "7")
+              .param("limit", "2")
+              .with(user("admin").roles("ADMIN")))
+          .andExpect(status().isOk())
+          .andExpect(content().json(TestUtil.objectMapper.writeValueAsString(
+              BookMapper.INSTANCE.toSalesDTOs(ranking))));
+    }
+
+    @Test
+    void whenBestsellersPeriodIsTooLong_ShouldReturnBadRequest() throws Exception {
+      mockMvc.perform(get("/orders/bestsellers")
+              .param("days", "1000")
+              .with(user("admin").roles("ADMIN")))
+          .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenUserGetsBestsellers_ShouldDenyAccess() throws Exception {
+      mockMvc.perform(get("/orders/bestsellers")
+              .with(user("user").roles("USER")))
+          .andExpect(status().isForbidden());
+    }
+  }
+
+  private static String fingerprint(OrderDTO orderDTO) throws Exception {
+    byte[] json = Jackson2ObjectMapperBuilder.json()
+        .featuresToEnable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+        .build()
+        .writeValueAsBytes(orderDTO.getBooks());
+    return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
   }
-}
\ No newline at end of file
+}
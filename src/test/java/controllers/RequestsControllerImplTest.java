@@ -3,18 +3,19 @@ package controllers;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -26,17 +27,20 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import ru.bookstore.config.HibernateConfig;
-import ru.bookstore.config.HibernateWebConfig;
 import ru.bookstore.config.SecurityConfig;
 import ru.bookstore.config.TestConfig;
+import ru.bookstore.constants.FileConstants;
 import ru.bookstore.controllers.impl.importexport.ExportController;
 import ru.bookstore.controllers.impl.importexport.ImportController;
 import ru.bookstore.dto.BookDTO;
@@ -44,6 +48,7 @@ import ru.bookstore.dto.RequestDTO;
 import ru.bookstore.dto.mappers.BookMapper;
 import ru.bookstore.dto.mappers.RequestMapper;
 import ru.bookstore.facade.RequestFacade;
+import ru.bookstore.model.DemandEntry;
 import ru.bookstore.model.impl.Book;
 import ru.bookstore.model.impl.Request;
 import ru.bookstore.sorting.RequestSort;
@@ -138,6 +143,33 @@ class RequestsControllerImplTest {
     }
   }
 
+  @Nested
+  class GetTopDemandTests {
+    @Test
+    void whenAdminGetsTopDemand_ShouldReturnRanking() throws Exception {
+      List<DemandEntry> ranking = List.of(
+          new DemandEntry(TestUtil.createTestBook(2L), 5L, 12L),
+          new DemandEntry(TestUtil.createTestBook(1L), 3L, 3L));
+
+      when(requestFacade.getTopDemand(10)).thenReturn(ranking);
+
+      mockMvc.perform(get("/requests/top")
+              .param("limit", "10")
+              .with(user("admin").roles("ADMIN")))
+          .andExpect(status().isOk())
+          .andExpect(content().json(TestUtil.objectMapper.writeValueAsString(
+              BookMapper.INSTANCE.toDemandDTOs(ranking))));
+    }
+
+    @Test
+    void whenLimitIsTooLarge_ShouldReturnBadRequest() throws Exception {
+      mockMvc.perform(get("/requests/top")
+              .param("limit", "1000")
+              .with(user("admin").roles("ADMIN")))
+          .andExpect(status().isBadRequest());
+    }
+  }
+
   @Nested
   class GetAllRequestsTests {
     @Test
@@ -220,20 +252,23 @@ class RequestsControllerImplTest {
     }
 
     @Test
-    void whenAdminExportsAllRequests_ShouldAllowAccess() throws Exception {
+    void whenAdminExportsAllRequests_ShouldStreamCsv() throws Exception {
       List<Request> mockRequests = List.of(TestUtil.createTestRequest(1L));
-      List<RequestDTO> expectedList = RequestMapper.INSTANCE.toListDTO(mockRequests);
+      doAnswer(inv -> {
+        Consumer<Request> consumer = inv.getArgument(0);
+        mockRequests.forEach(consumer);
+        return null;
+      }).when(requestFacade).exportAll(any());
 
-      try (MockedStatic<ExportController> exportMock = Mockito.mockStatic(ExportController.class)) {
-        when(requestFacade.getAllRequests()).thenReturn(mockRequests);
-        exportMock.when(() -> ExportController.exportAll(anyList(), anyString(), anyString()))
-            .thenAnswer(inv -> null);
+      MvcResult result = mockMvc.perform(get("/requests/export")
+              .with(user("admin").roles("ADMIN")))
+          .andExpect(request().asyncStarted())
+          .andReturn();
 
-        mockMvc.perform(put("/requests/export")
-                .with(user("admin").roles("ADMIN")))
-            .andExpect(status().isOk())
-            .andExpect(content().json(TestUtil.objectMapper.writeValueAsString(expectedList)));
-      }
+      mockMvc.perform(asyncDispatch(result))
+          .andExpect(status().isOk())
+          .andExpect(content().string(FileConstants.REQUEST_HEADER + "\n"
+              + mockRequests.get(0) + "\n"));
     }
   }
 }
\ No newline at end of file
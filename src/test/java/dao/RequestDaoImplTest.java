@@ -0,0 +1,153 @@
+package dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Transactional;
+import ru.bookstore.config.HibernateConfig;
+import ru.bookstore.dao.RequestDao;
+import ru.bookstore.dao.impl.RequestDaoImpl;
+import ru.bookstore.model.BookStatus;
+import ru.bookstore.model.RequestStatus;
+import ru.bookstore.model.impl.Book;
+import ru.bookstore.model.impl.Request;
+
+/**
+ * Счётчики спроса (book_demand) на H2: после каждой операции они должны совпадать с открытыми
+ * запросами, а не ждать ежечасной сверки.
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {HibernateConfig.class, RequestDaoImplTest.Config.class})
+@TestPropertySource(properties = {
+    "db.url=jdbc:h2:mem:requests;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+    "db.user=sa",
+    "db.password=",
+    "db.driver=org.h2.Driver",
+    "db.dialect=org.hibernate.dialect.H2Dialect",
+    "db.ddl.auto=create"
+})
+@Transactional
+class RequestDaoImplTest {
+  @Autowired
+  private RequestDao requestDao;
+  @Autowired
+  private SessionFactory sessionFactory;
+
+  private Book first;
+  private Book second;
+
+  @BeforeEach
+  void setUp() {
+    first = book("Первая");
+    second = book("Вторая");
+  }
+
+  @Test
+  void importRequest_WhenOpenRequestReimported_ShouldNotCountItTwice() {
+    Long id = requestDao.importRequest(new Request(null, first, 2, RequestStatus.OPEN)).getId();
+
+    requestDao.importRequest(new Request(id, first, 2, RequestStatus.OPEN));
+
+    assertThat(demand(first)).containsExactly(1L, 2L);
+  }
+
+  @Test
+  void importRequest_WhenStatusFlipsToClosed_ShouldSubtractIt() {
+    Long id = requestDao.importRequest(new Request(null, first, 2, RequestStatus.OPEN)).getId();
+
+    requestDao.importRequest(new Request(id, first, 2, RequestStatus.CLOSED));
+
+    assertThat(demand(first)).containsExactly(0L, 0L);
+  }
+
+  @Test
+  void importRequest_WhenBookAndAmountChange_ShouldMoveDemand() {
+    Long id = requestDao.importRequest(new Request(null, first, 2, RequestStatus.OPEN)).getId();
+
+    requestDao.importRequest(new Request(id, second, 5, RequestStatus.OPEN));
+
+    assertThat(demand(first)).containsExactly(0L, 0L);
+    assertThat(demand(second)).containsExactly(1L, 5L);
+  }
+
+  @Test
+  void closeRequests_ShouldCloseOpenRequestEvenIfClosedOneMatches() {
+    requestDao.importRequest(new Request(null, first, 3, RequestStatus.CLOSED));
+    Long open = requestDao.importRequest(new Request(null, first, 3, RequestStatus.OPEN))
+        .getId();
+
+    requestDao.closeRequests(Map.of(first.getId(), 3));
+
+    assertThat(requestDao.getRequestById(open)).get()
+        .extracting(Request::getStatus).isEqualTo(RequestStatus.CLOSED);
+    assertThat(demand(first)).containsExactly(0L, 0L);
+  }
+
+  @Test
+  void importRequest_ShouldSetClosedAtOnlyWhenClosingOpenRequest() {
+    Long id = requestDao.importRequest(new Request(null, first, 2, RequestStatus.OPEN)).getId();
+    requestDao.importRequest(new Request(id, first, 2, RequestStatus.CLOSED));
+    LocalDateTime closedAt = closedAt(id);
+    assertThat(closedAt).isNotNull();
+
+    requestDao.importRequest(new Request(id, first, 2, RequestStatus.CLOSED));
+
+    assertThat(closedAt(id)).isEqualTo(closedAt);
+  }
+
+  @Test
+  void closeRequests_WhenAlreadyClosed_ShouldKeepClosedAt() {
+    Long id = requestDao.importRequest(new Request(null, first, 3, RequestStatus.OPEN)).getId();
+    requestDao.closeRequests(Map.of(first.getId(), 3));
+    LocalDateTime closedAt = closedAt(id);
+
+    requestDao.closeRequests(Map.of(first.getId(), 3));
+
+    assertThat(closedAt).isNotNull();
+    assertThat(closedAt(id)).isEqualTo(closedAt);
+  }
+
+  private LocalDateTime closedAt(Long requestId) {
+    Session session = sessionFactory.getCurrentSession();
+    session.flush();
+    session.clear();
+    return requestDao.getRequestById(requestId).orElseThrow().getClosedAt();
+  }
+
+  private Book book(String name) {
+    Book book = new Book(null, name, "Автор", 2020, 0, 100.0, null, null,
+        BookStatus.NOT_AVAILABLE);
+    sessionFactory.getCurrentSession().persist(book);
+    return book;
+  }
+
+  private List<Long> demand(Book book) {
+    Session session = sessionFactory.getCurrentSession();
+    session.flush();
+    session.clear();
+    Object[] row = session.createNativeQuery("SELECT openRequests, openAmount FROM book_demand "
+            + "WHERE book_id = :bookId", Object[].class)
+        .setParameter("bookId", book.getId())
+        .uniqueResult();
+    return row == null ? List.of(0L, 0L)
+        : List.of(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+  }
+
+  @Configuration
+  @Import(RequestDaoImpl.class)
+  static class Config {
+  }
+}
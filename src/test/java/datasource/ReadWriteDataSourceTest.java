@@ -0,0 +1,130 @@
+package datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bookstore.datasource.ReadWriteDataSource;
+import ru.bookstore.datasource.ReplicaMonitor;
+import ru.bookstore.datasource.ReplicaRead;
+import ru.bookstore.datasource.ReplicaReadAspect;
+
+class ReadWriteDataSourceTest {
+  private DataSource primary;
+  private DataSource replica;
+  private ReplicaMonitor monitor;
+  private ReadWriteDataSource dataSource;
+  private TransactionTemplate readWrite;
+  private TransactionTemplate readOnly;
+
+  @BeforeEach
+  void setUp() {
+    primary = database("primary");
+    replica = database("replica");
+    new JdbcTemplate(replica).execute("CREATE TABLE replica_lag (Seconds_Behind_Source BIGINT)");
+    setLag(0L);
+
+    monitor = new ReplicaMonitor(replica, "SELECT Seconds_Behind_Source FROM replica_lag");
+    monitor.refresh();
+    dataSource = new ReadWriteDataSource(primary, replica, monitor, 5);
+
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    readWrite = new TransactionTemplate(transactionManager);
+    readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+  }
+
+  @AfterEach
+  void tearDown() {
+    new JdbcTemplate(primary).execute("SHUTDOWN");
+    new JdbcTemplate(replica).execute("SHUTDOWN");
+  }
+
+  @Test
+  void whenReadOnlyTransaction_ShouldUseReplica() {
+    assertThat(currentDatabase(readOnly)).isEqualTo("replica");
+    assertThat(currentDatabase(readWrite)).isEqualTo("primary");
+  }
+
+  @Test
+  void whenReplicaLagsBehindTolerance_ShouldFallBackToPrimary() {
+    setLag(30L);
+    monitor.refresh();
+
+    assertThat(currentDatabase(readOnly)).isEqualTo("primary");
+
+    Reports reports = reports(new Reports(readOnly, new JdbcTemplate(dataSource)));
+    assertThat(reports.tolerant()).isEqualTo("replica");
+    assertThat(reports.primaryOnly()).isEqualTo("primary");
+  }
+
+  @Test
+  void whenReplicationStopped_ShouldFallBackToPrimary() {
+    setLag(null);
+    monitor.refresh();
+
+    assertThat(monitor.isHealthy()).isFalse();
+    assertThat(currentDatabase(readOnly)).isEqualTo("primary");
+  }
+
+  private String currentDatabase() {
+    return currentDatabase(new JdbcTemplate(dataSource));
+  }
+
+  private String currentDatabase(TransactionTemplate transaction) {
+    return transaction.execute(status -> currentDatabase());
+  }
+
+  private static String currentDatabase(JdbcTemplate jdbc) {
+    return jdbc.queryForObject("SELECT name FROM marker", String.class);
+  }
+
+  private void setLag(Long lag) {
+    JdbcTemplate jdbc = new JdbcTemplate(replica);
+    jdbc.update("DELETE FROM replica_lag");
+    jdbc.update("INSERT INTO replica_lag VALUES (?)", lag);
+  }
+
+  private static DataSource database(String name) {
+    DataSource dataSource = new DriverManagerDataSource(
+        "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+    jdbc.execute("CREATE TABLE marker (name VARCHAR(16))");
+    jdbc.update("INSERT INTO marker VALUES (?)", name);
+    return dataSource;
+  }
+
+  private static Reports reports(Reports target) {
+    AspectJProxyFactory factory = new AspectJProxyFactory(target);
+    factory.setProxyTargetClass(true);
+    factory.addAspect(new ReplicaReadAspect());
+    return factory.getProxy();
+  }
+
+  static class Reports {
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbc;
+
+    Reports(TransactionTemplate transactionTemplate, JdbcTemplate jdbc) {
+      this.transactionTemplate = transactionTemplate;
+      this.jdbc = jdbc;
+    }
+
+    @ReplicaRead(maxLagSeconds = 60)
+    public String tolerant() {
+      return transactionTemplate.execute(status -> currentDatabase(jdbc));
+    }
+
+    @ReplicaRead(maxLagSeconds = ReplicaRead.PRIMARY_ONLY)
+    public String primaryOnly() {
+      return transactionTemplate.execute(status -> currentDatabase(jdbc));
+    }
+  }
+}
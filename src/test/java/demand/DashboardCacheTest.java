@@ -0,0 +1,60 @@
+package demand;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import ru.bookstore.demand.DashboardCache;
+
+class DashboardCacheTest {
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @Test
+  void get_WithinWindow_ShouldLoadOncePerKey() {
+    DashboardCache cache = new DashboardCache(meterRegistry, 60);
+
+    assertThat(cache.get(List.of("demand", 10), loads::incrementAndGet)).isEqualTo(1);
+    assertThat(cache.get(List.of("demand", 10), loads::incrementAndGet)).isEqualTo(1);
+    assertThat(cache.get(List.of("demand", 20), loads::incrementAndGet)).isEqualTo(2);
+
+    assertThat(hits()).isEqualTo(1);
+    assertThat(misses()).isEqualTo(2);
+  }
+
+  @Test
+  void get_AfterWindow_ShouldReload() {
+    DashboardCache cache = new DashboardCache(meterRegistry, 0);
+
+    cache.get("bestsellers", loads::incrementAndGet);
+    cache.get("bestsellers", loads::incrementAndGet);
+
+    assertThat(loads.get()).isEqualTo(2);
+    assertThat(hits()).isZero();
+  }
+
+  @Test
+  void get_WhenLoaderFails_ShouldNotCacheFailure() {
+    DashboardCache cache = new DashboardCache(meterRegistry, 60);
+
+    try {
+      cache.get("demand", () -> {
+        throw new IllegalStateException("нет соединения");
+      });
+    } catch (IllegalStateException ignored) {
+      // следующий вызов должен снова пойти в базу
+    }
+
+    assertThat(cache.get("demand", loads::incrementAndGet)).isEqualTo(1);
+  }
+
+  private double hits() {
+    return meterRegistry.get(DashboardCache.LOOKUPS).tag("result", "hit").counter().count();
+  }
+
+  private double misses() {
+    return meterRegistry.get(DashboardCache.LOOKUPS).tag("result", "miss").counter().count();
+  }
+}
@@ -0,0 +1,45 @@
+package demand;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.bookstore.demand.DemandReconciler;
+import ru.bookstore.exceptions.DataAccessException;
+import ru.bookstore.service.RequestService;
+
+class DemandReconcilerTest {
+  private RequestService requestService;
+  private SimpleMeterRegistry meterRegistry;
+  private DemandReconciler reconciler;
+
+  @BeforeEach
+  void setUp() {
+    requestService = mock(RequestService.class);
+    meterRegistry = new SimpleMeterRegistry();
+    reconciler = new DemandReconciler(requestService, mock(PlatformTransactionManager.class),
+        meterRegistry, 60);
+  }
+
+  @Test
+  void reconcile_ShouldCountFixedBooks() {
+    when(requestService.reconcileDemand()).thenReturn(3, 0);
+
+    assertThat(reconciler.reconcile()).isEqualTo(3);
+    assertThat(reconciler.reconcile()).isZero();
+    assertThat(meterRegistry.get(DemandReconciler.RECONCILED).counter().count()).isEqualTo(3);
+  }
+
+  @Test
+  void reconcile_WhenDatabaseFails_ShouldKeepSchedule() {
+    when(requestService.reconcileDemand())
+        .thenThrow(new DataAccessException("нет соединения", null));
+
+    assertThat(reconciler.reconcile()).isZero();
+    assertThat(meterRegistry.get(DemandReconciler.RECONCILED).counter().count()).isZero();
+  }
+}
@@ -0,0 +1,86 @@
+package etag;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import ru.bookstore.etag.ChangeCounters;
+import ru.bookstore.etag.ETags;
+import ru.bookstore.model.impl.Book;
+import ru.bookstore.model.impl.Order;
+
+class ChangeCountersTest {
+  private ChangeCounters counters;
+
+  @BeforeEach
+  void setUp() {
+    counters = new ChangeCounters(0);
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void whenChangedOutsideTransaction_ShouldChangeTagOfThatTableOnly() {
+    String bookTag = counters.tag(Book.class);
+    String orderTag = counters.tag(Order.class);
+
+    counters.changed(Book.class);
+
+    assertThat(counters.tag(Book.class)).isNotEqualTo(bookTag);
+    assertThat(counters.tag(Order.class)).isEqualTo(orderTag);
+  }
+
+  @Test
+  void whenTransactionCommits_ShouldChangeTagOnceAfterCommit() {
+    String before = counters.tag(Book.class);
+    TransactionSynchronizationManager.initSynchronization();
+
+    counters.changed(Book.class);
+    counters.changed(Book.class);
+    assertThat(counters.tag(Book.class)).isEqualTo(before);
+
+    complete(TransactionSynchronization.STATUS_COMMITTED);
+    String after = counters.tag(Book.class);
+    counters.changed(Book.class);
+    assertThat(after).isNotEqualTo(before);
+    assertThat(counters.tag(Book.class)).isNotEqualTo(after);
+  }
+
+  @Test
+  void whenTransactionRollsBack_ShouldKeepTag() {
+    String before = counters.tag(Book.class);
+    TransactionSynchronizationManager.initSynchronization();
+
+    counters.changed(Book.class);
+    complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+    assertThat(counters.tag(Book.class)).isEqualTo(before);
+  }
+
+  @Test
+  void ifNoneMatch_ShouldAcceptListsWeakTagsAndWildcard() {
+    String etag = ETags.of("book", 1, 7);
+
+    assertThat(etag).isEqualTo("W/\"book-1-7\"");
+    assertThat(ETags.matches("\"book-1-6\", W/\"book-1-7\"", etag)).isTrue();
+    assertThat(ETags.matches("\"book-1-7\"", etag)).isTrue();
+    assertThat(ETags.matches("*", etag)).isTrue();
+    assertThat(ETags.matches("\"book-1-6\"", etag)).isFalse();
+    assertThat(ETags.matches(null, etag)).isFalse();
+  }
+
+  private static void complete(int status) {
+    var synchronizations = TransactionSynchronizationManager.getSynchronizations();
+    TransactionSynchronizationManager.clearSynchronization();
+    TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+  }
+}
@@ -0,0 +1,88 @@
+package facade;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.bookstore.facade.impl.BookFacadeImpl;
+import ru.bookstore.model.BookCursor;
+import ru.bookstore.model.BookFilter;
+import ru.bookstore.model.BookPage;
+import ru.bookstore.model.impl.Book;
+import ru.bookstore.search.BookSearchIndex;
+import ru.bookstore.service.BookService;
+import ru.bookstore.service.OutboxService;
+import ru.bookstore.sorting.BookSort;
+import util.TestUtil;
+
+@ExtendWith(MockitoExtension.class)
+class BookFacadeImplTest {
+  @Mock
+  private BookService bookService;
+  @Mock
+  private OutboxService outboxService;
+  @Mock
+  private BookSearchIndex bookSearchIndex;
+  @InjectMocks
+  private BookFacadeImpl bookFacade;
+
+  @Nested
+  class FindTests {
+    private final BookFilter filter = new BookFilter(null, 50.0, null, null, null, null);
+
+    @Test
+    void whenMoreBooksThanLimit_ShouldReturnCursorAfterLastBookOfPage() {
+      List<Book> books = List.of(TestUtil.createTestBook(1L), TestUtil.createTestBook(2L),
+          TestUtil.createTestBook(3L));
+      when(bookService.findBooks(filter, BookSort.PRICE, null, 3)).thenReturn(books);
+
+      BookPage page = bookFacade.find(filter, BookSort.PRICE, null, 2);
+
+      assertThat(page.books()).extracting(Book::getId).containsExactly(1L, 2L);
+      assertThat(page.next()).isEqualTo(new BookCursor(BookSort.PRICE, 19.99, 2L));
+    }
+
+    @Test
+    void whenLastPage_ShouldReturnNoCursor() {
+      BookCursor after = new BookCursor(BookSort.ID, null, 2L);
+      List<Book> books = List.of(TestUtil.createTestBook(3L));
+      when(bookService.findBooks(filter, BookSort.ID, after, 3)).thenReturn(books);
+
+      BookPage page = bookFacade.find(filter, BookSort.ID, after, 2);
+
+      assertThat(page.books()).isEqualTo(books);
+      assertThat(page.next()).isNull();
+    }
+
+    @Test
+    void whenCursorFromAnotherSort_ShouldThrow() {
+      BookCursor after = new BookCursor(BookSort.NAME, "Test Book 2", 2L);
+
+      assertThatThrownBy(() -> bookFacade.find(filter, BookSort.PRICE, after, 2))
+          .isInstanceOf(IllegalArgumentException.class);
+      verifyNoInteractions(bookService);
+    }
+
+    @Test
+    void whenStaleSort_ShouldThrow() {
+      assertThatThrownBy(() -> bookFacade.find(filter, BookSort.STALE_BY_PRICE, null, 2))
+          .isInstanceOf(IllegalArgumentException.class);
+      verifyNoInteractions(bookService);
+    }
+  }
+
+  @Test
+  void cursor_ShouldSurviveEncoding() {
+    BookCursor cursor = new BookCursor(BookSort.NAME, "Война и мир|том 1", 42L);
+
+    assertThat(BookCursor.decode(cursor.encode())).isEqualTo(cursor);
+  }
+}
@@ -8,6 +8,7 @@ import static org.mockito.Mockito.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -15,14 +16,20 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.time.LocalDateTime;
 import java.util.*;
 import ru.bookstore.exceptions.EntityNotFoundException;
+import ru.bookstore.exceptions.OrderConflictException;
 import ru.bookstore.facade.impl.OrderFacadeImpl;
+import ru.bookstore.model.OrderBatchResult;
+import ru.bookstore.model.OrderCursor;
+import ru.bookstore.model.OrderPage;
 import ru.bookstore.model.OrderStatus;
+import ru.bookstore.model.OutboxEventType;
 import ru.bookstore.model.impl.Book;
 import ru.bookstore.model.impl.Order;
 import ru.bookstore.service.BookService;
 import ru.bookstore.service.MyUserDetailsService;
 import ru.bookstore.service.OrderService;
-import ru.bookstore.service.RequestService;
+import ru.bookstore.service.OutboxService;
+import ru.bookstore.service.StockReservationService;
 
 @ExtendWith(MockitoExtension.class)
 class OrderFacadeImplTest {
@@ -33,7 +40,9 @@ class OrderFacadeImplTest {
   @Mock
   private MyUserDetailsService userDetailsService;
   @Mock
-  private RequestService requestService;
+  private StockReservationService stockReservationService;
+  @Mock
+  private OutboxService outboxService;
   @InjectMocks
   private OrderFacadeImpl orderFacade;
 
@@ -56,15 +65,40 @@ class OrderFacadeImplTest {
     testOrder.setStatus(OrderStatus.NEW); // Устанавливаем статус
   }
 
+  @Nested
+  class GetClientOrdersTests {
+    @Test
+    void getClientOrders_whenMoreOrdersThanLimit_thenReturnCursorAfterLastOrder() {
+      Order newer = TestUtil.createTestOrder(2L);
+      when(orderService.getClientOrders(TEST_CLIENT_NAME, null, null, 2))
+          .thenReturn(List.of(newer, testOrder));
+
+      OrderPage page = orderFacade.getClientOrders(TEST_CLIENT_NAME, null, null, 1);
+
+      assertThat(page.orders()).containsExactly(newer);
+      assertThat(page.next()).isEqualTo(new OrderCursor(newer.getOrderDate(), 2L));
+    }
+
+    @Test
+    void getClientOrders_whenLastPage_thenReturnNoCursor() {
+      when(orderService.getClientOrders(TEST_CLIENT_NAME, OrderStatus.NEW, null, 3))
+          .thenReturn(List.of(testOrder));
+
+      OrderPage page = orderFacade.getClientOrders(TEST_CLIENT_NAME, OrderStatus.NEW, null, 2);
+
+      assertThat(page.orders()).containsExactly(testOrder);
+      assertThat(page.next()).isNull();
+    }
+  }
+
   @Nested
   class CreateOrderTests {
     @Test
-    void createOrder_whenValidData_thenCreateOrderAndRequests() {
+    void createOrder_whenValidData_thenCreateOrderAndPublishEvents() {
       Map<Long, Integer> books = Map.of(TEST_BOOK_ID, TEST_BOOK_AMOUNT);
 
       when(userDetailsService.existsByUsername(TEST_CLIENT_NAME)).thenReturn(true);
       when(bookService.getBooks(anyList())).thenReturn(List.of(testBook));
-      when(bookService.get(TEST_BOOK_ID)).thenReturn(testBook);
 
       when(orderService.addOrder(any(Order.class))).thenAnswer(ans -> {
         Order order = ans.getArgument(0);
@@ -72,16 +106,42 @@ class OrderFacadeImplTest {
         return order;
       });
 
-      when(orderService.setOrderStatus(TEST_ORDER_ID, OrderStatus.COMPLETED))
-          .thenReturn(testOrder);
+      when(stockReservationService.isReserved(any(Order.class))).thenReturn(true);
+      when(orderService.changeStatus(any(Order.class), eq(OrderStatus.COMPLETED),
+          any(LocalDateTime.class))).thenReturn(true);
 
       Order result = orderFacade.createOrder(books, TEST_CLIENT_NAME, TEST_DATE);
 
       assertThat(result.getId()).isEqualTo(TEST_ORDER_ID);
       assertThat(result.getPrice()).isEqualTo(testBook.getPrice() * TEST_BOOK_AMOUNT);
-      verify(requestService).addRequest(testBook, TEST_BOOK_AMOUNT);
+      verify(outboxService).publish(eq(OutboxEventType.ORDER_CREATED), eq(TEST_ORDER_ID), any());
+      verify(outboxService).publish(eq(OutboxEventType.ORDER_COMPLETED), eq(TEST_ORDER_ID),
+          any());
       verify(orderService).addOrder(any(Order.class));
-      verify(orderService).setOrderStatus(TEST_ORDER_ID, OrderStatus.COMPLETED);
+      verify(orderService).changeStatus(any(Order.class), eq(OrderStatus.COMPLETED),
+          any(LocalDateTime.class));
+      verify(stockReservationService).reserve(any(Order.class));
+      verify(stockReservationService).fulfil(any(Order.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void createOrder_whenStockNotReserved_thenLeaveOrderNew() {
+      Map<Long, Integer> books = Map.of(TEST_BOOK_ID, TEST_BOOK_AMOUNT);
+
+      when(userDetailsService.existsByUsername(TEST_CLIENT_NAME)).thenReturn(true);
+      when(bookService.getBooks(anyList())).thenReturn(List.of(testBook));
+      when(orderService.addOrder(any(Order.class))).thenAnswer(ans -> {
+        Order order = ans.getArgument(0);
+        order.setId(TEST_ORDER_ID);
+        return order;
+      });
+      when(stockReservationService.isReserved(any(Order.class))).thenReturn(false);
+
+      Order result = orderFacade.createOrder(books, TEST_CLIENT_NAME, TEST_DATE);
+
+      assertThat(result.getStatus()).isEqualTo(OrderStatus.NEW);
+      verify(orderService, never()).changeStatus(any(), any(), any());
+      verify(stockReservationService, never()).fulfil(any(), any());
     }
 
     @Test
@@ -107,22 +167,87 @@ class OrderFacadeImplTest {
     }
   }
 
+  @Nested
+  class CreateOrdersTests {
+    @Test
+    void createOrders_thenRejectInvalidOrdersAndInsertOthersInOneBatch() {
+      List<Order> orders = List.of(
+          draft(TEST_CLIENT_NAME, Map.of(TEST_BOOK_ID, TEST_BOOK_AMOUNT)),
+          draft(TEST_CLIENT_NAME, Map.of(TEST_BOOK_ID, 1)),
+          draft("Unknown Client", Map.of(TEST_BOOK_ID, 1)),
+          draft(TEST_CLIENT_NAME, Map.of(99L, 1)));
+
+      when(bookService.getBooksForUpdate(List.of(TEST_BOOK_ID, 99L)))
+          .thenReturn(List.of(testBook));
+      when(userDetailsService.existsByUsername(TEST_CLIENT_NAME)).thenReturn(true);
+      when(userDetailsService.existsByUsername("Unknown Client")).thenReturn(false);
+      doAnswer(ans -> {
+        List<Order> batch = ans.getArgument(0);
+        for (int i = 0; i < batch.size(); i++) {
+          batch.get(i).setId(10L + i);
+        }
+        return null;
+      }).when(orderService).addOrders(anyList());
+      when(stockReservationService.reserve(any(Order.class))).thenReturn(true, false);
+      when(orderService.changeStatus(any(Order.class), eq(OrderStatus.COMPLETED),
+          any(LocalDateTime.class))).thenReturn(true);
+
+      List<OrderBatchResult> results = orderFacade.createOrders(orders, TEST_DATE);
+
+      assertThat(results).extracting(OrderBatchResult::isCreated)
+          .containsExactly(true, true, false, false);
+      assertThat(results.get(0).order().getId()).isEqualTo(10L);
+      assertThat(results.get(0).order().getPrice())
+          .isEqualTo(testBook.getPrice() * TEST_BOOK_AMOUNT);
+      assertThat(results.get(1).order().getStatus()).isEqualTo(OrderStatus.NEW);
+      assertThat(results.get(2).error()).isEqualTo("Клиент не зарегистрирован.");
+      assertThat(results.get(3).error()).contains("99");
+      verify(userDetailsService, times(1)).existsByUsername(TEST_CLIENT_NAME);
+      verify(orderService).addOrders(List.of(orders.get(0), orders.get(1)));
+      verify(orderService, never()).addOrder(any());
+      verify(outboxService).publish(eq(OutboxEventType.ORDER_CREATED), eq(10L), any());
+      verify(outboxService).publish(eq(OutboxEventType.ORDER_CREATED), eq(11L), any());
+      verify(outboxService).publish(eq(OutboxEventType.ORDER_COMPLETED), eq(10L), any());
+      verify(stockReservationService).fulfil(eq(orders.get(0)), any(LocalDateTime.class));
+      verify(stockReservationService, never()).isReserved(any());
+    }
+
+    @Test
+    void createOrders_whenAllInvalid_thenInsertNothing() {
+      List<OrderBatchResult> results =
+          orderFacade.createOrders(List.of(draft(TEST_CLIENT_NAME, Map.of())), TEST_DATE);
+
+      assertThat(results).extracting(OrderBatchResult::error)
+          .containsExactly("Список книг не может быть пустым.");
+      verify(orderService, never()).addOrders(any());
+      verifyNoInteractions(outboxService, stockReservationService);
+    }
+
+    private Order draft(String clientName, Map<Long, Integer> books) {
+      Order order = new Order();
+      order.setClientName(clientName);
+      order.setBooks(books);
+      return order;
+    }
+  }
+
   @Nested
   class CancelOrderTests {
     @Test
     void cancelOrder_whenOrderIsNew_thenCancelSuccessfully() {
       testOrder.setStatus(OrderStatus.NEW);
       when(orderService.getOrder(TEST_ORDER_ID)).thenReturn(testOrder);
-      when(orderService.setOrderStatus(TEST_ORDER_ID, OrderStatus.CANCELED))
-          .thenReturn(testOrder);
-      doNothing().when(requestService).closeRequests(testOrder.getBooks());
+      when(orderService.changeStatus(eq(testOrder), eq(OrderStatus.CANCELED),
+          any(LocalDateTime.class))).thenReturn(true);
 
       Order result = orderFacade.cancelOrder(TEST_ORDER_ID);
 
       assertThat(result).isEqualTo(testOrder);
       verify(orderService).getOrder(TEST_ORDER_ID);
-      verify(orderService).setOrderStatus(TEST_ORDER_ID, OrderStatus.CANCELED);
-      verify(requestService).closeRequests(testOrder.getBooks());
+      verify(orderService).changeStatus(eq(testOrder), eq(OrderStatus.CANCELED),
+          any(LocalDateTime.class));
+      verify(stockReservationService).release(testOrder);
+      verify(outboxService).publish(eq(OutboxEventType.ORDER_CANCELED), eq(TEST_ORDER_ID), any());
     }
 
     @Test
@@ -135,8 +260,8 @@ class OrderFacadeImplTest {
           .hasMessageContaining("Невозможно отменить заказ, статус которого не NEW");
 
       verify(orderService).getOrder(TEST_ORDER_ID);
-      verify(orderService, never()).setOrderStatus(anyLong(), any());
-      verify(requestService, never()).closeRequests(anyMap());
+      verify(orderService, never()).changeStatus(any(), any(), any());
+      verify(outboxService, never()).publish(any(), anyLong(), any());
     }
 
     @Test
@@ -149,8 +274,8 @@ class OrderFacadeImplTest {
           .hasMessageContaining("Невозможно отменить заказ, статус которого не NEW");
 
       verify(orderService).getOrder(TEST_ORDER_ID);
-      verify(orderService, never()).setOrderStatus(anyLong(), any());
-      verify(requestService, never()).closeRequests(anyMap());
+      verify(orderService, never()).changeStatus(any(), any(), any());
+      verify(outboxService, never()).publish(any(), anyLong(), any());
     }
 
     @Test
@@ -163,8 +288,20 @@ class OrderFacadeImplTest {
           .hasMessageContaining("Заказ не найден");
 
       verify(orderService).getOrder(TEST_ORDER_ID);
-      verify(orderService, never()).setOrderStatus(anyLong(), any());
-      verify(requestService, never()).closeRequests(anyMap());
+      verify(orderService, never()).changeStatus(any(), any(), any());
+      verify(outboxService, never()).publish(any(), anyLong(), any());
+    }
+
+    @Test
+    void cancelOrder_whenConcurrentlyChanged_thenThrowConflict() {
+      when(orderService.getOrder(TEST_ORDER_ID)).thenReturn(testOrder);
+      when(orderService.changeStatus(eq(testOrder), eq(OrderStatus.CANCELED),
+          any(LocalDateTime.class))).thenReturn(false);
+
+      assertThatThrownBy(() -> orderFacade.cancelOrder(TEST_ORDER_ID))
+          .isInstanceOf(OrderConflictException.class);
+
+      verify(outboxService, never()).publish(any(), anyLong(), any());
     }
   }
 
@@ -172,36 +309,61 @@ class OrderFacadeImplTest {
   class ImportOrderTests {
     @Test
     void importOrder_whenOrderExists_thenUpdateAndCreateRequests() {
-      Book testBook = TestUtil.createTestBook(TEST_BOOK_ID);
-      testBook.setAmount(10);
-
-      when(orderService.getOrder(TEST_ORDER_ID)).thenReturn(testOrder);
-      when(bookService.get(anyLong())).thenReturn(testBook);
-      doNothing().when(requestService).closeRequests(testOrder.getBooks());
-      when(orderService.updateOrder(testOrder)).thenReturn(testOrder);
+      Order stored = TestUtil.createTestOrder(TEST_ORDER_ID);
+      stored.setVersion(5);
+      when(orderService.getOrder(TEST_ORDER_ID)).thenReturn(stored);
+      when(stockReservationService.isReserved(stored)).thenReturn(true);
+      when(orderService.changeStatus(eq(stored), eq(OrderStatus.COMPLETED),
+          any(LocalDateTime.class))).thenReturn(true);
 
       Order result = orderFacade.importOrder(testOrder);
 
-      assertThat(result).isEqualTo(testOrder);
+      assertThat(result).isSameAs(stored);
+      assertThat(result.getBooks()).isEqualTo(Map.of(TEST_BOOK_ID, TEST_BOOK_AMOUNT));
       verify(orderService).getOrder(TEST_ORDER_ID);
-      verify(bookService, times(2)).get(anyLong());
-      verify(requestService, times(2)).closeRequests(testOrder.getBooks());
-      verify(orderService).updateOrder(testOrder);
+      verify(stockReservationService).release(stored);
+      InOrder events = inOrder(outboxService);
+      events.verify(outboxService).publish(eq(OutboxEventType.ORDER_CANCELED), eq(TEST_ORDER_ID),
+          any());
+      events.verify(outboxService).publish(eq(OutboxEventType.ORDER_CREATED), eq(TEST_ORDER_ID),
+          any());
+      events.verify(outboxService).publish(eq(OutboxEventType.ORDER_COMPLETED), eq(TEST_ORDER_ID),
+          any());
+      verify(bookService, never()).get(anyLong());
     }
 
     @Test
-    void importOrder_whenOrderNotExists_thenAddAndCreateRequests() {
+    void importOrder_whenOrderExists_thenKeepArgumentUntouchedForRetry() {
+      Order stored = TestUtil.createTestOrder(TEST_ORDER_ID);
+      stored.setVersion(5);
+      when(orderService.getOrder(TEST_ORDER_ID)).thenReturn(stored);
+
+      orderFacade.importOrder(testOrder);
+
+      assertThat(testOrder.getVersion()).isZero();
+      assertThat(testOrder.getBooks()).isEqualTo(Map.of(TEST_BOOK_ID, TEST_BOOK_AMOUNT));
+      assertThat(stored.getVersion()).isEqualTo(5);
+    }
+
+    @Test
+    void importOrder_whenOrderNotExists_thenAddCopyAndCreateRequests() {
       when(orderService.getOrder(TEST_ORDER_ID))
           .thenThrow(new EntityNotFoundException("Order not found"));
-      when(orderService.addOrder(testOrder)).thenReturn(testOrder);
+      when(orderService.addOrder(any(Order.class))).thenAnswer(ans -> {
+        Order order = ans.getArgument(0);
+        order.setId(2L);
+        return order;
+      });
 
       Order result = orderFacade.importOrder(testOrder);
 
-      assertThat(result).isEqualTo(testOrder);
+      assertThat(result).isNotSameAs(testOrder);
+      assertThat(result.getId()).isEqualTo(2L);
+      assertThat(result.getBooks()).isEqualTo(testOrder.getBooks());
+      assertThat(testOrder.getId()).isEqualTo(TEST_ORDER_ID);
       verify(orderService).getOrder(TEST_ORDER_ID);
-      verify(orderService).addOrder(testOrder);
-      verify(requestService, never()).closeRequests(anyMap());
-      verify(orderService, never()).updateOrder(any());
+      verify(outboxService).publish(eq(OutboxEventType.ORDER_CREATED), eq(2L), any());
+      verify(outboxService, never()).publish(eq(OutboxEventType.ORDER_CANCELED), anyLong(), any());
     }
   }
 
@@ -213,27 +375,35 @@ class OrderFacadeImplTest {
       List<Order> orders = List.of(testOrder);
 
       when(orderService.getAllOrdersById()).thenReturn(orders);
-      when(bookService.get(eq(TEST_BOOK_ID))).thenReturn(testBook);
-      when(orderService.setOrderStatus(eq(TEST_ORDER_ID), eq(OrderStatus.COMPLETED)))
-          .thenReturn(testOrder);
-      doNothing().when(requestService).closeRequests(eq(testOrder.getBooks()));
-      when(bookService.writeOff(
-          eq(TEST_BOOK_ID),
-          eq(TEST_BOOK_AMOUNT),
-          any(LocalDateTime.class)
-      )).thenReturn(testBook);
+      when(stockReservationService.isReserved(testOrder)).thenReturn(true);
+      when(orderService.changeStatus(eq(testOrder), eq(OrderStatus.COMPLETED),
+          any(LocalDateTime.class))).thenReturn(true);
 
       orderFacade.updateOrders();
 
       verify(orderService).getAllOrdersById();
-      verify(bookService).get(eq(TEST_BOOK_ID));
-      verify(orderService).setOrderStatus(eq(TEST_ORDER_ID), eq(OrderStatus.COMPLETED));
-      verify(requestService).closeRequests(eq(testOrder.getBooks()));
-      verify(bookService).writeOff(
-          eq(TEST_BOOK_ID),
-          eq(TEST_BOOK_AMOUNT),
-          any(LocalDateTime.class)
-      );
+      verify(orderService).changeStatus(eq(testOrder), eq(OrderStatus.COMPLETED),
+          any(LocalDateTime.class));
+      verify(outboxService).publish(eq(OutboxEventType.ORDER_COMPLETED), eq(TEST_ORDER_ID),
+          any());
+      verify(stockReservationService).fulfil(eq(testOrder), any(LocalDateTime.class));
+      verify(bookService, never()).get(anyLong());
+    }
+
+    @Test
+    void completeOrders_thenCompleteOnlyGivenOrdersWithoutScanningAll() {
+      orderFacade.setMarkOrdersCompleted(true);
+      when(orderService.getOrder(TEST_ORDER_ID)).thenReturn(testOrder);
+      when(stockReservationService.isReserved(testOrder)).thenReturn(true);
+      when(orderService.changeStatus(eq(testOrder), eq(OrderStatus.COMPLETED),
+          any(LocalDateTime.class))).thenReturn(true);
+
+      orderFacade.completeOrders(List.of(TEST_ORDER_ID));
+
+      verify(orderService, never()).getAllOrdersById();
+      verify(stockReservationService).fulfil(eq(testOrder), any(LocalDateTime.class));
+      verify(outboxService).publish(eq(OutboxEventType.ORDER_COMPLETED), eq(TEST_ORDER_ID),
+          any());
     }
   }
 
@@ -244,8 +414,9 @@ class OrderFacadeImplTest {
     orderFacade.updateOrders();
 
     verify(orderService, never()).getAllOrdersById();
-    verify(orderService, never()).setOrderStatus(anyLong(), any());
-    verify(requestService, never()).closeRequests(anyMap());
+    verify(orderService, never()).changeStatus(any(), any(), any());
+    verify(outboxService, never()).publish(any(), anyLong(), any());
     verify(bookService, never()).writeOff(anyLong(), anyInt(), any());
+    verify(stockReservationService, never()).fulfil(any(), any());
   }
 }
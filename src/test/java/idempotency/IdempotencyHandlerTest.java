@@ -0,0 +1,97 @@
+package idempotency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import ru.bookstore.exceptions.DataAccessException;
+import ru.bookstore.exceptions.IdempotencyKeyConflictException;
+import ru.bookstore.idempotency.IdempotencyHandler;
+import ru.bookstore.service.IdempotencyService;
+
+class IdempotencyHandlerTest {
+  private static final String CLIENT = "test_client";
+  private static final String KEY = "key-1";
+  private static final Map<Long, Integer> BOOKS = Map.of(1L, 2);
+
+  private IdempotencyService idempotencyService;
+  private PlatformTransactionManager transactionManager;
+  private IdempotencyHandler handler;
+  private final AtomicInteger created = new AtomicInteger();
+
+  @BeforeEach
+  void setUp() {
+    idempotencyService = mock(IdempotencyService.class);
+    transactionManager = mock(PlatformTransactionManager.class);
+    when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+    handler = new IdempotencyHandler(idempotencyService, transactionManager,
+        new SimpleMeterRegistry(), 24, 100, 10);
+  }
+
+  @Test
+  void execute_whenCompleteFailed_ShouldRollBackAndLetRetryCreateOrder() {
+    when(idempotencyService.claim(eq(CLIENT), eq(KEY), anyString(), any()))
+        .thenReturn(Optional.empty());
+    doThrow(new DataAccessException("нет соединения", null))
+        .doNothing()
+        .when(idempotencyService).complete(eq(CLIENT), eq(KEY), anyString());
+
+    assertThatThrownBy(() -> createOrder()).isInstanceOf(DataAccessException.class);
+    verify(transactionManager).rollback(any());
+    verify(idempotencyService).release(CLIENT, KEY);
+
+    IdempotencyHandler.Result<String> retry = createOrder();
+
+    assertThat(retry.replayed()).isFalse();
+    assertThat(retry.body()).isEqualTo("order-2");
+    verify(transactionManager).commit(any());
+  }
+
+  @Test
+  void execute_whenRetryStoredResponseFirst_ShouldKeepItsKey() {
+    when(idempotencyService.claim(eq(CLIENT), eq(KEY), anyString(), any()))
+        .thenReturn(Optional.empty());
+    doThrow(new IdempotencyKeyConflictException("уже выполнен"))
+        .when(idempotencyService).complete(eq(CLIENT), eq(KEY), anyString());
+
+    assertThatThrownBy(() -> createOrder())
+        .isInstanceOf(IdempotencyKeyConflictException.class);
+    verify(transactionManager).rollback(any());
+    verify(idempotencyService, never()).release(CLIENT, KEY);
+  }
+
+  @Test
+  void execute_whenCompleted_ShouldReplayFromCache() {
+    when(idempotencyService.claim(eq(CLIENT), eq(KEY), anyString(), any()))
+        .thenReturn(Optional.empty());
+    doNothing().when(idempotencyService).complete(eq(CLIENT), eq(KEY), anyString());
+
+    createOrder();
+    IdempotencyHandler.Result<String> retry = createOrder();
+
+    assertThat(retry.replayed()).isTrue();
+    assertThat(retry.body()).isEqualTo("order-1");
+    assertThat(created.get()).isEqualTo(1);
+  }
+
+  private IdempotencyHandler.Result<String> createOrder() {
+    return handler.execute(CLIENT, KEY, BOOKS, String.class,
+        () -> "order-" + created.incrementAndGet());
+  }
+}
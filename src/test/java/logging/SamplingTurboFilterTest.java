@@ -0,0 +1,71 @@
+package logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.bookstore.logging.SamplingTurboFilter;
+
+class SamplingTurboFilterTest {
+  private final LoggerContext context = new LoggerContext();
+  private long second = 1;
+  private SamplingTurboFilter filter;
+  private Logger daoLogger;
+  private Logger otherLogger;
+
+  @BeforeEach
+  void setUp() {
+    filter = new SamplingTurboFilter() {
+      @Override
+      protected long currentSecond() {
+        return second;
+      }
+    };
+    filter.setContext(context);
+    filter.setDefaultLimit(5);
+    filter.setLimits("ru.bookstore.dao=2");
+    filter.start();
+
+    context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).setLevel(Level.DEBUG);
+    daoLogger = context.getLogger("ru.bookstore.dao.impl.OrderDaoImpl");
+    otherLogger = context.getLogger("ru.bookstore.daoextra.Other");
+  }
+
+  @Test
+  void whenCategoryLimitExceeded_ShouldDenyUntilNextSecond() {
+    assertThat(decide(daoLogger, Level.DEBUG)).isEqualTo(FilterReply.NEUTRAL);
+    assertThat(decide(daoLogger, Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+    long sampledBefore = SamplingTurboFilter.sampledOut();
+    assertThat(decide(daoLogger, Level.DEBUG)).isEqualTo(FilterReply.DENY);
+    assertThat(SamplingTurboFilter.sampledOut()).isEqualTo(sampledBefore + 1);
+
+    second++;
+    assertThat(decide(daoLogger, Level.DEBUG)).isEqualTo(FilterReply.NEUTRAL);
+  }
+
+  @Test
+  void whenLoggerOutsideCategory_ShouldUseDefaultLimit() {
+    for (int i = 0; i < 5; i++) {
+      assertThat(decide(otherLogger, Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+    }
+    assertThat(decide(otherLogger, Level.INFO)).isEqualTo(FilterReply.DENY);
+  }
+
+  @Test
+  void whenWarnOrDisabledLevel_ShouldNotCount() {
+    daoLogger.setLevel(Level.INFO);
+    for (int i = 0; i < 10; i++) {
+      assertThat(decide(daoLogger, Level.WARN)).isEqualTo(FilterReply.NEUTRAL);
+      assertThat(decide(daoLogger, Level.DEBUG)).isEqualTo(FilterReply.NEUTRAL);
+    }
+    assertThat(decide(daoLogger, Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+  }
+
+  private FilterReply decide(Logger logger, Level level) {
+    return filter.decide(null, logger, level, "сообщение {}", new Object[] {1}, null);
+  }
+}
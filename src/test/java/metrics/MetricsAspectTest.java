@@ -0,0 +1,104 @@
+package metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.bookstore.catalog.BookCatalog;
+import ru.bookstore.dao.BookDao;
+import ru.bookstore.dao.impl.BookDaoImpl;
+import ru.bookstore.exceptions.DataAccessException;
+import ru.bookstore.facade.BookFacade;
+import ru.bookstore.facade.impl.BookFacadeImpl;
+import ru.bookstore.metrics.MetricsAspect;
+import ru.bookstore.model.impl.Book;
+import ru.bookstore.search.BookSearchIndex;
+import ru.bookstore.service.BookService;
+import ru.bookstore.service.OutboxService;
+import util.TestUtil;
+
+class MetricsAspectTest {
+  private SimpleMeterRegistry meterRegistry;
+  private Session session;
+  private BookService bookService;
+  private BookDao bookDao;
+  private BookFacade bookFacade;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    MetricsAspect aspect = new MetricsAspect(meterRegistry);
+
+    session = mock(Session.class);
+    SessionFactory sessionFactory = mock(SessionFactory.class);
+    when(sessionFactory.getCurrentSession()).thenReturn(session);
+    bookDao = proxy(new BookDaoImpl(sessionFactory), aspect);
+
+    bookService = mock(BookService.class);
+    bookFacade = proxy(new BookFacadeImpl(bookService, mock(OutboxService.class),
+        mock(BookSearchIndex.class), mock(BookCatalog.class)), aspect);
+  }
+
+  @Test
+  void whenFacadeCallsDao_ShouldTagDaoTimerWithFacadeMethod() {
+    Book book = TestUtil.createTestBook(1L);
+    when(session.get(Book.class, 1L)).thenReturn(book);
+    when(bookService.get(1L)).thenAnswer(invocation -> bookDao.find(1L).orElseThrow());
+
+    assertThat(bookFacade.get(1L)).isSameAs(book);
+
+    Timer facadeTimer = meterRegistry.get(MetricsAspect.FACADE_TIMER)
+        .tag("class", "BookFacadeImpl")
+        .tag("method", "get")
+        .tag("exception", "none")
+        .timer();
+    Timer daoTimer = meterRegistry.get(MetricsAspect.DAO_TIMER)
+        .tag("class", "BookDaoImpl")
+        .tag("method", "find")
+        .tag("facade", "BookFacadeImpl.get")
+        .timer();
+    assertThat(facadeTimer.count()).isEqualTo(1);
+    assertThat(daoTimer.count()).isEqualTo(1);
+  }
+
+  @Test
+  void whenDaoCalledOutsideFacade_ShouldTagFacadeAsNone() {
+    when(session.get(Book.class, 2L)).thenReturn(null);
+
+    assertThat(bookDao.find(2L)).isEmpty();
+
+    assertThat(meterRegistry.get(MetricsAspect.DAO_TIMER)
+        .tag("facade", "none")
+        .timer()
+        .count()).isEqualTo(1);
+  }
+
+  @Test
+  void whenDaoThrows_ShouldRecordExceptionTagAndRethrow() {
+    when(session.get(Book.class, 3L)).thenThrow(new HibernateException("connection lost"));
+
+    assertThatThrownBy(() -> bookDao.find(3L)).isInstanceOf(DataAccessException.class);
+
+    assertThat(meterRegistry.get(MetricsAspect.DAO_TIMER)
+        .tag("method", "find")
+        .tag("exception", "DataAccessException")
+        .timer()
+        .count()).isEqualTo(1);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(T target, MetricsAspect aspect) {
+    AspectJProxyFactory factory = new AspectJProxyFactory(target);
+    factory.addAspect(aspect);
+    return (T) factory.getProxy();
+  }
+}
@@ -0,0 +1,178 @@
+package metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bookstore.config.HibernateConfig;
+import ru.bookstore.controllers.RequestsController;
+import ru.bookstore.controllers.impl.RequestsControllerImpl;
+import ru.bookstore.controllers.impl.importexport.ImportController;
+import ru.bookstore.dao.impl.BookDaoImpl;
+import ru.bookstore.dao.impl.RequestDaoImpl;
+import ru.bookstore.demand.DashboardCache;
+import ru.bookstore.etag.ChangeCounters;
+import ru.bookstore.exceptions.StatementBudgetExceededException;
+import ru.bookstore.facade.RequestFacade;
+import ru.bookstore.facade.impl.RequestFacadeImpl;
+import ru.bookstore.metrics.StatementBudget;
+import ru.bookstore.metrics.StatementBudgetAspect;
+import ru.bookstore.metrics.StatementCounter;
+import ru.bookstore.model.BookStatus;
+import ru.bookstore.model.impl.Book;
+import ru.bookstore.service.impl.BookServiceImpl;
+import ru.bookstore.service.impl.RequestServiceImpl;
+import ru.bookstore.sorting.RequestSort;
+
+/**
+ * Бюджеты запросов на настоящих фасаде, сервисах и DAO поверх H2: моки фасадов из контроллерных
+ * тестов не выполняют SQL, поэтому N+1 в DAO ловится только здесь.
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {HibernateConfig.class,
+    RequestsStatementBudgetTest.Config.class})
+@TestPropertySource(properties = {
+    "db.url=jdbc:h2:mem:budget;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+    "db.user=sa",
+    "db.password=",
+    "db.driver=org.h2.Driver",
+    "db.dialect=org.hibernate.dialect.H2Dialect",
+    "db.ddl.auto=create"
+})
+class RequestsStatementBudgetTest {
+  private static final int BOOKS = 10;
+
+  @Autowired
+  private RequestsController requestsController;
+  @Autowired
+  private RequestFacade requestFacade;
+  @Autowired
+  private OverBudget overBudget;
+  @Autowired
+  private SessionFactory sessionFactory;
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @BeforeEach
+  void setUp() {
+    List<Long> bookIds = new TransactionTemplate(transactionManager).execute(status -> {
+      sessionFactory.getCurrentSession().createMutationQuery("DELETE FROM Request")
+          .executeUpdate();
+      sessionFactory.getCurrentSession().createMutationQuery("DELETE FROM BookDemand")
+          .executeUpdate();
+      sessionFactory.getCurrentSession().createMutationQuery("DELETE FROM Book")
+          .executeUpdate();
+      return IntStream.range(0, BOOKS).mapToObj(i -> {
+        Book book = new Book(null, "Книга " + i, "Автор " + i, 2000 + i, 0, 100.0 + i,
+            null, null, BookStatus.NOT_AVAILABLE);
+        sessionFactory.getCurrentSession().persist(book);
+        return book.getId();
+      }).toList();
+    });
+    for (Long bookId : bookIds) {
+      requestFacade.add(bookId, 1);
+      requestFacade.add(bookId, 2);
+    }
+  }
+
+  @Test
+  void getRequests_ByCount_ShouldFitBudget() {
+    ResponseEntity<?> response = counted(() -> requestsController.getRequests(RequestSort.COUNT));
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat((Map<?, ?>) response.getBody()).hasSize(BOOKS);
+  }
+
+  @Test
+  void getRequests_ByPrice_ShouldFitBudget() {
+    ResponseEntity<?> response = counted(() -> requestsController.getRequests(RequestSort.PRICE));
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat((Map<?, ?>) response.getBody()).hasSize(BOOKS);
+  }
+
+  @Test
+  void getAllRequests_ShouldFitBudget() {
+    ResponseEntity<?> response = counted(() -> requestsController.getAllRequests());
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat((List<?>) response.getBody()).hasSize(2 * BOOKS);
+  }
+
+  @Test
+  void whenRealQueriesExceedBudget_ShouldFail() {
+    assertThatThrownBy(() -> overBudget.listTwice())
+        .isInstanceOf(StatementBudgetExceededException.class)
+        .hasMessageContaining("2 SQL-запросов");
+  }
+
+  /**
+   * Бюджет проверяет аспект, а здесь ещё раз убеждаемся, что Hibernate действительно прошёл через
+   * счётчик: пустой счёт означал бы, что бюджеты ничего не проверяют.
+   */
+  private static <T> T counted(Supplier<T> endpoint) {
+    T result;
+    StatementCounter.Scope scope = StatementCounter.open();
+    try {
+      result = endpoint.get();
+    } finally {
+      scope.close();
+    }
+    assertThat(scope.statements()).isPositive();
+    return result;
+  }
+
+  public static class OverBudget {
+    private final RequestFacade requestFacade;
+
+    public OverBudget(RequestFacade requestFacade) {
+      this.requestFacade = requestFacade;
+    }
+
+    @StatementBudget(maxStatements = 1)
+    public int listTwice() {
+      return requestFacade.getAllRequests().size() + requestFacade.getAllRequests().size();
+    }
+  }
+
+  @Configuration
+  @EnableAspectJAutoProxy(proxyTargetClass = true)
+  @PropertySource({"classpath:application.properties", "classpath:test.properties"})
+  @Import({StatementBudgetAspect.class, RequestsControllerImpl.class, RequestFacadeImpl.class,
+      RequestServiceImpl.class, RequestDaoImpl.class, BookServiceImpl.class, BookDaoImpl.class,
+      ChangeCounters.class, DashboardCache.class, OverBudget.class})
+  static class Config {
+    @Bean
+    public MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+
+    @Bean
+    public ImportController importController() {
+      return mock(ImportController.class);
+    }
+  }
+}
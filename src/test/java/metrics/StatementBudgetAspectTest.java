@@ -0,0 +1,98 @@
+package metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.bookstore.exceptions.StatementBudgetExceededException;
+import ru.bookstore.metrics.StatementBudget;
+import ru.bookstore.metrics.StatementBudgetAspect;
+import ru.bookstore.metrics.StatementCounter;
+
+class StatementBudgetAspectTest {
+  private static final StatementCounter counter = new StatementCounter();
+
+  private SimpleMeterRegistry meterRegistry;
+  private StatementBudgetAspect aspect;
+  private Endpoints endpoints;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    aspect = new StatementBudgetAspect(meterRegistry);
+    AspectJProxyFactory factory = new AspectJProxyFactory(new Endpoints());
+    factory.setProxyTargetClass(true);
+    factory.addAspect(aspect);
+    endpoints = factory.getProxy();
+  }
+
+  @Test
+  void whenWithinBudget_ShouldNotReport() {
+    endpoints.withinBudget();
+
+    assertThat(meterRegistry.find(StatementBudgetAspect.BUDGET_EXCEEDED).counter()).isNull();
+  }
+
+  @Test
+  void whenTooManyStatements_ShouldCountAndFailInStrictMode() {
+    endpoints.tooManyStatements();
+    assertThat(exceeded("tooManyStatements", "statements")).isEqualTo(1);
+
+    aspect.setFailOnExceeded(true);
+    assertThatThrownBy(() -> endpoints.tooManyStatements())
+        .isInstanceOf(StatementBudgetExceededException.class)
+        .hasMessageContaining("5 SQL-запросов");
+    assertThat(exceeded("tooManyStatements", "statements")).isEqualTo(2);
+  }
+
+  @Test
+  void whenSameShapeRepeats_ShouldReportRepeatsRegardlessOfInListLength() {
+    aspect.setFailOnExceeded(true);
+
+    assertThatThrownBy(() -> endpoints.nPlusOne())
+        .isInstanceOf(StatementBudgetExceededException.class)
+        .hasMessageContaining("select * from library where book_id in (?)");
+    assertThat(exceeded("nPlusOne", "repeats")).isEqualTo(1);
+  }
+
+  @Test
+  void whenStatementsOutsideScope_ShouldBeIgnored() {
+    counter.inspect("select 1");
+    endpoints.withinBudget();
+
+    assertThat(meterRegistry.find(StatementBudgetAspect.BUDGET_EXCEEDED).counter()).isNull();
+  }
+
+  private double exceeded(String method, String reason) {
+    return meterRegistry.get(StatementBudgetAspect.BUDGET_EXCEEDED)
+        .tag("endpoint", "Endpoints." + method)
+        .tag("reason", reason)
+        .counter()
+        .count();
+  }
+
+  static class Endpoints {
+    @StatementBudget(maxStatements = 2)
+    public void withinBudget() {
+      counter.inspect("select * from orders where order_id=?");
+      counter.inspect("select * from library where book_id=?");
+    }
+
+    @StatementBudget(maxStatements = 4)
+    public void tooManyStatements() {
+      for (int i = 0; i < 5; i++) {
+        counter.inspect("select * from library where book_id=" + i);
+      }
+    }
+
+    @StatementBudget(maxStatements = 10, maxRepeats = 2)
+    public void nPlusOne() {
+      counter.inspect("select * from library where book_id in (?)");
+      counter.inspect("select * from library where book_id in (?, ?)");
+      counter.inspect("select * from library  where book_id in (?,?,?)");
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package outbox;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.bookstore.facade.OrderFacade;
+import ru.bookstore.model.OutboxEventType;
+import ru.bookstore.model.impl.OutboxEvent;
+import ru.bookstore.outbox.FulfillmentOutboxConsumer;
+import ru.bookstore.outbox.OutboxPayloads;
+import ru.bookstore.outbox.StockChangedPayload;
+import ru.bookstore.service.StockReservationService;
+
+@ExtendWith(MockitoExtension.class)
+class FulfillmentOutboxConsumerTest {
+  @Mock
+  private StockReservationService stockReservationService;
+  @Mock
+  private OrderFacade orderFacade;
+  @InjectMocks
+  private FulfillmentOutboxConsumer consumer;
+
+  @Test
+  void handle_ShouldAllocateEachRestockedBookOnceAndCompleteOrdersInOneCall() {
+    when(stockReservationService.allocate(1L)).thenReturn(List.of(10L));
+    when(stockReservationService.allocate(2L)).thenReturn(List.of(11L, 12L));
+
+    consumer.handle(List.of(
+        event(new StockChangedPayload(2L, 5, 5)),
+        event(new StockChangedPayload(1L, 3, 3)),
+        event(new StockChangedPayload(2L, 1, 6)),
+        event(new StockChangedPayload(3L, -2, 0))));
+
+    verify(stockReservationService, times(1)).allocate(1L);
+    verify(stockReservationService, times(1)).allocate(2L);
+    verify(stockReservationService, never()).allocate(3L);
+    verify(orderFacade).completeOrders(List.of(10L, 11L, 12L));
+  }
+
+  @Test
+  void handle_whenOnlyWriteOffs_ShouldNotAllocate() {
+    consumer.handle(List.of(event(new StockChangedPayload(1L, -1, 4))));
+
+    verify(stockReservationService, never()).allocate(anyLong());
+    verifyNoInteractions(orderFacade);
+  }
+
+  private static OutboxEvent event(StockChangedPayload payload) {
+    return new OutboxEvent(OutboxEventType.STOCK_CHANGED, payload.bookId(),
+        OutboxPayloads.write(payload), LocalDateTime.now());
+  }
+}
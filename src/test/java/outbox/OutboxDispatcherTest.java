@@ -0,0 +1,211 @@
+package outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.bookstore.model.OutboxEventType;
+import ru.bookstore.model.impl.OutboxEvent;
+import ru.bookstore.outbox.BatchOutboxConsumer;
+import ru.bookstore.outbox.OutboxConsumer;
+import ru.bookstore.outbox.OutboxDispatcher;
+import ru.bookstore.service.OutboxService;
+
+class OutboxDispatcherTest {
+  private static final long GAP_TIMEOUT_MS = 60_000;
+
+  private SimpleMeterRegistry meterRegistry;
+  private InMemoryOutbox outbox;
+  private RecordingConsumer requests;
+  private RecordingConsumer fulfillment;
+  private OutboxDispatcher dispatcher;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    outbox = new InMemoryOutbox();
+    requests = new RecordingConsumer("requests", OutboxEventType.ORDER_CREATED);
+    fulfillment = new RecordingConsumer("fulfillment", OutboxEventType.STOCK_CHANGED);
+    dispatcher = new OutboxDispatcher(List.of(requests, fulfillment), outbox,
+        mock(PlatformTransactionManager.class), meterRegistry, 1000, 2, GAP_TIMEOUT_MS);
+  }
+
+  @Test
+  void drain_ShouldDeliverEventsInOrderAndAdvanceEveryCheckpoint() {
+    outbox.add(1, OutboxEventType.ORDER_CREATED, LocalDateTime.now());
+    outbox.add(2, OutboxEventType.STOCK_CHANGED, LocalDateTime.now());
+    outbox.add(3, OutboxEventType.ORDER_CREATED, LocalDateTime.now());
+
+    dispatcher.drain();
+
+    assertThat(requests.handled).containsExactly(1L, 3L);
+    assertThat(fulfillment.handled).containsExactly(2L);
+    assertThat(outbox.checkpoints).containsEntry("requests", 3L).containsEntry("fulfillment", 3L);
+    assertThat(outbox.events).isEmpty();
+    assertThat(meterRegistry.get(OutboxDispatcher.EVENTS)
+        .tag("consumer", "requests")
+        .tag("outcome", "processed")
+        .counter()
+        .count()).isEqualTo(2);
+  }
+
+  @Test
+  void drain_whenConsumerFails_ShouldRetryFromFailedEventAndKeepItForOthers() {
+    outbox.add(1, OutboxEventType.ORDER_CREATED, LocalDateTime.now());
+    outbox.add(2, OutboxEventType.ORDER_CREATED, LocalDateTime.now());
+    requests.failOn = 2L;
+
+    dispatcher.drain();
+
+    assertThat(outbox.checkpoints).containsEntry("requests", 1L).containsEntry("fulfillment", 2L);
+    assertThat(outbox.events).extracting(OutboxEvent::getId).containsExactly(2L);
+
+    requests.failOn = null;
+    dispatcher.drain();
+
+    assertThat(requests.handled).containsExactly(1L, 2L);
+    assertThat(outbox.events).isEmpty();
+  }
+
+  @Test
+  void drain_whenRecentGap_ShouldWaitForUncommittedEvent() {
+    outbox.add(1, OutboxEventType.ORDER_CREATED, LocalDateTime.now());
+    outbox.add(3, OutboxEventType.ORDER_CREATED, LocalDateTime.now());
+
+    dispatcher.drain();
+
+    assertThat(requests.handled).containsExactly(1L);
+    assertThat(outbox.checkpoints).containsEntry("requests", 1L);
+  }
+
+  @Test
+  void drain_whenGapOlderThanTimeout_ShouldTreatItAsRolledBack() {
+    LocalDateTime old = LocalDateTime.now().minusMinutes(5);
+    outbox.add(1, OutboxEventType.ORDER_CREATED, old);
+    outbox.add(3, OutboxEventType.ORDER_CREATED, old);
+
+    dispatcher.drain();
+
+    assertThat(requests.handled).containsExactly(1L, 3L);
+  }
+
+  @Test
+  void drain_whenBatchConsumer_ShouldDeliverReadyEventsTogether() {
+    BatchRecordingConsumer batch = new BatchRecordingConsumer();
+    dispatcher = new OutboxDispatcher(List.of(batch), outbox,
+        mock(PlatformTransactionManager.class), meterRegistry, 1000, 10, GAP_TIMEOUT_MS);
+    outbox.add(1, OutboxEventType.ORDER_CREATED, LocalDateTime.now());
+    outbox.add(2, OutboxEventType.STOCK_CHANGED, LocalDateTime.now());
+    outbox.add(3, OutboxEventType.ORDER_CREATED, LocalDateTime.now());
+    outbox.add(5, OutboxEventType.ORDER_CREATED, LocalDateTime.now());
+
+    dispatcher.drain();
+
+    assertThat(batch.batches).containsExactly(List.of(1L, 3L));
+    assertThat(outbox.checkpoints).containsEntry("batch", 3L);
+  }
+
+  private static class BatchRecordingConsumer implements BatchOutboxConsumer {
+    private final List<List<Long>> batches = new ArrayList<>();
+
+    @Override
+    public String name() {
+      return "batch";
+    }
+
+    @Override
+    public Set<OutboxEventType> types() {
+      return Set.of(OutboxEventType.ORDER_CREATED);
+    }
+
+    @Override
+    public void handle(List<OutboxEvent> events) {
+      batches.add(events.stream().map(OutboxEvent::getId).toList());
+    }
+  }
+
+  private static class RecordingConsumer implements OutboxConsumer {
+    private final String name;
+    private final OutboxEventType type;
+    private final List<Long> handled = new ArrayList<>();
+    private Long failOn;
+
+    RecordingConsumer(String name, OutboxEventType type) {
+      this.name = name;
+      this.type = type;
+    }
+
+    @Override
+    public String name() {
+      return name;
+    }
+
+    @Override
+    public Set<OutboxEventType> types() {
+      return Set.of(type);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+      if (event.getId().equals(failOn)) {
+        throw new IllegalStateException("сбой потребителя");
+      }
+      handled.add(event.getId());
+    }
+  }
+
+  private static class InMemoryOutbox implements OutboxService {
+    private final List<OutboxEvent> events = new ArrayList<>();
+    private final Map<String, Long> checkpoints = new HashMap<>();
+
+    void add(long id, OutboxEventType type, LocalDateTime createdAt) {
+      OutboxEvent event = new OutboxEvent(type, id, "{}", createdAt);
+      event.setId(id);
+      events.add(event);
+    }
+
+    @Override
+    public void publish(OutboxEventType type, long aggregateId, Object payload) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void publishAll(OutboxEventType type, Map<Long, ?> payloads) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<OutboxEvent> eventsAfter(long lastEventId, int limit) {
+      return events.stream()
+          .filter(event -> event.getId() > lastEventId)
+          .limit(limit)
+          .toList();
+    }
+
+    @Override
+    public long checkpoint(String consumer) {
+      return checkpoints.getOrDefault(consumer, 0L);
+    }
+
+    @Override
+    public void saveCheckpoint(String consumer, long lastEventId) {
+      checkpoints.put(consumer, lastEventId);
+    }
+
+    @Override
+    public int purgeUpTo(long eventId) {
+      int before = events.size();
+      events.removeIf(event -> event.getId() <= eventId);
+      return before - events.size();
+    }
+  }
+}
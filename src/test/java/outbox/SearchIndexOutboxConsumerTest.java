@@ -0,0 +1,60 @@
+package outbox;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.bookstore.model.OutboxEventType;
+import ru.bookstore.model.impl.Book;
+import ru.bookstore.model.impl.OutboxEvent;
+import ru.bookstore.outbox.OrderEventPayload;
+import ru.bookstore.outbox.OutboxPayloads;
+import ru.bookstore.outbox.SearchIndexOutboxConsumer;
+import ru.bookstore.outbox.StockChangedPayload;
+import ru.bookstore.search.BookSearchIndex;
+import ru.bookstore.service.BookService;
+import util.TestUtil;
+
+@ExtendWith(MockitoExtension.class)
+class SearchIndexOutboxConsumerTest {
+  @Mock
+  private BookService bookService;
+  @Mock
+  private BookSearchIndex bookSearchIndex;
+  @InjectMocks
+  private SearchIndexOutboxConsumer consumer;
+
+  @Test
+  void handle_ShouldReindexRestockedBooksAndBooksOfCompletedOrdersOnce() {
+    Book first = TestUtil.createTestBook(1L);
+    Book second = TestUtil.createTestBook(2L);
+    Book third = TestUtil.createTestBook(3L);
+    when(bookService.getBooks(List.of(1L, 2L, 3L))).thenReturn(List.of(first, second, third));
+
+    consumer.handle(List.of(
+        event(new StockChangedPayload(2L, 5, 5)),
+        completed(new OrderEventPayload(10L, "client", Map.of(1L, 1, 3L, 2), 300.0)),
+        event(new StockChangedPayload(1L, -1, 4))));
+
+    verify(bookSearchIndex).put(first);
+    verify(bookSearchIndex).put(second);
+    verify(bookSearchIndex).put(third);
+  }
+
+  private static OutboxEvent event(StockChangedPayload payload) {
+    return new OutboxEvent(OutboxEventType.STOCK_CHANGED, payload.bookId(),
+        OutboxPayloads.write(payload), LocalDateTime.now());
+  }
+
+  private static OutboxEvent completed(OrderEventPayload payload) {
+    return new OutboxEvent(OutboxEventType.ORDER_COMPLETED, payload.orderId(),
+        OutboxPayloads.write(payload), LocalDateTime.now());
+  }
+}
@@ -1,5 +1,7 @@
 package ru.bookstore.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -9,10 +11,11 @@ import ru.bookstore.facade.BookFacade;
 import ru.bookstore.facade.OrderFacade;
 import static org.mockito.Mockito.mock;
 import ru.bookstore.facade.RequestFacade;
+import ru.bookstore.service.IdempotencyService;
 
 
 @Configuration
-@PropertySource("classpath:application.properties")
+@PropertySource({"classpath:application.properties", "classpath:test.properties"})
 public class TestConfig {
   @Bean
   @Primary
@@ -32,9 +35,20 @@ public class TestConfig {
     return mock(RequestFacade.class);
   }
 
+  @Bean
+  @Primary
+  public IdempotencyService idempotencyService() {
+    return mock(IdempotencyService.class);
+  }
+
   @Bean
   @Primary
   public ImportController importController() {
     return mock(ImportController.class);
   }
+
+  @Bean
+  public MeterRegistry meterRegistry() {
+    return new SimpleMeterRegistry();
+  }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.bookstore.dao.BookDao;
+import ru.bookstore.model.BookStatus;
+import ru.bookstore.model.impl.Book;
+import ru.bookstore.search.BookSearchIndex;
+import ru.bookstore.search.SearchHit;
+import ru.bookstore.search.SearchPage;
+import util.TestUtil;
+
+class BookSearchIndexTest {
+  private BookSearchIndex index;
+
+  @BeforeEach
+  void setUp() {
+    List<Book> catalog = List.of(
+        book(1L, "Ёжик в тумане", "Сергей Козлов", BookStatus.AVAILABLE),
+        book(2L, "Анна Каренина", "Лев Толстой", BookStatus.AVAILABLE),
+        book(3L, "Война и мир", "Лев Толстой", BookStatus.NOT_AVAILABLE),
+        book(4L, "Мирный атом", "Толстов", BookStatus.AVAILABLE));
+    BookDao bookDao = mock(BookDao.class);
+    doAnswer(invocation -> {
+      Consumer<Book> action = invocation.getArgument(0);
+      catalog.forEach(action);
+      return null;
+    }).when(bookDao).forEachBook(any());
+    index = new BookSearchIndex(bookDao, mock(PlatformTransactionManager.class),
+        new SimpleMeterRegistry());
+  }
+
+  @Test
+  void search_ShouldIgnoreCaseAndTreatYoAsYe() {
+    assertThat(ids(index.search("ЕЖИК", 0, 10))).containsExactly(1L);
+    assertThat(ids(index.search("ёжик", 0, 10))).containsExactly(1L);
+  }
+
+  @Test
+  void search_ShouldMatchEveryWordByPrefix() {
+    assertThat(ids(index.search("толст", 0, 10))).containsExactly(2L, 4L, 3L);
+    assertThat(ids(index.search("тол ан", 0, 10))).containsExactly(2L);
+    assertThat(index.search("толстой чехов", 0, 10).total()).isZero();
+  }
+
+  @Test
+  void search_ShouldRankExactWordsAboveLaterPrefixesAndNameAboveAuthor() {
+    SearchPage page = index.search("мир", 0, 10);
+
+    assertThat(ids(page)).containsExactly(3L, 4L);
+    assertThat(page.hits().get(0).score()).isGreaterThan(page.hits().get(1).score());
+  }
+
+  @Test
+  void search_ShouldReturnRequestedPageAndTotal() {
+    SearchPage page = index.search("лев", 1, 1);
+
+    assertThat(page.total()).isEqualTo(2);
+    assertThat(ids(page)).containsExactly(3L);
+  }
+
+  @Test
+  void put_ShouldReplacePreviousWordsOfBook() {
+    index.search("анна", 0, 10);
+
+    index.put(book(2L, "Воскресение", "Лев Толстой", BookStatus.AVAILABLE));
+
+    assertThat(index.search("анна", 0, 10).total()).isZero();
+    assertThat(ids(index.search("воскр", 0, 10))).containsExactly(2L);
+  }
+
+  private static List<Long> ids(SearchPage page) {
+    return page.hits().stream().map(SearchHit::bookId).toList();
+  }
+
+  private static Book book(long id, String name, String author, BookStatus status) {
+    Book book = TestUtil.createTestBook(id);
+    book.setName(name);
+    book.setAuthor(author);
+    book.setStatus(status);
+    return book;
+  }
+}
@@ -16,6 +16,8 @@ import java.util.List;
 import java.util.Optional;
 import ru.bookstore.dao.BookDao;
 import ru.bookstore.exceptions.EntityNotFoundException;
+import ru.bookstore.model.BookFilter;
+import ru.bookstore.model.BookStatus;
 import ru.bookstore.model.impl.Book;
 import ru.bookstore.service.impl.BookServiceImpl;
 import ru.bookstore.sorting.BookSort;
@@ -129,6 +131,21 @@ class BookServiceImplTest {
     }
   }
 
+  @Nested
+  class FindBooksTests {
+    @Test
+    void findBooks_thenPassFilterAndPageToDao() {
+      BookFilter filter = new BookFilter(100.0, 500.0, null, null, null, BookStatus.AVAILABLE);
+      List<Book> expected = List.of(testBook);
+      when(bookDao.findBooks(filter, BookSort.PRICE, null, 11)).thenReturn(expected);
+
+      List<Book> result = bookService.findBooks(filter, BookSort.PRICE, null, 11);
+
+      assertThat(result).isEqualTo(expected);
+      verify(bookDao).findBooks(filter, BookSort.PRICE, null, 11);
+    }
+  }
+
   @Nested
   class GetAllBooksTests {
     @Test
@@ -0,0 +1,110 @@
+package services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.bookstore.dao.IdempotencyDao;
+import ru.bookstore.exceptions.IdempotencyKeyConflictException;
+import ru.bookstore.model.impl.IdempotencyRecord;
+import ru.bookstore.service.impl.IdempotencyServiceImpl;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceImplTest {
+  private static final String CLIENT = "test_client";
+  private static final String KEY = "key-1";
+  private static final String HASH = "hash";
+  private static final Duration TTL = Duration.ofHours(24);
+
+  @Mock
+  private IdempotencyDao idempotencyDao;
+  @InjectMocks
+  private IdempotencyServiceImpl idempotencyService;
+
+  @BeforeEach
+  void setUp() {
+    idempotencyService.setLeaseSeconds(30);
+  }
+
+  @Nested
+  class ClaimTests {
+    @Test
+    void claim_whenKeyIsNew_shouldInsertWithLease() {
+      when(idempotencyDao.find(CLIENT, KEY)).thenReturn(Optional.empty());
+
+      assertThat(idempotencyService.claim(CLIENT, KEY, HASH, TTL)).isEmpty();
+      verify(idempotencyDao).insert(eq(CLIENT), eq(KEY), eq(HASH), any(), any(), any());
+    }
+
+    @Test
+    void claim_whenLeaseExpired_shouldTakeOverKey() {
+      IdempotencyRecord stuck = record(null, LocalDateTime.now().minusSeconds(5));
+      when(idempotencyDao.find(CLIENT, KEY)).thenReturn(Optional.of(stuck));
+      when(idempotencyDao.takeOver(eq(CLIENT), eq(KEY), any(), any())).thenReturn(1);
+
+      assertThat(idempotencyService.claim(CLIENT, KEY, HASH, TTL)).isEmpty();
+    }
+
+    @Test
+    void claim_whenAnotherRetryTookOverFirst_shouldReportInProgress() {
+      IdempotencyRecord stuck = record(null, LocalDateTime.now().minusSeconds(5));
+      when(idempotencyDao.find(CLIENT, KEY)).thenReturn(Optional.of(stuck));
+      when(idempotencyDao.takeOver(eq(CLIENT), eq(KEY), any(), any())).thenReturn(0);
+
+      assertThat(idempotencyService.claim(CLIENT, KEY, HASH, TTL)).contains(stuck);
+    }
+
+    @Test
+    void claim_whenLeaseActive_shouldReportInProgress() {
+      IdempotencyRecord running = record(null, LocalDateTime.now().plusSeconds(20));
+      when(idempotencyDao.find(CLIENT, KEY)).thenReturn(Optional.of(running));
+
+      assertThat(idempotencyService.claim(CLIENT, KEY, HASH, TTL)).contains(running);
+      verify(idempotencyDao, never()).takeOver(anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void claim_whenResponseStored_shouldReturnItWithoutTakeOver() {
+      IdempotencyRecord done = record("{}", null);
+      when(idempotencyDao.find(CLIENT, KEY)).thenReturn(Optional.of(done));
+
+      assertThat(idempotencyService.claim(CLIENT, KEY, HASH, TTL)).contains(done);
+      verify(idempotencyDao, never()).takeOver(anyString(), anyString(), any(), any());
+    }
+  }
+
+  @Nested
+  class CompleteTests {
+    @Test
+    void complete_whenResponseAlreadyStored_shouldThrowConflict() {
+      when(idempotencyDao.complete(CLIENT, KEY, "{}")).thenReturn(0);
+
+      assertThatThrownBy(() -> idempotencyService.complete(CLIENT, KEY, "{}"))
+          .isInstanceOf(IdempotencyKeyConflictException.class);
+    }
+  }
+
+  private static IdempotencyRecord record(String response, LocalDateTime lockedUntil) {
+    IdempotencyRecord record = new IdempotencyRecord();
+    record.setRequestHash(HASH);
+    record.setResponse(response);
+    record.setExpiresAt(LocalDateTime.now().plusHours(1));
+    record.setLockedUntil(lockedUntil);
+    return record;
+  }
+}
@@ -159,4 +159,14 @@ class RequestServiceImplTest {
       verify(requestDao).closeRequests(testBooks);
     }
   }
+
+  @Nested
+  class ReconcileDemandTests {
+    @Test
+    void reconcileDemand_shouldReturnFixedBooksFromDao() {
+      when(requestDao.reconcileDemand()).thenReturn(2);
+
+      assertThat(requestService.reconcileDemand()).isEqualTo(2);
+    }
+  }
 }
\ No newline at end of file
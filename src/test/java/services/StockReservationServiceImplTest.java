@@ -0,0 +1,152 @@
+package services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.bookstore.allocation.AllocationQueues;
+import ru.bookstore.allocation.StockAllocationEngine;
+import ru.bookstore.dao.BookDao;
+import ru.bookstore.dao.StockReservationDao;
+import ru.bookstore.model.ReservationStatus;
+import ru.bookstore.model.impl.Book;
+import ru.bookstore.model.impl.Order;
+import ru.bookstore.model.impl.StockReservation;
+import ru.bookstore.service.impl.StockReservationServiceImpl;
+import util.TestUtil;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationServiceImplTest {
+  private static final LocalDateTime TEST_DATE = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+  @Mock
+  private StockReservationDao stockReservationDao;
+  @Mock
+  private BookDao bookDao;
+  @Mock
+  private StockAllocationEngine stockAllocationEngine;
+
+  @InjectMocks
+  private StockReservationServiceImpl stockReservationService;
+
+  private final Order testOrder = TestUtil.createTestOrder(1L);
+
+  @Test
+  void reserve_whenStockShortForOneLine_thenOtherLinesReservedAndBooksLockedInIdOrder() {
+    testOrder.setBooks(Map.of(3L, 1, 1L, 2));
+    when(bookDao.reserve(1L, 2)).thenReturn(true);
+    when(bookDao.reserve(3L, 1)).thenReturn(false);
+
+    assertThat(stockReservationService.reserve(testOrder)).isFalse();
+
+    InOrder lockOrder = inOrder(bookDao);
+    lockOrder.verify(bookDao).reserve(1L, 2);
+    lockOrder.verify(bookDao).reserve(3L, 1);
+    ArgumentCaptor<StockReservation> saved = ArgumentCaptor.forClass(StockReservation.class);
+    verify(stockReservationDao, times(2)).save(saved.capture());
+    assertThat(saved.getAllValues())
+        .extracting(StockReservation::getBookId, StockReservation::getStatus)
+        .containsExactly(
+            tuple(1L, ReservationStatus.RESERVED),
+            tuple(3L, ReservationStatus.WAITING));
+    verify(stockAllocationEngine).register(1L, testOrder.getPrice(), 3, Map.of(3L, 1));
+  }
+
+  @Test
+  void isReserved_whenLedgerExists_thenReadsLedgerWithoutTouchingStock() {
+    when(stockReservationDao.findByOrder(1L)).thenReturn(List.of(
+        line(1L, 2, ReservationStatus.RESERVED),
+        line(2L, 1, ReservationStatus.WAITING)));
+
+    assertThat(stockReservationService.isReserved(testOrder)).isFalse();
+
+    verify(bookDao, never()).reserve(anyLong(), anyInt());
+  }
+
+  @Test
+  void isReserved_whenNoLedger_thenReservesOrder() {
+    testOrder.setBooks(Map.of(1L, 2));
+    when(stockReservationDao.findByOrder(1L)).thenReturn(List.of());
+    when(bookDao.reserve(1L, 2)).thenReturn(true);
+
+    assertThat(stockReservationService.isReserved(testOrder)).isTrue();
+
+    verify(stockReservationDao).save(any(StockReservation.class));
+    verify(stockAllocationEngine, never()).register(anyLong(), anyDouble(), anyInt(), anyMap());
+  }
+
+  @Test
+  void allocate_whenEngineChoosesLines_thenLedgerAndStockReserved() {
+    Book book = TestUtil.createTestBook(1L);
+    book.setAmount(3);
+    when(bookDao.findForUpdate(1L)).thenReturn(Optional.of(book));
+    when(stockAllocationEngine.allocate(eq(1L), eq(3), any())).thenAnswer(invocation -> {
+      AllocationQueues.Reservation reservation = invocation.getArgument(2);
+      assertThat(reservation.reserve(7L, 2)).isTrue();
+      assertThat(reservation.reserve(8L, 1)).isFalse();
+      return List.of(7L);
+    });
+    when(stockReservationDao.markReserved(7L, 1L)).thenReturn(1);
+    when(stockReservationDao.markReserved(8L, 1L)).thenReturn(0);
+    when(bookDao.reserve(1L, 2)).thenReturn(true);
+
+    assertThat(stockReservationService.allocate(1L)).containsExactly(7L);
+
+    verify(bookDao, never()).reserve(1L, 1);
+  }
+
+  @Test
+  void fulfil_thenReservedLinesWrittenOffAndLedgerCleared() {
+    when(stockReservationDao.findByOrder(1L)).thenReturn(List.of(
+        line(1L, 2, ReservationStatus.RESERVED),
+        line(2L, 1, ReservationStatus.WAITING)));
+
+    stockReservationService.fulfil(testOrder, TEST_DATE);
+
+    verify(bookDao).writeOffReserved(1L, 2, TEST_DATE);
+    verify(bookDao, never()).writeOffReserved(2L, 1, TEST_DATE);
+    verify(stockReservationDao).deleteByOrder(1L);
+    verify(stockAllocationEngine).remove(1L);
+  }
+
+  @Test
+  void release_thenReservedStockReturnedAndLedgerCleared() {
+    when(stockReservationDao.findByOrder(1L)).thenReturn(List.of(
+        line(1L, 2, ReservationStatus.RESERVED),
+        line(2L, 1, ReservationStatus.WAITING)));
+
+    stockReservationService.release(testOrder);
+
+    verify(bookDao).releaseReserved(1L, 2);
+    verify(bookDao, never()).releaseReserved(2L, 1);
+    verify(stockReservationDao).deleteByOrder(1L);
+    verify(stockAllocationEngine).remove(1L);
+  }
+
+  private StockReservation line(Long bookId, int amount, ReservationStatus status) {
+    StockReservation reservation = new StockReservation(1L, bookId, amount, TEST_DATE);
+    reservation.setStatus(status);
+    return reservation;
+  }
+}